@@ -54,12 +54,37 @@ public class TraceReadBenchmark {
         readTrace(CtfTestTrace.KERNEL_VM, "trace-kernel-vm", false);
     }
 
+    /**
+     * Benchmark reading the synthetic trace, which has many streams, with the
+     * streams decoded in the reading thread
+     */
+    @Test
+    public void testSyntheticTrace() {
+        readTrace(CtfTestTrace.SYNTHETIC_TRACE, "trace-synthetic", false, false);
+    }
+
+    /**
+     * Benchmark reading the synthetic trace with parallel decoding of the
+     * streams
+     */
+    @Test
+    public void testSyntheticTraceParallel() {
+        readTrace(CtfTestTrace.SYNTHETIC_TRACE, "trace-synthetic-parallel", false, true);
+    }
+
     private static void readTrace(CtfTestTrace testTrace, String testName, boolean inGlobalSummary) {
+        readTrace(testTrace, testName, inGlobalSummary, false);
+    }
+
+    private static void readTrace(CtfTestTrace testTrace, String testName,
+            boolean inGlobalSummary, boolean parallel) {
         assumeTrue(testTrace.exists());
 
         Performance perf = Performance.getDefault();
         PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + '#' + testName);
-        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+        /* Parallel decoding uses more CPU time, but less elapsed time */
+        Dimension dimension = parallel ? Dimension.ELAPSED_PROCESS : Dimension.CPU_TIME;
+        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, dimension);
 
         if (inGlobalSummary) {
             perf.tagAsGlobalSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
@@ -69,6 +94,7 @@ public class TraceReadBenchmark {
             pm.start();
             try (CTFTrace trace = testTrace.getTrace();
                     CTFTraceReader traceReader = new CTFTraceReader(trace);) {
+                traceReader.setParallelDecoding(parallel);
 
                 while (traceReader.hasMoreEvents()) {
                     EventDefinition ed = traceReader.getCurrentEventDef();
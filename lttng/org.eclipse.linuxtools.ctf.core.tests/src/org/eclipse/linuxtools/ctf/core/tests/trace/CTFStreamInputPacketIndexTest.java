@@ -13,6 +13,8 @@ package org.eclipse.linuxtools.ctf.core.tests.trace;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.Collection;
 import java.util.ListIterator;
@@ -163,4 +165,73 @@ public class CTFStreamInputPacketIndexTest {
 
         assertNotNull(result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Run the int searchIndex(long) method test, on an index with several
+     * packets.
+     *
+     * @throws CTFReaderException
+     */
+    @Test
+    public void testSearchIndex() throws CTFReaderException {
+        StreamInputPacketIndex index = createIndex(10);
+        /* Packet i covers the timestamps [i * 100, i * 100 + 50] */
+        assertEquals(0, index.searchIndex(0));
+        assertEquals(0, index.searchIndex(50));
+        assertEquals(1, index.searchIndex(51));
+        assertEquals(1, index.searchIndex(100));
+        assertEquals(5, index.searchIndex(520));
+        assertEquals(9, index.searchIndex(950));
+        /* After the end, the last packet */
+        assertEquals(9, index.searchIndex(10000));
+        assertEquals(0, new StreamInputPacketIndex().searchIndex(10));
+    }
+
+    /**
+     * Run the int indexOf(StreamInputPacketIndexEntry) method test.
+     *
+     * @throws CTFReaderException
+     */
+    @Test
+    public void testIndexOf() throws CTFReaderException {
+        StreamInputPacketIndex index = createIndex(10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, index.indexOf(index.getEntry(i)));
+        }
+        assertEquals(-1, index.indexOf(new StreamInputPacketIndexEntry(4096)));
+    }
+
+    /**
+     * Run the size(), getEntry(int) and lastEntry() methods test.
+     *
+     * @throws CTFReaderException
+     */
+    @Test
+    public void testGetEntry() throws CTFReaderException {
+        StreamInputPacketIndex index = new StreamInputPacketIndex();
+        assertEquals(0, index.size());
+        assertNull(index.lastEntry());
+
+        index = createIndex(100);
+        assertEquals(100, index.size());
+        assertEquals(99 * 4096, index.getEntry(99).getOffsetBytes());
+        assertSame(index.getEntry(99), index.lastEntry());
+        assertEquals(100, index.getEntries().size());
+
+        index.clear();
+        assertEquals(0, index.size());
+    }
+
+    private static StreamInputPacketIndex createIndex(int nbPackets) throws CTFReaderException {
+        StreamInputPacketIndex index = new StreamInputPacketIndex();
+        for (int i = 0; i < nbPackets; i++) {
+            StreamInputPacketIndexEntry packet = new StreamInputPacketIndexEntry(i * 4096);
+            packet.setPacketSizeBits(4096 * 8);
+            packet.setContentSizeBits(4096 * 8);
+            packet.setTimestampBegin(i * 100);
+            packet.setTimestampEnd(i * 100 + 50);
+            index.addEntry(packet);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
+import org.eclipse.linuxtools.ctf.core.event.IEventDeclaration;
+import org.eclipse.linuxtools.ctf.core.event.types.IDefinition;
+import org.eclipse.linuxtools.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.linuxtools.ctf.core.tests.synthetictraces.LttngKernelTraceGenerator;
+import org.eclipse.linuxtools.ctf.core.trace.CTFEventFilter;
+import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTrace;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
+import org.eclipse.linuxtools.internal.ctf.core.event.types.ArrayDeclaration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the event filter of the {@link CTFTraceReader}, which must return the
+ * same events as reading all the events and filtering them afterwards.
+ */
+public class CTFTraceReaderFilterTest {
+
+    private static final int NB_STREAMS = 4;
+    private static final int NB_EVENTS = 20000;
+    private static final String EVENT_NAME = "sched_switch";
+    private static final String FIELD_NAME = "prev_tid";
+    private static final String ARRAY_FIELD_NAME = "prev_comm";
+
+    private static File fTraceDir;
+    private static CTFTrace fTrace;
+    private static List<EventDefinition> fAllEvents;
+
+    /**
+     * Reader counting the events it skips
+     */
+    private static class CountingReader extends CTFTraceReader {
+        private int fNbSkipped = 0;
+
+        CountingReader(CTFTrace trace) throws CTFReaderException {
+            super(trace);
+        }
+
+        @Override
+        protected void eventSkipped(EventDefinition event) {
+            fNbSkipped++;
+        }
+    }
+
+    /**
+     * Generate a trace and read all its events
+     *
+     * @throws IOException
+     *             If the trace directory cannot be created
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void setUp() throws IOException, CTFReaderException {
+        fTraceDir = File.createTempFile("CTFTraceReaderFilterTest", "");
+        fTraceDir.delete();
+        new LttngKernelTraceGenerator(Integer.MAX_VALUE / 2, NB_EVENTS, NB_STREAMS).writeTrace(fTraceDir);
+        fTrace = new CTFTrace(fTraceDir);
+        fAllEvents = new ArrayList<>();
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            while (reader.hasMoreEvents()) {
+                fAllEvents.add(reader.getCurrentEventDef());
+                reader.advance();
+            }
+        }
+    }
+
+    /**
+     * Close and delete the test trace
+     */
+    @AfterClass
+    public static void tearDown() {
+        if (fTrace != null) {
+            fTrace.close();
+        }
+        for (File file : fTraceDir.listFiles()) {
+            if (file.isDirectory()) {
+                /* The saved packet index */
+                for (File child : file.listFiles()) {
+                    child.delete();
+                }
+            }
+            file.delete();
+        }
+        fTraceDir.delete();
+    }
+
+    private static long getNanos(EventDefinition event) {
+        return fTrace.timestampCyclesToNanos(event.getTimestamp());
+    }
+
+    private static long getField(EventDefinition event) {
+        return ((IntegerDefinition) event.getFields().lookupDefinition(FIELD_NAME)).getValue();
+    }
+
+    private static String toString(EventDefinition event) {
+        return event.getTimestamp() + "/" + event.getCPU() + '/' + event.getDeclaration().getName() + '/' + getField(event);
+    }
+
+    private static void checkFilter(CTFEventFilter filter, boolean parallel) throws CTFReaderException {
+        List<String> expected = new ArrayList<>();
+        int nbUntilEnd = 0;
+        for (EventDefinition event : fAllEvents) {
+            if (filter.accepts(event)) {
+                expected.add(toString(event));
+            }
+            if (getNanos(event) <= filter.getEndTime()) {
+                nbUntilEnd++;
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        try (CountingReader reader = new CountingReader(fTrace);) {
+            reader.setParallelDecoding(parallel);
+            reader.setEventFilter(filter);
+            while (reader.hasMoreEvents()) {
+                actual.add(toString(reader.getCurrentEventDef()));
+                reader.advance();
+            }
+            /* The reader stops at the first event after the end time */
+            assertEquals(nbUntilEnd, actual.size() + reader.fNbSkipped);
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test a filter on the event name and the time range
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testTimeRange() throws CTFReaderException {
+        long start = getNanos(fAllEvents.get(NB_EVENTS / 4));
+        long end = getNanos(fAllEvents.get(NB_EVENTS / 2));
+        checkFilter(new CTFEventFilter(fTrace, Collections.singleton(EVENT_NAME), start, end), false);
+        checkFilter(new CTFEventFilter(fTrace, Collections.singleton(EVENT_NAME), start, end), true);
+    }
+
+    /**
+     * Test a filter rejecting all the events from their header, which are
+     * then skipped without being decoded
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testNoMatch() throws CTFReaderException {
+        CTFEventFilter filter = new CTFEventFilter(fTrace, Collections.singleton("sched_process_fork"),
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        try (CountingReader reader = new CountingReader(fTrace);) {
+            reader.setEventFilter(filter);
+            assertFalse(reader.hasMoreEvents());
+            assertEquals(fAllEvents.size(), reader.fNbSkipped);
+        }
+    }
+
+    /**
+     * Test a filter rejecting events whose payload has arrays of integers,
+     * which are skipped from their declaration. The accepted events following
+     * them must be read from the right position.
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testSkipArrayPayload() throws CTFReaderException {
+        IEventDeclaration declaration = fAllEvents.get(0).getDeclaration();
+        assertTrue(declaration.getFields().getField("_" + ARRAY_FIELD_NAME) instanceof ArrayDeclaration);
+
+        long start = getNanos(fAllEvents.get(NB_EVENTS / 2));
+        CTFEventFilter filter = new CTFEventFilter(fTrace, null, start, Long.MAX_VALUE);
+        List<String> expected = new ArrayList<>();
+        for (EventDefinition event : fAllEvents) {
+            if (filter.accepts(event)) {
+                expected.add(toString(event) + '/' + event.getFields().lookupDefinition(ARRAY_FIELD_NAME));
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        try (CountingReader reader = new CountingReader(fTrace);) {
+            reader.setEventFilter(filter);
+            while (reader.hasMoreEvents()) {
+                EventDefinition event = reader.getCurrentEventDef();
+                IDefinition array = event.getFields().lookupDefinition(ARRAY_FIELD_NAME);
+                assertNotNull(array);
+                actual.add(toString(event) + '/' + array);
+                reader.advance();
+            }
+            assertTrue(reader.fNbSkipped > 0);
+            assertEquals(fAllEvents.size(), actual.size() + reader.fNbSkipped);
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test a filter on the range of an integer field
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testFieldRange() throws CTFReaderException {
+        long min = getField(fAllEvents.get(0));
+        CTFEventFilter filter = new CTFEventFilter(fTrace, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        filter.addFieldRange(FIELD_NAME, min, min + 10);
+        filter.addFieldRange("not_a_field", 0, 0);
+        checkFilter(filter, false);
+        checkFilter(filter, true);
+    }
+
+    /**
+     * Test seeking with a filter
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testSeek() throws CTFReaderException {
+        long start = getNanos(fAllEvents.get(NB_EVENTS / 2));
+        CTFEventFilter filter = new CTFEventFilter(fTrace, null, start, Long.MAX_VALUE);
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            reader.setEventFilter(filter);
+            assertTrue(reader.seek(0));
+            assertTrue(getNanos(reader.getCurrentEventDef()) >= start);
+            assertEquals(filter, reader.getEventFilter());
+        }
+    }
+}
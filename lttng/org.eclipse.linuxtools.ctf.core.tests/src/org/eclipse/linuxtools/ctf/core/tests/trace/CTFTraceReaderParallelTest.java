@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
+import org.eclipse.linuxtools.ctf.core.tests.synthetictraces.LttngKernelTraceGenerator;
+import org.eclipse.linuxtools.ctf.core.trace.CTFEventFilter;
+import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTrace;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the parallel decoding mode of the {@link CTFTraceReader}, which must
+ * return the same events, in the same order, as the normal mode.
+ */
+public class CTFTraceReaderParallelTest {
+
+    private static final int NB_STREAMS = 16;
+    private static final int NB_EVENTS = 100000;
+
+    private static File fTraceDir;
+    private static CTFTrace fTrace;
+
+    /**
+     * Generate a trace with many streams
+     *
+     * @throws IOException
+     *             If the trace directory cannot be created
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void setUp() throws IOException, CTFReaderException {
+        fTraceDir = File.createTempFile("CTFTraceReaderParallelTest", "");
+        fTraceDir.delete();
+        new LttngKernelTraceGenerator(Integer.MAX_VALUE / 2, NB_EVENTS, NB_STREAMS).writeTrace(fTraceDir);
+        fTrace = new CTFTrace(fTraceDir);
+    }
+
+    /**
+     * Close and delete the test trace
+     */
+    @AfterClass
+    public static void tearDown() {
+        if (fTrace != null) {
+            fTrace.close();
+        }
+        deleteDirectory(fTraceDir);
+    }
+
+    private static void deleteDirectory(File directory) {
+        for (File file : directory.listFiles()) {
+            if (file.isDirectory()) {
+                /* The saved packet index */
+                deleteDirectory(file);
+            } else {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test that all the events are read in the same order
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testReadAll() throws CTFReaderException {
+        List<String> expected = readEvents(false);
+        List<String> actual = readEvents(true);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test seeking in parallel mode
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testSeek() throws CTFReaderException {
+        List<String> expected = readEvents(false);
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            reader.setParallelDecoding(true);
+            assertTrue(reader.isParallelDecoding());
+
+            /* Read a few events before seeking back */
+            for (int i = 0; i < 1000; i++) {
+                reader.advance();
+            }
+            int rank = expected.size() / 2;
+            long timestamp = reader.getCurrentEventDef().getTimestamp();
+            assertTrue(reader.seek(0));
+            for (int i = 0; i < rank; i++) {
+                reader.advance();
+            }
+            assertEquals(expected.get(rank), toString(reader.getCurrentEventDef()));
+
+            assertTrue(reader.seek(timestamp));
+            assertEquals(timestamp, reader.getCurrentEventDef().getTimestamp());
+        }
+    }
+
+    /**
+     * Test switching between the two modes while reading
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testSwitchMode() throws CTFReaderException {
+        List<String> expected = readEvents(false);
+        List<String> actual = new ArrayList<>();
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            int count = 0;
+            while (reader.hasMoreEvents()) {
+                if (count % 5000 == 0) {
+                    reader.setParallelDecoding(!reader.isParallelDecoding());
+                }
+                actual.add(toString(reader.getCurrentEventDef()));
+                reader.advance();
+                count++;
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test changing the number of prefetched packets while the streams are
+     * decoded in parallel
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testChangePrefetchDepth() throws CTFReaderException {
+        List<String> expected = readEvents(false);
+        List<String> actual = new ArrayList<>();
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            reader.setParallelDecoding(true);
+            int count = 0;
+            while (reader.hasMoreEvents()) {
+                if (count % 5000 == 0) {
+                    reader.setPrefetchDepth(count / 5000 % 3);
+                }
+                actual.add(toString(reader.getCurrentEventDef()));
+                reader.advance();
+                count++;
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Test changing the event filter while the streams are decoded in
+     * parallel. The events decoded ahead with the first filter, which rejects
+     * them from their header, must be decoded again once it is removed.
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testChangeFilter() throws CTFReaderException {
+        long end;
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            for (int i = 0; i < 1000; i++) {
+                reader.advance();
+            }
+            end = fTrace.timestampCyclesToNanos(reader.getCurrentEventDef().getTimestamp());
+        }
+        List<String> expected = readFiltered(end, false);
+        List<String> actual = readFiltered(end, true);
+        assertEquals(expected, actual);
+    }
+
+    private static List<String> readFiltered(long end, boolean parallel) throws CTFReaderException {
+        List<String> events = new ArrayList<>();
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            reader.setEventFilter(new CTFEventFilter(fTrace, null, Long.MIN_VALUE, end));
+            reader.setParallelDecoding(parallel);
+            for (int i = 0; i < 900; i++) {
+                events.add(toString(reader.getCurrentEventDef()));
+                reader.advance();
+            }
+            reader.setEventFilter(null);
+            while (reader.hasMoreEvents()) {
+                EventDefinition event = reader.getCurrentEventDef();
+                assertNotNull(event.getFields());
+                events.add(toString(event));
+                reader.advance();
+            }
+        }
+        return events;
+    }
+
+    private static List<String> readEvents(boolean parallel) throws CTFReaderException {
+        List<String> events = new ArrayList<>();
+        try (CTFTraceReader reader = new CTFTraceReader(fTrace);) {
+            reader.setParallelDecoding(parallel);
+            while (reader.hasMoreEvents()) {
+                events.add(toString(reader.getCurrentEventDef()));
+                reader.advance();
+            }
+        }
+        return events;
+    }
+
+    private static String toString(EventDefinition event) {
+        return event.getTimestamp() + "/" + event.getCPU() + '/' + event.getDeclaration().getName();
+    }
+}
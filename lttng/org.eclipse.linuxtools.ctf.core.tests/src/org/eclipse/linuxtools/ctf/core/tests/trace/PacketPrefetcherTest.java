@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.linuxtools.internal.ctf.core.trace.PacketPrefetcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the region of the stream file loaded by the {@link PacketPrefetcher}
+ */
+public class PacketPrefetcherTest {
+
+    private static final int PACKET_SIZE = 4096;
+    private static final int NB_PACKETS = 32;
+
+    private File fFile;
+    private FileChannel fChannel;
+    private PacketPrefetcher fFixture;
+
+    /**
+     * Create a stream file
+     *
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fFile = File.createTempFile("PacketPrefetcherTest", ".ctf");
+        try (RandomAccessFile raf = new RandomAccessFile(fFile, "rw");) {
+            raf.setLength(PACKET_SIZE * NB_PACKETS);
+        }
+        fChannel = FileChannel.open(fFile.toPath(), StandardOpenOption.READ);
+        fFixture = new PacketPrefetcher(fChannel);
+    }
+
+    /**
+     * Delete the stream file
+     *
+     * @throws IOException
+     *             If the file cannot be closed
+     */
+    @After
+    public void tearDown() throws IOException {
+        fChannel.close();
+        fFile.delete();
+    }
+
+    private long reach(int packet) {
+        return fFixture.packetReached(packet * PACKET_SIZE, PACKET_SIZE);
+    }
+
+    /**
+     * Test reading the packets in order
+     */
+    @Test
+    public void testSequential() {
+        final int depth = PacketPrefetcher.DEFAULT_DEPTH;
+        assertEquals(depth * PACKET_SIZE, reach(0));
+        for (int packet = 1; packet < NB_PACKETS - depth; packet++) {
+            assertEquals(PACKET_SIZE, reach(packet));
+        }
+        /* Nothing to load past the end of the file */
+        for (int packet = NB_PACKETS - depth; packet < NB_PACKETS; packet++) {
+            assertEquals(0, reach(packet));
+        }
+    }
+
+    /**
+     * Test seeking forward and backward
+     */
+    @Test
+    public void testSeek() {
+        fFixture.setDepth(2);
+        assertEquals(2 * PACKET_SIZE, reach(0));
+        /* Seek inside the loaded region, only the packets after it are loaded */
+        assertEquals(2 * PACKET_SIZE, reach(2));
+        /* Seek after it */
+        assertEquals(2 * PACKET_SIZE, reach(10));
+        /* Seek before it */
+        assertEquals(2 * PACKET_SIZE, reach(5));
+        assertEquals(PACKET_SIZE, reach(6));
+    }
+
+    /**
+     * Test disabling the read-ahead
+     */
+    @Test
+    public void testDisabled() {
+        fFixture.setDepth(0);
+        assertEquals(0, fFixture.getDepth());
+        for (int packet = 0; packet < NB_PACKETS; packet++) {
+            assertEquals(0, reach(packet));
+        }
+    }
+}
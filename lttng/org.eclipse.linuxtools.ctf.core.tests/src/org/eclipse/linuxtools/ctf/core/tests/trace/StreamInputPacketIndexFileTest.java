@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.eclipse.linuxtools.ctf.core.tests.synthetictraces.LttngKernelTraceGenerator;
+import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTrace;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
+import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndexFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the packet indexes saved next to the trace by
+ * {@link StreamInputPacketIndexFile}
+ */
+public class StreamInputPacketIndexFileTest {
+
+    private static final int NB_STREAMS = 4;
+    private static final int NB_EVENTS = 20000;
+
+    private File fTraceDir;
+    private File fStreamFile;
+
+    /**
+     * Generate a trace
+     *
+     * @throws IOException
+     *             If the trace directory cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fTraceDir = File.createTempFile("StreamInputPacketIndexFileTest", "");
+        fTraceDir.delete();
+        new LttngKernelTraceGenerator(Integer.MAX_VALUE / 2, NB_EVENTS, NB_STREAMS).writeTrace(fTraceDir);
+        fStreamFile = new File(fTraceDir, "channel0");
+    }
+
+    /**
+     * Delete the trace
+     */
+    @After
+    public void tearDown() {
+        File indexDir = new File(fTraceDir, StreamInputPacketIndexFile.DIRECTORY_NAME);
+        if (indexDir.isDirectory()) {
+            for (File file : indexDir.listFiles()) {
+                file.delete();
+            }
+            indexDir.delete();
+        }
+        for (File file : fTraceDir.listFiles()) {
+            file.delete();
+        }
+        fTraceDir.delete();
+    }
+
+    private long readTrace() throws CTFReaderException {
+        long count = 0;
+        try (CTFTrace trace = new CTFTrace(fTraceDir);
+                CTFTraceReader reader = new CTFTraceReader(trace);) {
+            while (reader.hasMoreEvents()) {
+                count++;
+                reader.advance();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Test that the index is saved once the trace is completely read, and
+     * that the trace reads the same with it.
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     */
+    @Test
+    public void testSaveAndReload() throws CTFReaderException {
+        assertNull(StreamInputPacketIndexFile.read(fStreamFile));
+
+        long count = readTrace();
+        assertTrue(count >= NB_EVENTS);
+        assertTrue(StreamInputPacketIndexFile.getIndexFile(fStreamFile).isFile());
+
+        StreamInputPacketIndexFile saved = StreamInputPacketIndexFile.read(fStreamFile);
+        assertNotNull(saved);
+        assertTrue(saved.isComplete(fStreamFile));
+        List<StreamInputPacketIndexEntry> entries = saved.getEntries();
+        assertFalse(entries.isEmpty());
+        StreamInputPacketIndexEntry last = entries.get(entries.size() - 1);
+        assertEquals(fStreamFile.length(), last.getOffsetBytes() + last.getPacketSizeBits() / 8);
+        assertEquals(last.getTimestampEnd(), saved.getTimestampEnd());
+
+        /* Read it again, using the saved index */
+        assertEquals(count, readTrace());
+    }
+
+    /**
+     * Test that the saved index is ignored if the stream file is truncated
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     * @throws IOException
+     *             If the file cannot be truncated
+     */
+    @Test
+    public void testTruncatedStream() throws CTFReaderException, IOException {
+        readTrace();
+        try (RandomAccessFile raf = new RandomAccessFile(fStreamFile, "rw");) {
+            raf.setLength(fStreamFile.length() / 2);
+        }
+        assertNull(StreamInputPacketIndexFile.read(fStreamFile));
+    }
+
+    /**
+     * Test that an invalid index file is ignored
+     *
+     * @throws CTFReaderException
+     *             Fails the test
+     * @throws IOException
+     *             If the index file cannot be written
+     */
+    @Test
+    public void testCorruptedIndex() throws CTFReaderException, IOException {
+        long count = readTrace();
+        try (FileOutputStream out = new FileOutputStream(StreamInputPacketIndexFile.getIndexFile(fStreamFile));) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        assertNull(StreamInputPacketIndexFile.read(fStreamFile));
+        assertEquals(count, readTrace());
+    }
+}
@@ -26,6 +26,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     CTFTraceCallsitePerformanceTest.class,
     CTFTraceReaderTest.class,
+    CTFTraceReaderParallelTest.class,
+    CTFTraceReaderFilterTest.class,
     CTFTraceTest.class,
     CTFTraceGrowingTest.class,
     IOstructgenTest.class,
@@ -36,6 +38,8 @@ import org.junit.runners.Suite;
     CTFStreamInputReaderTimestampComparatorTest.class,
     CTFStreamInputTest.class,
     CTFStreamTest.class,
+    PacketPrefetcherTest.class,
+    StreamInputPacketIndexFileTest.class,
     UtilsTest.class
 })
 public class TestAll {
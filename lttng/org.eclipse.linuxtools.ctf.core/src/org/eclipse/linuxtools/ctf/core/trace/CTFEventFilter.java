@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.ctf.core.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
+import org.eclipse.linuxtools.ctf.core.event.IEventDeclaration;
+import org.eclipse.linuxtools.ctf.core.event.types.Definition;
+import org.eclipse.linuxtools.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.linuxtools.ctf.core.event.types.StructDefinition;
+
+/**
+ * Filter on the events of a trace, applied by the {@link CTFTraceReader} while
+ * reading the events, see {@link CTFTraceReader#setEventFilter}.
+ *
+ * The event name and the timestamp are checked as soon as the event header is
+ * decoded: the other parts of the rejected events are skipped without being
+ * decoded when their size is fixed. The ranges of the integer fields are
+ * checked once the event payload is decoded.
+ *
+ * The filter does not change once it is created, except for the field ranges
+ * which must be added before it is given to a reader.
+ *
+ * @since 3.1
+ */
+public final class CTFEventFilter {
+
+    private final CTFTrace fTrace;
+    private final @Nullable Set<String> fEventNames;
+    private final long fStartTime;
+    private final long fEndTime;
+    private final List<FieldRange> fFieldRanges = new ArrayList<>();
+
+    /**
+     * Range of values of an integer field
+     */
+    private static final class FieldRange {
+        private final String fName;
+        private final long fMin;
+        private final long fMax;
+
+        FieldRange(String name, long min, long max) {
+            fName = name;
+            fMin = min;
+            fMax = max;
+        }
+    }
+
+    /**
+     * Constructor. The time range is in nanoseconds, the event timestamps are
+     * converted with {@link CTFTrace#timestampCyclesToNanos} before being
+     * compared to it.
+     *
+     * @param trace
+     *            The trace of the events
+     * @param eventNames
+     *            The names of the events to keep, or null to keep all the
+     *            event types
+     * @param startTime
+     *            The smallest timestamp of the events to keep, in nanoseconds
+     * @param endTime
+     *            The largest timestamp of the events to keep, in nanoseconds
+     */
+    public CTFEventFilter(CTFTrace trace, @Nullable Set<String> eventNames, long startTime, long endTime) {
+        fTrace = trace;
+        fEventNames = (eventNames == null) ? null : Collections.unmodifiableSet(new HashSet<>(eventNames));
+        fStartTime = startTime;
+        fEndTime = endTime;
+    }
+
+    /**
+     * Only keep the events whose field of the given name, if they have one and
+     * if it is an integer, is within the given range. The field is looked up
+     * in the event payload as {@link StructDefinition#lookupDefinition} does.
+     *
+     * @param fieldName
+     *            The name of the field
+     * @param min
+     *            The smallest value to keep
+     * @param max
+     *            The largest value to keep
+     */
+    public void addFieldRange(String fieldName, long min, long max) {
+        fFieldRanges.add(new FieldRange(fieldName, min, max));
+    }
+
+    /**
+     * Get the names of the events kept by this filter
+     *
+     * @return The names, or null if all the event types are kept
+     */
+    public @Nullable Set<String> getEventNames() {
+        return fEventNames;
+    }
+
+    /**
+     * @return The smallest timestamp of the events to keep, in nanoseconds
+     */
+    public long getStartTime() {
+        return fStartTime;
+    }
+
+    /**
+     * @return The largest timestamp of the events to keep, in nanoseconds
+     */
+    public long getEndTime() {
+        return fEndTime;
+    }
+
+    /**
+     * Check an event from the information of its header
+     *
+     * @param declaration
+     *            The declaration of the event
+     * @param timestamp
+     *            The timestamp of the event, in clock cycles
+     * @return If the event can be kept, once its payload is checked
+     */
+    public boolean acceptsHeader(IEventDeclaration declaration, long timestamp) {
+        if (fStartTime != Long.MIN_VALUE || fEndTime != Long.MAX_VALUE) {
+            long nanos = fTrace.timestampCyclesToNanos(timestamp);
+            if (nanos < fStartTime || nanos > fEndTime) {
+                return false;
+            }
+        }
+        final Set<String> eventNames = fEventNames;
+        return (eventNames == null) || eventNames.contains(declaration.getName());
+    }
+
+    /**
+     * Check a decoded event
+     *
+     * @param event
+     *            The event
+     * @return If the event is kept
+     */
+    public boolean accepts(EventDefinition event) {
+        if (!acceptsHeader(event.getDeclaration(), event.getTimestamp())) {
+            return false;
+        }
+        if (fFieldRanges.isEmpty()) {
+            return true;
+        }
+        StructDefinition fields = event.getFields();
+        if (fields == null) {
+            return true;
+        }
+        for (FieldRange range : fFieldRanges) {
+            Definition field = fields.lookupDefinition(range.fName);
+            if (field instanceof IntegerDefinition) {
+                long value = ((IntegerDefinition) field).getValue();
+                if (value < range.fMin || value > range.fMax) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -18,6 +18,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.UUID;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -36,6 +37,7 @@ import org.eclipse.linuxtools.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.linuxtools.internal.ctf.core.event.types.ArrayDefinition;
 import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndex;
 import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndexFile;
 
 /**
  * <b><u>StreamInput</u></b>
@@ -84,6 +86,11 @@ public class CTFStreamInput implements IDefinitionScope, AutoCloseable {
      */
     private long fLostSoFar = 0;
 
+    /**
+     * Number of entries of the index that are saved on disk
+     */
+    private int fSavedEntries = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -198,6 +205,63 @@ public class CTFStreamInput implements IDefinitionScope, AutoCloseable {
             fStreamPacketContextDecl = getStream().getPacketContextDecl();
         }
 
+        loadSavedIndex();
+    }
+
+    /**
+     * Fill the index with the entries saved the last time this file was
+     * completely indexed, if any. If the file grew since, it is still indexed
+     * from the end of the saved entries.
+     */
+    private synchronized void loadSavedIndex() {
+        if (!fIndex.isEmpty()) {
+            return;
+        }
+        StreamInputPacketIndexFile saved = StreamInputPacketIndexFile.read(fFile);
+        if (saved == null || saved.getEntries().isEmpty()) {
+            return;
+        }
+        List<StreamInputPacketIndexEntry> entries = saved.getEntries();
+
+        if (!saved.isComplete(fFile)) {
+            /*
+             * Packets were appended to the file, or it was replaced. Check
+             * that the last saved packet is still the same.
+             */
+            StreamInputPacketIndexEntry last = entries.get(entries.size() - 1);
+            StreamInputPacketIndexEntry check = new StreamInputPacketIndexEntry(last.getOffsetBytes());
+            try {
+                createPacketIndexEntry(getStreamSize(), last.getOffsetBytes(), check);
+            } catch (CTFReaderException e) {
+                return;
+            }
+            if (!isSamePacket(last, check)) {
+                return;
+            }
+        }
+
+        try {
+            for (StreamInputPacketIndexEntry entry : entries) {
+                fIndex.addEntry(entry);
+            }
+        } catch (CTFReaderException e) {
+            /* Inconsistent saved index, build it again */
+            fIndex.clear();
+            return;
+        }
+        fLostSoFar = saved.getLostEvents();
+        setTimestampEnd(saved.getTimestampEnd());
+        fSavedEntries = entries.size();
+    }
+
+    private static boolean isSamePacket(StreamInputPacketIndexEntry entry1,
+            StreamInputPacketIndexEntry entry2) {
+        return (entry1.getOffsetBytes() == entry2.getOffsetBytes())
+                && (entry1.getDataOffsetBits() == entry2.getDataOffsetBits())
+                && (entry1.getPacketSizeBits() == entry2.getPacketSizeBits())
+                && (entry1.getContentSizeBits() == entry2.getContentSizeBits())
+                && (entry1.getTimestampBegin() == entry2.getTimestampBegin())
+                && (entry1.getTimestampEnd() == entry2.getTimestampEnd());
     }
 
     /**
@@ -210,10 +274,10 @@ public class CTFStreamInput implements IDefinitionScope, AutoCloseable {
      * @throws CTFReaderException
      *             If there was a problem reading the packed header
      */
-    public boolean addPacketHeaderIndex() throws CTFReaderException {
+    public synchronized boolean addPacketHeaderIndex() throws CTFReaderException {
         long currentPos = 0L;
-        if (!fIndex.getEntries().isEmpty()) {
-            StreamInputPacketIndexEntry pos = fIndex.getEntries().lastElement();
+        StreamInputPacketIndexEntry pos = fIndex.lastEntry();
+        if (pos != null) {
             currentPos = computeNextOffset(pos);
         }
         long fileSize = getStreamSize();
@@ -225,6 +289,12 @@ public class CTFStreamInput implements IDefinitionScope, AutoCloseable {
             fIndex.addEntry(packetIndex);
             return true;
         }
+
+        /* The file is completely indexed, save the index for the next time */
+        if (fIndex.size() > fSavedEntries) {
+            StreamInputPacketIndexFile.write(fFile, fIndex, fLostSoFar, getTimestampEnd());
+            fSavedEntries = fIndex.size();
+        }
         return false;
     }
 
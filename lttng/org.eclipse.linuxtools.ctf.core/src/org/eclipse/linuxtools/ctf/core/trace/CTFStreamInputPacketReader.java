@@ -14,6 +14,8 @@ package org.eclipse.linuxtools.ctf.core.trace;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -24,6 +26,7 @@ import org.eclipse.linuxtools.ctf.core.event.io.BitBuffer;
 import org.eclipse.linuxtools.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.linuxtools.ctf.core.event.scope.LexicalScope;
 import org.eclipse.linuxtools.ctf.core.event.types.Definition;
+import org.eclipse.linuxtools.ctf.core.event.types.EnumDeclaration;
 import org.eclipse.linuxtools.ctf.core.event.types.ICompositeDefinition;
 import org.eclipse.linuxtools.ctf.core.event.types.IDeclaration;
 import org.eclipse.linuxtools.ctf.core.event.types.IDefinition;
@@ -36,7 +39,9 @@ import org.eclipse.linuxtools.ctf.core.event.types.StructDefinition;
 import org.eclipse.linuxtools.ctf.core.event.types.VariantDefinition;
 import org.eclipse.linuxtools.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.linuxtools.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.linuxtools.internal.ctf.core.event.types.ArrayDeclaration;
 import org.eclipse.linuxtools.internal.ctf.core.event.types.composite.EventHeaderDefinition;
+import org.eclipse.linuxtools.internal.ctf.core.trace.PacketPrefetcher;
 import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputPacketIndexEntry;
 
 import com.google.common.collect.ImmutableList;
@@ -96,6 +101,15 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
 
     private boolean fHasLost = false;
 
+    /** Read-ahead of the following packets */
+    private final PacketPrefetcher fPrefetcher;
+
+    /** Filter of the events, checked after decoding their header */
+    private volatile CTFEventFilter fEventFilter = null;
+
+    /** Whether the parts following the header of an event have a fixed size */
+    private final Map<IEventDeclaration, Boolean> fFixedSizeEvents = new IdentityHashMap<>();
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -121,6 +135,7 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         fStreamPacketContextDecl = currentStream.getPacketContextDecl();
         fStreamEventHeaderDecl = currentStream.getEventHeaderDeclaration();
         fStreamEventContextDecl = currentStream.getEventContextDecl();
+        fPrefetcher = new PacketPrefetcher(streamInputReader.getFc());
     }
 
     /**
@@ -210,6 +225,28 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         return fCurrentCpu;
     }
 
+    /**
+     * Set the number of packets to load in the background ahead of the
+     * current one
+     *
+     * @param packets
+     *            The number of packets, 0 to disable the read-ahead
+     */
+    void setPrefetchDepth(int packets) {
+        fPrefetcher.setDepth(packets);
+    }
+
+    /**
+     * Set the filter of the events. The events it rejects from their header
+     * are returned without their contexts and payload.
+     *
+     * @param filter
+     *            The filter, or null to decode all the events
+     */
+    void setEventFilter(CTFEventFilter filter) {
+        fEventFilter = filter;
+    }
+
     @Override
     public LexicalScope getScopePath() {
         return LexicalScope.PACKET;
@@ -244,13 +281,13 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
              * Change the map of the BitBuffer.
              */
             ByteBuffer bb = null;
+            final long packetSizeBytes = (fCurrentPacket.getPacketSizeBits() + 7) / 8;
             try {
-                bb = getByteBufferAt(
-                        fCurrentPacket.getOffsetBytes(),
-                        (fCurrentPacket.getPacketSizeBits() + 7) / 8);
+                bb = getByteBufferAt(fCurrentPacket.getOffsetBytes(), packetSizeBytes);
             } catch (IOException e) {
                 throw new CTFReaderException(e.getMessage(), e);
             }
+            fPrefetcher.packetReached(fCurrentPacket.getOffsetBytes(), packetSizeBytes);
 
             BitBuffer bitBuffer = new BitBuffer(bb);
             fBitBuffer = bitBuffer;
@@ -282,11 +319,11 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
                      * to 1.
                      */
                     long lostEventsStartTime;
-                    int index = fStreamInputReader.getStreamInput().getIndex().getEntries().indexOf(currentPacket);
+                    int index = fStreamInputReader.getStreamInput().getIndex().indexOf(currentPacket);
                     if (index == 0) {
                         lostEventsStartTime = currentPacket.getTimestampBegin() + 1;
                     } else {
-                        prevPacket = fStreamInputReader.getStreamInput().getIndex().getEntries().get(index - 1);
+                        prevPacket = fStreamInputReader.getStreamInput().getIndex().getEntry(index - 1);
                         lostEventsStartTime = prevPacket.getTimestampEnd();
                     }
                     fLostEventsDuration = Math.abs(lostEventsStartTime - currentPacket.getTimestampBegin());
@@ -432,6 +469,14 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         if (eventDeclaration == null) {
             throw new CTFReaderException("Incorrect event id : " + eventID); //$NON-NLS-1$
         }
+        final CTFEventFilter filter = fEventFilter;
+        if (filter != null && !filter.acceptsHeader(eventDeclaration, timestamp)) {
+            skipEvent(eventDeclaration, currentBitBuffer, timestamp);
+            if (posStart == currentBitBuffer.position()) {
+                throw new CTFReaderException("Empty event not allowed, event: " + eventDeclaration.getName()); //$NON-NLS-1$
+            }
+            return new EventDefinition(eventDeclaration, fStreamInputReader, timestamp, null, null, null, null);
+        }
         EventDefinition eventDef = eventDeclaration.createDefinition(fStreamInputReader, currentBitBuffer, timestamp);
 
         /*
@@ -446,6 +491,83 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         return eventDef;
     }
 
+    /**
+     * Move the buffer past the contexts and payload of an event rejected by
+     * the filter. They are skipped without being decoded if their size is
+     * fixed, otherwise they are decoded and dropped.
+     */
+    private void skipEvent(IEventDeclaration eventDeclaration, BitBuffer input, long timestamp) throws CTFReaderException {
+        Boolean fixedSize = fFixedSizeEvents.get(eventDeclaration);
+        if (fixedSize == null) {
+            fixedSize = (eventDeclaration instanceof EventDeclaration) &&
+                    isFixedSize(fStreamEventContextDecl) &&
+                    isFixedSize(eventDeclaration.getContext()) &&
+                    isFixedSize(eventDeclaration.getFields());
+            fFixedSizeEvents.put(eventDeclaration, fixedSize);
+        }
+        if (!fixedSize) {
+            eventDeclaration.createDefinition(fStreamInputReader, input, timestamp);
+            return;
+        }
+        long position = input.position();
+        position = skip(fStreamEventContextDecl, position);
+        position = skip(eventDeclaration.getContext(), position);
+        position = skip(eventDeclaration.getFields(), position);
+        input.position(position);
+    }
+
+    /**
+     * Check if a declaration, or the lack of one, always has the same size
+     * and can be skipped with {@link #skip}
+     */
+    private static boolean isFixedSize(@Nullable IDeclaration declaration) {
+        if (declaration == null || declaration instanceof IntegerDeclaration || declaration instanceof EnumDeclaration) {
+            return true;
+        }
+        if (declaration instanceof ArrayDeclaration) {
+            return isFixedSize(((ArrayDeclaration) declaration).getElementType());
+        }
+        if (declaration instanceof StructDeclaration) {
+            for (IDeclaration field : ((StructDeclaration) declaration).getFields().values()) {
+                if (!isFixedSize(field)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        /* Floats, strings, sequences, variants... */
+        return false;
+    }
+
+    /**
+     * Get the position following a fixed size declaration, aligned the same
+     * way as when it is decoded
+     */
+    private static long skip(@Nullable IDeclaration declaration, long position) {
+        if (declaration == null) {
+            return position;
+        }
+        long mask = declaration.getAlignment() - 1;
+        long pos = (position + mask) & ~mask;
+        if (declaration instanceof IntegerDeclaration) {
+            return pos + ((IntegerDeclaration) declaration).getLength();
+        }
+        if (declaration instanceof EnumDeclaration) {
+            return skip(((EnumDeclaration) declaration).getContainerType(), pos);
+        }
+        if (declaration instanceof ArrayDeclaration) {
+            ArrayDeclaration array = (ArrayDeclaration) declaration;
+            for (int i = 0; i < array.getLength(); i++) {
+                pos = skip(array.getElementType(), pos);
+            }
+            return pos;
+        }
+        for (IDeclaration field : ((StructDeclaration) declaration).getFields().values()) {
+            pos = skip(field, pos);
+        }
+        return pos;
+    }
+
     /**
      * Calculates the timestamp value of the event, possibly using the timestamp
      * from the last event.
@@ -17,6 +17,11 @@ import java.io.IOException;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
@@ -36,6 +41,12 @@ import com.google.common.collect.ImmutableList;
  */
 public class CTFStreamInputReader implements AutoCloseable {
 
+    /** Number of events decoded at once in parallel decoding mode */
+    private static final int BATCH_SIZE = 256;
+
+    /** Number of decoded batches that can wait to be read, per stream */
+    private static final int MAX_PENDING_BATCHES = 4;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -74,6 +85,30 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     private boolean fLive = false;
 
+    /**
+     * Parallel decoding mode, see {@link #setParallelDecoding}
+     */
+    private boolean fParallel = false;
+
+    /**
+     * Decoder of the events ahead of the current one, null if the events are
+     * read by the calling thread.
+     */
+    private ParallelDecoder fDecoder = null;
+
+    /** Batch of decoded events being read, and position in it */
+    private EventBatch fBatch = null;
+    private int fBatchPos = 0;
+
+    /** CPU of the current event, when it was read from a decoded batch */
+    private int fCurrentCpu;
+
+    /**
+     * Number of events read since the first one with the timestamp of the
+     * current event, including it. Used to find the current event again.
+     */
+    private long fNbEventsAtTimestamp = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -98,9 +133,10 @@ public class CTFStreamInputReader implements AutoCloseable {
         }
         fPacketReader = new CTFStreamInputPacketReader(this);
         /*
-         * Get the iterator on the packet index.
+         * Get the iterator on the packet index. It is incremented when going
+         * to the first packet, which may have been indexed by another reader.
          */
-        fPacketIndex = 0;
+        fPacketIndex = -1;
         /*
          * Make first packet the current one.
          */
@@ -116,6 +152,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     @Override
     public void close() throws IOException {
+        discardDecoder();
         fFileChannel.close();
         fPacketReader.close();
     }
@@ -169,6 +206,10 @@ public class CTFStreamInputReader implements AutoCloseable {
      * @return The CPU id (a number)
      */
     public int getCPU() {
+        if (fDecoder != null) {
+            /* The packet reader can be ahead of the current event */
+            return fCurrentCpu;
+        }
         return fPacketReader.getCPU();
     }
 
@@ -205,6 +246,14 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     public void setLive(boolean live) {
         fLive = live;
+        if (live) {
+            /* New packets are only seen by reading in the calling thread */
+            if (fDecoder != null) {
+                fDecoder.stop();
+            }
+        } else if (fParallel) {
+            startDecoder();
+        }
     }
 
     /**
@@ -225,6 +274,80 @@ public class CTFStreamInputReader implements AutoCloseable {
         return getStreamInput().getStream().getEventContextDecl();
     }
 
+    /**
+     * Set the parallel decoding mode. In this mode, the events following the
+     * current one are decoded in advance by a worker thread, and
+     * {@link #readNextEvent()} returns the decoded events, in the same order.
+     * The packet reader is then ahead of the current event. Parallel decoding
+     * is suspended while the stream is read live.
+     *
+     * @param parallel
+     *            whether to decode the events in a worker thread
+     */
+    void setParallelDecoding(boolean parallel) {
+        fParallel = parallel;
+        if (parallel) {
+            if (!fLive) {
+                startDecoder();
+            }
+        } else if (fDecoder != null) {
+            /* The events already decoded will be read first */
+            fDecoder.stop();
+        }
+    }
+
+    /**
+     * Set the number of packets to load in the background ahead of the
+     * current one. The parallel decoder, if any, is stopped while the packet
+     * reader is changed.
+     *
+     * @param packets
+     *            The number of packets, 0 to disable the read-ahead
+     */
+    void setPrefetchDepth(int packets) {
+        if (fDecoder != null && !fDecoder.isStopped()) {
+            fDecoder.stop();
+            fPacketReader.setPrefetchDepth(packets);
+            fDecoder.resume();
+        } else {
+            fPacketReader.setPrefetchDepth(packets);
+        }
+    }
+
+    /**
+     * Set the filter of the events. The events already decoded ahead of the
+     * current one by the parallel decoder were filtered with the previous
+     * filter, so they are dropped and decoded again from the current event.
+     *
+     * @param filter
+     *            The filter, or null to decode all the events
+     * @throws CTFReaderException
+     *             if an error occurs while going back to the current event
+     */
+    void setEventFilter(CTFEventFilter filter) throws CTFReaderException {
+        if (fDecoder == null) {
+            fPacketReader.setEventFilter(filter);
+            return;
+        }
+        final EventDefinition current = fCurrentEvent;
+        final long nbEventsAtTimestamp = fNbEventsAtTimestamp;
+        discardDecoder();
+        fPacketReader.setEventFilter(filter);
+        if (current != null) {
+            /*
+             * The events of a stream are in timestamp order, the current event
+             * is the n-th one with its timestamp.
+             */
+            seekPacket(current.getTimestamp());
+            for (long i = 1; i < nbEventsAtTimestamp && fCurrentEvent != null; i++) {
+                readNextEvent();
+            }
+        }
+        if (fParallel && !fLive) {
+            startDecoder();
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Operations
     // ------------------------------------------------------------------------
@@ -236,28 +359,109 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFResponse readNextEvent() throws CTFReaderException {
+        if (fDecoder != null) {
+            CTFResponse response = readDecodedEvent();
+            if (response != null) {
+                return response;
+            }
+            /* The decoder was stopped and all its events were read */
+        }
 
         /*
-         * Change packet if needed
+         * If an event is available, read it.
          */
+        if (prepareNextEvent()) {
+            setCurrentEvent(fPacketReader.readNextEvent());
+            return CTFResponse.OK;
+        }
+        this.setCurrentEvent(null);
+        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+    }
+
+    /**
+     * Change packet if needed, so that the packet reader points to the next
+     * event.
+     *
+     * @return If there is an event to read
+     * @throws CTFReaderException
+     *             if an error occurs
+     */
+    private boolean prepareNextEvent() throws CTFReaderException {
         if (!fPacketReader.hasMoreEvents()) {
             final StreamInputPacketIndexEntry prevPacket = fPacketReader
                     .getCurrentPacket();
             if (prevPacket != null || fLive) {
                 goToNextPacket();
             }
+        }
+        return fPacketReader.hasMoreEvents();
+    }
+
+    /**
+     * Read the next event from the batches of the parallel decoder.
+     *
+     * @return The response, or null if the decoder is stopped and there are no
+     *         decoded events left, in which case the events have to be read in
+     *         this thread.
+     * @throws CTFReaderException
+     *             if the decoder failed to read the next event
+     */
+    private CTFResponse readDecodedEvent() throws CTFReaderException {
+        while (fBatch == null || fBatchPos >= fBatch.fSize) {
+            if (fBatch != null && fBatch.fLast) {
+                if (fBatch.fError != null) {
+                    Throwable error = fBatch.fError;
+                    fBatch = null;
+                    fDecoder = null;
+                    if (error instanceof CTFReaderException) {
+                        throw (CTFReaderException) error;
+                    }
+                    throw (RuntimeException) error;
+                }
+                if (fDecoder.isStopped()) {
+                    fBatch = null;
+                    fDecoder = null;
+                    return null;
+                }
+                this.setCurrentEvent(null);
+                return CTFResponse.FINISH;
+            }
+            fBatch = fDecoder.take();
+            fBatchPos = 0;
+            if (fBatch == null) {
+                fDecoder = null;
+                return null;
+            }
+        }
+        fCurrentCpu = fBatch.fCpus[fBatchPos];
+        setCurrentEvent(fBatch.fEvents[fBatchPos]);
+        fBatch.fEvents[fBatchPos] = null;
+        fBatchPos++;
+        return CTFResponse.OK;
+    }
 
+    /**
+     * Start decoding the events following the current one in a worker thread,
+     * or resume the stopped decoder.
+     */
+    private void startDecoder() {
+        if (fDecoder == null) {
+            fCurrentCpu = fPacketReader.getCPU();
+            fDecoder = new ParallelDecoder();
         }
+        fDecoder.resume();
+    }
 
-        /*
-         * If an event is available, read it.
-         */
-        if (fPacketReader.hasMoreEvents()) {
-            setCurrentEvent(fPacketReader.readNextEvent());
-            return CTFResponse.OK;
+    /**
+     * Stop the parallel decoder and drop the events it decoded, before the
+     * position of the packet reader is changed.
+     */
+    private void discardDecoder() {
+        if (fDecoder != null) {
+            fDecoder.stop();
+            fDecoder = null;
         }
-        this.setCurrentEvent(null);
-        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+        fBatch = null;
     }
 
     /**
@@ -268,17 +472,20 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     private void goToNextPacket() throws CTFReaderException {
         fPacketIndex++;
-        // did we already index the packet?
-        if (getPacketSize() >= (fPacketIndex + 1)) {
-            fPacketReader.setCurrentPacket(getPacket());
-        } else {
-            // go to the next packet if there is one, index it at the same time
-            if (fStreamInput.addPacketHeaderIndex()) {
-                fPacketIndex = getPacketSize() - 1;
+        /* Other readers of this stream input can index it concurrently */
+        synchronized (fStreamInput) {
+            // did we already index the packet?
+            if (getPacketSize() >= (fPacketIndex + 1)) {
                 fPacketReader.setCurrentPacket(getPacket());
             } else {
-                // out of packets
-                fPacketReader.setCurrentPacket(null);
+                // go to the next packet if there is one, index it at the same time
+                if (fStreamInput.addPacketHeaderIndex()) {
+                    fPacketIndex = getPacketSize() - 1;
+                    fPacketReader.setCurrentPacket(getPacket());
+                } else {
+                    // out of packets
+                    fPacketReader.setCurrentPacket(null);
+                }
             }
         }
     }
@@ -287,7 +494,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      * @return
      */
     private int getPacketSize() {
-        return fStreamInput.getIndex().getEntries().size();
+        return fStreamInput.getIndex().size();
     }
 
     /**
@@ -301,7 +508,17 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public long seek(long timestamp) throws CTFReaderException {
+        discardDecoder();
+        long offset = seekPacket(timestamp);
+        if (fParallel && !fLive) {
+            startDecoder();
+        }
+        return offset;
+    }
+
+    private long seekPacket(long timestamp) throws CTFReaderException {
         long offset = 0;
+        setCurrentEvent(null);
 
         gotoPacket(timestamp);
 
@@ -348,8 +565,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     private void gotoPacket(long timestamp) throws CTFReaderException {
-        fPacketIndex = fStreamInput.getIndex().search(timestamp)
-                .previousIndex();
+        fPacketIndex = fStreamInput.getIndex().searchIndex(timestamp) - 1;
         /*
          * Switch to this packet.
          */
@@ -366,12 +582,14 @@ public class CTFStreamInputReader implements AutoCloseable {
         /*
          * Search in the index for the packet to search in.
          */
-        final int len = fStreamInput.getIndex().getEntries().size();
+        final int len = fStreamInput.getIndex().size();
 
         /*
-         * Go to beginning of trace.
+         * Go to beginning of trace. The events are then read in this thread,
+         * there is nothing left to decode after the last one.
          */
-        seek(0);
+        discardDecoder();
+        seekPacket(0);
         /*
          * if the trace is empty.
          */
@@ -396,14 +614,17 @@ public class CTFStreamInputReader implements AutoCloseable {
          * Go until the end of that packet
          */
         EventDefinition prevEvent = null;
+        long prevNbEventsAtTimestamp = 0;
         while (fCurrentEvent != null) {
             prevEvent = fCurrentEvent;
+            prevNbEventsAtTimestamp = fNbEventsAtTimestamp;
             this.readNextEvent();
         }
         /*
          * Go back to the previous event
          */
         this.setCurrentEvent(prevEvent);
+        fNbEventsAtTimestamp = prevNbEventsAtTimestamp;
     }
 
     /**
@@ -428,6 +649,13 @@ public class CTFStreamInputReader implements AutoCloseable {
      *            the event to set
      */
     public void setCurrentEvent(EventDefinition currentEvent) {
+        if (currentEvent == null) {
+            fNbEventsAtTimestamp = 0;
+        } else if (fCurrentEvent != null && fCurrentEvent.getTimestamp() == currentEvent.getTimestamp()) {
+            fNbEventsAtTimestamp++;
+        } else {
+            fNbEventsAtTimestamp = 1;
+        }
         fCurrentEvent = currentEvent;
     }
 
@@ -439,7 +667,7 @@ public class CTFStreamInputReader implements AutoCloseable {
     }
 
     private StreamInputPacketIndexEntry getPacket() {
-        return fStreamInput.getIndex().getEntries().get(getPacketIndex());
+        return fStreamInput.getIndex().getEntry(getPacketIndex());
     }
 
     /**
@@ -458,6 +686,166 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fPacketReader;
     }
 
+    // ------------------------------------------------------------------------
+    // Parallel decoding
+    // ------------------------------------------------------------------------
+
+    /**
+     * Events decoded by a {@link ParallelDecoder}, with the CPU of each event
+     * since the packet reader is not on the same packet when they are read.
+     */
+    private static final class EventBatch {
+        private final EventDefinition[] fEvents = new EventDefinition[BATCH_SIZE];
+        private final int[] fCpus = new int[BATCH_SIZE];
+        private int fSize = 0;
+        /* No events follow this batch */
+        private boolean fLast = false;
+        /* Error to report after the events of the last batch */
+        private Throwable fError = null;
+    }
+
+    /**
+     * Shared pool of the decoding threads
+     */
+    private static final class DecoderPool {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "CTF stream decoder"); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Decodes the events of this stream into batches, using the packet reader
+     * of this stream.
+     *
+     * Each run of the task decodes one batch, and the task reschedules itself
+     * while there is room for more batches, so that a few threads can be
+     * shared by the streams of any number of traces. At most one task runs at
+     * a time for a stream.
+     */
+    private final class ParallelDecoder implements Runnable {
+
+        private final BlockingQueue<EventBatch> fReady =
+                new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+
+        /* The following fields are guarded by "this" */
+        private boolean fStopped = true;
+        private boolean fScheduled = false;
+        private boolean fFinished = false;
+
+        @Override
+        public void run() {
+            boolean stopped;
+            synchronized (this) {
+                stopped = fStopped;
+            }
+            EventBatch batch = null;
+            if (!stopped) {
+                batch = decodeBatch();
+                fReady.add(batch);
+            }
+            synchronized (this) {
+                fScheduled = false;
+                if (batch != null && batch.fLast) {
+                    fFinished = true;
+                }
+                scheduleIfNeeded();
+                notifyAll();
+            }
+        }
+
+        private EventBatch decodeBatch() {
+            EventBatch batch = new EventBatch();
+            try {
+                while (batch.fSize < BATCH_SIZE) {
+                    if (!prepareNextEvent()) {
+                        batch.fLast = true;
+                        break;
+                    }
+                    batch.fEvents[batch.fSize] = fPacketReader.readNextEvent();
+                    batch.fCpus[batch.fSize] = fPacketReader.getCPU();
+                    batch.fSize++;
+                }
+            } catch (CTFReaderException | RuntimeException e) {
+                batch.fLast = true;
+                batch.fError = e;
+            }
+            return batch;
+        }
+
+        /* Must be called while holding the lock */
+        private void scheduleIfNeeded() {
+            if (!fStopped && !fScheduled && !fFinished && fReady.remainingCapacity() > 0) {
+                fScheduled = true;
+                DecoderPool.EXECUTOR.execute(this);
+            }
+        }
+
+        /**
+         * Get the next batch of events, waiting for it to be decoded if
+         * needed.
+         *
+         * @return The batch, or null if the decoder is stopped and has no more
+         *         decoded batches
+         * @throws CTFReaderException
+         *             If the thread was interrupted while waiting
+         */
+        EventBatch take() throws CTFReaderException {
+            EventBatch batch;
+            try {
+                synchronized (this) {
+                    batch = fReady.poll();
+                    while (batch == null) {
+                        if (!fScheduled) {
+                            return null;
+                        }
+                        wait();
+                        batch = fReady.poll();
+                    }
+                    scheduleIfNeeded();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CTFReaderException(e);
+            }
+            return batch;
+        }
+
+        synchronized boolean isStopped() {
+            return fStopped;
+        }
+
+        synchronized void resume() {
+            fStopped = false;
+            scheduleIfNeeded();
+        }
+
+        /**
+         * Stop decoding and wait for the running task, if any, so that the
+         * packet reader can be used by the calling thread. The batches already
+         * decoded can still be taken.
+         */
+        synchronized void stop() {
+            fStopped = true;
+            boolean interrupted = false;
+            while (fScheduled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -23,6 +23,7 @@ import java.util.Set;
 import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
 import org.eclipse.linuxtools.ctf.core.event.IEventDeclaration;
 import org.eclipse.linuxtools.internal.ctf.core.Activator;
+import org.eclipse.linuxtools.internal.ctf.core.trace.PacketPrefetcher;
 import org.eclipse.linuxtools.internal.ctf.core.trace.StreamInputReaderTimestampComparator;
 
 import com.google.common.collect.ImmutableSet;
@@ -73,6 +74,21 @@ public class CTFTraceReader implements AutoCloseable {
      */
     private long fEndTime;
 
+    /**
+     * Whether the streams are decoded by worker threads
+     */
+    private boolean fParallelDecoding = false;
+
+    /**
+     * Number of packets loaded ahead of the current one in each stream
+     */
+    private int fPrefetchDepth = PacketPrefetcher.DEFAULT_DEPTH;
+
+    /**
+     * Filter of the events returned by the reader, can be null
+     */
+    private CTFEventFilter fEventFilter = null;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -123,6 +139,9 @@ public class CTFTraceReader implements AutoCloseable {
         newReader = new CTFTraceReader(fTrace);
         newReader.fStartTime = fStartTime;
         newReader.setEndTime(fEndTime);
+        newReader.setPrefetchDepth(fPrefetchDepth);
+        newReader.setEventFilter(fEventFilter);
+        newReader.setParallelDecoding(fParallelDecoding);
         return newReader;
     }
 
@@ -236,7 +255,10 @@ public class CTFTraceReader implements AutoCloseable {
                  * Add it to the group.
                  */
                 if (!fStreamInputReaders.contains(streamInputReader)) {
+                    streamInputReader.getPacketReader().setEventFilter(fEventFilter);
+                    streamInputReader.getPacketReader().setPrefetchDepth(fPrefetchDepth);
                     streamInputReader.readNextEvent();
+                    streamInputReader.setParallelDecoding(fParallelDecoding);
                     fStreamInputReaders.add(streamInputReader);
                     readers.add(streamInputReader);
                 }
@@ -328,6 +350,56 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     public boolean advance() throws CTFReaderException {
+        boolean ret = advanceEvent();
+        if (fEventFilter != null) {
+            ret = skipRejectedEvents(ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Skip the events rejected by the filter, starting with the current one.
+     * The events are read in timestamp order, so once they are after the end
+     * time of the filter, none of the following ones can be accepted and the
+     * reader goes to the end of the trace.
+     *
+     * @param hasMoreEvents
+     *            whether there is a current event
+     * @return whether there is a current event after the skipped ones
+     */
+    private boolean skipRejectedEvents(boolean hasMoreEvents) throws CTFReaderException {
+        final CTFEventFilter filter = fEventFilter;
+        boolean ret = hasMoreEvents;
+        while (ret) {
+            EventDefinition current = getCurrentEventDef();
+            if (current == null || filter.accepts(current)) {
+                break;
+            }
+            if (filter.getEndTime() != Long.MAX_VALUE &&
+                    fTrace.timestampCyclesToNanos(current.getTimestamp()) > filter.getEndTime()) {
+                fPrio.clear();
+                return false;
+            }
+            eventSkipped(current);
+            ret = advanceEvent();
+        }
+        return ret;
+    }
+
+    /**
+     * Called for each event rejected by the filter, once it is the current
+     * event of the reader and before reading the next one. The readers that
+     * keep track of their position in the trace can count it here.
+     *
+     * @param event
+     *            The event, whose contexts and payload may not be decoded
+     * @since 3.1
+     */
+    protected void eventSkipped(EventDefinition event) {
+        // Do nothing by default
+    }
+
+    private boolean advanceEvent() throws CTFReaderException {
         /*
          * Remove the reader from the top of the priority queue.
          */
@@ -420,6 +492,9 @@ public class CTFTraceReader implements AutoCloseable {
                 fPrio.add(streamInputReader);
             }
         }
+        if (fEventFilter != null) {
+            return skipRejectedEvents(hasMoreEvents());
+        }
         return hasMoreEvents();
     }
 
@@ -521,6 +596,106 @@ public class CTFTraceReader implements AutoCloseable {
         return fPrio.peek().isLive();
     }
 
+    /**
+     * Sets the parallel decoding mode. In this mode, each stream is decoded
+     * by a worker thread, ahead of the events being read, and the events are
+     * merged in the same order as when reading them in the calling thread. The
+     * decoding threads are shared by all the trace readers.
+     *
+     * It uses more memory, since a few batches of events are kept in advance
+     * for each stream, but reading a trace with many streams can then use
+     * several cores. Parallel decoding is suspended while reading live.
+     *
+     * @param parallel
+     *            whether to decode the streams in worker threads
+     * @since 3.1
+     */
+    public void setParallelDecoding(boolean parallel) {
+        fParallelDecoding = parallel;
+        for (CTFStreamInputReader reader : fStreamInputReaders) {
+            reader.setParallelDecoding(parallel);
+        }
+    }
+
+    /**
+     * Get if the streams are decoded by worker threads
+     *
+     * @return whether parallel decoding is enabled
+     * @since 3.1
+     */
+    public boolean isParallelDecoding() {
+        return fParallelDecoding;
+    }
+
+    /**
+     * Sets the number of packets of each stream that are loaded in the
+     * background ahead of the packet being read, so that reading does not
+     * stall on the I/O when reaching a new packet. This mostly helps with
+     * traces that are not in the page cache, or on a network file system.
+     *
+     * @param packets
+     *            the number of packets to load ahead, 0 to disable the
+     *            read-ahead
+     * @since 3.1
+     */
+    public void setPrefetchDepth(int packets) {
+        if (packets < 0) {
+            throw new IllegalArgumentException("Negative prefetch depth"); //$NON-NLS-1$
+        }
+        fPrefetchDepth = packets;
+        for (CTFStreamInputReader reader : fStreamInputReaders) {
+            reader.setPrefetchDepth(packets);
+        }
+    }
+
+    /**
+     * Sets the filter of the events returned by this reader. The events it
+     * rejects are skipped by {@link #advance()} and {@link #seek(long)},
+     * without building the definitions of their contexts and payload when
+     * the event name or timestamp is enough to reject them. If the current
+     * event is rejected, the reader moves to the next event that is not. The
+     * reader reaches the end of the trace at the first event after the end
+     * time of the filter, which is not reported as skipped. In parallel
+     * decoding mode, the events decoded ahead are decoded again with the new
+     * filter.
+     *
+     * @param filter
+     *            the filter, or null to return all the events
+     * @throws CTFReaderException
+     *             if an error occurs while skipping the current event
+     * @since 3.1
+     */
+    public void setEventFilter(CTFEventFilter filter) throws CTFReaderException {
+        fEventFilter = filter;
+        for (CTFStreamInputReader reader : fStreamInputReaders) {
+            reader.setEventFilter(filter);
+        }
+        if (filter != null) {
+            skipRejectedEvents(hasMoreEvents());
+        }
+    }
+
+    /**
+     * Gets the filter of the events returned by this reader
+     *
+     * @return the filter, or null if all the events are returned
+     * @since 3.1
+     */
+    public CTFEventFilter getEventFilter() {
+        return fEventFilter;
+    }
+
+    /**
+     * Gets the number of packets of each stream that are loaded ahead of the
+     * packet being read
+     *
+     * @return the number of packets
+     * @since 3.1
+     */
+    public int getPrefetchDepth() {
+        return fPrefetchDepth;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
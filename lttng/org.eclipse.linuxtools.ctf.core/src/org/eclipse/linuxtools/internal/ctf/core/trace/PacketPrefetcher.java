@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.ctf.core.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.linuxtools.internal.ctf.core.SafeMappedByteBuffer;
+
+/**
+ * Read-ahead of the packets of a stream file. When the packet reader reaches
+ * a packet, the packets following it are loaded in the background, so that
+ * they are in the page cache when the reader maps them, instead of stalling
+ * the reader on page faults at every packet boundary.
+ *
+ * The packets following the current one may not be indexed yet, so the region
+ * to load is estimated from the size of the current packet (the packets of a
+ * stream usually have the same size).
+ *
+ * The methods of this class must be called by the thread reading the packets.
+ */
+public class PacketPrefetcher {
+
+    /** Default number of packets to load ahead of the current one */
+    public static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * Threads loading the packets, shared by all the streams. Loading is
+     * mostly waiting for the I/O, so there can be more than the number of
+     * processors.
+     */
+    private static final int NB_THREADS = 4;
+
+    private final FileChannel fFileChannel;
+
+    private volatile int fDepth = DEFAULT_DEPTH;
+
+    /* Region of the file, from the current packet, that is being loaded */
+    private long fStart = 0;
+    private long fEnd = 0;
+
+    /**
+     * Shared pool of the loading threads
+     */
+    private static final class LoaderPool {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                NB_THREADS, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "CTF packet prefetcher"); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Constructor
+     *
+     * @param fileChannel
+     *            The channel of the stream file
+     */
+    public PacketPrefetcher(FileChannel fileChannel) {
+        fFileChannel = fileChannel;
+    }
+
+    /**
+     * Set the number of packets to load ahead of the current one
+     *
+     * @param depth
+     *            The number of packets, 0 to disable the read-ahead
+     */
+    public void setDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Negative prefetch depth"); //$NON-NLS-1$
+        }
+        fDepth = depth;
+    }
+
+    /**
+     * Get the number of packets loaded ahead of the current one
+     *
+     * @return The number of packets
+     */
+    public int getDepth() {
+        return fDepth;
+    }
+
+    /**
+     * Notify that the reader reached a packet. The packets following it are
+     * loaded in the background, if they were not already.
+     *
+     * @param offset
+     *            The offset of the packet in the file, in bytes
+     * @param size
+     *            The size of the packet, in bytes
+     * @return The number of bytes that will be loaded
+     */
+    public long packetReached(long offset, long size) {
+        final int depth = fDepth;
+        if (depth == 0 || size <= 0) {
+            return 0;
+        }
+        final long packetEnd = offset + size;
+        if (offset < fStart || packetEnd > fEnd) {
+            /* This is a seek, or the file grew since the last read-ahead */
+            fEnd = packetEnd;
+        }
+        fStart = offset;
+
+        long fileSize;
+        try {
+            fileSize = fFileChannel.size();
+        } catch (IOException e) {
+            /* The channel was closed, there is nothing to prefetch */
+            return 0;
+        }
+        final long target = Math.min(packetEnd + size * depth, fileSize);
+        if (target <= fEnd) {
+            return 0;
+        }
+        final long start = fEnd;
+        final long length = target - start;
+        fEnd = target;
+        LoaderPool.EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(start, length);
+            }
+        });
+        return length;
+    }
+
+    private void load(long start, long length) {
+        try {
+            ByteBuffer buffer = SafeMappedByteBuffer.map(fFileChannel, MapMode.READ_ONLY, start, length);
+            if (buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) buffer).load();
+            }
+        } catch (IOException e) {
+            /*
+             * The file was closed or truncated, the reader will report the
+             * error if it reaches that part of the file.
+             */
+        }
+    }
+}
@@ -14,39 +14,92 @@
 
 package org.eclipse.linuxtools.internal.ctf.core.trace;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.ListIterator;
-import java.util.Vector;
 
 import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
 
 /**
  * <b><u>StreamInputPacketIndex</u></b>
  * <p>
- * TODO Implement me. Please.
+ * Index of the packets of a stream input, in the order of the file. The
+ * offsets and timestamps of the packets are also kept in arrays of
+ * primitives, so that the binary searches do not have to go through the
+ * entries.
+ *
+ * The index can be extended by one thread while others read it.
  */
 public class StreamInputPacketIndex {
 
+    private static final int INITIAL_CAPACITY = 16;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
 
-    /**
-     * Entries of the index. They are sorted by increasing begin timestamp.
-     * index builder.
+    /*
+     * Entries of the index, and their offset and end timestamp. They are
+     * sorted by increasing offset and begin timestamp. Guarded by "this".
      */
-    private final Vector<StreamInputPacketIndexEntry> entries = new Vector<>();
+    private StreamInputPacketIndexEntry[] fEntries = new StreamInputPacketIndexEntry[INITIAL_CAPACITY];
+    private long[] fOffsets = new long[INITIAL_CAPACITY];
+    private long[] fEnds = new long[INITIAL_CAPACITY];
+    private int fSize = 0;
 
     // ------------------------------------------------------------------------
     // Getters/Setters/Predicates
     // ------------------------------------------------------------------------
 
     /**
-     * Gets the entries
+     * Gets the number of entries
+     *
+     * @return the number of packets in the index
+     */
+    public synchronized int size() {
+        return fSize;
+    }
+
+    /**
+     * Checks if the index is empty
+     *
+     * @return true if there are no entries
+     */
+    public synchronized boolean isEmpty() {
+        return fSize == 0;
+    }
+
+    /**
+     * Gets an entry
+     *
+     * @param index
+     *            the position of the entry
+     * @return the entry
+     */
+    public synchronized StreamInputPacketIndexEntry getEntry(int index) {
+        if (index < 0 || index >= fSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + fSize); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return fEntries[index];
+    }
+
+    /**
+     * Gets the last entry
+     *
+     * @return the last entry, or null if the index is empty
+     */
+    public synchronized StreamInputPacketIndexEntry lastEntry() {
+        return (fSize == 0) ? null : fEntries[fSize - 1];
+    }
+
+    /**
+     * Gets a copy of the entries
      *
-     * @return the entries
+     * @return the entries, in an unmodifiable list
      */
-    public Vector<StreamInputPacketIndexEntry> getEntries() {
-        return this.entries;
+    public synchronized List<StreamInputPacketIndexEntry> getEntries() {
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(fEntries, fSize)));
     }
 
     /**
@@ -55,7 +108,7 @@ public class StreamInputPacketIndex {
      * @return an iterator to the entries
      */
     public ListIterator<StreamInputPacketIndexEntry> listIterator() {
-        return this.entries.listIterator();
+        return getEntries().listIterator();
     }
 
     /**
@@ -66,7 +119,7 @@ public class StreamInputPacketIndex {
      * @return the iterator
      */
     public ListIterator<StreamInputPacketIndexEntry> listIterator(int n) {
-        return this.entries.listIterator(n);
+        return getEntries().listIterator(n);
     }
 
     // ------------------------------------------------------------------------
@@ -81,7 +134,7 @@ public class StreamInputPacketIndex {
      * @throws CTFReaderException
      *             If there was a problem reading the entry
      */
-    public void addEntry(StreamInputPacketIndexEntry entry)
+    public synchronized void addEntry(StreamInputPacketIndexEntry entry)
             throws CTFReaderException {
         assert (entry.getContentSizeBits() != 0);
 
@@ -91,76 +144,97 @@ public class StreamInputPacketIndex {
         }
 
         /* Validate entries are inserted in monotonic increasing timestamp order. */
-        if (!this.entries.isEmpty()) {
-            if (entry.getTimestampBegin() < this.entries.lastElement()
-                    .getTimestampBegin()) {
+        if (fSize > 0) {
+            if (entry.getTimestampBegin() < fEntries[fSize - 1].getTimestampBegin()) {
                 throw new CTFReaderException("Packets begin timestamp decreasing"); //$NON-NLS-1$
             }
         }
-        this.entries.add(entry);
+
+        if (fSize == fEntries.length) {
+            int capacity = fSize * 2;
+            fEntries = Arrays.copyOf(fEntries, capacity);
+            fOffsets = Arrays.copyOf(fOffsets, capacity);
+            fEnds = Arrays.copyOf(fEnds, capacity);
+        }
+        fEntries[fSize] = entry;
+        fOffsets[fSize] = entry.getOffsetBytes();
+        fEnds[fSize] = entry.getTimestampEnd();
+        fSize++;
     }
 
     /**
-     * Returns the first PacketIndexEntry that could include the timestamp,
-     * that is the last packet with a begin timestamp smaller than the given timestamp.
+     * Removes all the entries of the index.
+     */
+    public synchronized void clear() {
+        Arrays.fill(fEntries, 0, fSize, null);
+        fSize = 0;
+    }
+
+    /**
+     * Returns the position of the first packet that could include the
+     * timestamp, that is the first packet whose end timestamp is greater or
+     * equal to the given timestamp, or the last packet if there is none.
      *
      * @param timestamp
      *            The timestamp to look for.
-     * @return The StreamInputPacketEntry that corresponds to the packet that
-     *         includes the given timestamp.
+     * @return The position of the packet, 0 if the index is empty
      */
-    public ListIterator<StreamInputPacketIndexEntry> search(final long timestamp) {
-        /*
-         * Start with min and max covering all the elements.
-         */
-        int max = this.entries.size() - 1;
-        int min = 0;
-
-        int guessI;
-        StreamInputPacketIndexEntry guessEntry = null;
-
+    public synchronized int searchIndex(final long timestamp) {
         /*
-         * If the index is empty, return the iterator at the very beginning.
+         * If the index is empty, return the very beginning.
          */
-        if (this.getEntries().isEmpty()) {
-            return this.getEntries().listIterator();
+        if (fSize == 0) {
+            return 0;
         }
 
         if (timestamp < 0) {
             throw new IllegalArgumentException("timestamp is negative"); //$NON-NLS-1$
         }
 
-        /* Binary search */
-        for (;;) {
-            /*
-             * Guess in the middle of min and max.
-             */
-            guessI = min + ((max - min) / 2);
-            guessEntry = this.entries.get(guessI);
-
-            /*
-             * If we reached the point where we focus on a single packet, our
-             * search is done.
-             */
-            if (min == max) {
-                break;
-            }
-
-            if (timestamp <= guessEntry.getTimestampEnd()) {
-                /*
-                 * If the timestamp is lower or equal to the end of the guess packet,
-                 * then the guess packet becomes the new inclusive max.
-                 */
+        /*
+         * Binary search, with min and max covering all the elements. If the
+         * timestamp is lower or equal to the end of the guess packet, then the
+         * guess packet becomes the new inclusive max, otherwise the new
+         * inclusive min is the packet after the guess packet.
+         */
+        int min = 0;
+        int max = fSize - 1;
+        while (min < max) {
+            int guessI = min + ((max - min) / 2);
+            if (timestamp <= fEnds[guessI]) {
                 max = guessI;
             } else {
-                /*
-                 * If the timestamp is greater than the end of the guess packet, then
-                 * the new inclusive min is the packet after the guess packet.
-                 */
                 min = guessI + 1;
             }
         }
+        return min;
+    }
 
-        return this.entries.listIterator(guessI);
+    /**
+     * Returns the first PacketIndexEntry that could include the timestamp,
+     * that is the last packet with a begin timestamp smaller than the given timestamp.
+     *
+     * @param timestamp
+     *            The timestamp to look for.
+     * @return The StreamInputPacketEntry that corresponds to the packet that
+     *         includes the given timestamp.
+     */
+    public ListIterator<StreamInputPacketIndexEntry> search(final long timestamp) {
+        return listIterator(searchIndex(timestamp));
+    }
+
+    /**
+     * Gets the position of an entry of the index
+     *
+     * @param entry
+     *            The entry
+     * @return The position of the entry, or -1 if it is not in the index
+     */
+    public synchronized int indexOf(StreamInputPacketIndexEntry entry) {
+        int pos = Arrays.binarySearch(fOffsets, 0, fSize, entry.getOffsetBytes());
+        if (pos < 0 || fEntries[pos] != entry) {
+            return -1;
+        }
+        return pos;
     }
 }
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.ctf.core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Packet index of a stream file, saved on disk so that the packet headers do
+ * not have to be read again the next time the trace is opened.
+ *
+ * The index files are kept in a hidden directory of the trace directory, so
+ * they are not taken for stream files. Each one records the size and the
+ * modification time of the stream file when it was written. If the stream
+ * file grew since (a live trace), the saved entries are still used for the
+ * packets that were already there.
+ *
+ * The file format is:
+ *
+ * <pre>
+ *   int     magic number
+ *   int     version
+ *   long    size of the stream file
+ *   long    modification time of the stream file
+ *   long    total number of lost events, up to the last packet
+ *   long    end timestamp of the last packet
+ *   int     number of entries
+ *   entries
+ * </pre>
+ *
+ * and each entry is 7 longs (offset, data offset, packet size, content size,
+ * begin and end timestamps, lost events), then a boolean telling if there is
+ * a target, followed by the target string.
+ */
+public final class StreamInputPacketIndexFile {
+
+    /** Name of the directory of the index files, in the trace directory */
+    public static final String DIRECTORY_NAME = ".index"; //$NON-NLS-1$
+
+    private static final String SUFFIX = ".idx"; //$NON-NLS-1$
+    private static final int MAGIC = 0x43544649; /* "CTFI" */
+    private static final int VERSION = 1;
+
+    private final List<StreamInputPacketIndexEntry> fEntries;
+    private final long fFileSize;
+    private final long fModified;
+    private final long fLostEvents;
+    private final long fTimestampEnd;
+
+    private StreamInputPacketIndexFile(List<StreamInputPacketIndexEntry> entries,
+            long fileSize, long modified, long lostEvents, long timestampEnd) {
+        fEntries = entries;
+        fFileSize = fileSize;
+        fModified = modified;
+        fLostEvents = lostEvents;
+        fTimestampEnd = timestampEnd;
+    }
+
+    // ------------------------------------------------------------------------
+    // Getters
+    // ------------------------------------------------------------------------
+
+    /**
+     * Gets the saved entries
+     *
+     * @return the entries, in the order of the file
+     */
+    public List<StreamInputPacketIndexEntry> getEntries() {
+        return Collections.unmodifiableList(fEntries);
+    }
+
+    /**
+     * Gets the total number of lost events, up to the last saved packet
+     *
+     * @return the number of lost events
+     */
+    public long getLostEvents() {
+        return fLostEvents;
+    }
+
+    /**
+     * Gets the end timestamp of the last saved packet
+     *
+     * @return the end timestamp
+     */
+    public long getTimestampEnd() {
+        return fTimestampEnd;
+    }
+
+    /**
+     * Checks if the stream file was modified since the index was saved,
+     * other than by appending packets to it.
+     *
+     * @param streamFile
+     *            the stream file
+     * @return true if the saved entries cover the whole stream file
+     */
+    public boolean isComplete(File streamFile) {
+        return streamFile.length() == fFileSize && streamFile.lastModified() == fModified;
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Gets the file in which the index of a stream file is saved
+     *
+     * @param streamFile
+     *            the stream file
+     * @return the index file
+     */
+    public static File getIndexFile(File streamFile) {
+        File directory = new File(streamFile.getParentFile(), DIRECTORY_NAME);
+        return new File(directory, streamFile.getName() + SUFFIX);
+    }
+
+    /**
+     * Reads the saved index of a stream file.
+     *
+     * @param streamFile
+     *            the stream file
+     * @return the saved index, or null if there is none, if it cannot be read,
+     *         or if the stream file is smaller than when it was saved
+     */
+    public static StreamInputPacketIndexFile read(File streamFile) {
+        File indexFile = getIndexFile(streamFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = in.readLong();
+            long modified = in.readLong();
+            long lostEvents = in.readLong();
+            long timestampEnd = in.readLong();
+            int nbEntries = in.readInt();
+            if (fileSize > streamFile.length() || nbEntries < 0) {
+                return null;
+            }
+
+            List<StreamInputPacketIndexEntry> entries = new ArrayList<>(nbEntries);
+            for (int i = 0; i < nbEntries; i++) {
+                StreamInputPacketIndexEntry entry = new StreamInputPacketIndexEntry(in.readLong());
+                entry.setDataOffsetBits(in.readLong());
+                entry.setPacketSizeBits(in.readLong());
+                entry.setContentSizeBits(in.readLong());
+                entry.setTimestampBegin(in.readLong());
+                entry.setTimestampEnd(in.readLong());
+                entry.setLostEvents(in.readLong());
+                if (in.readBoolean()) {
+                    entry.setTarget(in.readUTF());
+                }
+                entries.add(entry);
+            }
+            return new StreamInputPacketIndexFile(entries, fileSize, modified, lostEvents, timestampEnd);
+        } catch (IOException | RuntimeException e) {
+            /* Corrupted or truncated file, the index will be built again */
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index of a stream file. The stream file should be completely
+     * indexed. Errors are ignored, since the trace directory may not be
+     * writable.
+     *
+     * @param streamFile
+     *            the stream file
+     * @param index
+     *            its index
+     * @param lostEvents
+     *            the total number of lost events, up to the last packet
+     * @param timestampEnd
+     *            the end timestamp of the last packet
+     * @return true if the index was saved
+     */
+    public static boolean write(File streamFile, StreamInputPacketIndex index,
+            long lostEvents, long timestampEnd) {
+        File indexFile = getIndexFile(streamFile);
+        File directory = indexFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdir()) {
+            return false;
+        }
+
+        /* Write a temporary file, so that readers never see a partial index */
+        File tempFile = new File(directory, indexFile.getName() + ".tmp"); //$NON-NLS-1$
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));) {
+                List<StreamInputPacketIndexEntry> entries = index.getEntries();
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(streamFile.length());
+                out.writeLong(streamFile.lastModified());
+                out.writeLong(lostEvents);
+                out.writeLong(timestampEnd);
+                out.writeInt(entries.size());
+                for (StreamInputPacketIndexEntry entry : entries) {
+                    out.writeLong(entry.getOffsetBytes());
+                    out.writeLong(entry.getDataOffsetBits());
+                    out.writeLong(entry.getPacketSizeBits());
+                    out.writeLong(entry.getContentSizeBits());
+                    out.writeLong(entry.getTimestampBegin());
+                    out.writeLong(entry.getTimestampEnd());
+                    out.writeLong(entry.getLostEvents());
+                    String target = entry.getTarget();
+                    out.writeBoolean(target != null);
+                    if (target != null) {
+                        out.writeUTF(target);
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            tempFile.delete();
+            return false;
+        }
+    }
+}
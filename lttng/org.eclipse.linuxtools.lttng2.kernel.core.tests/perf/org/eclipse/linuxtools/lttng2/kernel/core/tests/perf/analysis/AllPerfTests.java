@@ -20,7 +20,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        AnalysisBenchmark.class
+        AnalysisBenchmark.class,
+        StateSystemRangeQueryBenchmark.class
 })
 public class AllPerfTests {
 }
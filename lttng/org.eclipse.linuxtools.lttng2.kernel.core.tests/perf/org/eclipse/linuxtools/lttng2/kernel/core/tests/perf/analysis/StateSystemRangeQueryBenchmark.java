@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.lttng2.kernel.core.tests.perf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.eclipse.linuxtools.internal.lttng2.kernel.core.Attributes;
+import org.eclipse.linuxtools.lttng2.kernel.core.analysis.LttngKernelAnalysisModule;
+import org.eclipse.linuxtools.lttng2.kernel.core.trace.LttngKernelTrace;
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystem;
+import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.tests.shared.TmfTestHelper;
+import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfEvent;
+import org.eclipse.linuxtools.tmf.ctf.core.tests.shared.CtfTmfTestTrace;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.junit.Test;
+
+/**
+ * Benchmark of the range queries on the kernel state system, comparing one
+ * range query per thread attribute with a single bulk query for all of them.
+ * This is the access pattern of views showing one row per thread.
+ */
+public class StateSystemRangeQueryBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.linuxtools#LTTng kernel range queries";
+    private static final int LOOP_COUNT = 25;
+    private static final long RESOLUTION = 1000;
+
+    /**
+     * Run the benchmark with "trace2"
+     */
+    @Test
+    public void testTrace2() {
+        runTest(CtfTmfTestTrace.TRACE2, "Trace2");
+    }
+
+    private static void runTest(CtfTmfTestTrace testTrace, String testName) {
+        assumeTrue(testTrace.exists());
+
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pmSingle = perf.createPerformanceMeter(TEST_ID + '#' + testName + " single");
+        perf.tagAsSummary(pmSingle, "Range query per attribute: " + testName, Dimension.CPU_TIME);
+        PerformanceMeter pmBulk = perf.createPerformanceMeter(TEST_ID + '#' + testName + " bulk");
+        perf.tagAsSummary(pmBulk, "Bulk range query: " + testName, Dimension.CPU_TIME);
+
+        try (LttngKernelAnalysisModule module = new LttngKernelAnalysisModule();
+                LttngKernelTrace trace = new LttngKernelTrace()) {
+            module.setId("test");
+            trace.initTrace(null, testTrace.getPath(), CtfTmfEvent.class);
+            module.setTrace(trace);
+            TmfTestHelper.executeAnalysis(module);
+
+            ITmfStateSystem ss = module.getStateSystem();
+            assertNotNull(ss);
+            List<Integer> quarks = ss.getQuarks(Attributes.THREADS, "*", Attributes.SYSTEM_CALL);
+            final long start = ss.getStartTime();
+            final long end = ss.getCurrentEndTime();
+
+            for (int i = 0; i < LOOP_COUNT; i++) {
+                long nbSingle = 0;
+                pmSingle.start();
+                for (int quark : quarks) {
+                    nbSingle += ss.queryHistoryRange(quark, start, end, RESOLUTION, null).size();
+                }
+                pmSingle.stop();
+
+                final long[] nbBulk = { 0 };
+                pmBulk.start();
+                ss.queryHistoryRange(quarks, start, end, RESOLUTION, null, new ITmfStateIntervalHandler() {
+                    @Override
+                    public void handleInterval(ITmfStateInterval interval) {
+                        nbBulk[0]++;
+                    }
+                });
+                pmBulk.stop();
+
+                assertEquals(nbSingle, nbBulk[0]);
+            }
+
+            /* Delete the supplementary files */
+            File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(trace));
+            for (File file : suppDir.listFiles()) {
+                file.delete();
+            }
+
+        } catch (TmfAnalysisException | TmfTraceException |
+                AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+        pmSingle.commit();
+        pmBulk.commit();
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         PcapReadBenchmark.class,
+        PcapMappedReadBenchmark.class,
         PcapSeekBenchmark.class
 })
 public class AllTests {
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.perf.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.linuxtools.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.linuxtools.internal.pcap.core.packet.Packet;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.pcap.core.tests.shared.PcapTraceGenerator;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmark of the throughput of the Pcap parser, reading a generated file
+ * from the file channel and from the memory-mapped file. The file is big
+ * enough to span several mapped regions.
+ */
+public class PcapMappedReadBenchmark {
+
+    private static final String TEST_SUITE_NAME = "Pcap Mapped Read Benchmark";
+    private static final String TEST_ID = "org.eclipse.linuxtools#" + TEST_SUITE_NAME;
+    private static final int LOOP_COUNT = 10;
+    private static final int NB_PACKETS = 1000000;
+    private static final int NB_STREAMS = 1000;
+
+    private static Path fPath;
+
+    /**
+     * Generate the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fPath = Files.createTempFile("PcapMappedReadBenchmark", ".pcap");
+        new PcapTraceGenerator(NB_PACKETS, NB_STREAMS, 1000).writeTrace(fPath);
+    }
+
+    /**
+     * Delete the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be deleted.
+     */
+    @AfterClass
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(fPath);
+    }
+
+    /**
+     * Benchmark reading the file from the file channel
+     */
+    @Test
+    public void testChannel() {
+        readTrace(false, "channel");
+    }
+
+    /**
+     * Benchmark reading the file mapped in memory
+     */
+    @Test
+    public void testMapped() {
+        readTrace(true, "mapped");
+    }
+
+    private static void readTrace(boolean memoryMapped, String testName) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + '#' + testName);
+        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.CPU_TIME);
+
+        for (int loop = 0; loop < LOOP_COUNT; loop++) {
+            pm.start();
+            try (PcapFile trace = new PcapFile(fPath, memoryMapped);) {
+                long nbPackets = 0;
+                while (trace.hasNextPacket()) {
+                    Packet packet = trace.parseNextPacket();
+                    if (packet == null) {
+                        fail("Test failed at iteration " + loop + ", at packet " + trace.getCurrentRank());
+                        return;
+                    }
+                    packet.getPayload();
+                    nbPackets++;
+                }
+                assertEquals(NB_PACKETS, nbPackets);
+            } catch (IOException | BadPcapFileException | BadPacketException e) {
+                fail("Test failed at iteration " + loop + ':' + e.getMessage());
+            }
+            pm.stop();
+        }
+        pm.commit();
+    }
+}
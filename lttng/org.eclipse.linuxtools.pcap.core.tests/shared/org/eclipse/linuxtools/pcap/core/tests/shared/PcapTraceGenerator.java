@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.shared;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generator of pcap files, in little endian with microsecond timestamps. The
+ * packets are Ethernet II / IPv4 packets of a number of streams between
+ * clients and a server: the even streams are TCP streams and the odd streams
+ * are UDP streams. The packets go in both directions and their payloads have
+ * random lengths.
+ */
+public class PcapTraceGenerator {
+
+    private static final int MAGIC_NUMBER = 0xa1b2c3d4;
+    private static final int SNAPSHOT_LENGTH = 65535;
+    private static final int LINKTYPE_ETHERNET = 1;
+
+    private static final int ETHERNET_HEADER_SIZE = 14;
+    private static final int IPV4_HEADER_SIZE = 20;
+    private static final int TCP_HEADER_SIZE = 20;
+    private static final int UDP_HEADER_SIZE = 8;
+    private static final int MAX_PAYLOAD_SIZE = 1400;
+
+    private static final byte[] SERVER_MAC = { 0x00, 0x11, 0x22, 0x33, 0x44, 0x55 };
+    private static final byte[] SERVER_IP = { (byte) 192, (byte) 168, 0, 1 };
+    private static final int SERVER_PORT = 80;
+    private static final int FIRST_CLIENT_PORT = 1024;
+
+    private final int fNbPackets;
+    private final int fNbStreams;
+    private final long fSeed;
+
+    /**
+     * Constructor
+     *
+     * @param nbPackets
+     *            The number of packets of the file
+     * @param nbStreams
+     *            The number of streams, at most 65536
+     * @param seed
+     *            The seed of the lengths and directions of the packets
+     */
+    public PcapTraceGenerator(int nbPackets, int nbStreams, long seed) {
+        fNbPackets = nbPackets;
+        fNbStreams = nbStreams;
+        fSeed = seed;
+    }
+
+    /**
+     * Write the pcap file
+     *
+     * @param path
+     *            The path of the file
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    public void writeTrace(Path path) throws IOException {
+        Random random = new Random(fSeed);
+        ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer packet = ByteBuffer.allocate(16 + ETHERNET_HEADER_SIZE + IPV4_HEADER_SIZE + TCP_HEADER_SIZE + MAX_PAYLOAD_SIZE);
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            /* Global header */
+            header.putInt(MAGIC_NUMBER);
+            header.putShort((short) 2);
+            header.putShort((short) 4);
+            header.putInt(0);
+            header.putInt(0);
+            header.putInt(SNAPSHOT_LENGTH);
+            header.putInt(LINKTYPE_ETHERNET);
+            out.write(header.array());
+
+            long time = 1400000000L * 1000000L;
+            for (int i = 0; i < fNbPackets; i++) {
+                int stream = random.nextInt(fNbStreams);
+                boolean toServer = random.nextBoolean();
+                boolean tcp = (stream % 2 == 0);
+                int payloadSize = random.nextInt(MAX_PAYLOAD_SIZE + 1);
+                time += 1 + random.nextInt(100);
+                writePacket(packet, i, stream, toServer, tcp, payloadSize, time);
+                out.write(packet.array(), 0, packet.position());
+            }
+        }
+    }
+
+    private static void writePacket(ByteBuffer packet, int index, int stream, boolean toServer,
+            boolean tcp, int payloadSize, long time) {
+        byte[] clientMac = { 0x02, 0x00, 0x00, 0x00, (byte) (stream >> 8), (byte) stream };
+        byte[] clientIp = { 10, 0, (byte) (stream >> 8), (byte) stream };
+        int clientPort = FIRST_CLIENT_PORT + stream;
+        int transportSize = (tcp ? TCP_HEADER_SIZE : UDP_HEADER_SIZE) + payloadSize;
+        int length = ETHERNET_HEADER_SIZE + IPV4_HEADER_SIZE + transportSize;
+
+        /* Pcap packet header, in the file endianness */
+        packet.clear();
+        packet.order(ByteOrder.LITTLE_ENDIAN);
+        packet.putInt((int) (time / 1000000));
+        packet.putInt((int) (time % 1000000));
+        packet.putInt(length);
+        packet.putInt(length);
+
+        /* Ethernet II */
+        packet.order(ByteOrder.BIG_ENDIAN);
+        packet.put(toServer ? SERVER_MAC : clientMac);
+        packet.put(toServer ? clientMac : SERVER_MAC);
+        packet.putShort((short) 0x0800);
+
+        /* IPv4 */
+        packet.put((byte) 0x45);
+        packet.put((byte) 0);
+        packet.putShort((short) (IPV4_HEADER_SIZE + transportSize));
+        packet.putShort((short) index);
+        packet.putShort((short) 0x4000);
+        packet.put((byte) 64);
+        packet.put((byte) (tcp ? 6 : 17));
+        packet.putShort((short) 0);
+        packet.put(toServer ? clientIp : SERVER_IP);
+        packet.put(toServer ? SERVER_IP : clientIp);
+
+        /* TCP or UDP */
+        packet.putShort((short) (toServer ? clientPort : SERVER_PORT));
+        packet.putShort((short) (toServer ? SERVER_PORT : clientPort));
+        if (tcp) {
+            packet.putInt(index);
+            packet.putInt(index);
+            packet.put((byte) 0x50);
+            packet.put((byte) 0x18);
+            packet.putShort((short) 8192);
+            packet.putShort((short) 0);
+            packet.putShort((short) 0);
+        } else {
+            packet.putShort((short) transportSize);
+            packet.putShort((short) 0);
+        }
+
+        /* Payload */
+        for (int i = 0; i < payloadSize; i++) {
+            packet.put((byte) (index + i));
+        }
+    }
+}
@@ -23,6 +23,8 @@ import org.junit.runners.Suite;
         PcapFileOpenTest.class,
         PcapFileOpenFailTest.class,
         PcapFileReadTest.class,
+        PcapFileMappedReadTest.class,
+        PcapFileIndexTest.class,
         PcapFileEndiannessTest.class
 })
 public class AllTests {
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import org.eclipse.linuxtools.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.pcap.PcapPacket;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.pcap.core.tests.shared.PcapTraceGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Class that tests the seeks in the sparse index of a pcap file, and the
+ * saving and loading of the index.
+ */
+public class PcapFileIndexTest {
+
+    private static final int NB_PACKETS = 10000;
+    private static final int NB_STREAMS = 8;
+
+    private Path fPath;
+    private Path fIndexPath;
+    private long[] fTimestamps;
+
+    /**
+     * Generate the pcap file and read the timestamps of its packets
+     *
+     * @throws Exception
+     *             Thrown when the file cannot be written or read.
+     */
+    @Before
+    public void setUp() throws Exception {
+        fPath = Files.createTempFile("PcapFileIndexTest", ".pcap");
+        fIndexPath = fPath.resolveSibling(fPath.getFileName() + ".idx");
+        new PcapTraceGenerator(NB_PACKETS, NB_STREAMS, 7).writeTrace(fPath);
+
+        fTimestamps = new long[NB_PACKETS];
+        try (PcapFile file = new PcapFile(fPath);) {
+            for (int i = 0; i < NB_PACKETS; i++) {
+                PcapPacket packet = file.parseNextPacket();
+                assertNotNull(packet);
+                fTimestamps[i] = packet.getTimestamp();
+            }
+        }
+    }
+
+    /**
+     * Delete the pcap file and its index
+     *
+     * @throws IOException
+     *             Thrown when the files cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(fPath);
+        Files.deleteIfExists(fIndexPath);
+    }
+
+    /**
+     * Test that seeking ranks in any order, before and after the file is fully
+     * indexed, gives the packets of these ranks.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testSeek() throws IOException, BadPcapFileException, BadPacketException {
+        Random random = new Random(3);
+        try (PcapFile file = new PcapFile(fPath, true);) {
+            checkSeek(file, 5000);
+            checkSeek(file, 4999);
+            checkSeek(file, 0);
+            checkSeek(file, 256);
+            checkSeek(file, 255);
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+            for (int i = 0; i < 200; i++) {
+                checkSeek(file, random.nextInt(NB_PACKETS));
+            }
+            checkSeek(file, NB_PACKETS - 1);
+
+            file.seekPacket(NB_PACKETS + 100);
+            assertEquals(NB_PACKETS, file.getCurrentRank());
+            assertFalse(file.hasNextPacket());
+        }
+    }
+
+    /**
+     * Test that the total number of packets is known once the end of the file
+     * is reached, and that it does not move the current rank.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testTotalNbPackets() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fPath);) {
+            file.seekPacket(1234);
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+            assertEquals(1234, file.getCurrentRank());
+            checkSeek(file, 1234);
+        }
+    }
+
+    /**
+     * Test that a saved index is loaded when the file is opened again, with
+     * its total number of packets, and that the seeks still give the right
+     * packets.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testSaveLoad() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fPath, true);) {
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+            file.saveIndex(fIndexPath);
+        }
+
+        Random random = new Random(5);
+        try (PcapFile file = new PcapFile(fPath, true);) {
+            assertTrue(file.loadIndex(fIndexPath));
+            assertEquals(0, file.getCurrentRank());
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+            for (int i = 0; i < 100; i++) {
+                checkSeek(file, random.nextInt(NB_PACKETS));
+            }
+        }
+    }
+
+    /**
+     * Test that a partial index is loaded, and completed by the following
+     * seeks.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testLoadPartialIndex() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fPath);) {
+            checkSeek(file, 3000);
+            file.saveIndex(fIndexPath);
+        }
+
+        try (PcapFile file = new PcapFile(fPath);) {
+            assertTrue(file.loadIndex(fIndexPath));
+            checkSeek(file, 2000);
+            checkSeek(file, 8000);
+            checkSeek(file, 6000);
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+        }
+    }
+
+    /**
+     * Test that an index is ignored if it is missing, invalid, or if the file
+     * was modified after it was saved.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testStaleIndex() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fPath);) {
+            assertFalse(file.loadIndex(fIndexPath));
+            file.getTotalNbPackets();
+            file.saveIndex(fIndexPath);
+        }
+
+        FileTime modified = Files.getLastModifiedTime(fPath);
+        Files.setLastModifiedTime(fPath, FileTime.fromMillis(modified.toMillis() + 10000));
+        try (PcapFile file = new PcapFile(fPath);) {
+            assertFalse(file.loadIndex(fIndexPath));
+            checkSeek(file, 4321);
+        }
+
+        Files.write(fIndexPath, new byte[] { 1, 2, 3 });
+        try (PcapFile file = new PcapFile(fPath);) {
+            assertFalse(file.loadIndex(fIndexPath));
+            checkSeek(file, 4321);
+        }
+    }
+
+    private void checkSeek(PcapFile file, long rank) throws IOException, BadPcapFileException, BadPacketException {
+        file.seekPacket(rank);
+        assertEquals(rank, file.getCurrentRank());
+        PcapPacket packet = file.parseNextPacket();
+        assertNotNull(packet);
+        assertEquals(rank, packet.getIndex());
+        assertEquals(fTimestamps[(int) rank], packet.getTimestamp());
+    }
+}
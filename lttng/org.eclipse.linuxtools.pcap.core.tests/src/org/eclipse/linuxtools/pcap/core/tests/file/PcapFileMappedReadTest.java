@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.eclipse.linuxtools.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.linuxtools.internal.pcap.core.packet.Packet;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.PcapProtocol;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.pcap.PcapPacket;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.pcap.core.tests.shared.PcapTraceGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * JUnit Class that tests that the packets read from a memory-mapped file are
+ * the same as the packets read from the file channel. The file is bigger than
+ * a mapped region of the file.
+ */
+public class PcapFileMappedReadTest {
+
+    private static final int NB_PACKETS = 100000;
+    private static final int NB_STREAMS = 16;
+
+    private static Path fPath;
+
+    /**
+     * Generate the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fPath = Files.createTempFile("PcapFileMappedReadTest", ".pcap");
+        new PcapTraceGenerator(NB_PACKETS, NB_STREAMS, 42).writeTrace(fPath);
+    }
+
+    /**
+     * Delete the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be deleted.
+     */
+    @AfterClass
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(fPath);
+    }
+
+    /**
+     * Test that all the packets and their layers are the same in both modes,
+     * and that the mapped packets are read-only views of the file.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testReadAll() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile channelFile = new PcapFile(fPath);
+                PcapFile mappedFile = new PcapFile(fPath, true);) {
+            assertFalse(channelFile.isMemoryMapped());
+            assertTrue(mappedFile.isMemoryMapped());
+
+            long nbPackets = 0;
+            while (channelFile.hasNextPacket()) {
+                assertTrue(mappedFile.hasNextPacket());
+                PcapPacket expected = channelFile.parseNextPacket();
+                PcapPacket packet = mappedFile.parseNextPacket();
+                assertNotNull(expected);
+                assertNotNull(packet);
+                assertEquals(expected, packet);
+                if (nbPackets % 1000 == 0) {
+                    assertEquals(expected.toString(), packet.toString());
+                }
+                assertTrue(packet.hasProtocol(PcapProtocol.IPV4));
+                for (Packet layer = packet; layer != null; layer = layer.getChildPacket()) {
+                    ByteBuffer payload = layer.getPayload();
+                    if (payload != null) {
+                        assertTrue(payload.isReadOnly());
+                        assertTrue(payload.isDirect());
+                    }
+                }
+                nbPackets++;
+            }
+            assertFalse(mappedFile.hasNextPacket());
+            assertNull(mappedFile.parseNextPacket());
+            assertEquals(NB_PACKETS, nbPackets);
+            assertEquals(NB_PACKETS, mappedFile.getTotalNbPackets());
+        }
+    }
+
+    /**
+     * Test that seeking packets backwards and forwards in the mapped file
+     * gives the packets of the file channel.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testSeek() throws IOException, BadPcapFileException, BadPacketException {
+        Random random = new Random(17);
+        try (PcapFile channelFile = new PcapFile(fPath);
+                PcapFile mappedFile = new PcapFile(fPath, true);) {
+            mappedFile.seekPacket(NB_PACKETS - 1);
+            for (int i = 0; i < 100; i++) {
+                long rank = random.nextInt(NB_PACKETS);
+                channelFile.seekPacket(rank);
+                mappedFile.seekPacket(rank);
+                PcapPacket packet = mappedFile.parseNextPacket();
+                assertNotNull(packet);
+                assertEquals(rank, packet.getIndex());
+                assertEquals(channelFile.parseNextPacket(), packet);
+            }
+        }
+    }
+}
@@ -21,7 +21,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         PacketTest.class,
-        BadPacketTest.class
+        BadPacketTest.class,
+        PacketDecodingTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.packet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.linuxtools.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.linuxtools.internal.pcap.core.packet.Packet;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.PcapProtocol;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.ethernet2.EthernetIIPacket;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.ipv4.IPv4Packet;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.pcap.core.tests.shared.PcapTraceGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Class that tests that the encapsulated packets are decoded when they
+ * are first needed, from views of the payload of their parent.
+ */
+public class PacketDecodingTest {
+
+    private static final byte[] ETHERNET_HEADER = {
+            0x00, 0x11, 0x22, 0x33, 0x44, 0x55,
+            0x02, 0x00, 0x00, 0x00, 0x00, 0x01,
+            0x08, 0x00 };
+
+    private static final byte[] IPV4_HEADER_WITH_OPTIONS = {
+            0x46, 0x00, 0x00, 0x1A,
+            0x00, 0x01, 0x40, 0x00,
+            0x40, (byte) 0xFD, 0x00, 0x00,
+            0x0A, 0x00, 0x00, 0x01,
+            (byte) 0xC0, (byte) 0xA8, 0x00, 0x01,
+            0x01, 0x01, 0x01, 0x00 };
+
+    private static final byte[] IPV4_PAYLOAD = { 0x12, 0x34 };
+
+    private Path fPath;
+    private PcapFile fFile;
+
+    /**
+     * Create a pcap file, to which the packets belong
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous.
+     */
+    @Before
+    public void setUp() throws IOException, BadPcapFileException {
+        fPath = Files.createTempFile("PacketDecodingTest", ".pcap");
+        new PcapTraceGenerator(1, 1, 0).writeTrace(fPath);
+        fFile = new PcapFile(fPath);
+    }
+
+    /**
+     * Close and delete the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be closed or deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        fFile.close();
+        Files.deleteIfExists(fPath);
+    }
+
+    /**
+     * Test that the child packet is decoded once, without moving the position
+     * of the payload of its parent, and that its options and payload are parts
+     * of the same buffer.
+     *
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testLazyChildPacket() throws BadPacketException {
+        ByteBuffer buffer = ByteBuffer.allocate(ETHERNET_HEADER.length + IPV4_HEADER_WITH_OPTIONS.length + IPV4_PAYLOAD.length);
+        buffer.put(ETHERNET_HEADER).put(IPV4_HEADER_WITH_OPTIONS).put(IPV4_PAYLOAD);
+        buffer.flip();
+
+        EthernetIIPacket ethernet = new EthernetIIPacket(fFile, null, buffer);
+        ByteBuffer ethernetPayload = ethernet.getPayload();
+        assertNotNull(ethernetPayload);
+        assertEquals(0, ethernetPayload.position());
+
+        Packet child = ethernet.getChildPacket();
+        assertTrue(child instanceof IPv4Packet);
+        assertSame(child, ethernet.getChildPacket());
+        assertEquals(0, ethernetPayload.position());
+        assertEquals(IPV4_HEADER_WITH_OPTIONS.length + IPV4_PAYLOAD.length, ethernetPayload.remaining());
+
+        IPv4Packet ipv4 = (IPv4Packet) child;
+        assertArrayEquals(new byte[] { 0x01, 0x01, 0x01, 0x00 }, ipv4.getOptions());
+        ByteBuffer ipv4Payload = ipv4.getPayload();
+        assertNotNull(ipv4Payload);
+        assertEquals(IPV4_PAYLOAD.length, ipv4Payload.remaining());
+        assertEquals(IPV4_PAYLOAD[0], ipv4Payload.get(0));
+
+        /* The payload of the IPv4 packet is a view of the original buffer */
+        buffer.put(buffer.limit() - 1, (byte) 0x56);
+        assertEquals(0x56, ipv4Payload.get(1));
+
+        Packet unknown = ipv4.getChildPacket();
+        assertNotNull(unknown);
+        assertEquals(PcapProtocol.UNKNOWN, unknown.getProtocol());
+        assertSame(ipv4, ethernet.getMostEcapsulatedPacket());
+    }
+
+    /**
+     * Test that a payload that is not a valid packet of the child protocol is
+     * decoded as an unknown packet instead of making the parent invalid.
+     *
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testInvalidChildPacket() throws BadPacketException {
+        ByteBuffer buffer = ByteBuffer.allocate(ETHERNET_HEADER.length + 10);
+        buffer.put(ETHERNET_HEADER).put(IPV4_HEADER_WITH_OPTIONS, 0, 10);
+        buffer.flip();
+
+        EthernetIIPacket ethernet = new EthernetIIPacket(fFile, null, buffer);
+        Packet child = ethernet.getChildPacket();
+        assertNotNull(child);
+        assertEquals(PcapProtocol.UNKNOWN, child.getProtocol());
+        ByteBuffer payload = child.getPayload();
+        assertNotNull(payload);
+        assertEquals(10, payload.remaining());
+        assertTrue(ethernet.hasProtocol(PcapProtocol.ETHERNET_II));
+        assertFalse(ethernet.hasProtocol(PcapProtocol.IPV4));
+    }
+}
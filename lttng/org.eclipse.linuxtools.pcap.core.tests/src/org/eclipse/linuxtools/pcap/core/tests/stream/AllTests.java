@@ -20,7 +20,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        StreamBuildTest.class
+        StreamBuildTest.class,
+        StreamBuildParallelTest.class
 })
 public class AllTests {
 
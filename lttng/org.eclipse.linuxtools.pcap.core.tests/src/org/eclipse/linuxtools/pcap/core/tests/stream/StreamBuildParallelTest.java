@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.pcap.core.tests.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.linuxtools.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.PcapProtocol;
+import org.eclipse.linuxtools.internal.pcap.core.protocol.pcap.PcapPacket;
+import org.eclipse.linuxtools.internal.pcap.core.stream.PacketStream;
+import org.eclipse.linuxtools.internal.pcap.core.stream.PacketStreamBuilder;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.pcap.core.tests.shared.PcapTraceGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * JUnit Class that tests that the streams built from the chunks of a file
+ * parsed in parallel are the same as the streams built by adding the packets
+ * one by one. The file has several chunks.
+ */
+public class StreamBuildParallelTest {
+
+    private static final int NB_PACKETS = 140000;
+    private static final int NB_STREAMS = 300;
+    private static final PcapProtocol[] PROTOCOLS = {
+            PcapProtocol.ETHERNET_II,
+            PcapProtocol.IPV4,
+            PcapProtocol.TCP,
+            PcapProtocol.UDP };
+
+    private static Path fPath;
+
+    /**
+     * Generate the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be written.
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fPath = Files.createTempFile("StreamBuildParallelTest", ".pcap");
+        new PcapTraceGenerator(NB_PACKETS, NB_STREAMS, 11).writeTrace(fPath);
+    }
+
+    /**
+     * Delete the pcap file
+     *
+     * @throws IOException
+     *             Thrown when the file cannot be deleted.
+     */
+    @AfterClass
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(fPath);
+    }
+
+    /**
+     * Test that the streams of all the protocols, built at once from the
+     * file, have the same IDs and statistics as the streams built from the
+     * packets read in order.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     * @throws BadPacketException
+     *             Thrown when a packet is erroneous. Fails the test.
+     */
+    @Test
+    public void testParallelBuild() throws IOException, BadPcapFileException, BadPacketException {
+        List<PacketStreamBuilder> expected = new ArrayList<>();
+        List<PacketStreamBuilder> builders = new ArrayList<>();
+        for (PcapProtocol protocol : PROTOCOLS) {
+            expected.add(new PacketStreamBuilder(protocol));
+            builders.add(new PacketStreamBuilder(protocol));
+        }
+
+        try (PcapFile file = new PcapFile(fPath, true);) {
+            while (file.hasNextPacket()) {
+                PcapPacket packet = file.parseNextPacket();
+                assertNotNull(packet);
+                for (PacketStreamBuilder builder : expected) {
+                    builder.addPacketToStream(packet);
+                }
+            }
+        }
+        assertTrue(PacketStreamBuilder.parsePcapFile(fPath, builders, new NullProgressMonitor()));
+        checkStreams(expected, builders);
+    }
+
+    /**
+     * Test building the streams from an open file whose index was loaded from
+     * disk. The streams must be the same as when the file is indexed, and the
+     * open file must still be at the same rank.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     */
+    @Test
+    public void testBuildFromIndex() throws IOException, BadPcapFileException {
+        List<PacketStreamBuilder> expected = new ArrayList<>();
+        List<PacketStreamBuilder> builders = new ArrayList<>();
+        for (PcapProtocol protocol : PROTOCOLS) {
+            expected.add(new PacketStreamBuilder(protocol));
+            builders.add(new PacketStreamBuilder(protocol));
+        }
+        assertTrue(PacketStreamBuilder.parsePcapFile(fPath, expected, new NullProgressMonitor()));
+
+        Path indexPath = Files.createTempFile("StreamBuildParallelTest", ".idx");
+        try {
+            try (PcapFile file = new PcapFile(fPath, true);) {
+                assertEquals(NB_PACKETS, file.getTotalNbPackets());
+                file.saveIndex(indexPath);
+            }
+            try (PcapFile file = new PcapFile(fPath, true);) {
+                assertTrue(file.loadIndex(indexPath));
+                file.seekPacket(NB_PACKETS / 2);
+                assertTrue(PacketStreamBuilder.parsePcapFile(file, builders, new NullProgressMonitor()));
+                assertEquals(NB_PACKETS / 2, file.getCurrentRank());
+                assertEquals(NB_PACKETS, file.getTotalNbPackets());
+            }
+        } finally {
+            Files.deleteIfExists(indexPath);
+        }
+        checkStreams(expected, builders);
+    }
+
+    private static void checkStreams(List<PacketStreamBuilder> expected, List<PacketStreamBuilder> builders) {
+        for (int i = 0; i < PROTOCOLS.length; i++) {
+            PacketStreamBuilder expectedBuilder = expected.get(i);
+            PacketStreamBuilder builder = builders.get(i);
+            assertTrue(builder.getNbStreams() > 0);
+            assertEquals(expectedBuilder.getNbStreams(), builder.getNbStreams());
+            long expectedNbPackets = 0;
+            long nbPackets = 0;
+            for (PacketStream expectedStream : expectedBuilder.getStreams()) {
+                PacketStream stream = builder.getStream(expectedStream.getID());
+                assertNotNull(stream);
+                assertEquals(expectedStream.getEndpointPair().getFirstEndpoint(), stream.getEndpointPair().getFirstEndpoint());
+                assertEquals(expectedStream.getEndpointPair().getSecondEndpoint(), stream.getEndpointPair().getSecondEndpoint());
+                assertEquals(expectedStream.getNbPacketsAtoB(), stream.getNbPacketsAtoB());
+                assertEquals(expectedStream.getNbPacketsBtoA(), stream.getNbPacketsBtoA());
+                assertEquals(expectedStream.getNbBytesAtoB(), stream.getNbBytesAtoB());
+                assertEquals(expectedStream.getNbBytesBtoA(), stream.getNbBytesBtoA());
+                assertEquals(expectedStream.getStartTime(), stream.getStartTime());
+                assertEquals(expectedStream.getStopTime(), stream.getStopTime());
+                assertEquals(stream, builder.getStream(stream.getEndpointPair().getSecondEndpoint(), stream.getEndpointPair().getFirstEndpoint()));
+                expectedNbPackets += expectedStream.getNbPackets();
+                nbPackets += stream.getNbPackets();
+            }
+            assertEquals(expectedNbPackets, nbPackets);
+        }
+    }
+
+    /**
+     * Test that the parsing stops when it is cancelled.
+     *
+     * @throws BadPcapFileException
+     *             Thrown when the file is erroneous. Fails the test.
+     * @throws IOException
+     *             Thrown when an IO error occurs. Fails the test.
+     */
+    @Test
+    public void testCancel() throws IOException, BadPcapFileException {
+        PacketStreamBuilder builder = new PacketStreamBuilder(PcapProtocol.TCP);
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        List<PacketStreamBuilder> builders = new ArrayList<>();
+        builders.add(builder);
+        assertFalse(PacketStreamBuilder.parsePcapFile(fPath, builders, monitor));
+        assertEquals(0, builder.getNbStreams());
+    }
+}
@@ -12,7 +12,9 @@
 
 package org.eclipse.linuxtools.internal.pcap.core.packet;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -45,6 +47,10 @@ public abstract class Packet {
     /** The protocol that this packet uses */
     private final PcapProtocol fProtocol;
 
+    /** The child packet of this packet, decoded when it is first needed */
+    private @Nullable Packet fChildPacket;
+    private boolean fIsChildPacketDecoded;
+
     /**
      * Constructor of the Packet Class.
      *
@@ -59,6 +65,8 @@ public abstract class Packet {
         fPcapFile = file;
         fParentPacket = parent;
         fProtocol = protocol;
+        fChildPacket = null;
+        fIsChildPacketDecoded = false;
     }
 
     /**
@@ -86,9 +94,24 @@ public abstract class Packet {
      * method returns null if the packet is at the lowest level of
      * encapsulation.
      *
+     * The child packet is decoded from the payload the first time this method
+     * is called. If the payload is not a valid packet of the child protocol,
+     * the child packet is an {@link UnknownPacket} containing the payload.
+     *
      * @return The child packet.
      */
-    public abstract @Nullable Packet getChildPacket();
+    public final synchronized @Nullable Packet getChildPacket() {
+        if (!fIsChildPacketDecoded) {
+            try {
+                fChildPacket = findChildPacket();
+            } catch (BadPacketException | BufferUnderflowException e) {
+                ByteBuffer payload = getPayload();
+                fChildPacket = (payload == null ? null : new UnknownPacket(fPcapFile, this, duplicatePayload(payload)));
+            }
+            fIsChildPacketDecoded = true;
+        }
+        return fChildPacket;
+    }
 
     /**
      * Getter method for the protocol of the packet.
@@ -202,7 +225,9 @@ public abstract class Packet {
 
     /**
      * Internal method that is used to find the child packet. This is protocol
-     * dependent and must be implemented by each packet class.
+     * dependent and must be implemented by each packet class. It is called
+     * once, by {@link #getChildPacket()}, and it must not move the position of
+     * the payload.
      *
      * @return The child packet.
      * @throws BadPacketException
@@ -294,4 +319,81 @@ public abstract class Packet {
         }
         return ((value >>> bit & 0b1) == 0b1);
     }
+
+    /**
+     * Method that is used by child packet classes to get their payload, from
+     * the current position to the limit of the packet. The payload shares the
+     * content of the packet instead of copying it, so the packets read from a
+     * memory-mapped file stay views of the file.
+     *
+     * @param packet
+     *            the packet, positioned after its header.
+     * @return The payload, in big endian, or null if it is empty.
+     */
+    protected static final @Nullable ByteBuffer slicePayload(ByteBuffer packet) {
+        if (!packet.hasRemaining()) {
+            return null;
+        }
+        ByteBuffer payload = packet.slice();
+        payload.order(ByteOrder.BIG_ENDIAN);
+        return payload;
+    }
+
+    /**
+     * Method that is used by packet classes to give their payload to their
+     * child packet. The child gets its own view of the payload, so reading its
+     * header does not move the position of the payload of the parent.
+     *
+     * @param payload
+     *            the payload of the packet.
+     * @return A view of the payload, at position 0.
+     */
+    protected static final ByteBuffer duplicatePayload(ByteBuffer payload) {
+        ByteBuffer duplicate = payload.duplicate();
+        duplicate.position(0);
+        duplicate.order(ByteOrder.BIG_ENDIAN);
+        @SuppressWarnings("null")
+        @NonNull ByteBuffer view = duplicate;
+        return view;
+    }
+
+    /**
+     * Method that is used by child packet classes to get a part of their
+     * header, such as the options, without copying it. The position of the
+     * packet is moved after this part.
+     *
+     * @param packet
+     *            the packet, positioned at the start of the part.
+     * @param length
+     *            the length of the part, in bytes.
+     * @return The part of the packet, in big endian.
+     */
+    protected static final ByteBuffer sliceBytes(ByteBuffer packet, int length) {
+        if (length > packet.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer bytes = packet.slice();
+        bytes.limit(length);
+        bytes.order(ByteOrder.BIG_ENDIAN);
+        packet.position(packet.position() + length);
+        @SuppressWarnings("null")
+        @NonNull ByteBuffer slice = bytes;
+        return slice;
+    }
+
+    /**
+     * Method that is used by child packet classes to copy the content of a
+     * buffer, from position 0 to its limit, into a new array.
+     *
+     * @param buffer
+     *            the buffer, which is not modified.
+     * @return The content of the buffer.
+     */
+    protected static final byte[] toByteArray(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(0);
+        byte[] array = new byte[bytes.limit()];
+        bytes.get(array);
+        return array;
+    }
 }
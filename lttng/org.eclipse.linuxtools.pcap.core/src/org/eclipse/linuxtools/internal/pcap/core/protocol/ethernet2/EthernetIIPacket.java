@@ -39,7 +39,6 @@ import com.google.common.collect.ImmutableMap;
  */
 public class EthernetIIPacket extends Packet {
 
-    private final @Nullable Packet fChildPacket;
     private final @Nullable ByteBuffer fPayload;
 
     /* We store MAC addresses as byte arrays since
@@ -69,7 +68,7 @@ public class EthernetIIPacket extends Packet {
     public EthernetIIPacket(PcapFile file, @Nullable Packet parent, ByteBuffer packet) throws BadPacketException {
         super(file, parent, PcapProtocol.ETHERNET_II);
 
-        if (packet.array().length <= EthernetIIValues.ETHERNET_II_MIN_SIZE) {
+        if (packet.limit() <= EthernetIIValues.ETHERNET_II_MIN_SIZE) {
             throw new BadPacketException("An Ethernet II packet can't be smaller than 14 bytes."); //$NON-NLS-1$
         }
 
@@ -89,30 +88,10 @@ public class EthernetIIPacket extends Packet {
         fType = ConversionHelper.unsignedShortToInt(packet.getShort());
 
         // Get payload if it exists.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
-            if (payload != null) {
-                payload.order(ByteOrder.BIG_ENDIAN);
-                payload.position(0);
-            }
-            fPayload = payload;
-
-        } else {
-            fPayload = null;
-        }
-
-        // Find child
-        fChildPacket = findChildPacket();
+        fPayload = slicePayload(packet);
 
     }
 
-    @Override
-    public @Nullable Packet getChildPacket() {
-        return fChildPacket;
-    }
-
     @Override
     public @Nullable ByteBuffer getPayload() {
         return fPayload;
@@ -159,9 +138,9 @@ public class EthernetIIPacket extends Packet {
         }
         switch (fType) {
         case EthertypeHelper.ETHERTYPE_IPV4:
-            return new IPv4Packet(getPcapFile(), this, payload);
+            return new IPv4Packet(getPcapFile(), this, duplicatePayload(payload));
         default:
-            return new UnknownPacket(getPcapFile(), this, payload);
+            return new UnknownPacket(getPcapFile(), this, duplicatePayload(payload));
         }
     }
 
@@ -170,7 +149,7 @@ public class EthernetIIPacket extends Packet {
         String string = getProtocol().getName() + ", Source: " + ConversionHelper.toMacAddress(fSourceMacAddress) + //$NON-NLS-1$
                 ", Destination: " + ConversionHelper.toMacAddress(fDestinationMacAddress) + ", Type: " + //$NON-NLS-1$ //$NON-NLS-2$
                 EthertypeHelper.toEtherType(fType) + "\n"; //$NON-NLS-1$
-        final Packet child = fChildPacket;
+        final Packet child = getChildPacket();
         if (child != null) {
             return string + child.toString();
         }
@@ -236,12 +215,6 @@ public class EthernetIIPacket extends Packet {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            result = prime * result + child.hashCode();
-        } else {
-            result = prime * result;
-        }
         result = prime * result + Arrays.hashCode(fDestinationMacAddress);
         final ByteBuffer payload = fPayload;
         if (payload != null) {
@@ -266,22 +239,6 @@ public class EthernetIIPacket extends Packet {
             return false;
         }
         EthernetIIPacket other = (EthernetIIPacket) obj;
-        if (fChildPacket == null) {
-            if (other.fChildPacket != null) {
-                return false;
-            }
-        } else {
-            final Packet child = fChildPacket;
-            if (child != null) {
-                if (!child.equals(other.fChildPacket)) {
-                    return false;
-                }
-            } else {
-                if (other.fChildPacket != null) {
-                    return false;
-                }
-            }
-        }
         if (!Arrays.equals(fDestinationMacAddress, other.fDestinationMacAddress)) {
             return false;
         }
@@ -17,7 +17,6 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -42,7 +41,6 @@ import com.google.common.collect.ImmutableMap.Builder;
  */
 public class IPv4Packet extends Packet {
 
-    private final @Nullable Packet fChildPacket;
     private final @Nullable ByteBuffer fPayload;
 
     private final int fVersion;
@@ -60,7 +58,7 @@ public class IPv4Packet extends Packet {
     private final int fHeaderChecksum;
     private final Inet4Address fSourceIpAddress;
     private final Inet4Address fDestinationIpAddress;
-    private final @Nullable byte[] fOptions;
+    private final @Nullable ByteBuffer fOptions;
 
     private @Nullable IPv4Endpoint fSourceEndpoint;
     private @Nullable IPv4Endpoint fDestinationEndpoint;
@@ -136,34 +134,16 @@ public class IPv4Packet extends Packet {
 
         // Get options if there are any
         if (fInternetHeaderLength > IPv4Values.DEFAULT_HEADER_LENGTH) {
-            fOptions = new byte[(fInternetHeaderLength - IPv4Values.DEFAULT_HEADER_LENGTH) * IPv4Values.BLOCK_SIZE];
-            packet.get(fOptions);
+            fOptions = sliceBytes(packet, (fInternetHeaderLength - IPv4Values.DEFAULT_HEADER_LENGTH) * IPv4Values.BLOCK_SIZE);
         } else {
             fOptions = null;
         }
 
         // Get payload if any.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
-            payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
-            fPayload = payload;
-        } else {
-            fPayload = null;
-        }
-
-        // Find child
-        fChildPacket = findChildPacket();
+        fPayload = slicePayload(packet);
 
     }
 
-    @Override
-    public @Nullable Packet getChildPacket() {
-        return fChildPacket;
-    }
-
     @Override
     public @Nullable ByteBuffer getPayload() {
         return fPayload;
@@ -184,11 +164,11 @@ public class IPv4Packet extends Packet {
 
         switch (fIpDatagramProtocol) {
         case IPProtocolNumberHelper.PROTOCOL_NUMBER_TCP:
-            return new TCPPacket(getPcapFile(), this, payload);
+            return new TCPPacket(getPcapFile(), this, duplicatePayload(payload));
         case IPProtocolNumberHelper.PROTOCOL_NUMBER_UDP:
-            return new UDPPacket(getPcapFile(), this, payload);
+            return new UDPPacket(getPcapFile(), this, duplicatePayload(payload));
         default:
-            return new UnknownPacket(getPcapFile(), this, payload);
+            return new UnknownPacket(getPcapFile(), this, duplicatePayload(payload));
         }
 
     }
@@ -229,7 +209,7 @@ public class IPv4Packet extends Packet {
                 + "\n" + flagString + "\nTime to live: " + fTimeToLive + //$NON-NLS-1$ //$NON-NLS-2$
                 "\nProtocol: " + fIpDatagramProtocol + "\n" //$NON-NLS-1$ //$NON-NLS-2$
                 + checksumString + "\n"; //$NON-NLS-1$
-        final Packet child = fChildPacket;
+        final Packet child = getChildPacket();
         if (child != null) {
             return string + child.toString();
         }
@@ -395,11 +375,11 @@ public class IPv4Packet extends Packet {
      * @return The options of the packet.
      */
     public @Nullable byte[] getOptions() {
-        final byte[] options = fOptions;
+        final ByteBuffer options = fOptions;
         if (options == null) {
             return null;
         }
-        return Arrays.copyOf(options, options.length);
+        return toByteArray(options);
     }
 
     @Override
@@ -452,11 +432,11 @@ public class IPv4Packet extends Packet {
                     .put("Checksum", String.format("%s%04x", "0x", fHeaderChecksum)) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
                     .put("Source IP Address", fSourceIpAddress.getHostAddress()) //$NON-NLS-1$
                     .put("Destination IP Address", fDestinationIpAddress.getHostAddress()); //$NON-NLS-1$
-            byte[] options = fOptions;
+            ByteBuffer options = fOptions;
             if (options == null) {
                 builder.put("Options", EMPTY_STRING); //$NON-NLS-1$
             } else {
-                builder.put("Options", ConversionHelper.bytesToHex(options, true)); //$NON-NLS-1$
+                builder.put("Options", ConversionHelper.bytesToHex(toByteArray(options), true)); //$NON-NLS-1$
 
             }
             @SuppressWarnings("null")
@@ -493,7 +473,7 @@ public class IPv4Packet extends Packet {
         final ByteBuffer payload = fPayload;
         if (payload != null) {
             sb.append(" Len=") //$NON-NLS-1$
-            .append(payload.array().length);
+            .append(payload.limit());
         } else {
             sb.append(" Len=0"); //$NON-NLS-1$
         }
@@ -533,12 +513,6 @@ public class IPv4Packet extends Packet {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            result = prime * result + child.hashCode();
-        } else {
-            result = prime * result;
-        }
         result = prime * result + fDSCP;
         result = prime * result + fDestinationIpAddress.hashCode();
         result = prime * result + (fDontFragmentFlag ? 1231 : 1237);
@@ -549,7 +523,12 @@ public class IPv4Packet extends Packet {
         result = prime * result + fInternetHeaderLength;
         result = prime * result + fIpDatagramProtocol;
         result = prime * result + (fMoreFragmentFlag ? 1231 : 1237);
-        result = prime * result + Arrays.hashCode(fOptions);
+        final ByteBuffer options = fOptions;
+        if (options != null) {
+            result = prime * result + options.hashCode();
+        } else {
+            result = prime * result;
+        }
         final ByteBuffer payload = fPayload;
         if (payload != null) {
             result = prime * result + payload.hashCode();
@@ -576,17 +555,6 @@ public class IPv4Packet extends Packet {
             return false;
         }
         IPv4Packet other = (IPv4Packet) obj;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            if (!child.equals(other.fChildPacket)) {
-                return false;
-            }
-        } else {
-            if (other.fChildPacket != null) {
-                return false;
-            }
-        }
-
         if (fDSCP != other.fDSCP) {
             return false;
         }
@@ -617,8 +585,15 @@ public class IPv4Packet extends Packet {
         if (fMoreFragmentFlag != other.fMoreFragmentFlag) {
             return false;
         }
-        if (!Arrays.equals(fOptions, other.fOptions)) {
-            return false;
+        final ByteBuffer options = fOptions;
+        if (options != null) {
+            if (!options.equals(other.fOptions)) {
+                return false;
+            }
+        } else {
+            if (other.fOptions != null) {
+                return false;
+            }
         }
         final ByteBuffer payload = fPayload;
         if (payload != null) {
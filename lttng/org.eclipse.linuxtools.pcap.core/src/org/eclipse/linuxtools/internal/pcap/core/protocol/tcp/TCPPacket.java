@@ -14,7 +14,6 @@ package org.eclipse.linuxtools.internal.pcap.core.protocol.tcp;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -36,7 +35,6 @@ import com.google.common.collect.ImmutableMap.Builder;
  */
 public class TCPPacket extends Packet {
 
-    private final @Nullable Packet fChildPacket;
     private final @Nullable ByteBuffer fPayload;
 
     private final int fSourcePort;
@@ -57,7 +55,7 @@ public class TCPPacket extends Packet {
     private final int fWindowSize;
     private final int fChecksum;
     private final int fUrgentPointer;
-    private final @Nullable byte[] fOptions; // TODO Interpret options.
+    private final @Nullable ByteBuffer fOptions; // TODO Interpret options.
 
     private @Nullable TCPEndpoint fSourceEndpoint;
     private @Nullable TCPEndpoint fDestinationEndpoint;
@@ -115,34 +113,16 @@ public class TCPPacket extends Packet {
 
         // Get options if any
         if (fDataOffset > TCPValues.DEFAULT_HEADER_LENGTH) {
-            fOptions = new byte[(fDataOffset - TCPValues.DEFAULT_HEADER_LENGTH) * TCPValues.BLOCK_SIZE];
-            packet.get(fOptions);
+            fOptions = sliceBytes(packet, (fDataOffset - TCPValues.DEFAULT_HEADER_LENGTH) * TCPValues.BLOCK_SIZE);
         } else {
             fOptions = null;
         }
 
         // Get payload if any.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
-            payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
-            fPayload = payload;
-        } else {
-            fPayload = null;
-        }
-
-        // find child packet
-        fChildPacket = findChildPacket();
+        fPayload = slicePayload(packet);
 
     }
 
-    @Override
-    public @Nullable Packet getChildPacket() {
-        return fChildPacket;
-    }
-
     @Override
     public @Nullable ByteBuffer getPayload() {
         return fPayload;
@@ -163,7 +143,7 @@ public class TCPPacket extends Packet {
             return null;
         }
 
-        return new UnknownPacket(getPcapFile(), this, payload);
+        return new UnknownPacket(getPcapFile(), this, duplicatePayload(payload));
     }
 
     @Override
@@ -171,7 +151,7 @@ public class TCPPacket extends Packet {
         final ByteBuffer payload = fPayload;
         int length = 0;
         if (payload != null) {
-            length = payload.array().length;
+            length = payload.limit();
         }
 
         String flagString = ""; // TODO Finish it. Im just too lazy. //$NON-NLS-1$
@@ -180,7 +160,7 @@ public class TCPPacket extends Packet {
                 "\nHeader length: " + fDataOffset * TCPValues.BLOCK_SIZE + " bytes, Data length: " + length + //$NON-NLS-1$ //$NON-NLS-2$
                 "\n" + flagString + "Window size value: " + fWindowSize + ", Urgent Pointer: " + String.format("%s%04x", "0x", fUrgentPointer) + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
                 "\nChecksum: " + String.format("%s%04x", "0x", fChecksum) + "\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-        final Packet child = fChildPacket;
+        final Packet child = getChildPacket();
         if (child != null) {
             return string + child.toString();
         }
@@ -381,11 +361,11 @@ public class TCPPacket extends Packet {
      * @return The options of the packet.
      */
     public @Nullable byte[] getOptions() {
-        byte[] options = fOptions;
+        final ByteBuffer options = fOptions;
         if (options == null) {
             return null;
         }
-        return Arrays.copyOf(options, options.length);
+        return toByteArray(options);
     }
 
     @Override
@@ -441,11 +421,11 @@ public class TCPPacket extends Packet {
                     .put("Window Size Value", String.valueOf(fWindowSize)) //$NON-NLS-1$
                     .put("Checksum", String.format("%s%04x", "0x", fChecksum)) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
                     .put("Urgent Pointer", String.format("%s%04x", "0x", fUrgentPointer)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-            byte[] options = fOptions;
+            ByteBuffer options = fOptions;
             if (options == null) {
                 builder.put("Options", EMPTY_STRING); //$NON-NLS-1$
             } else {
-                builder.put("Options", ConversionHelper.bytesToHex(options, true)); //$NON-NLS-1$
+                builder.put("Options", ConversionHelper.bytesToHex(toByteArray(options), true)); //$NON-NLS-1$
 
             }
             @SuppressWarnings("null")
@@ -576,18 +556,17 @@ public class TCPPacket extends Packet {
         result = prime * result + (int) (fAcknowledgmentNumber ^ (fAcknowledgmentNumber >>> 32));
         result = prime * result + (fCWRFlag ? 1231 : 1237);
         result = prime * result + fChecksum;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            result = prime * result + child.hashCode();
-        } else {
-            result = prime * result;
-        }
         result = prime * result + fDataOffset;
         result = prime * result + fDestinationPort;
         result = prime * result + (fECEFlag ? 1231 : 1237);
         result = prime * result + (fFINFlag ? 1231 : 1237);
         result = prime * result + (fNSFlag ? 1231 : 1237);
-        result = prime * result + Arrays.hashCode(fOptions);
+        final ByteBuffer options = fOptions;
+        if (options != null) {
+            result = prime * result + options.hashCode();
+        } else {
+            result = prime * result;
+        }
         result = prime * result + (fPSHFlag ? 1231 : 1237);
         final ByteBuffer payload = fPayload;
         if (payload != null) {
@@ -630,17 +609,6 @@ public class TCPPacket extends Packet {
         if (fChecksum != other.fChecksum) {
             return false;
         }
-        final Packet child = fChildPacket;
-        if (child != null) {
-            if (!child.equals(other.fChildPacket)) {
-                return false;
-            }
-        } else {
-            if (other.fChildPacket != null) {
-                return false;
-            }
-        }
-
         if (fDataOffset != other.fDataOffset) {
             return false;
         }
@@ -656,8 +624,15 @@ public class TCPPacket extends Packet {
         if (fNSFlag != other.fNSFlag) {
             return false;
         }
-        if (!Arrays.equals(fOptions, other.fOptions)) {
-            return false;
+        final ByteBuffer options = fOptions;
+        if (options != null) {
+            if (!options.equals(other.fOptions)) {
+                return false;
+            }
+        } else {
+            if (other.fOptions != null) {
+                return false;
+            }
         }
         if (fPSHFlag != other.fPSHFlag) {
             return false;
@@ -34,7 +34,6 @@ import com.google.common.collect.ImmutableMap;
  */
 public class UDPPacket extends Packet {
 
-    private final @Nullable Packet fChildPacket;
     private final @Nullable ByteBuffer fPayload;
 
     private final int fSourcePort;
@@ -77,28 +76,10 @@ public class UDPPacket extends Packet {
         fTotalLength = ConversionHelper.unsignedShortToInt(packet.getShort());
         fChecksum = ConversionHelper.unsignedShortToInt(packet.getShort());
 
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-
-            ByteBuffer payload = ByteBuffer.wrap(array);
-            payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
-            fPayload = payload;
-        } else {
-            fPayload = null;
-        }
-
-        // Find child
-        fChildPacket = findChildPacket();
+        fPayload = slicePayload(packet);
 
     }
 
-    @Override
-    public @Nullable Packet getChildPacket() {
-        return fChildPacket;
-    }
-
     @Override
     public @Nullable ByteBuffer getPayload() {
         return fPayload;
@@ -119,14 +100,14 @@ public class UDPPacket extends Packet {
             return null;
         }
 
-        return new UnknownPacket(getPcapFile(), this, payload);
+        return new UnknownPacket(getPcapFile(), this, duplicatePayload(payload));
     }
 
     @Override
     public String toString() {
         String string = getProtocol().getName() + ", Source Port: " + fSourcePort + ", Destination Port: " + fDestinationPort + //$NON-NLS-1$ //$NON-NLS-2$
                 ", Length: " + fTotalLength + ", Checksum: " + fChecksum + "\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-        final Packet child = fChildPacket;
+        final Packet child = getChildPacket();
         if (child != null) {
             return string + child.toString();
         }
@@ -233,12 +214,6 @@ public class UDPPacket extends Packet {
         final int prime = 31;
         int result = 1;
         result = prime * result + fChecksum;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            result = prime * result + child.hashCode();
-        } else {
-            result = prime * result;
-        }
         result = prime * result + fDestinationPort;
         final ByteBuffer payload = fPayload;
         if (payload != null) {
@@ -266,16 +241,6 @@ public class UDPPacket extends Packet {
         if (fChecksum != other.fChecksum) {
             return false;
         }
-        final Packet child = fChildPacket;
-        if (child != null) {
-            if (!child.equals(other.fChildPacket)) {
-                return false;
-            }
-        } else {
-            if (other.fChildPacket != null) {
-                return false;
-            }
-        }
         if (fDestinationPort != other.fDestinationPort) {
             return false;
         }
@@ -36,7 +36,6 @@ import com.google.common.collect.ImmutableMap.Builder;
  */
 public class UnknownPacket extends Packet {
 
-    private final @Nullable Packet fChildPacket;
     private final ByteBuffer fPayload;
 
     private @Nullable UnknownEndpoint fSourceEndpoint;
@@ -67,12 +66,6 @@ public class UnknownPacket extends Packet {
         // Header is not used. All data go into payload.
         fPayload = packet;
 
-        fChildPacket = findChildPacket();
-    }
-
-    @Override
-    public @Nullable Packet getChildPacket() {
-        return fChildPacket;
     }
 
     @Override
@@ -87,10 +80,9 @@ public class UnknownPacket extends Packet {
 
     @Override
     public String toString() {
-        @SuppressWarnings("null")
-        @NonNull byte[] array = fPayload.array();
+        byte[] array = toByteArray(fPayload);
         String string = "Payload: " + ConversionHelper.bytesToHex(array, true); //$NON-NLS-1$
-        final Packet child = fChildPacket;
+        final Packet child = getChildPacket();
         if (child != null) {
             return string + child.toString();
         }
@@ -129,8 +121,7 @@ public class UnknownPacket extends Packet {
     public Map<String, String> getFields() {
         ImmutableMap<String, String> map = fFields;
         if (map == null) {
-            @SuppressWarnings("null")
-            @NonNull byte[] array = fPayload.array();
+            byte[] array = toByteArray(fPayload);
 
             Builder<String, String> builder = ImmutableMap.<String, String> builder()
                     .put("Binary", ConversionHelper.bytesToHex(array, true)); //$NON-NLS-1$
@@ -150,12 +141,12 @@ public class UnknownPacket extends Packet {
 
     @Override
     public String getLocalSummaryString() {
-        return "Len: " + fPayload.array().length + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
+        return "Len: " + fPayload.limit() + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     @Override
     protected String getSignificationString() {
-        return "Data: " + fPayload.array().length + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
+        return "Data: " + fPayload.limit() + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     @Override
@@ -171,12 +162,6 @@ public class UnknownPacket extends Packet {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            result = prime * result + ((fChildPacket == null) ? 0 : child.hashCode());
-        } else {
-            result = prime * result;
-        }
         result = prime * result + fPayload.hashCode();
         return result;
     }
@@ -193,17 +178,6 @@ public class UnknownPacket extends Packet {
             return false;
         }
         UnknownPacket other = (UnknownPacket) obj;
-        final Packet child = fChildPacket;
-        if (child != null) {
-            if (!child.equals(other.fChildPacket)) {
-                return false;
-            }
-        } else {
-            if (other.fChildPacket != null) {
-                return false;
-            }
-        }
-
         if (!fPayload.equals(other.fPayload)) {
             return false;
         }
@@ -113,6 +113,45 @@ public class PacketStream {
         fEndTime = Math.max(fEndTime, timestamp);
     }
 
+    /**
+     * Add the packets of another stream between the same endpoints, such as a
+     * stream built from another part of the file.
+     *
+     * @param stream
+     *            The stream that must be added.
+     */
+    synchronized void add(PacketStream stream) {
+        long nbPacketsAtoB;
+        long nbPacketsBtoA;
+        long nbBytesAtoB;
+        long nbBytesBtoA;
+        long startTime;
+        long endTime;
+        synchronized (stream) {
+            nbPacketsAtoB = stream.fNbPacketsAtoB;
+            nbPacketsBtoA = stream.fNbPacketsBtoA;
+            nbBytesAtoB = stream.fNbBytesAtoB;
+            nbBytesBtoA = stream.fNbBytesBtoA;
+            startTime = stream.fStartTime;
+            endTime = stream.fEndTime;
+        }
+
+        // The endpoints of the other stream may be in the opposite order
+        if (fEndpointPair.getFirstEndpoint().equals(stream.fEndpointPair.getFirstEndpoint())) {
+            fNbPacketsAtoB += nbPacketsAtoB;
+            fNbPacketsBtoA += nbPacketsBtoA;
+            fNbBytesAtoB += nbBytesAtoB;
+            fNbBytesBtoA += nbBytesBtoA;
+        } else {
+            fNbPacketsAtoB += nbPacketsBtoA;
+            fNbPacketsBtoA += nbPacketsAtoB;
+            fNbBytesAtoB += nbBytesBtoA;
+            fNbBytesBtoA += nbBytesAtoB;
+        }
+        fStartTime = Math.min(fStartTime, startTime);
+        fEndTime = Math.max(fEndTime, endTime);
+    }
+
     /**
      * Get the Protocol of this stream.
      *
@@ -14,10 +14,23 @@ package org.eclipse.linuxtools.internal.pcap.core.stream;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.linuxtools.internal.pcap.core.endpoint.ProtocolEndpoint;
 import org.eclipse.linuxtools.internal.pcap.core.endpoint.ProtocolEndpointPair;
@@ -33,16 +46,27 @@ import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
 /**
  * Class that parse an entire pcap file to build the different streams.
  *
+ * The file is parsed in chunks of packets, in parallel. The streams of each
+ * chunk are merged into the streams of the builder in the order of the file
+ * as soon as the chunk is parsed, so the streams built so far can be read
+ * while the file is being parsed, and their IDs are the same as if the
+ * packets had been added one by one.
+ *
  * @author Vincent Perot
  */
 public class PacketStreamBuilder {
 
+    /** The number of packets of the chunks of the file parsed in parallel */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final int NB_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
     private final IPacketFilter fPacketFilter;
     private final PcapProtocol fProtocol;
 
-    private final Map<Integer, PacketStream> fStreams;
-    private final Map<ProtocolEndpointPair, Integer> fIDs;
-    private int fCurrentId;
+    /* The streams, by ID and by endpoints */
+    private final List<PacketStream> fStreams;
+    private final Map<ProtocolEndpointPair, PacketStream> fStreamsByEndpoints;
 
     /**
      * Main constructor.
@@ -51,11 +75,10 @@ public class PacketStreamBuilder {
      *            The protocol of the builder.
      */
     public PacketStreamBuilder(PcapProtocol protocol) {
-        fCurrentId = 0;
         fProtocol = protocol;
         fPacketFilter = new PacketFilterByProtocol(protocol);
-        fStreams = new HashMap<>();
-        fIDs = new HashMap<>();
+        fStreams = new ArrayList<>();
+        fStreamsByEndpoints = new HashMap<>();
     }
 
     /**
@@ -66,6 +89,9 @@ public class PacketStreamBuilder {
      * @return The stream that has the specified ID.
      */
     public synchronized @Nullable PacketStream getStream(int id) {
+        if (id < 0 || id >= fStreams.size()) {
+            return null;
+        }
         return fStreams.get(id);
     }
 
@@ -83,8 +109,7 @@ public class PacketStreamBuilder {
      */
     public synchronized @Nullable PacketStream getStream(ProtocolEndpoint endpointA, ProtocolEndpoint endpointB) {
         ProtocolEndpointPair set = new ProtocolEndpointPair(endpointA, endpointB);
-        int id = fIDs.get(set);
-        return fStreams.get(id);
+        return fStreamsByEndpoints.get(set);
     }
 
     /**
@@ -93,7 +118,7 @@ public class PacketStreamBuilder {
      * @return The streams as a list.
      */
     public synchronized Iterable<PacketStream> getStreams() {
-        Iterable<PacketStream> iterable = new LinkedList<>(fStreams.values());
+        Iterable<PacketStream> iterable = new LinkedList<>(fStreams);
         return iterable;
     }
 
@@ -105,23 +130,59 @@ public class PacketStreamBuilder {
      *            The packet to be added.
      */
     public synchronized void addPacketToStream(PcapPacket packet) {
-        if (fPacketFilter.accepts(packet)) {
-            @Nullable Packet newPacket = packet.getPacket(fProtocol);
-            if (newPacket == null) {
-                return;
+        addPacketToStream(packet, fStreamsByEndpoints, true);
+    }
+
+    /**
+     * Add a packet to the stream of its endpoints in a map of streams, and
+     * create the stream if needed.
+     *
+     * @param packet
+     *            The packet to be added.
+     * @param streams
+     *            The streams, by endpoints.
+     * @param isBuilderMap
+     *            Whether the map is the map of the builder, where the new
+     *            streams are given the next ID.
+     */
+    private void addPacketToStream(PcapPacket packet, Map<ProtocolEndpointPair, PacketStream> streams, boolean isBuilderMap) {
+        if (!fPacketFilter.accepts(packet)) {
+            return;
+        }
+        @Nullable Packet newPacket = packet.getPacket(fProtocol);
+        if (newPacket == null) {
+            return;
+        }
+        ProtocolEndpointPair endpointSet = new ProtocolEndpointPair(newPacket);
+        PacketStream stream = streams.get(endpointSet);
+        if (stream == null) {
+            stream = new PacketStream(fProtocol, isBuilderMap ? fStreams.size() : -1, endpointSet);
+            streams.put(endpointSet, stream);
+            if (isBuilderMap) {
+                fStreams.add(stream);
             }
-            ProtocolEndpointPair endpointSet = new ProtocolEndpointPair(newPacket);
-            if (!fIDs.containsKey(endpointSet)) {
-                fIDs.put(endpointSet, fCurrentId);
-                fStreams.put(fCurrentId, new PacketStream(fProtocol, fCurrentId, endpointSet));
-                fStreams.get(fCurrentId).add(packet);
-                fCurrentId++;
-            } else {
-                Integer id = fIDs.get(endpointSet);
-                fStreams.get(id).add(packet);
+        }
+        stream.add(packet);
+    }
+
+    /**
+     * Merge the streams built from a chunk of the file into the streams of the
+     * builder. The streams that are new are given the next IDs, in the order
+     * in which they appear in the chunk.
+     *
+     * @param streams
+     *            The streams of the chunk, in the order of their first packet.
+     */
+    private synchronized void mergeStreams(Map<ProtocolEndpointPair, PacketStream> streams) {
+        for (Map.Entry<ProtocolEndpointPair, PacketStream> entry : streams.entrySet()) {
+            PacketStream stream = fStreamsByEndpoints.get(entry.getKey());
+            if (stream == null) {
+                stream = new PacketStream(fProtocol, fStreams.size(), entry.getKey());
+                fStreamsByEndpoints.put(entry.getKey(), stream);
+                fStreams.add(stream);
             }
+            stream.add(entry.getValue());
         }
-        return;
     }
 
     /**
@@ -136,10 +197,9 @@ public class PacketStreamBuilder {
     /**
      * Method that clears the builder.
      */
-    public void clear() {
+    public synchronized void clear() {
         fStreams.clear();
-        fIDs.clear();
-        fCurrentId = 0;
+        fStreamsByEndpoints.clear();
     }
 
     /**
@@ -162,21 +222,145 @@ public class PacketStreamBuilder {
      * @throws BadPcapFileException
      *             When the PcapFile is not valid.
      */
-    public synchronized void parsePcapFile(Path filePath) throws IOException, BadPcapFileException {
-        try (PcapFile pcapFile = new PcapFile(filePath);) {
-            while (pcapFile.hasNextPacket()) { // not eof
-                PcapPacket packet;
+    public void parsePcapFile(Path filePath) throws IOException, BadPcapFileException {
+        parsePcapFile(filePath, Collections.singletonList(this), new NullProgressMonitor());
+    }
+
+    /**
+     * Method that parse an entire file and build the streams of several
+     * builders at once, for instance the builders of all the protocols. The
+     * chunks of the file are parsed in parallel, and the streams of the
+     * builders are updated after each chunk.
+     *
+     * @param filePath
+     *            The file path.
+     * @param builders
+     *            The builders of the streams.
+     * @param monitor
+     *            The progress monitor, to cancel the parsing.
+     * @return Whether the whole file was parsed, or false if the parsing was
+     *         cancelled.
+     * @throws IOException
+     *             When an IO error occurs.
+     * @throws BadPcapFileException
+     *             When the PcapFile is not valid.
+     */
+    public static boolean parsePcapFile(Path filePath, Collection<PacketStreamBuilder> builders, IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        try (PcapFile pcapFile = new PcapFile(filePath, true);) {
+            return parsePcapFile(pcapFile, builders, monitor);
+        }
+    }
+
+    /**
+     * Method that parse an entire file and build the streams of several
+     * builders at once, starting from the index built so far by an open
+     * instance of the file, for instance the file of a trace whose index was
+     * loaded from disk. The file is indexed with an instance of its own, so
+     * that the given file can still be read meanwhile, and the number of
+     * packets is then shared with the given file.
+     *
+     * @param file
+     *            The open file, whose index is used.
+     * @param builders
+     *            The builders of the streams.
+     * @param monitor
+     *            The progress monitor, to cancel the parsing.
+     * @return Whether the whole file was parsed, or false if the parsing was
+     *         cancelled.
+     * @throws IOException
+     *             When an IO error occurs.
+     * @throws BadPcapFileException
+     *             When the PcapFile is not valid.
+     */
+    public static boolean parsePcapFile(PcapFile file, final Collection<PacketStreamBuilder> builders, final IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        try (final PcapFile pcapFile = new PcapFile(file.getPath(), true);) {
+            pcapFile.loadIndex(file);
+            // Indexing the file only reads the headers of the packets after
+            // the last checkpoint of the index
+            long nbPackets = pcapFile.getTotalNbPackets();
+            file.loadIndex(pcapFile);
+            int nbChunks = (int) Math.max(1, (nbPackets + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(NB_THREADS, nbChunks));
+            try {
+                List<Future<List<Map<ProtocolEndpointPair, PacketStream>>>> chunks = new ArrayList<>();
+                for (int i = 0; i < nbChunks; i++) {
+                    final long start = (long) i * CHUNK_SIZE;
+                    final long end = (i == nbChunks - 1) ? Long.MAX_VALUE : start + CHUNK_SIZE;
+                    chunks.add(executor.submit(new Callable<List<Map<ProtocolEndpointPair, PacketStream>>>() {
+                        @Override
+                        public List<Map<ProtocolEndpointPair, PacketStream>> call() throws IOException, BadPcapFileException {
+                            return parseChunk(pcapFile, builders, start, end, monitor);
+                        }
+                    }));
+                }
+
+                // Merge the chunks in the order of the file, as they are parsed
+                for (Future<List<Map<ProtocolEndpointPair, PacketStream>>> chunk : chunks) {
+                    List<Map<ProtocolEndpointPair, PacketStream>> streams = chunk.get();
+                    if (monitor.isCanceled()) {
+                        return false;
+                    }
+                    int i = 0;
+                    for (PacketStreamBuilder builder : builders) {
+                        builder.mergeStreams(streams.get(i++));
+                    }
+                }
+                return true;
+            } catch (InterruptedException | CancellationException e) {
+                return false;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof BadPcapFileException) {
+                    throw (BadPcapFileException) cause;
+                }
+                throw new IllegalStateException(cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parse a chunk of the file, with its own instance of the file, and build
+     * the streams of the packets of the chunk for each builder.
+     *
+     * @return The streams of each builder, in the order of their first packet.
+     */
+    private static List<Map<ProtocolEndpointPair, PacketStream>> parseChunk(PcapFile index, Collection<PacketStreamBuilder> builders,
+            long start, long end, IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        List<Map<ProtocolEndpointPair, PacketStream>> streams = new ArrayList<>();
+        for (int i = 0; i < builders.size(); i++) {
+            streams.add(new LinkedHashMap<ProtocolEndpointPair, PacketStream>());
+        }
+        if (monitor.isCanceled()) {
+            return streams;
+        }
+
+        try (PcapFile pcapFile = new PcapFile(index.getPath(), true);) {
+            pcapFile.loadIndex(index);
+            pcapFile.seekPacket(start);
+            while (pcapFile.getCurrentRank() < end && pcapFile.hasNextPacket()) {
+                if (monitor.isCanceled()) {
+                    return streams;
+                }
                 try {
-                    packet = pcapFile.parseNextPacket();
+                    PcapPacket packet = pcapFile.parseNextPacket();
                     if (packet == null) {
-                        return;
+                        break;
+                    }
+                    int i = 0;
+                    for (PacketStreamBuilder builder : builders) {
+                        builder.addPacketToStream(packet, streams.get(i++), false);
                     }
-                    addPacketToStream(packet);
                 } catch (BadPacketException e) {
                     // Ignore packet. Do nothing.
                 }
             }
         }
-
+        return streams;
     }
 }
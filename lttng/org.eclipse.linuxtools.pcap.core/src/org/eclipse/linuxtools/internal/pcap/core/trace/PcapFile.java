@@ -12,14 +12,22 @@
 
 package org.eclipse.linuxtools.internal.pcap.core.trace;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.TreeMap;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -36,13 +44,32 @@ import org.eclipse.linuxtools.internal.pcap.core.util.PcapTimestampScale;
 public class PcapFile implements Closeable {
 
     // TODO add pcapng support.
-    // TODO Make parsing faster by buffering the data.
+
+    /** The size of the regions of the file that are mapped at once */
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+    /** The number of packets between two checkpoints of the index */
+    private static final int INDEX_INTERVAL = 256;
+
+    /** The magic number and version of the saved index files */
+    private static final int INDEX_MAGIC_NUMBER = 0x50434958;
+    private static final int INDEX_VERSION = 1;
 
     private final Path fPcapFilePath;
     private final ByteOrder fByteOrder;
-    private final SeekableByteChannel fFileChannel;
+    private final FileChannel fFileChannel;
     private final PcapTimestampScale fTimestampPrecision;
 
+    /*
+     * In the memory-mapped mode, the packets are read-only views of the mapped
+     * regions of the file instead of buffers read from the channel.
+     */
+    private final boolean fIsMemoryMapped;
+    private final long fFileSize;
+    private long fPosition;
+    private @Nullable MappedByteBuffer fMappedRegion;
+    private long fMappedRegionStart;
+
     private final int fMajorVersion;
     private final int fMinorVersion;
     private final long fTimeAccuracy;
@@ -50,13 +77,20 @@ public class PcapFile implements Closeable {
     private final long fSnapshotLength;
     private final long fDataLinkType;
 
-    private final TreeMap<Long, Long> fFileIndex;
+    /*
+     * Sparse index of the file: the checkpoint i is the offset of the packet
+     * of rank i * INDEX_INTERVAL. The packets in between are found by skipping
+     * their headers from the previous checkpoint.
+     */
+    private long[] fCheckpoints;
+    private int fNbCheckpoints;
 
     private long fCurrentRank;
     private long fTotalNumberPackets;
 
     /**
-     * Constructor of the PcapFile Class.
+     * Constructor of the PcapFile Class. The packets are read from a file
+     * channel.
      *
      * @param filePath
      *            The path to the pcap file.
@@ -67,8 +101,30 @@ public class PcapFile implements Closeable {
      *             Thrown if there is an IO error while reading the file.
      */
     public PcapFile(Path filePath) throws BadPcapFileException, IOException {
+        this(filePath, false);
+    }
 
-        fFileIndex = new TreeMap<>();
+    /**
+     * Constructor of the PcapFile Class.
+     *
+     * @param filePath
+     *            The path to the pcap file.
+     * @param memoryMapped
+     *            Whether the file is mapped in memory. If it is, the packets
+     *            and their payloads are read-only views of the mapped file,
+     *            and reading them requires no copy and no system call. Else,
+     *            they are read from a file channel. The file must not change
+     *            while it is mapped.
+     *
+     * @throws BadPcapFileException
+     *             Thrown if the Pcap File is not valid.
+     * @throws IOException
+     *             Thrown if there is an IO error while reading the file.
+     */
+    public PcapFile(Path filePath, boolean memoryMapped) throws BadPcapFileException, IOException {
+
+        fCheckpoints = new long[16];
+        fNbCheckpoints = 0;
         fCurrentRank = 0;
         fTotalNumberPackets = -1;
         fPcapFilePath = filePath;
@@ -85,8 +141,10 @@ public class PcapFile implements Closeable {
 
         // File is not empty. Try to open.
         @SuppressWarnings("null")
-        @NonNull SeekableByteChannel channel = Files.newByteChannel(fPcapFilePath);
+        @NonNull FileChannel channel = FileChannel.open(fPcapFilePath, StandardOpenOption.READ);
         fFileChannel = channel;
+        fIsMemoryMapped = memoryMapped;
+        fFileSize = fFileChannel.size();
 
         // Parse the global header.
         // Read the magic number (4 bytes) from the input stream
@@ -135,7 +193,8 @@ public class PcapFile implements Closeable {
         fSnapshotLength = ConversionHelper.unsignedIntToLong(globalHeader.getInt());
         fDataLinkType = ConversionHelper.unsignedIntToLong(globalHeader.getInt());
 
-        fFileIndex.put(fCurrentRank, fFileChannel.position());
+        fPosition = fFileChannel.position();
+        fCheckpoints[fNbCheckpoints++] = fPosition;
 
     }
 
@@ -153,24 +212,20 @@ public class PcapFile implements Closeable {
     public synchronized @Nullable PcapPacket parseNextPacket() throws IOException, BadPcapFileException, BadPacketException {
 
         // Parse the packet header
-        if (fFileChannel.size() - fFileChannel.position() == 0) {
+        if (size() - position() == 0) {
+            fTotalNumberPackets = fCurrentRank;
             return null;
         }
-        if (fFileChannel.size() - fFileChannel.position() < PcapFileValues.PACKET_HEADER_SIZE) {
+        if (size() - position() < PcapFileValues.PACKET_HEADER_SIZE) {
             throw new BadPcapFileException("A pcap header is invalid."); //$NON-NLS-1$
         }
 
-        ByteBuffer pcapPacketHeader = ByteBuffer.allocate(PcapFileValues.PACKET_HEADER_SIZE);
-        pcapPacketHeader.clear();
+        ByteBuffer pcapPacketHeader = read(PcapFileValues.PACKET_HEADER_SIZE);
         pcapPacketHeader.order(fByteOrder);
-
-        fFileChannel.read(pcapPacketHeader);
-
-        pcapPacketHeader.flip();
         pcapPacketHeader.position(PcapFileValues.INCLUDED_LENGTH_POSITION);
         long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt());
 
-        if (fFileChannel.size() - fFileChannel.position() < includedPacketLength) {
+        if (size() - position() < includedPacketLength) {
             throw new BadPcapFileException("A packet header is invalid."); //$NON-NLS-1$
         }
 
@@ -178,14 +233,10 @@ public class PcapFile implements Closeable {
             throw new BadPacketException("Packets that are bigger than 2^31-1 bytes are not supported."); //$NON-NLS-1$
         }
 
-        ByteBuffer pcapPacketData = ByteBuffer.allocate((int) includedPacketLength);
-        pcapPacketData.clear();
-        pcapPacketHeader.order(ByteOrder.BIG_ENDIAN); // Not really needed.
-        fFileChannel.read(pcapPacketData);
-
-        pcapPacketData.flip();
+        ByteBuffer pcapPacketData = read((int) includedPacketLength);
 
-        fFileIndex.put(++fCurrentRank, fFileChannel.position());
+        fCurrentRank++;
+        updateIndex();
 
         return new PcapPacket(this, null, pcapPacketHeader, pcapPacketData, fCurrentRank - 1);
 
@@ -202,33 +253,49 @@ public class PcapFile implements Closeable {
     public synchronized void skipNextPacket() throws IOException, BadPcapFileException {
 
         // Parse the packet header
-        if (fFileChannel.size() - fFileChannel.position() == 0) {
+        if (size() - position() == 0) {
+            fTotalNumberPackets = fCurrentRank;
             return;
         }
-        if (fFileChannel.size() - fFileChannel.position() < PcapFileValues.PACKET_HEADER_SIZE) {
+        if (size() - position() < PcapFileValues.PACKET_HEADER_SIZE) {
             throw new BadPcapFileException("A pcap header is invalid."); //$NON-NLS-1$
         }
 
-        ByteBuffer pcapPacketHeader = ByteBuffer.allocate(PcapFileValues.PACKET_HEADER_SIZE);
-        pcapPacketHeader.clear();
+        ByteBuffer pcapPacketHeader = read(PcapFileValues.PACKET_HEADER_SIZE);
         pcapPacketHeader.order(fByteOrder);
-
-        fFileChannel.read(pcapPacketHeader);
-
-        pcapPacketHeader.flip();
         pcapPacketHeader.position(PcapFileValues.INCLUDED_LENGTH_POSITION);
         long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt());
 
-        if (fFileChannel.size() - fFileChannel.position() < includedPacketLength) {
+        if (size() - position() < includedPacketLength) {
             throw new BadPcapFileException("A packet header is invalid."); //$NON-NLS-1$
         }
 
-        fFileChannel.position(fFileChannel.position() + includedPacketLength);
+        position(position() + includedPacketLength);
 
-        fFileIndex.put(++fCurrentRank, fFileChannel.position());
+        fCurrentRank++;
+        updateIndex();
 
     }
 
+    /**
+     * Method that adds a checkpoint to the index if the current rank is the
+     * first rank after the last checkpoint that needs one.
+     *
+     * @throws IOException
+     *             Thrown when there is an error while reading the file.
+     */
+    private void updateIndex() throws IOException {
+        if (fCurrentRank % INDEX_INTERVAL != 0 || fCurrentRank / INDEX_INTERVAL != fNbCheckpoints) {
+            return;
+        }
+        if (fNbCheckpoints == fCheckpoints.length) {
+            @SuppressWarnings("null")
+            @NonNull long[] checkpoints = Arrays.copyOf(fCheckpoints, fNbCheckpoints * 2);
+            fCheckpoints = checkpoints;
+        }
+        fCheckpoints[fNbCheckpoints++] = position();
+    }
+
     /**
      * Method that moves the position to the specified rank.
      *
@@ -247,20 +314,20 @@ public class PcapFile implements Closeable {
             throw new IllegalArgumentException();
         }
 
-        Long positionInBytes = fFileIndex.get(rank);
+        // Find the closest checkpoint, unless the current position is closer
+        int checkpoint = (int) Math.min(rank / INDEX_INTERVAL, fNbCheckpoints - 1);
+        long checkpointRank = (long) checkpoint * INDEX_INTERVAL;
+        if (fCurrentRank < checkpointRank || fCurrentRank > rank) {
+            position(fCheckpoints[checkpoint]);
+            fCurrentRank = checkpointRank;
+        }
 
-        if (positionInBytes != null) {
-            // Index is known. Move to position.
-            fFileChannel.position(positionInBytes.longValue());
-            fCurrentRank = rank;
-        } else {
-            // Index is unknown. Find the corresponding position.
-            // Find closest index
-            fCurrentRank = fFileIndex.floorKey(rank);
-            // skip until wanted packet is found
-            do {
-                skipNextPacket();
-            } while (fCurrentRank != rank && hasNextPacket());
+        // Skip until wanted packet is found, reading only the packet headers
+        while (fCurrentRank != rank && hasNextPacket()) {
+            skipNextPacket();
+        }
+        if (fCurrentRank != rank) {
+            fTotalNumberPackets = fCurrentRank;
         }
     }
 
@@ -273,7 +340,74 @@ public class PcapFile implements Closeable {
      *             If some IO error occurs.
      */
     public synchronized boolean hasNextPacket() throws IOException {
-        return ((fFileChannel.size() - fFileChannel.position()) > 0);
+        return ((size() - position()) > 0);
+    }
+
+    /**
+     * Method that reads the bytes at the current position and moves the
+     * position after them. In the memory-mapped mode, the buffer is a
+     * read-only view of the mapped file.
+     *
+     * @param length
+     *            The number of bytes to read.
+     * @return The bytes, from position 0 to the limit of the buffer.
+     * @throws IOException
+     *             Thrown when there is an error while reading the file.
+     */
+    private ByteBuffer read(int length) throws IOException {
+        if (!fIsMemoryMapped) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            buffer.clear();
+            fFileChannel.read(buffer);
+            buffer.flip();
+            return buffer;
+        }
+
+        // Map a new region of the file if the bytes are not in the current one
+        long position = fPosition;
+        MappedByteBuffer region = fMappedRegion;
+        if (region == null || position < fMappedRegionStart ||
+                position + length > fMappedRegionStart + region.capacity()) {
+            long regionSize = Math.min(Math.max(MAPPED_REGION_SIZE, length), fFileSize - position);
+            region = fFileChannel.map(MapMode.READ_ONLY, position, regionSize);
+            fMappedRegion = region;
+            fMappedRegionStart = position;
+        }
+
+        ByteBuffer buffer = region.duplicate();
+        int offset = (int) (position - fMappedRegionStart);
+        buffer.limit(offset + length);
+        buffer.position(offset);
+        fPosition = position + length;
+        @SuppressWarnings("null")
+        @NonNull ByteBuffer slice = buffer.slice();
+        return slice;
+    }
+
+    private long position() throws IOException {
+        return fIsMemoryMapped ? fPosition : fFileChannel.position();
+    }
+
+    private void position(long position) throws IOException {
+        if (fIsMemoryMapped) {
+            fPosition = position;
+        } else {
+            fFileChannel.position(position);
+        }
+    }
+
+    private long size() throws IOException {
+        return fIsMemoryMapped ? fFileSize : fFileChannel.size();
+    }
+
+    /**
+     * Method that indicates if the packets are read from the file mapped in
+     * memory.
+     *
+     * @return Whether the file is memory-mapped or not.
+     */
+    public boolean isMemoryMapped() {
+        return fIsMemoryMapped;
     }
 
     /**
@@ -361,19 +495,123 @@ public class PcapFile implements Closeable {
     public synchronized long getTotalNbPackets() throws IOException, BadPcapFileException {
         if (fTotalNumberPackets == -1) {
             long rank = fCurrentRank;
-            fCurrentRank = fFileIndex.floorKey(rank);
 
-            // skip until end of file.
-            while (hasNextPacket()) {
-                skipNextPacket();
-            }
-            fTotalNumberPackets = fCurrentRank;
-            fCurrentRank = rank;
+            // Skip until end of file, from the last checkpoint.
+            seekPacket(Long.MAX_VALUE);
             seekPacket(rank);
         }
         return fTotalNumberPackets;
     }
 
+    /**
+     * Method that saves the index of the file, so that it can be loaded
+     * instead of being built again when the file is opened. The index
+     * contains the checkpoints of the packets read so far, and the total
+     * number of packets if it is known.
+     *
+     * @param indexPath
+     *            The path of the index file.
+     * @throws IOException
+     *             Thrown when the index cannot be written.
+     */
+    public synchronized void saveIndex(Path indexPath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+            out.writeInt(INDEX_MAGIC_NUMBER);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(INDEX_INTERVAL);
+            out.writeLong(fFileSize);
+            out.writeLong(Files.getLastModifiedTime(fPcapFilePath).toMillis());
+            out.writeLong(fTotalNumberPackets);
+            out.writeInt(fNbCheckpoints);
+            for (int i = 0; i < fNbCheckpoints; i++) {
+                out.writeLong(fCheckpoints[i]);
+            }
+        }
+    }
+
+    /**
+     * Method that loads an index saved by {@link #saveIndex(Path)}. The index
+     * is ignored if it does not exist, if it is invalid or if the file was
+     * modified since it was saved. The current rank is not changed.
+     *
+     * @param indexPath
+     *            The path of the index file.
+     * @return Whether the index was loaded or not.
+     * @throws IOException
+     *             Thrown when the index cannot be read.
+     */
+    public synchronized boolean loadIndex(Path indexPath) throws IOException {
+        if (!Files.isRegularFile(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != INDEX_MAGIC_NUMBER ||
+                    in.readInt() != INDEX_VERSION ||
+                    in.readInt() != INDEX_INTERVAL ||
+                    in.readLong() != fFileSize ||
+                    in.readLong() != Files.getLastModifiedTime(fPcapFilePath).toMillis()) {
+                return false;
+            }
+            long totalNumberPackets = in.readLong();
+            int nbCheckpoints = in.readInt();
+            if (nbCheckpoints < 1 || (totalNumberPackets != -1 && totalNumberPackets / INDEX_INTERVAL + 1 != nbCheckpoints)) {
+                return false;
+            }
+            if (nbCheckpoints <= fNbCheckpoints && fTotalNumberPackets != -1) {
+                /* The index already has all the checkpoints */
+                return true;
+            }
+            long[] checkpoints = new long[nbCheckpoints];
+            for (int i = 0; i < nbCheckpoints; i++) {
+                checkpoints[i] = in.readLong();
+                if (checkpoints[i] < fCheckpoints[0] || checkpoints[i] > fFileSize) {
+                    return false;
+                }
+            }
+            if (nbCheckpoints > fNbCheckpoints) {
+                fCheckpoints = checkpoints;
+                fNbCheckpoints = nbCheckpoints;
+            }
+            if (totalNumberPackets != -1) {
+                fTotalNumberPackets = totalNumberPackets;
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method that loads the index built so far by another instance of the same
+     * file, so that several parts of the file can be read in parallel without
+     * indexing the file again. The current rank is not changed.
+     *
+     * @param file
+     *            The other instance of the file.
+     */
+    public void loadIndex(PcapFile file) {
+        if (!fPcapFilePath.equals(file.fPcapFilePath) || fFileSize != file.fFileSize) {
+            throw new IllegalArgumentException("The index is not an index of this file."); //$NON-NLS-1$
+        }
+        long[] checkpoints;
+        long totalNumberPackets;
+        synchronized (file) {
+            @SuppressWarnings("null")
+            @NonNull long[] copy = Arrays.copyOf(file.fCheckpoints, file.fNbCheckpoints);
+            checkpoints = copy;
+            totalNumberPackets = file.fTotalNumberPackets;
+        }
+        synchronized (this) {
+            if (checkpoints.length > fNbCheckpoints) {
+                fCheckpoints = checkpoints;
+                fNbCheckpoints = checkpoints.length;
+            }
+            if (totalNumberPackets != -1) {
+                fTotalNumberPackets = totalNumberPackets;
+            }
+        }
+    }
+
     /**
      * Getter method that returns the current rank in the file (the packet
      * number).
@@ -395,6 +633,7 @@ public class PcapFile implements Closeable {
 
     @Override
     public void close() throws IOException {
+        fMappedRegion = null;
         fFileChannel.close();
     }
 
@@ -20,7 +20,9 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    StateSystemFullQueryTest.class,
     StateSystemPushPopTest.class,
+    StateSystemRangeQueryTest.class,
     org.eclipse.linuxtools.statesystem.core.tests.backend.AllTests.class
 })
 public class AllTests {
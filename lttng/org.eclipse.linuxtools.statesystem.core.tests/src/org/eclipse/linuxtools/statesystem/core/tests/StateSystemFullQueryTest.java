@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.linuxtools.internal.statesystem.core.StateSystem;
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the full queries writing into a caller-supplied array, and their use
+ * from several threads at the same time.
+ */
+public class StateSystemFullQueryTest {
+
+    private static final int NB_ATTRIBUTES = 50;
+    private static final long END_TIME = 20000;
+
+    private static File testHtFile;
+    private static ITmfStateSystemBuilder ss;
+
+    /**
+     * Build a history with small blocks, so that the tree has many levels.
+     *
+     * @throws IOException
+     *             If the history file cannot be created
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void init() throws IOException, AttributeNotFoundException {
+        testHtFile = File.createTempFile("StateSystemFullQueryTest", ".ht");
+        IStateHistoryBackend backend = new HistoryTreeBackend(testHtFile, 4096, 5, 0, 0L);
+        ss = new StateSystem("full-query-test", backend, true);
+
+        List<Integer> quarks = new ArrayList<>();
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            quarks.add(ss.getQuarkAbsoluteAndAdd(String.valueOf(i)));
+        }
+        for (long t = 1; t < END_TIME; t++) {
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                if (t % (i + 3) == 0) {
+                    ss.modifyAttribute(t, TmfStateValue.newValueLong(t), quarks.get(i));
+                }
+            }
+        }
+        ss.closeHistory(END_TIME);
+    }
+
+    /**
+     * Delete the history file
+     */
+    @AfterClass
+    public static void cleanup() {
+        ss.dispose();
+        assertTrue(testHtFile.delete());
+    }
+
+    private static void assertSameState(List<ITmfStateInterval> expected,
+            ITmfStateInterval[] actual) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartTime(), actual[i].getStartTime());
+            assertEquals(expected.get(i).getEndTime(), actual[i].getEndTime());
+            assertEquals(expected.get(i).getStateValue(), actual[i].getStateValue());
+        }
+    }
+
+    /**
+     * Test that the array version returns the same as the List one, and
+     * reuses the array that is passed to it.
+     *
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testReuseArray() throws StateSystemDisposedException {
+        ITmfStateInterval[] buffer = ss.queryFullState(1000, null);
+        assertEquals(NB_ATTRIBUTES, buffer.length);
+        assertSameState(ss.queryFullState(1000), buffer);
+
+        for (long t = 0; t < END_TIME; t += 997) {
+            ITmfStateInterval[] ret = ss.queryFullState(t, buffer);
+            assertSame(buffer, ret);
+            assertSameState(ss.queryFullState(t), ret);
+        }
+    }
+
+    /**
+     * Test passing arrays that are too small or too large
+     *
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testArraySize() throws StateSystemDisposedException {
+        ITmfStateInterval[] small = new ITmfStateInterval[NB_ATTRIBUTES - 1];
+        ITmfStateInterval[] ret = ss.queryFullState(5000, small);
+        assertNotSame(small, ret);
+        assertEquals(NB_ATTRIBUTES, ret.length);
+
+        ITmfStateInterval[] large = new ITmfStateInterval[NB_ATTRIBUTES + 10];
+        ret = ss.queryFullState(5000, large);
+        assertSame(large, ret);
+        assertSameState(ss.queryFullState(5000), ret);
+        for (int i = NB_ATTRIBUTES; i < large.length; i++) {
+            assertNull(large[i]);
+        }
+    }
+
+    /**
+     * Run full queries from several threads at the same time
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testConcurrentQueries() throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final long offset = i * 13;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        ITmfStateInterval[] buffer = null;
+                        for (long t = offset; t < END_TIME; t += 101) {
+                            buffer = ss.queryFullState(t, buffer);
+                            for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+                                ITmfStateInterval interval = buffer[quark];
+                                assertEquals(quark, interval.getAttribute());
+                                assertTrue(interval.getStartTime() <= t);
+                                assertTrue(interval.getEndTime() >= t);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.linuxtools.internal.statesystem.core.StateSystem;
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the bulk range query over several attributes, by comparing its results
+ * with the ones of the single-attribute range queries.
+ */
+public class StateSystemRangeQueryTest {
+
+    private static final int NB_ATTRIBUTES = 20;
+    private static final long END_TIME = 100000;
+
+    private static File testHtFile;
+    private static ITmfStateSystemBuilder ss;
+    private static List<Integer> quarks = new ArrayList<>();
+
+    /**
+     * Build a history with small blocks, so that the tree has many levels.
+     *
+     * @throws IOException
+     *             If the history file cannot be created
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void init() throws IOException, AttributeNotFoundException {
+        testHtFile = File.createTempFile("StateSystemRangeQueryTest", ".ht");
+        IStateHistoryBackend backend = new HistoryTreeBackend(testHtFile, 4096, 5, 0, 0L);
+        ss = new StateSystem("range-query-test", backend, true);
+
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            quarks.add(ss.getQuarkAbsoluteAndAdd("Attribs", String.valueOf(i)));
+        }
+        /* Attribute 'i' changes state every 'i + 7' time units */
+        for (long t = 1; t < END_TIME; t++) {
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                if (t % (i + 7) == 0) {
+                    ss.modifyAttribute(t, TmfStateValue.newValueLong(t), quarks.get(i));
+                }
+            }
+        }
+        ss.closeHistory(END_TIME);
+    }
+
+    /**
+     * Delete the history file
+     */
+    @AfterClass
+    public static void cleanup() {
+        ss.dispose();
+        assertTrue(testHtFile.delete());
+    }
+
+    private static String key(ITmfStateInterval interval) {
+        return interval.getAttribute() + ":" + interval.getStartTime() + "-"
+                + interval.getEndTime() + "=" + interval.getStateValue();
+    }
+
+    private static Set<String> singleQueries(long t1, long t2, long resolution)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        Set<String> expected = new HashSet<>();
+        for (int quark : quarks) {
+            for (ITmfStateInterval interval : ss.queryHistoryRange(quark, t1, t2, resolution, null)) {
+                expected.add(key(interval));
+            }
+        }
+        return expected;
+    }
+
+    private static Set<String> bulkQuery(long t1, long t2, long resolution)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        final Set<String> actual = new HashSet<>();
+        final int[] count = { 0 };
+        ss.queryHistoryRange(quarks, t1, t2, resolution, null, new ITmfStateIntervalHandler() {
+            @Override
+            public void handleInterval(ITmfStateInterval interval) {
+                actual.add(key(interval));
+                count[0]++;
+            }
+        });
+        /* Each interval should be returned only once */
+        assertEquals(actual.size(), count[0]);
+        return actual;
+    }
+
+    /**
+     * Query every interval of a time range
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testFullResolution() throws AttributeNotFoundException, StateSystemDisposedException {
+        assertEquals(singleQueries(30000, 35000, 1), bulkQuery(30000, 35000, 1));
+    }
+
+    /**
+     * Query the whole history at a coarser resolution
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testResolution() throws AttributeNotFoundException, StateSystemDisposedException {
+        assertEquals(singleQueries(0, END_TIME, 50), bulkQuery(0, END_TIME, 50));
+        assertEquals(singleQueries(1234, 56789, 17), bulkQuery(1234, 56789, 17));
+    }
+
+    /**
+     * Query past the end of the history, which should stop at its end
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testPastEnd() throws AttributeNotFoundException, StateSystemDisposedException {
+        assertEquals(singleQueries(99000, 200000, 1), bulkQuery(99000, 200000, 1));
+    }
+
+    /**
+     * Query only a subset of the attributes
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testSubset() throws AttributeNotFoundException, StateSystemDisposedException {
+        final Set<Integer> seen = new HashSet<>();
+        List<Integer> subset = Arrays.asList(quarks.get(3), quarks.get(11));
+        ss.queryHistoryRange(subset, 500, 600, 1, null, new ITmfStateIntervalHandler() {
+            @Override
+            public void handleInterval(ITmfStateInterval interval) {
+                seen.add(interval.getAttribute());
+            }
+        });
+        assertEquals(new HashSet<>(subset), seen);
+    }
+
+    /**
+     * Test an invalid time range
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test(expected = TimeRangeException.class)
+    public void testInvalidRange() throws AttributeNotFoundException, StateSystemDisposedException {
+        bulkQuery(600, 500, 1);
+    }
+
+    /**
+     * Test an invalid attribute
+     *
+     * @throws AttributeNotFoundException
+     *             Expected
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test(expected = AttributeNotFoundException.class)
+    public void testInvalidAttribute() throws AttributeNotFoundException, StateSystemDisposedException {
+        ss.queryHistoryRange(Arrays.asList(NB_ATTRIBUTES + 100), 500, 600, 1, null, new ITmfStateIntervalHandler() {
+            @Override
+            public void handleInterval(ITmfStateInterval interval) {
+            }
+        });
+    }
+}
@@ -20,7 +20,12 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-    InMemoryBackendTest.class
+    HistoryTreeBackendTest.class,
+    HistoryTreeCompressionTest.class,
+    HTIOMappedReadTest.class,
+    HTNodeCacheTest.class,
+    InMemoryBackendTest.class,
+    PartitionedHistoryTreeBackendTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTInterval;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HT_IO;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.LeafNode;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the reads of the nodes of an existing history file through
+ * its memory-mapped segments
+ */
+public class HTIOMappedReadTest {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int NB_NODES = 11;
+    private static final int NB_ATTRIBUTES = 4;
+    private static final long NODE_DURATION = 100;
+
+    private File fFile;
+    private HTConfig fConfig;
+    private HT_IO fReader;
+
+    /**
+     * Write the nodes of the history file
+     *
+     * @throws IOException
+     *             If the file cannot be written
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @Before
+    public void setUp() throws IOException, TimeRangeException {
+        fFile = File.createTempFile("HTIOMappedReadTest", ".ht");
+        fConfig = new HTConfig(fFile, BLOCK_SIZE, 4, 0, 0);
+        HT_IO writer = new HT_IO(fConfig, true);
+        for (int seqNumber = 0; seqNumber < NB_NODES; seqNumber++) {
+            long start = seqNumber * NODE_DURATION;
+            LeafNode node = new LeafNode(fConfig, seqNumber, -1, start);
+            for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+                node.addInterval(new HTInterval(start, start + NODE_DURATION - 1,
+                        attribute, getValue(seqNumber, attribute)));
+            }
+            node.closeThisNode(start + NODE_DURATION - 1);
+            writer.writeNode(node);
+        }
+        writer.closeFile();
+    }
+
+    /**
+     * Close the reader and delete the history file
+     */
+    @After
+    public void tearDown() {
+        if (fReader != null) {
+            fReader.deleteFile();
+        }
+        fFile.delete();
+    }
+
+    private static TmfStateValue getValue(int seqNumber, int attribute) {
+        if (attribute % 2 == 0) {
+            return TmfStateValue.newValueInt(seqNumber * NB_ATTRIBUTES + attribute);
+        }
+        return TmfStateValue.newValueString("node" + seqNumber + "-" + attribute);
+    }
+
+    /**
+     * Test reading all the nodes from segments holding several nodes, the
+     * last segment being only partly filled. The nodes on each side of a
+     * segment boundary are read one after the other.
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @Test
+    public void testReadSegments() throws IOException, TimeRangeException {
+        /* 3 nodes per segment: 0-2, 3-5, 6-8, 9-10 */
+        fReader = new HT_IO(fConfig, false, 3 * BLOCK_SIZE);
+        assertEquals(0, fReader.getNbMappedSegments());
+
+        checkNode(2);
+        checkNode(3);
+        assertEquals(2, fReader.getNbMappedSegments());
+        checkNode(NB_NODES - 1);
+        for (int seqNumber = 0; seqNumber < NB_NODES; seqNumber++) {
+            checkNode(seqNumber);
+        }
+        assertEquals(4, fReader.getNbMappedSegments());
+    }
+
+    /**
+     * Test that a maximum segment size that is not a multiple of the block
+     * size is rounded down, so that no node spans two segments
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @Test
+    public void testUnalignedSegmentSize() throws IOException, TimeRangeException {
+        /* 2 nodes per segment */
+        fReader = new HT_IO(fConfig, false, 5 * BLOCK_SIZE / 2);
+        for (int seqNumber = NB_NODES - 1; seqNumber >= 0; seqNumber--) {
+            checkNode(seqNumber);
+        }
+        assertEquals((NB_NODES + 1) / 2, fReader.getNbMappedSegments());
+    }
+
+    /**
+     * Test that a segment smaller than a block still maps one node
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @Test
+    public void testOneNodePerSegment() throws IOException, TimeRangeException {
+        fReader = new HT_IO(fConfig, false, 1);
+        for (int seqNumber = 0; seqNumber < NB_NODES; seqNumber++) {
+            checkNode(seqNumber);
+        }
+        assertEquals(NB_NODES, fReader.getNbMappedSegments());
+    }
+
+    /**
+     * Test that closing the file drops the mapped segments, and that the file
+     * can then be deleted
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @Test
+    public void testDelete() throws IOException, TimeRangeException {
+        fReader = new HT_IO(fConfig, false, 3 * BLOCK_SIZE);
+        for (int seqNumber = 0; seqNumber < NB_NODES; seqNumber++) {
+            checkNode(seqNumber);
+        }
+        fReader.closeFile();
+        assertEquals(0, fReader.getNbMappedSegments());
+
+        fReader.deleteFile();
+        fReader = null;
+        assertFalse(fFile.exists());
+    }
+
+    private void checkNode(int seqNumber) throws IOException, TimeRangeException {
+        HTNode node = fReader.readNode(seqNumber);
+        assertNotNull(node);
+        assertTrue(node.isOnDisk());
+        assertEquals(seqNumber, node.getSequenceNumber());
+        long start = seqNumber * NODE_DURATION;
+        assertEquals(start, node.getNodeStart());
+        assertEquals(start + NODE_DURATION - 1, node.getNodeEnd());
+        for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+            HTInterval interval = node.getRelevantInterval(attribute, start + NODE_DURATION / 2);
+            assertNotNull(interval);
+            assertEquals(start, interval.getStartTime());
+            assertEquals(start + NODE_DURATION - 1, interval.getEndTime());
+            assertEquals(getValue(seqNumber, attribute), interval.getStateValue());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTNodeCache;
+import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.LeafNode;
+import org.junit.Test;
+
+/**
+ * Test cases for the striped LRU cache of the history tree nodes
+ */
+public class HTNodeCacheTest {
+
+    /** The number of segments of the cache */
+    private static final int NB_SEGMENTS = 16;
+
+    private static final HTConfig CONFIG = new HTConfig(new File("HTNodeCacheTest.ht"), 0, 0);
+
+    private static HTNode createNode(int seqNumber) {
+        return new LeafNode(CONFIG, seqNumber, -1, 0);
+    }
+
+    /**
+     * Test the lookups of nodes that are, or are not, in the cache
+     */
+    @Test
+    public void testHitMiss() {
+        HTNodeCache cache = new HTNodeCache(4 * NB_SEGMENTS);
+        HTNode node = createNode(5);
+
+        assertNull(cache.get(5));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.put(node);
+        assertSame(node, cache.get(5));
+        assertNull(cache.get(6));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        /* A node with the same sequence number replaces the previous one */
+        HTNode newNode = createNode(5);
+        cache.put(newNode);
+        assertSame(newNode, cache.get(5));
+        assertEquals(0, cache.getEvictionCount());
+
+        /* Clearing the cache keeps the counters */
+        cache.clear();
+        assertNull(cache.get(5));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    /**
+     * Test that a full segment evicts its least recently used node, without
+     * affecting the nodes of the other segments
+     */
+    @Test
+    public void testEviction() {
+        /* Two nodes per segment */
+        HTNodeCache cache = new HTNodeCache(2 * NB_SEGMENTS);
+        HTNode first = createNode(0);
+        HTNode second = createNode(NB_SEGMENTS);
+        HTNode third = createNode(2 * NB_SEGMENTS);
+        HTNode other = createNode(1);
+
+        cache.put(first);
+        cache.put(second);
+        cache.put(other);
+        assertEquals(0, cache.getEvictionCount());
+
+        /* Use the first node, so the second one is the least recently used */
+        assertSame(first, cache.get(0));
+        cache.put(third);
+        assertEquals(1, cache.getEvictionCount());
+
+        assertSame(first, cache.get(0));
+        assertNull(cache.get(NB_SEGMENTS));
+        assertSame(third, cache.get(2 * NB_SEGMENTS));
+        assertSame(other, cache.get(1));
+    }
+
+    /**
+     * Test that each segment keeps at least one node when the cache is smaller
+     * than the number of segments
+     */
+    @Test
+    public void testSmallCache() {
+        HTNodeCache cache = new HTNodeCache(1);
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            cache.put(createNode(i));
+        }
+        assertEquals(0, cache.getEvictionCount());
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            assertEquals(i, cache.get(i).getSequenceNumber());
+        }
+
+        cache.put(createNode(NB_SEGMENTS));
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(0));
+    }
+
+    /**
+     * Test readers looking up and inserting nodes from several threads. Every
+     * lookup must return the node of its sequence number, and be counted once.
+     *
+     * @throws Exception
+     *             Fails the test
+     */
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final int nbThreads = 8;
+        final int nbLookups = 20000;
+        final int nbNodes = 200;
+        final HTNodeCache cache = new HTNodeCache(4 * NB_SEGMENTS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < nbThreads; t++) {
+                final long seed = t;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < nbLookups; i++) {
+                            int seqNumber = random.nextInt(nbNodes);
+                            HTNode node = cache.get(seqNumber);
+                            if (node == null) {
+                                cache.put(createNode(seqNumber));
+                            } else {
+                                assertEquals(seqNumber, node.getSequenceNumber());
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(nbThreads * nbLookups, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests.backend;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test cases for the history tree backend, checking that all the types of
+ * state values are preserved when the history is written to disk and read
+ * back.
+ */
+public class HistoryTreeBackendTest {
+
+    private static final int PROVIDER_VERSION = 0;
+    private static final int NB_STATES = 2000;
+    private static final int NB_ATTRIBUTES = 8;
+    /* Use realistic (large) timestamps, the times are stored as deltas */
+    private static final long START_TIME = 1400000000000000000L;
+    private static final long END_TIME = START_TIME + NB_STATES * 10;
+
+    private static final String LONG_STRING;
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("long string éè ");
+        }
+        LONG_STRING = sb.toString();
+    }
+
+    private static File htFile;
+    private static HistoryTreeBackend fixture;
+
+    /**
+     * Test setup. Build a history using the smallest blocks, so that its
+     * intervals are spread over many nodes, then reopen it from disk.
+     *
+     * @throws IOException
+     *             If the history file cannot be created
+     */
+    @BeforeClass
+    public static void init() throws IOException {
+        htFile = File.createTempFile("HistoryTreeBackendTest", ".ht");
+        HistoryTreeBackend builder = new HistoryTreeBackend(htFile, 4096, 3,
+                PROVIDER_VERSION, START_TIME);
+        try {
+            for (int k = 0; k < NB_STATES; k++) {
+                final long start = START_TIME + k * 10;
+                for (int attribute = 0; attribute < NB_ATTRIBUTES - 1; attribute++) {
+                    builder.insertPastState(start, start + 9, attribute, getValue(attribute, k));
+                }
+            }
+            /* One interval covering the whole history */
+            builder.insertPastState(START_TIME, END_TIME, NB_ATTRIBUTES - 1,
+                    TmfStateValue.newValueLong(Long.MIN_VALUE));
+            builder.finishedBuilding(END_TIME);
+        } catch (TimeRangeException e) {
+            /* Should not happen here */
+            throw new IllegalStateException();
+        }
+        builder.dispose();
+
+        fixture = new HistoryTreeBackend(htFile, PROVIDER_VERSION);
+    }
+
+    /**
+     * Delete the history file
+     */
+    @AfterClass
+    public static void cleanup() {
+        fixture.removeFiles();
+    }
+
+    private static TmfStateValue getValue(int attribute, int k) {
+        switch (attribute) {
+        case 0:
+            /* Small and negative integers */
+            return TmfStateValue.newValueInt(k % 2 == 0 ? k : -k);
+        case 1:
+            /* Integers that need the full 4 bytes */
+            return TmfStateValue.newValueInt(k % 2 == 0 ? Integer.MAX_VALUE - k : Integer.MIN_VALUE + k);
+        case 2:
+            /* Longs, small and large */
+            return TmfStateValue.newValueLong(k % 2 == 0 ? k * 0x123456789AL : Long.MAX_VALUE - k);
+        case 3:
+            return TmfStateValue.newValueDouble(k / 3.0);
+        case 4:
+            /* Strings repeated in many intervals of the same node */
+            return TmfStateValue.newValueString("state" + (k % 5));
+        case 5:
+            /* Strings longer than 127 bytes, with non-ASCII characters */
+            return TmfStateValue.newValueString(LONG_STRING + k);
+        case 6:
+        default:
+            return TmfStateValue.nullValue();
+        }
+    }
+
+    /**
+     * Test the time range
+     */
+    @Test
+    public void testTimeRange() {
+        assertEquals(START_TIME, fixture.getStartTime());
+        assertEquals(END_TIME, fixture.getEndTime());
+    }
+
+    /**
+     * Query every interval that was inserted, and check its times and value
+     */
+    @Test
+    public void testSingularQueries() {
+        try {
+            for (int k = 0; k < NB_STATES; k++) {
+                final long start = START_TIME + k * 10;
+                for (int attribute = 0; attribute < NB_ATTRIBUTES - 1; attribute++) {
+                    ITmfStateInterval interval = fixture.doSingularQuery(start + 5, attribute);
+                    assertNotNull(interval);
+                    assertEquals(start, interval.getStartTime());
+                    assertEquals(start + 9, interval.getEndTime());
+                    assertEquals(attribute, interval.getAttribute());
+                    assertEquals(getValue(attribute, k), interval.getStateValue());
+                }
+            }
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test full queries, which read all the nodes of a branch
+     */
+    @Test
+    public void testDoQuery() {
+        try {
+            for (int k = 0; k < NB_STATES; k += 97) {
+                List<ITmfStateInterval> intervals = new ArrayList<>(NB_ATTRIBUTES);
+                for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                    intervals.add(null);
+                }
+                fixture.doQuery(intervals, START_TIME + k * 10);
+
+                for (int attribute = 0; attribute < NB_ATTRIBUTES - 1; attribute++) {
+                    assertEquals(getValue(attribute, k), intervals.get(attribute).getStateValue());
+                }
+                ITmfStateInterval whole = intervals.get(NB_ATTRIBUTES - 1);
+                assertEquals(START_TIME, whole.getStartTime());
+                assertEquals(END_TIME, whole.getEndTime());
+                assertEquals(TmfStateValue.newValueLong(Long.MIN_VALUE), whole.getStateValue());
+            }
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests.backend;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.linuxtools.internal.statesystem.core.StateSystem;
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystem;
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeCompression;
+import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test cases for the history files with compressed nodes. The same history is
+ * built with each type of compression, and all of them should return the same
+ * information once reopened.
+ */
+public class HistoryTreeCompressionTest {
+
+    private static final int PROVIDER_VERSION = 0;
+    private static final int NB_STATES = 3000;
+    private static final int NB_ATTRIBUTES = 6;
+    private static final long END_TIME = NB_STATES * 10;
+
+    private static final Map<HistoryTreeCompression, File> files =
+            new EnumMap<>(HistoryTreeCompression.class);
+    private static final Map<HistoryTreeCompression, HistoryTreeBackend> backends =
+            new EnumMap<>(HistoryTreeCompression.class);
+    private static final Map<HistoryTreeCompression, ITmfStateSystem> stateSystems =
+            new EnumMap<>(HistoryTreeCompression.class);
+
+    /**
+     * Test setup. Build the history with every compression, then reopen the
+     * files.
+     *
+     * @throws IOException
+     *             If the history files cannot be created
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void init() throws IOException, AttributeNotFoundException {
+        for (HistoryTreeCompression compression : HistoryTreeCompression.values()) {
+            File htFile = File.createTempFile("HistoryTreeCompressionTest", ".ht");
+            HistoryTreeBackend builder = new HistoryTreeBackend(htFile, 4096, 5,
+                    PROVIDER_VERSION, 0, compression);
+            ITmfStateSystemBuilder ss = new StateSystem("compression-test", builder, true);
+            for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+                assertEquals(attribute, ss.getQuarkAbsoluteAndAdd("attribute" + attribute));
+            }
+            try {
+                for (int k = 0; k < NB_STATES; k++) {
+                    for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+                        ss.modifyAttribute(k * 10, getValue(attribute, k), attribute);
+                    }
+                }
+                ss.closeHistory(END_TIME);
+            } catch (TimeRangeException | StateValueTypeException e) {
+                /* Should not happen here */
+                throw new IllegalStateException();
+            }
+            ss.dispose();
+
+            files.put(compression, htFile);
+            HistoryTreeBackend backend = new HistoryTreeBackend(htFile, PROVIDER_VERSION);
+            backends.put(compression, backend);
+            stateSystems.put(compression, new StateSystem("compression-test", backend, false));
+        }
+    }
+
+    /**
+     * Delete the history files
+     */
+    @AfterClass
+    public static void cleanup() {
+        for (ITmfStateSystem ss : stateSystems.values()) {
+            ss.dispose();
+        }
+        for (HistoryTreeBackend backend : backends.values()) {
+            backend.removeFiles();
+        }
+    }
+
+    private static TmfStateValue getValue(int attribute, int k) {
+        switch (attribute % 3) {
+        case 0:
+            return TmfStateValue.newValueInt(k);
+        case 1:
+            return TmfStateValue.newValueString("state" + (k % 7));
+        default:
+            return TmfStateValue.newValueLong(k * 1000L * attribute);
+        }
+    }
+
+    /**
+     * Test that the compressed files are smaller
+     */
+    @Test
+    public void testFileSize() {
+        long rawSize = files.get(HistoryTreeCompression.NONE).length();
+        for (HistoryTreeCompression compression : HistoryTreeCompression.values()) {
+            if (compression != HistoryTreeCompression.NONE) {
+                assertTrue(compression.toString(), files.get(compression).length() < rawSize);
+            }
+        }
+    }
+
+    /**
+     * Test that the attribute tree, which is stored after the nodes, can be
+     * read back
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     */
+    @Test
+    public void testAttributeTree() throws AttributeNotFoundException {
+        for (ITmfStateSystem ss : stateSystems.values()) {
+            assertEquals(NB_ATTRIBUTES, ss.getNbAttributes());
+            for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+                assertEquals(attribute, ss.getQuarkAbsolute("attribute" + attribute));
+            }
+        }
+    }
+
+    /**
+     * Test single queries on every type of file
+     */
+    @Test
+    public void testSingularQueries() {
+        try {
+            for (HistoryTreeBackend backend : backends.values()) {
+                assertEquals(0, backend.getStartTime());
+                assertEquals(END_TIME, backend.getEndTime());
+                for (int k = 0; k < NB_STATES; k += 7) {
+                    for (int attribute = 0; attribute < NB_ATTRIBUTES; attribute++) {
+                        ITmfStateInterval interval = backend.doSingularQuery(k * 10 + 3, attribute);
+                        assertEquals(k * 10, interval.getStartTime());
+                        assertEquals(k * 10 + 9, interval.getEndTime());
+                        assertEquals(getValue(attribute, k), interval.getStateValue());
+                    }
+                }
+            }
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that full queries return the same intervals for every type of file
+     */
+    @Test
+    public void testDoQuery() {
+        try {
+            for (long t = 0; t <= END_TIME; t += 1013) {
+                List<ITmfStateInterval> expected = query(backends.get(HistoryTreeCompression.NONE), t);
+                for (HistoryTreeBackend backend : backends.values()) {
+                    List<ITmfStateInterval> actual = query(backend, t);
+                    for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                        assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+                        assertEquals(expected.get(i).getEndTime(), actual.get(i).getEndTime());
+                        assertEquals(expected.get(i).getStateValue(), actual.get(i).getStateValue());
+                    }
+                }
+            }
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private static List<ITmfStateInterval> query(HistoryTreeBackend backend, long t)
+            throws TimeRangeException, StateSystemDisposedException {
+        List<ITmfStateInterval> intervals = new ArrayList<>(NB_ATTRIBUTES);
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            intervals.add(null);
+        }
+        backend.doQuery(intervals, t);
+        return intervals;
+    }
+}
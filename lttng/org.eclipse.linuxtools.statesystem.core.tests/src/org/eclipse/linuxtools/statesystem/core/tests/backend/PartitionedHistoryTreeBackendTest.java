@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.tests.backend;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.PartitionedHistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test cases for the partitioned history tree backend
+ */
+public class PartitionedHistoryTreeBackendTest {
+
+    private static final int NUMBER_OF_ATTRIBUTES = 10;
+    private static final int NUMBER_OF_PARTITIONS = 3;
+    private static final int PROVIDER_VERSION = 0;
+
+    private static File htFile;
+    private static PartitionedHistoryTreeBackend fixture;
+
+    /**
+     * Test setup. Build a partitioned history, then reopen it from disk.
+     *
+     * @throws IOException
+     *             If the history files cannot be created
+     */
+    @BeforeClass
+    public static void init() throws IOException {
+        htFile = File.createTempFile("PartitionedHistoryTreeBackendTest", ".ht");
+        PartitionedHistoryTreeBackend builder = new PartitionedHistoryTreeBackend(htFile,
+                0, PROVIDER_VERSION, 100, NUMBER_OF_PARTITIONS);
+        try {
+            for (int timeStart = 0; timeStart < 1000; timeStart++) {
+                for (int attribute = 0; attribute < NUMBER_OF_ATTRIBUTES; attribute++) {
+                    final int stateEndTime = (timeStart * 100) + 90 + attribute;
+                    final int stateStartTime = timeStart * 100 + attribute;
+                    builder.insertPastState(stateStartTime, stateEndTime, attribute, TmfStateValue.newValueInt(timeStart % 100));
+                    if (timeStart != 999) {
+                        builder.insertPastState(stateEndTime + 1, stateEndTime + 9, attribute, TmfStateValue.nullValue());
+                    }
+                }
+            }
+            builder.finishedBuilding(99999);
+        } catch (TimeRangeException e) {
+            /* Should not happen here */
+            throw new IllegalStateException();
+        }
+        builder.dispose();
+
+        fixture = new PartitionedHistoryTreeBackend(htFile, PROVIDER_VERSION);
+    }
+
+    /**
+     * Delete the history files
+     */
+    @AfterClass
+    public static void cleanup() {
+        fixture.removeFiles();
+    }
+
+    private static void testInterval(ITmfStateInterval interval, int startTime,
+            int endTime, int value) {
+        assertNotNull(interval);
+        assertEquals(startTime, interval.getStartTime());
+        assertEquals(endTime, interval.getEndTime());
+        try {
+            assertEquals(value, interval.getStateValue().unboxInt());
+        } catch (StateValueTypeException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that all the partitions were reopened
+     */
+    @Test
+    public void testNbPartitions() {
+        assertEquals(NUMBER_OF_PARTITIONS, fixture.getNbPartitions());
+        for (int i = 0; i < NUMBER_OF_PARTITIONS; i++) {
+            assertTrue(PartitionedHistoryTreeBackend.getPartitionFile(htFile, i).exists());
+        }
+    }
+
+    /**
+     * Test the time range
+     */
+    @Test
+    public void testTimeRange() {
+        assertEquals(0, fixture.getStartTime());
+        assertEquals(99999, fixture.getEndTime());
+    }
+
+    /**
+     * Query the full state, which is merged from all partitions
+     */
+    @Test
+    public void testDoQuery() {
+        List<ITmfStateInterval> interval = new ArrayList<>(NUMBER_OF_ATTRIBUTES);
+        for (int i = 0; i < NUMBER_OF_ATTRIBUTES; i++) {
+            interval.add(null);
+        }
+        try {
+            fixture.doQuery(interval, 950);
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+
+        assertEquals(NUMBER_OF_ATTRIBUTES, interval.size());
+        for (int i = 0; i < NUMBER_OF_ATTRIBUTES; i++) {
+            testInterval(interval.get(i), 900 + i, 990 + i, 9);
+        }
+    }
+
+    /**
+     * Test single queries, which are sent to only one partition, then compare
+     * them to a full query
+     */
+    @Test
+    public void testQueryAttribute() {
+        try {
+            List<ITmfStateInterval> intervalQuery = new ArrayList<>(NUMBER_OF_ATTRIBUTES);
+            for (int i = 0; i < NUMBER_OF_ATTRIBUTES; i++) {
+                intervalQuery.add(null);
+            }
+            fixture.doQuery(intervalQuery, 55555);
+
+            for (int i = 0; i < NUMBER_OF_ATTRIBUTES; i++) {
+                ITmfStateInterval interval = fixture.doSingularQuery(55555, i);
+                assertEquals(intervalQuery.get(i).getStartTime(), interval.getStartTime());
+                assertEquals(intervalQuery.get(i).getEndTime(), interval.getEndTime());
+                assertEquals(intervalQuery.get(i).getStateValue(), interval.getStateValue());
+            }
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test the last element of the history
+     */
+    @Test
+    public void testEnd() {
+        try {
+            ITmfStateInterval interval = fixture.doSingularQuery(99998, 9);
+            testInterval(interval, 99909, 99999, 99);
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test out of range query
+     *
+     * @throws TimeRangeException
+     *             Expected
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test(expected = TimeRangeException.class)
+    public void testOutOfRange() throws TimeRangeException, StateSystemDisposedException {
+        fixture.doSingularQuery(100000, 0);
+    }
+}
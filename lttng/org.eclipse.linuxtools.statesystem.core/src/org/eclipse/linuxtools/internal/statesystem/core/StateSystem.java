@@ -16,6 +16,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -31,6 +33,7 @@ import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedExc
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.interval.TmfStateInterval;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
@@ -62,7 +65,7 @@ public class StateSystem implements ITmfStateSystemBuilder {
     private final CountDownLatch finishedLatch = new CountDownLatch(1);
 
     private boolean buildCancelled = false;
-    private boolean isDisposed = false;
+    private volatile boolean isDisposed = false;
 
     /**
      * New-file constructor. For when you build a state system with a new file,
@@ -548,19 +551,48 @@ public class StateSystem implements ITmfStateSystemBuilder {
     //--------------------------------------------------------------------------
 
     @Override
-    public synchronized List<ITmfStateInterval> queryFullState(long t)
+    public List<ITmfStateInterval> queryFullState(long t)
             throws TimeRangeException, StateSystemDisposedException {
-        if (isDisposed) {
-            throw new StateSystemDisposedException();
-        }
-
-        List<ITmfStateInterval> stateInfo = new ArrayList<>(getNbAttributes());
+        final int nbAttributes = getNbAttributes();
+        List<ITmfStateInterval> stateInfo = new ArrayList<>(nbAttributes);
 
         /* Bring the size of the array to the current number of attributes */
-        for (int i = 0; i < getNbAttributes(); i++) {
+        for (int i = 0; i < nbAttributes; i++) {
             stateInfo.add(null);
         }
 
+        fillFullState(stateInfo, t);
+        return stateInfo;
+    }
+
+    @Override
+    public ITmfStateInterval[] queryFullState(long t, ITmfStateInterval[] stateInfo)
+            throws TimeRangeException, StateSystemDisposedException {
+        final int nbAttributes = getNbAttributes();
+        ITmfStateInterval[] ret = stateInfo;
+        if (ret == null || ret.length < nbAttributes) {
+            ret = new ITmfStateInterval[nbAttributes];
+        } else {
+            /* Clear the results of the previous query */
+            Arrays.fill(ret, null);
+        }
+
+        /* Fixed-size List view of the array, no copy is made */
+        fillFullState(Arrays.asList(ret).subList(0, nbAttributes), t);
+        return ret;
+    }
+
+    /**
+     * Fill the given list with the state at time t. This does not need to be
+     * synchronized: the backends and the transient state protect their own
+     * structures, and every query works in its own list.
+     */
+    private void fillFullState(List<ITmfStateInterval> stateInfo, long t)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+
         /* Query the storage backend */
         backend.doQuery(stateInfo, t);
 
@@ -582,7 +614,6 @@ public class StateSystem implements ITmfStateSystemBuilder {
                 stateInfo.set(i, new TmfStateInterval(t, t, i, TmfStateValue.nullValue()));
             }
         }
-        return stateInfo;
     }
 
     @Override
@@ -727,6 +758,94 @@ public class StateSystem implements ITmfStateSystemBuilder {
         return intervals;
     }
 
+    @Override
+    public void queryHistoryRange(Collection<Integer> quarks, long t1, long t2,
+            long resolution, IProgressMonitor monitor,
+            ITmfStateIntervalHandler handler)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+
+        IProgressMonitor mon = monitor;
+        if (mon == null) {
+            mon = new NullProgressMonitor();
+        }
+
+        /* Set the actual, valid end time of the range query */
+        final long tEnd = Math.min(t2, getCurrentEndTime());
+
+        /* Make sure the time range makes sense */
+        if (t2 < t1 || resolution <= 0 || t1 < getStartTime() || t1 > tEnd) {
+            throw new TimeRangeException();
+        }
+        for (Integer quark : quarks) {
+            if (quark < 0 || quark >= getNbAttributes()) {
+                throw new AttributeNotFoundException();
+            }
+        }
+
+        ITmfStateIntervalHandler filter = (resolution == 1 ? handler :
+                new ResolutionFilter(t1, tEnd, resolution, handler));
+
+        /* Query the storage backend */
+        if (backend.checkValidTime(t1)) {
+            backend.doRangeQuery(quarks, t1, tEnd, mon, filter);
+        }
+
+        /*
+         * If we are currently building the history, the ongoing states have
+         * not been written to the backend yet.
+         */
+        if (transState.isActive()) {
+            for (Integer quark : quarks) {
+                if (mon.isCanceled()) {
+                    return;
+                }
+                ITmfStateInterval interval = transState.getIntervalAt(tEnd, quark);
+                if (interval != null) {
+                    filter.handleInterval(interval);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handler wrapper which only lets through the intervals that would have
+     * been returned by a range query at the given resolution: those that
+     * contain one of the t1 + n * resolution sample points, and the one at the
+     * end of the range.
+     */
+    private static class ResolutionFilter implements ITmfStateIntervalHandler {
+
+        private final long fStart;
+        private final long fEnd;
+        private final long fResolution;
+        private final ITmfStateIntervalHandler fHandler;
+
+        public ResolutionFilter(long start, long end, long resolution,
+                ITmfStateIntervalHandler handler) {
+            fStart = start;
+            fEnd = end;
+            fResolution = resolution;
+            fHandler = handler;
+        }
+
+        @Override
+        public void handleInterval(ITmfStateInterval interval) {
+            final long start = Math.max(interval.getStartTime(), fStart);
+            final long end = Math.min(interval.getEndTime(), fEnd);
+
+            /* First sample point that is not before the interval */
+            final long nbSteps = (start - fStart + fResolution - 1) / fResolution;
+            final long sample = fStart + nbSteps * fResolution;
+
+            if (sample <= end || end == fEnd) {
+                fHandler.handleInterval(interval);
+            }
+        }
+    }
+
     //--------------------------------------------------------------------------
     //        Debug methods
     //--------------------------------------------------------------------------
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Node codec using the Deflate algorithm of java.util.zip.
+ */
+final class DeflateNodeCodec extends HTNodeCodec {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /* Only used by the writer thread */
+    private final Deflater fDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] fBuffer = new byte[BUFFER_SIZE];
+
+    @Override
+    byte[] compress(byte[] src, int length) {
+        fDeflater.reset();
+        fDeflater.setInput(src, 0, length);
+        fDeflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (!fDeflater.finished()) {
+            int count = fDeflater.deflate(fBuffer);
+            out.write(fBuffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    void decompress(byte[] src, int length, byte[] dest) throws IOException {
+        /* Inflaters are not thread-safe, use one per call */
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src, 0, length);
+            int total = 0;
+            while (!inflater.finished()) {
+                int count = inflater.inflate(dest, total, dest.length - total);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()
+                        || total == dest.length)) {
+                    throw new IOException("Invalid compressed node"); //$NON-NLS-1$
+                }
+                total += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    void dispose() {
+        fDeflater.end();
+    }
+}
@@ -14,6 +14,8 @@ package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
 
 import java.io.File;
 
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeCompression;
+
 /**
  * Configuration object for the {@link HistoryTree}.
  *
@@ -23,12 +25,15 @@ public final class HTConfig {
 
     private static final int DEFAULT_BLOCKSIZE = 64 * 1024;
     private static final int DEFAULT_MAXCHILDREN = 50;
+    private static final int DEFAULT_CACHED_NODES = 256;
 
     private final File stateFile;
     private final int blockSize;
     private final int maxChildren;
     private final int providerVersion;
     private final long treeStart;
+    private final long cacheSize;
+    private final HistoryTreeCompression compression;
 
     /**
      * Full constructor.
@@ -47,14 +52,74 @@ public final class HTConfig {
      *            uselessly.
      * @param startTime
      *            The start time of the history
+     * @param cacheSize
+     *            The size, in bytes, of the cache of nodes read from disk. It
+     *            will always be able to hold at least a few nodes.
+     * @param compression
+     *            The compression of the nodes in the file
      */
     public HTConfig(File newStateFile, int blockSize, int maxChildren,
-            int providerVersion, long startTime) {
+            int providerVersion, long startTime, long cacheSize,
+            HistoryTreeCompression compression) {
         this.stateFile = newStateFile;
         this.blockSize = blockSize;
         this.maxChildren = maxChildren;
         this.providerVersion = providerVersion;
         this.treeStart = startTime;
+        this.cacheSize = cacheSize;
+        this.compression = compression;
+    }
+
+    /**
+     * Version of the constructor without compression.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     * @param cacheSize
+     *            The size, in bytes, of the cache of nodes read from disk. It
+     *            will always be able to hold at least a few nodes.
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime, long cacheSize) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime,
+                cacheSize, HistoryTreeCompression.NONE);
+    }
+
+    /**
+     * Version of the constructor using the default value for 'cacheSize',
+     * which is enough to hold 256 nodes.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime,
+                getDefaultCacheSize(blockSize));
     }
 
     /**
@@ -74,6 +139,18 @@ public final class HTConfig {
         this(newStateFile, DEFAULT_BLOCKSIZE, DEFAULT_MAXCHILDREN, providerVersion, startTime);
     }
 
+    /**
+     * Get the default size of the node cache, which is enough to hold 256
+     * nodes.
+     *
+     * @param blockSize
+     *            The block size of the history
+     * @return The default cache size, in bytes
+     */
+    public static long getDefaultCacheSize(int blockSize) {
+        return (long) DEFAULT_CACHED_NODES * blockSize;
+    }
+
     // ------------------------------------------------------------------------
     // Getters
     // ------------------------------------------------------------------------
@@ -122,4 +199,32 @@ public final class HTConfig {
     public long getTreeStart() {
         return treeStart;
     }
+
+    /**
+     * Get the size of the node cache, in bytes.
+     *
+     * @return The node cache size
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Get the compression of the nodes in the file.
+     *
+     * @return The node compression
+     */
+    public HistoryTreeCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the number of nodes the node cache can hold, which is derived from
+     * the cache size and the block size.
+     *
+     * @return The maximum number of cached nodes
+     */
+    public int getMaxCachedNodes() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, cacheSize / blockSize));
+    }
 }
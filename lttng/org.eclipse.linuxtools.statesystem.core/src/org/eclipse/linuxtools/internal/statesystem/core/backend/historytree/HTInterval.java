@@ -14,7 +14,6 @@
 
 package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
@@ -31,43 +30,24 @@ import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
  */
 public final class HTInterval implements ITmfStateInterval, Comparable<HTInterval> {
 
-    private static final String errMsg = "Invalid interval data. Maybe your file is corrupt?"; //$NON-NLS-1$
-
-    /**
-     * Size of an entry in the data section.
-     *
-     * <pre>
-     *   16  2 x Timevalue/long (interval start + end)
-     * +  4  int (key)
-     * +  1  byte (type)
-     * +  4  int (valueOffset)
-     * </pre>
+    /*
+     * 'Byte' equivalent for state values types. The same values are used in
+     * the file.
      */
-    private static final int DATA_ENTRY_SIZE = 25;
+    static final byte TYPE_NULL = -1;
+    static final byte TYPE_INTEGER = 0;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_DOUBLE = 3;
 
-    /* 'Byte' equivalent for state values types */
-    private static final byte TYPE_NULL = -1;
-    private static final byte TYPE_INTEGER = 0;
-    private static final byte TYPE_STRING = 1;
-    private static final byte TYPE_LONG = 2;
-    private static final byte TYPE_DOUBLE = 3;
-
-    /* String entry sizes of different state values */
-    private static final int NO_ENTRY_SIZE = 0;
-    private static final int LONG_ENTRY_SIZE = 8;
-    private static final int DOUBLE_ENTRY_SIZE = 8;
-    // sizes of string values depend on the string itself
+    /** Size of a double value in the data section */
+    private static final int DOUBLE_SIZE = 8;
 
     private final long start;
     private final long end;
     private final int attribute;
     private final TmfStateValue sv;
 
-    /*
-     * Size of the strings section entry used by this interval (= 0 if not used)
-     */
-    private final int stringsEntrySize;
-
     /**
      * Standard constructor
      *
@@ -93,248 +73,127 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         this.end = intervalEnd;
         this.attribute = attribute;
         this.sv = value;
-        this.stringsEntrySize = computeStringsEntrySize();
-    }
-
-    /**
-     * "Faster" constructor for inner use only. When we build an interval when
-     * reading it from disk (with {@link #readFrom}), we already know the size
-     * of the strings entry, so there is no need to call
-     * {@link #computeStringsEntrySize()} and do an extra copy.
-     */
-    private HTInterval(long intervalStart, long intervalEnd, int attribute,
-            TmfStateValue value, int size) throws TimeRangeException {
-        if (intervalStart > intervalEnd) {
-            throw new TimeRangeException();
-        }
-
-        this.start = intervalStart;
-        this.end = intervalEnd;
-        this.attribute = attribute;
-        this.sv = value;
-        this.stringsEntrySize = size;
     }
 
     /**
-     * Reader factory method. Builds the interval using an already-allocated
-     * ByteBuffer, which normally comes from a NIO FileChannel.
+     * Get the size this interval takes in the data section of a node, using
+     * the compact encoding of {@link #writeInterval}.
      *
-     * @param buffer
-     *            The ByteBuffer from which to read the information
-     * @return The interval object
-     * @throws IOException
-     *             If there was an error reading from the buffer
+     * @param nodeStart
+     *            The start time of the node that contains the interval
+     * @param stringIndex
+     *            The index of the interval's value in the node's strings
+     *            table, if its value is a string. Ignored otherwise.
+     * @return The size of the data entry, in bytes
      */
-    public static final HTInterval readFrom(ByteBuffer buffer) throws IOException {
-        HTInterval interval;
-        long intervalStart, intervalEnd;
-        int attribute;
-        TmfStateValue value;
-        int valueOrOffset, valueSize, res;
-        byte valueType;
-        byte array[];
-
-        /* Read the Data Section entry */
-        intervalStart = buffer.getLong();
-        intervalEnd = buffer.getLong();
-        attribute = buffer.getInt();
-
-        /* Read the 'type' of the value, then react accordingly */
-        valueType = buffer.get();
-        valueOrOffset = buffer.getInt();
-        switch (valueType) {
-
-        case TYPE_NULL:
-            value = TmfStateValue.nullValue();
-            valueSize = NO_ENTRY_SIZE;
-            break;
-
-        case TYPE_INTEGER:
-            /* "ValueOrOffset" is the straight value */
-            value = TmfStateValue.newValueInt(valueOrOffset);
-            valueSize = NO_ENTRY_SIZE;
-            break;
-
-        case TYPE_STRING:
-            /* Go read the matching entry in the Strings section of the block */
-            buffer.mark();
-            buffer.position(valueOrOffset);
-
-            /* the first byte = the size to read */
-            valueSize = buffer.get();
-
-            /*
-             * Careful though, 'valueSize' is the total size of the entry,
-             * including the 'size' byte at the start and end (0'ed) byte at the
-             * end. Here we want 'array' to only contain the real payload of the
-             * value.
-             */
-            array = new byte[valueSize - 2];
-            buffer.get(array);
-            value = TmfStateValue.newValueString(new String(array));
-
-            /* Confirm the 0'ed byte at the end */
-            res = buffer.get();
-            if (res != 0) {
-                throw new IOException(errMsg);
-            }
-
-            /*
-             * Restore the file pointer's position (so we can read the next
-             * interval)
-             */
-            buffer.reset();
-            break;
-
-        case TYPE_LONG:
-            /* Go read the matching entry in the Strings section of the block */
-            buffer.mark();
-            buffer.position(valueOrOffset);
-            value = TmfStateValue.newValueLong(buffer.getLong());
-            valueSize = LONG_ENTRY_SIZE;
-
-            /*
-             * Restore the file pointer's position (so we can read the next
-             * interval)
-             */
-            buffer.reset();
-            break;
-
-        case TYPE_DOUBLE:
-            /* Go read the matching entry in the Strings section of the block */
-            buffer.mark();
-            buffer.position(valueOrOffset);
-            value = TmfStateValue.newValueDouble(buffer.getDouble());
-            valueSize = DOUBLE_ENTRY_SIZE;
-
-            /*
-             * Restore the file pointer's position (so we can read the next
-             * interval)
-             */
-            buffer.reset();
-            break;
-
-        default:
-            /* Unknown data, better to not make anything up... */
-            throw new IOException(errMsg);
-        }
+    public int getSizeInNode(long nodeStart, int stringIndex) {
+        int size = VarInt.sizeOfUnsigned(start - nodeStart)
+                + VarInt.sizeOfUnsigned(end - start)
+                + VarInt.sizeOfUnsigned(attribute)
+                + 1; /* value type */
 
         try {
-            interval = new HTInterval(intervalStart, intervalEnd, attribute, value, valueSize);
-        } catch (TimeRangeException e) {
-            throw new IOException(errMsg);
+            switch (sv.getType()) {
+            case NULL:
+                break;
+            case INTEGER:
+                size += VarInt.sizeOfSigned(sv.unboxInt());
+                break;
+            case LONG:
+                size += VarInt.sizeOfSigned(sv.unboxLong());
+                break;
+            case DOUBLE:
+                size += DOUBLE_SIZE;
+                break;
+            case STRING:
+                size += VarInt.sizeOfUnsigned(stringIndex);
+                break;
+            default:
+                /*
+                 * It's very important that we know how to write the state
+                 * value in the file!!
+                 */
+                throw new IllegalStateException();
+            }
+        } catch (StateValueTypeException e) {
+            /* We're inside a switch/case on the value type, can't happen */
+            throw new IllegalStateException(e);
         }
-        return interval;
+        return size;
     }
 
     /**
-     * Antagonist of the previous constructor, write the Data entry
-     * corresponding to this interval in a ByteBuffer (mapped to a block in the
-     * history-file, hopefully)
+     * Write the data entry of this interval in a ByteBuffer (mapped to a block
+     * in the history-file, hopefully), at its current position.
+     *
+     * Times are written relative to the node start, and integer values using
+     * a variable-length encoding. String values are stored only once per node,
+     * in its strings table, and the interval only refers to them by index.
+     *
+     * <pre>
+     *   varint  start - nodeStart
+     *   varint  end - start
+     *   varint  attribute (quark)
+     *   1 byte  value type
+     *   ...     value: nothing (null), zig-zag varint (int, long),
+     *           8 bytes (double) or varint string index (string)
+     * </pre>
      *
      * @param buffer
      *            The already-allocated ByteBuffer corresponding to a SHT Node
-     * @param endPosOfStringEntry
-     *            The initial (before calling this function for this interval)
-     *            position of the Strings Entry for this node. This will change
-     *            from one call to the other if we're writing String
-     *            StateValues.
-     * @return The size of the Strings Entry that was written, if any.
+     * @param nodeStart
+     *            The start time of the node that contains the interval
+     * @param stringIndex
+     *            The index of the interval's value in the node's strings
+     *            table, if its value is a string. Ignored otherwise.
      */
-    public int writeInterval(ByteBuffer buffer, int endPosOfStringEntry) {
-        buffer.putLong(start);
-        buffer.putLong(end);
-        buffer.putInt(attribute);
+    public void writeInterval(ByteBuffer buffer, long nodeStart, int stringIndex) {
+        VarInt.putUnsigned(buffer, start - nodeStart);
+        VarInt.putUnsigned(buffer, end - start);
+        VarInt.putUnsigned(buffer, attribute);
         buffer.put(getByteFromType(sv.getType()));
 
-        switch (getByteFromType(sv.getType())) {
-
-        case TYPE_NULL:
-        case TYPE_INTEGER:
-            /* We write the 'valueOffset' field as a straight value. */
-            try {
-                buffer.putInt(sv.unboxInt());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Null or Integer (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
-            break;
-
-        case TYPE_STRING:
-            byte[] byteArrayToWrite;
-            try {
-                byteArrayToWrite = sv.unboxStr().getBytes();
-            } catch (StateValueTypeException e1) {
-                /* Should not happen, we're in a switch/case for string type */
-                throw new RuntimeException();
-            }
-
-            /* we use the valueOffset as an offset. */
-            buffer.putInt(endPosOfStringEntry - stringsEntrySize);
-            buffer.mark();
-            buffer.position(endPosOfStringEntry - stringsEntrySize);
-
-            /*
-             * write the Strings entry (1st byte = size, then the bytes, then the 0)
-             */
-            buffer.put((byte) stringsEntrySize);
-            buffer.put(byteArrayToWrite);
-            buffer.put((byte) 0);
-            assert (buffer.position() == endPosOfStringEntry);
-            buffer.reset();
-            break;
-
-        case TYPE_LONG:
-            /* we use the valueOffset as an offset. */
-            buffer.putInt(endPosOfStringEntry - stringsEntrySize);
-            buffer.mark();
-            buffer.position(endPosOfStringEntry - stringsEntrySize);
-
-            /*
-             * write the Long in the Strings section
-             */
-            try {
-                buffer.putLong(sv.unboxLong());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Long (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
-            assert (buffer.position() == endPosOfStringEntry);
-            buffer.reset();
-            break;
-
-        case TYPE_DOUBLE:
-            /* we use the valueOffset as an offset. */
-            buffer.putInt(endPosOfStringEntry - stringsEntrySize);
-            buffer.mark();
-            buffer.position(endPosOfStringEntry - stringsEntrySize);
-
-            /* Write the Double in the Strings section */
-            try {
+        try {
+            switch (sv.getType()) {
+            case NULL:
+                break;
+            case INTEGER:
+                VarInt.putSigned(buffer, sv.unboxInt());
+                break;
+            case LONG:
+                VarInt.putSigned(buffer, sv.unboxLong());
+                break;
+            case DOUBLE:
                 buffer.putDouble(sv.unboxDouble());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Double (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
-            if (buffer.position() != endPosOfStringEntry) {
+                break;
+            case STRING:
+                VarInt.putUnsigned(buffer, stringIndex);
+                break;
+            default:
                 throw new IllegalStateException();
             }
-            buffer.reset();
-            break;
+        } catch (StateValueTypeException e) {
+            /* We're inside a switch/case on the value type, can't happen */
+            throw new IllegalStateException(e);
+        }
+    }
 
-        default:
-            break;
+    /**
+     * Get the string value of this interval, which goes in the strings table
+     * of the node.
+     *
+     * @return The string value, or null if the value is not a string
+     */
+    String getStringValue() {
+        if (sv.getType() != ITmfStateValue.Type.STRING) {
+            return null;
+        }
+        try {
+            return sv.unboxStr();
+        } catch (StateValueTypeException e) {
+            /* We just checked the type */
+            throw new IllegalStateException(e);
         }
-        return stringsEntrySize;
     }
 
     @Override
@@ -372,46 +231,6 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         return false;
     }
 
-    int getStringsEntrySize() {
-        return stringsEntrySize;
-    }
-
-    /**
-     * Total serialized size of this interval
-     *
-     * @return The interval size
-     */
-    public int getIntervalSize() {
-        return stringsEntrySize + DATA_ENTRY_SIZE;
-    }
-
-    private int computeStringsEntrySize() {
-        switch(sv.getType()) {
-        case NULL:
-        case INTEGER:
-            /* Those don't use the strings section at all */
-            return NO_ENTRY_SIZE;
-        case LONG:
-            /* The value's bytes are written directly into the strings section */
-            return LONG_ENTRY_SIZE;
-        case DOUBLE:
-            /* The value is also written directly into the strings section */
-            return DOUBLE_ENTRY_SIZE;
-        case STRING:
-            try {
-                /* String's length + 2 (1 byte for size, 1 byte for \0 at the end */
-                return sv.unboxStr().getBytes().length + 2;
-            } catch (StateValueTypeException e) {
-                /* We're inside a switch/case for the string type, can't happen */
-                throw new IllegalStateException(e);
-            }
-        default:
-            /* It's very important that we know how to write the state value in
-             * the file!! */
-            throw new IllegalStateException();
-        }
-    }
-
     /**
      * Compare the END TIMES of different intervals. This is used to sort the
      * intervals when we close down a node.
@@ -18,14 +18,17 @@ import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
-import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
 
 /**
  * The base class for all the types of nodes that go in the History Tree.
@@ -95,6 +98,12 @@ public abstract class HTNode {
     // Attributes
     // ------------------------------------------------------------------------
 
+    /* Encoding of the string values in the strings table */
+    private static final Charset CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    /* Size of the header of the strings table (number of strings) */
+    private static final int STRINGS_HEADER_SIZE = 4;
+
     /* Configuration of the History Tree to which belongs this node */
     private final HTConfig config;
 
@@ -106,17 +115,24 @@ public abstract class HTNode {
     private final int sequenceNumber;
     private int parentSequenceNumber; /* = -1 if this node is the root node */
 
-    /* Where the Strings section begins (from the start of the node */
-    private int stringSectionOffset;
-
     /* Sum of bytes of all intervals in the node */
     private int sizeOfIntervalSection;
 
+    /* Size of the strings table, which follows the intervals */
+    private int sizeOfStringSection;
+
     /* True if this node was read from disk (meaning its end time is now fixed) */
     private volatile boolean isOnDisk;
 
-    /* Vector containing all the intervals contained in this node */
-    private final List<HTInterval> intervals;
+    /*
+     * The intervals contained in this node. A node that is being built keeps
+     * them in 'intervals', along with the index of each of its string values in
+     * the strings table. A node read from disk keeps them decoded in 'packed'
+     * instead. Exactly one of 'intervals' and 'packed' is non-null.
+     */
+    private List<HTInterval> intervals;
+    private Map<String, Integer> stringIndexes;
+    private PackedIntervals packed;
 
     /* Lock used to protect the accesses to intervals, nodeEnd and such */
     private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(false);
@@ -139,10 +155,12 @@ public abstract class HTNode {
         this.sequenceNumber = seqNumber;
         this.parentSequenceNumber = parentSeqNumber;
 
-        this.stringSectionOffset = config.getBlockSize();
         this.sizeOfIntervalSection = 0;
+        this.sizeOfStringSection = STRINGS_HEADER_SIZE;
         this.isOnDisk = false;
         this.intervals = new ArrayList<>();
+        this.stringIndexes = new LinkedHashMap<>();
+        this.packed = null;
     }
 
     /**
@@ -160,16 +178,37 @@ public abstract class HTNode {
      */
     public static final HTNode readNode(HTConfig config, FileChannel fc)
             throws IOException {
-        HTNode newNode = null;
-        int res, i;
-
         ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.clear();
-        res = fc.read(buffer);
+        int res = fc.read(buffer);
         assert (res == config.getBlockSize());
         buffer.flip();
 
+        return readNode(config, buffer);
+    }
+
+    /**
+     * Reader factory method. Build a Node object (of the right type) by
+     * decoding a block that is already available in memory, for example in a
+     * region of a memory-mapped history file.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param buffer
+     *            Buffer containing the block of the node. Its position 0 must
+     *            be the start of the node (the offset of the Strings section
+     *            is relative to it), and its byte order must be
+     *            little-endian.
+     * @return The node object
+     * @throws IOException
+     *             If the contents of the block are invalid
+     */
+    public static final HTNode readNode(HTConfig config, ByteBuffer buffer)
+            throws IOException {
+        HTNode newNode = null;
+        int i;
+
         /* Read the common header part */
         byte typeByte = buffer.get();
         NodeType type = NodeType.fromByte(typeByte);
@@ -202,15 +241,43 @@ public abstract class HTNode {
 
         /*
          * At this point, we should be done reading the header and 'buffer'
-         * should only have the intervals left
+         * should only have the intervals left. Read the strings table first,
+         * since the intervals refer to it.
          */
-        for (i = 0; i < intervalCount; i++) {
-            newNode.intervals.add(HTInterval.readFrom(buffer));
+        final int dataSectionOffset = buffer.position();
+        if (stringSectionOffset < dataSectionOffset ||
+                stringSectionOffset > buffer.limit() - STRINGS_HEADER_SIZE) {
+            throw new IOException("Invalid strings section offset"); //$NON-NLS-1$
+        }
+        buffer.position(stringSectionOffset);
+        int nbStrings = buffer.getInt();
+        if (nbStrings < 0) {
+            throw new IOException("Invalid number of strings"); //$NON-NLS-1$
+        }
+        String[] strings = new String[nbStrings];
+        for (i = 0; i < nbStrings; i++) {
+            long length = VarInt.getUnsigned(buffer);
+            if (length > buffer.remaining()) {
+                throw new IOException("Invalid string length"); //$NON-NLS-1$
+            }
+            byte[] array = new byte[(int) length];
+            buffer.get(array);
+            strings[i] = new String(array, CHARSET);
+        }
+        final int stringsEnd = buffer.position();
+
+        buffer.position(dataSectionOffset);
+        newNode.packed = PackedIntervals.read(buffer, intervalCount, start, strings);
+        newNode.intervals = null;
+        newNode.stringIndexes = null;
+        if (buffer.position() != stringSectionOffset) {
+            throw new IOException("Invalid interval data"); //$NON-NLS-1$
         }
 
         /* Assign the node's other information we have read previously */
         newNode.nodeEnd = end;
-        newNode.stringSectionOffset = stringSectionOffset;
+        newNode.sizeOfIntervalSection = stringSectionOffset - dataSectionOffset;
+        newNode.sizeOfStringSection = stringsEnd - stringSectionOffset;
         newNode.isOnDisk = true;
 
         return newNode;
@@ -226,6 +293,35 @@ public abstract class HTNode {
      *             If there was an error writing
      */
     public final void writeSelf(FileChannel fc) throws IOException {
+        final int blockSize = config.getBlockSize();
+        ByteBuffer buffer = serialize();
+
+        /* Write the whole block, including the unused space */
+        buffer.limit(blockSize);
+        int res = fc.write(buffer);
+        assert (res == blockSize);
+
+        isOnDisk = true;
+    }
+
+    /**
+     * Serialize this node into a new buffer of the size of a block, ready to
+     * be written. The node should not be modified anymore.
+     *
+     * @return The buffer, whose position is 0 and limit is the end of the
+     *         used part of the block (the rest is filled with zeroes)
+     */
+    final ByteBuffer serialize() {
+        if (packed != null) {
+            /* Only nodes being built have the string indexes */
+            rwl.writeLock().lock();
+            try {
+                unpack();
+            } finally {
+                rwl.writeLock().unlock();
+            }
+        }
+
         /*
          * Yes, we are taking the *read* lock here, because we are reading the
          * information in the node to write it to disk.
@@ -233,7 +329,7 @@ public abstract class HTNode {
         rwl.readLock().lock();
         try {
             final int blockSize = config.getBlockSize();
-            int curStringsEntryEndPos = blockSize;
+            final int stringSectionOffset = getDataSectionEndOffset();
 
             ByteBuffer buffer = ByteBuffer.allocate(blockSize);
             buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -254,40 +350,79 @@ public abstract class HTNode {
 
             /* Back to us, we write the intervals */
             for (HTInterval interval : intervals) {
-                int size = interval.writeInterval(buffer, curStringsEntryEndPos);
-                curStringsEntryEndPos -= size;
+                interval.writeInterval(buffer, nodeStart, getStringIndex(interval));
             }
 
             /*
-             * Write padding between the end of the Data section and the start
-             * of the Strings section (needed to fill the node in case there is
-             * no Strings section)
+             * If the sizes were right, the Strings section should start right
+             * after the intervals
              */
-            while (buffer.position() < stringSectionOffset) {
-                buffer.put((byte) 0);
-            }
+            assert (buffer.position() == stringSectionOffset);
 
             /*
-             * If the offsets were right, the size of the Strings section should
-             * be == to the expected size
+             * Write the Strings section: the number of strings, then each
+             * string (length, then the bytes), in the order of their indexes
              */
-            assert (curStringsEntryEndPos == stringSectionOffset);
-
-            /* Finally, write everything in the Buffer to disk */
-
-            // if we don't do this, flip() will lose what's after.
-            buffer.position(blockSize);
+            buffer.putInt(stringIndexes.size());
+            for (String str : stringIndexes.keySet()) {
+                byte[] array = str.getBytes(CHARSET);
+                VarInt.putUnsigned(buffer, array.length);
+                buffer.put(array);
+            }
+            assert (buffer.position() == stringSectionOffset + sizeOfStringSection);
 
             buffer.flip();
-            int res = fc.write(buffer);
-            assert (res == blockSize);
+            return buffer;
 
         } finally {
             rwl.readLock().unlock();
         }
+    }
+
+    /**
+     * Mark this node as written to disk, when it was written from the buffer
+     * returned by {@link #serialize} rather than by {@link #writeSelf}.
+     */
+    final void setOnDisk() {
         isOnDisk = true;
     }
 
+    /**
+     * Convert the intervals of a node read from disk back to the
+     * representation used for nodes being built. Should only be called with
+     * the write lock taken.
+     */
+    private void unpack() {
+        if (packed == null) {
+            return;
+        }
+        List<HTInterval> list = new ArrayList<>(packed.size());
+        for (int i = 0; i < packed.size(); i++) {
+            list.add(packed.getInterval(i));
+        }
+        /* Keep the same indexes, so that the section sizes remain valid */
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < packed.getNbStrings(); i++) {
+            indexes.put(packed.getString(i), i);
+        }
+        intervals = list;
+        stringIndexes = indexes;
+        packed = null;
+    }
+
+    /**
+     * Get the index in the strings table of the value of an interval.
+     *
+     * @return The index, or 0 if the value is not a string
+     */
+    private int getStringIndex(HTInterval interval) {
+        String str = interval.getStringValue();
+        if (str == null) {
+            return 0;
+        }
+        return stringIndexes.get(str);
+    }
+
     // ------------------------------------------------------------------------
     // Accessors
     // ------------------------------------------------------------------------
@@ -360,6 +495,38 @@ public abstract class HTNode {
         return isOnDisk;
     }
 
+    /**
+     * Get the space that an interval would take in this node, including its
+     * entry in the strings table, if its value is a string that is not
+     * already in this node.
+     *
+     * @param interval
+     *            The interval to add to this node
+     * @return The size, in bytes
+     */
+    public int getSpaceNeeded(HTInterval interval) {
+        rwl.readLock().lock();
+        try {
+            String str = interval.getStringValue();
+            if (str == null) {
+                return interval.getSizeInNode(nodeStart, 0);
+            }
+            Integer index = (stringIndexes == null ? null : stringIndexes.get(str));
+            if (index != null) {
+                return interval.getSizeInNode(nodeStart, index);
+            }
+            final int newIndex = (stringIndexes == null ? 0 : stringIndexes.size());
+            return interval.getSizeInNode(nodeStart, newIndex) + getStringEntrySize(str);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
+    private static int getStringEntrySize(String str) {
+        final int length = str.getBytes(CHARSET).length;
+        return VarInt.sizeOfUnsigned(length) + length;
+    }
+
     /**
      * Add an interval to this node
      *
@@ -370,13 +537,24 @@ public abstract class HTNode {
         rwl.writeLock().lock();
         try {
             /* Just in case, should be checked before even calling this function */
-            assert (newInterval.getIntervalSize() <= this.getNodeFreeSpace());
+            assert (getSpaceNeeded(newInterval) <= this.getNodeFreeSpace());
 
+            unpack();
             intervals.add(newInterval);
-            sizeOfIntervalSection += newInterval.getIntervalSize();
 
-            /* Update the in-node offset "pointer" */
-            stringSectionOffset -= (newInterval.getStringsEntrySize());
+            String str = newInterval.getStringValue();
+            int stringIndex = 0;
+            if (str != null) {
+                Integer index = stringIndexes.get(str);
+                if (index == null) {
+                    /* New string, add it to the strings table */
+                    index = stringIndexes.size();
+                    stringIndexes.put(str, index);
+                    sizeOfStringSection += getStringEntrySize(str);
+                }
+                stringIndex = index;
+            }
+            sizeOfIntervalSection += newInterval.getSizeInNode(nodeStart, stringIndex);
         } finally {
             rwl.writeLock().unlock();
         }
@@ -394,6 +572,7 @@ public abstract class HTNode {
         try {
             assert (endtime >= this.nodeStart);
 
+            unpack();
             if (!intervals.isEmpty()) {
                 /*
                  * Sort the intervals by ascending order of their end time. This
@@ -431,9 +610,10 @@ public abstract class HTNode {
     public void writeInfoFromNode(List<ITmfStateInterval> stateInfo, long t)
             throws TimeRangeException {
         /* This is from a state system query, we are "reading" this node */
-        rwl.readLock().lock();
+        final boolean locked = readLock();
         try {
-            for (int i = getStartIndexFor(t); i < intervals.size(); i++) {
+            final int nbIntervals = nbIntervals();
+            for (int i = getStartIndexFor(t); i < nbIntervals; i++) {
                 /*
                  * Now we only have to compare the Start times, since we now the
                  * End times necessarily fit.
@@ -442,14 +622,13 @@ public abstract class HTNode {
                  * been created after stateInfo was instantiated (they would be
                  * null anyway).
                  */
-                ITmfStateInterval interval = intervals.get(i);
-                if (interval.getStartTime() <= t &&
-                        interval.getAttribute() < stateInfo.size()) {
-                    stateInfo.set(interval.getAttribute(), interval);
+                final int attribute = intervalAttribute(i);
+                if (intervalStart(i) <= t && attribute < stateInfo.size()) {
+                    stateInfo.set(attribute, intervalAt(i));
                 }
             }
         } finally {
-            rwl.readLock().unlock();
+            readUnlock(locked);
         }
     }
 
@@ -467,14 +646,14 @@ public abstract class HTNode {
      *             If 't' is invalid
      */
     public HTInterval getRelevantInterval(int key, long t) throws TimeRangeException {
-        rwl.readLock().lock();
+        final boolean locked = readLock();
         try {
-            for (int i = getStartIndexFor(t); i < intervals.size(); i++) {
-                HTInterval curInterval = intervals.get(i);
-                if (curInterval.getAttribute() == key
-                        && curInterval.getStartTime() <= t
-                        && curInterval.getEndTime() >= t) {
-                    return curInterval;
+            final int nbIntervals = nbIntervals();
+            for (int i = getStartIndexFor(t); i < nbIntervals; i++) {
+                if (intervalAttribute(i) == key
+                        && intervalStart(i) <= t
+                        && intervalEnd(i) >= t) {
+                    return intervalAt(i);
                 }
             }
 
@@ -482,54 +661,134 @@ public abstract class HTNode {
             return null;
 
         } finally {
-            rwl.readLock().unlock();
+            readUnlock(locked);
         }
     }
 
-    private int getStartIndexFor(long t) throws TimeRangeException {
-        /* Should only be called by methods with the readLock taken */
-
-        if (intervals.isEmpty()) {
-            return 0;
-        }
-        /*
-         * Since the intervals are sorted by end time, we can skip all the ones
-         * at the beginning whose end times are smaller than 't'. Java does
-         * provides a .binarySearch method, but its API is quite weird...
-         */
-        HTInterval dummy = new HTInterval(0, t, 0, TmfStateValue.nullValue());
-        int index = Collections.binarySearch(intervals, dummy);
-
-        if (index < 0) {
+    /**
+     * Get all the intervals of this node whose attribute is one of the
+     * requested ones, and which intersect the time range [t1, t2].
+     *
+     * @param quarks
+     *            The requested attributes. Bit 'n' is set if quark 'n' is
+     *            requested.
+     * @param t1
+     *            Start of the time range
+     * @param t2
+     *            End of the time range
+     * @param result
+     *            The list to which the matching intervals will be added
+     * @throws TimeRangeException
+     *             If 't1' is invalid
+     */
+    public void getIntervalsInRange(BitSet quarks, long t1, long t2,
+            List<HTInterval> result) throws TimeRangeException {
+        final boolean locked = readLock();
+        try {
             /*
-             * .binarySearch returns a negative number if the exact value was
-             * not found. Here we just want to know where to start searching, we
-             * don't care if the value is exact or not.
+             * The intervals are only guaranteed to be sorted once the node is
+             * closed, so only use the binary search for on-disk nodes.
              */
-            index = -index - 1;
-
+            int start = (isOnDisk ? getStartIndexFor(t1) : 0);
+            final int nbIntervals = nbIntervals();
+            for (int i = start; i < nbIntervals; i++) {
+                if (intervalStart(i) <= t2
+                        && intervalEnd(i) >= t1
+                        && quarks.get(intervalAttribute(i))) {
+                    result.add(intervalAt(i));
+                }
+            }
+        } finally {
+            readUnlock(locked);
         }
+    }
 
-        /* Sometimes binarySearch yields weird stuff... */
-        if (index < 0) {
-            index = 0;
+    /**
+     * Take the read lock for a query, if needed. Once a node is on disk, it
+     * will never be modified again, so queries can read it without locking.
+     * This avoids contention on the lock of the upper nodes of the tree, which
+     * are read by every query.
+     *
+     * @return If the lock was taken, to be passed to {@link #readUnlock}
+     */
+    private boolean readLock() {
+        /*
+         * isOnDisk is volatile and only set once all the modifications are
+         * done, so they are visible to the threads that see it set.
+         */
+        if (isOnDisk) {
+            return false;
         }
-        if (index >= intervals.size()) {
-            index = intervals.size() - 1;
+        rwl.readLock().lock();
+        return true;
+    }
+
+    private void readUnlock(boolean locked) {
+        if (locked) {
+            rwl.readLock().unlock();
         }
+    }
+
+    /*
+     * Accessors to the intervals of this node. Nodes read from disk keep their
+     * intervals in primitive arrays, and only create the interval objects that
+     * are returned. Should only be called by methods holding the readLock (if
+     * needed).
+     */
+
+    private int nbIntervals() {
+        final PackedIntervals p = packed;
+        return (p == null ? intervals.size() : p.size());
+    }
 
+    private long intervalStart(int index) {
+        final PackedIntervals p = packed;
+        return (p == null ? intervals.get(index).getStartTime() : p.getStartTime(index));
+    }
+
+    private long intervalEnd(int index) {
+        final PackedIntervals p = packed;
+        return (p == null ? intervals.get(index).getEndTime() : p.getEndTime(index));
+    }
+
+    private int intervalAttribute(int index) {
+        final PackedIntervals p = packed;
+        return (p == null ? intervals.get(index).getAttribute() : p.getAttribute(index));
+    }
+
+    private HTInterval intervalAt(int index) {
+        final PackedIntervals p = packed;
+        return (p == null ? intervals.get(index) : p.getInterval(index));
+    }
+
+    private int getStartIndexFor(long t) throws TimeRangeException {
+        /* Should only be called by methods holding the readLock (if needed) */
+
+        final int nbIntervals = nbIntervals();
+        if (nbIntervals == 0) {
+            return 0;
+        }
         /*
-         * Another API quirkiness, the returned index is the one of the *last*
-         * element of a series of equal endtimes, which happens sometimes. We
-         * want the *first* element of such a series, to read through them
-         * again.
+         * Since the intervals are sorted by end time, we can skip all the ones
+         * at the beginning whose end times are smaller than 't'. Search for the
+         * first interval whose end time is >= t, without creating a dummy
+         * interval to compare with.
+         *
+         * If all the intervals end before 't', return the size of the list so
+         * that none of them is read. (Returning the last index here would let
+         * a query pick an interval that does not contain 't'.)
          */
-        while (index > 0
-                && intervals.get(index - 1).compareTo(intervals.get(index)) == 0) {
-            index--;
+        int low = 0;
+        int high = nbIntervals;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (intervalEnd(mid) < t) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-
-        return index;
+        return low;
     }
 
     /**
@@ -560,14 +819,14 @@ public abstract class HTNode {
     }
 
     /**
-     * Returns the free space in the node, which is simply put, the
-     * stringSectionOffset - dataSectionOffset
+     * Returns the free space in the node, which is what remains of the block
+     * after the header, the Data section and the Strings section.
      *
      * @return The amount of free space in the node (in bytes)
      */
     public int getNodeFreeSpace() {
         rwl.readLock().lock();
-        int ret = stringSectionOffset - this.getDataSectionEndOffset();
+        int ret = config.getBlockSize() - this.getDataSectionEndOffset() - sizeOfStringSection;
         rwl.readLock().unlock();
 
         return ret;
@@ -604,7 +863,7 @@ public abstract class HTNode {
         /* Only used for debugging, shouldn't be externalized */
         StringBuffer buf = new StringBuffer("Node #" + sequenceNumber + ", ");
         buf.append(this.toStringSpecific());
-        buf.append(intervals.size() + " intervals (" + this.getNodeUsagePercent()
+        buf.append(nbIntervals() + " intervals (" + this.getNodeUsagePercent()
                 + "% used), ");
 
         buf.append("[" + this.nodeStart + " - ");
@@ -643,8 +902,8 @@ public abstract class HTNode {
 
         /* List of intervals in the node */
         writer.println("  Intervals contained:");
-        for (int i = 0; i < intervals.size(); i++) {
-            writer.println(intervals.get(i).toString());
+        for (int i = 0; i < nbIntervals(); i++) {
+            writer.println(intervalAt(i).toString());
         }
         writer.println('\n');
     }
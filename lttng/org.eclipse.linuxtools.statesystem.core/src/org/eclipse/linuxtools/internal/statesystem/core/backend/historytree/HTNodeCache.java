@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of History Tree nodes, keyed by their sequence number.
+ *
+ * The cache is split into a number of segments, each one guarded by its own
+ * lock, so that concurrent queries reading different nodes do not contend on
+ * a single monitor. Each segment evicts its least-recently-used node when it
+ * is full.
+ *
+ * Hit, miss and eviction counters are kept to allow tuning the cache size.
+ */
+public class HTNodeCache {
+
+    /** Number of segments (and of locks). Must be a power of 2. */
+    private static final int NB_SEGMENTS = 16;
+
+    private final Segment[] fSegments;
+
+    private final AtomicLong fHits = new AtomicLong();
+    private final AtomicLong fMisses = new AtomicLong();
+    private final AtomicLong fEvictions = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param maxNodes
+     *            The maximum number of nodes to keep in the cache. Each
+     *            segment will keep at least one node.
+     */
+    public HTNodeCache(int maxNodes) {
+        final int nodesPerSegment = Math.max(1, maxNodes / NB_SEGMENTS);
+        fSegments = new Segment[NB_SEGMENTS];
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            fSegments[i] = new Segment(nodesPerSegment);
+        }
+    }
+
+    /**
+     * Get a node from the cache.
+     *
+     * @param seqNumber
+     *            The sequence number of the node
+     * @return The cached node, or null if it is not in the cache
+     */
+    public HTNode get(int seqNumber) {
+        Segment segment = getSegment(seqNumber);
+        HTNode node;
+        synchronized (segment) {
+            node = segment.get(seqNumber);
+        }
+        if (node == null) {
+            fMisses.incrementAndGet();
+        } else {
+            fHits.incrementAndGet();
+        }
+        return node;
+    }
+
+    /**
+     * Insert a node in the cache, replacing the previous node with the same
+     * sequence number, if any.
+     *
+     * @param node
+     *            The node to insert
+     */
+    public void put(HTNode node) {
+        Segment segment = getSegment(node.getSequenceNumber());
+        synchronized (segment) {
+            segment.put(node.getSequenceNumber(), node);
+        }
+    }
+
+    /**
+     * Remove all the nodes from the cache. The counters are not reset.
+     */
+    public void clear() {
+        for (Segment segment : fSegments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups that found their node in the cache
+     */
+    public long getHitCount() {
+        return fHits.get();
+    }
+
+    /**
+     * @return The number of lookups that did not find their node in the cache
+     */
+    public long getMissCount() {
+        return fMisses.get();
+    }
+
+    /**
+     * @return The number of nodes that were evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return fEvictions.get();
+    }
+
+    private Segment getSegment(int seqNumber) {
+        /*
+         * Consecutive nodes are often read together (siblings, or a branch
+         * being walked down), spread them over different segments.
+         */
+        return fSegments[seqNumber & (NB_SEGMENTS - 1)];
+    }
+
+    @SuppressWarnings("nls")
+    @Override
+    public String toString() {
+        /* Only used for debugging, shouldn't be externalized */
+        return "Node cache: " + fHits.get() + " hits, " + fMisses.get()
+                + " misses, " + fEvictions.get() + " evictions";
+    }
+
+    /**
+     * One segment of the cache, which is a LRU map. Accesses need to be
+     * synchronized on the segment itself.
+     */
+    private class Segment extends LinkedHashMap<Integer, HTNode> {
+
+        private static final long serialVersionUID = -6339640633306727466L;
+
+        private final int fCapacity;
+
+        public Segment(int capacity) {
+            /* Access-ordered, so that the eldest entry is the LRU one */
+            super(capacity + 1, 1.0f, true);
+            fCapacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, HTNode> eldest) {
+            if (size() > fCapacity) {
+                fEvictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
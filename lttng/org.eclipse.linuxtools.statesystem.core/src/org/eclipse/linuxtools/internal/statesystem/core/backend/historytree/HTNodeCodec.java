@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeCompression;
+
+/**
+ * Compression algorithm used to store the nodes of a compressed history file.
+ *
+ * Compression is only called by the thread writing the nodes, but
+ * decompression can be called concurrently by query threads, so it should not
+ * use any shared state.
+ */
+abstract class HTNodeCodec {
+
+    /**
+     * Get the codec for a compression type
+     *
+     * @param compression
+     *            The compression type
+     * @return The codec, or null for {@link HistoryTreeCompression#NONE}
+     */
+    static HTNodeCodec create(HistoryTreeCompression compression) {
+        switch (compression) {
+        case LZ4:
+            return new LZ4NodeCodec();
+        case DEFLATE:
+            return new DeflateNodeCodec();
+        case NONE:
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Get the value identifying a compression type in the file header. These
+     * values are part of the file format, they must not change.
+     *
+     * @param compression
+     *            The compression type
+     * @return The identifier
+     */
+    static int toId(HistoryTreeCompression compression) {
+        switch (compression) {
+        case LZ4:
+            return 1;
+        case DEFLATE:
+            return 2;
+        case NONE:
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Get the compression type from its identifier in the file header
+     *
+     * @param id
+     *            The identifier, as returned by {@link #toId}
+     * @return The compression type
+     * @throws IOException
+     *             If the identifier is unknown
+     */
+    static HistoryTreeCompression fromId(int id) throws IOException {
+        switch (id) {
+        case 0:
+            return HistoryTreeCompression.NONE;
+        case 1:
+            return HistoryTreeCompression.LZ4;
+        case 2:
+            return HistoryTreeCompression.DEFLATE;
+        default:
+            throw new IOException("Unknown node compression " + id); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Compress the contents of a node.
+     *
+     * @param src
+     *            Array containing the serialized node, from index 0
+     * @param length
+     *            The number of bytes to compress
+     * @return The compressed data, in an array whose size is exactly the
+     *         compressed size
+     */
+    abstract byte[] compress(byte[] src, int length);
+
+    /**
+     * Decompress a node.
+     *
+     * @param src
+     *            Array containing the compressed data, from index 0
+     * @param length
+     *            The size of the compressed data
+     * @param dest
+     *            The array (of one block) in which to decompress the node. It
+     *            must be zeroed: the decompressed data can be smaller than a
+     *            block.
+     * @throws IOException
+     *             If the compressed data is invalid
+     */
+    abstract void decompress(byte[] src, int length, byte[] dest) throws IOException;
+
+    /**
+     * Release the resources used by this codec. It should not be used
+     * afterwards.
+     */
+    void dispose() {
+        /* Nothing to release by default */
+    }
+}
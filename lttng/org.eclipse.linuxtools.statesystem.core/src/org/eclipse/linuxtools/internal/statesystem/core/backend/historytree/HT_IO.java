@@ -16,8 +16,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
 
 /**
  * This class abstracts inputs/outputs of the HistoryTree nodes.
@@ -31,7 +36,7 @@ import java.nio.channels.FileChannel;
  * @author Alexandre Montplaisir
  *
  */
-class HT_IO {
+public class HT_IO {
     /* Configuration of the History Tree */
     private final HTConfig fConfig;
 
@@ -41,9 +46,43 @@ class HT_IO {
     private final FileChannel fcIn;
     private final FileChannel fcOut;
 
-    // TODO test/benchmark optimal cache size
-    private final int CACHE_SIZE = 256;
-    private final HTNode fNodeCache[] = new HTNode[CACHE_SIZE];
+    /* Cache of the nodes recently read from, or written to, the file */
+    private final HTNodeCache fNodeCache;
+
+    /*
+     * Maximum size of one mapped region of the file. A MappedByteBuffer is
+     * limited to 2 GB, so bigger files are mapped in several segments. Each
+     * segment contains a whole number of nodes.
+     */
+    private static final long MAX_MAPPED_SEGMENT_SIZE = 1L << 30;
+
+    /*
+     * Memory-mapped regions of the file, used to read the nodes of an
+     * already-built history (null if the file is not read through mapping).
+     * The segments are mapped lazily, the first time a node they contain is
+     * read.
+     */
+    private volatile MappedByteBuffer[] fMappedSegments = null;
+    private final int fNodesPerSegment;
+
+    /*
+     * Codec of the compressed nodes, or null if the nodes are stored as full
+     * blocks.
+     *
+     * Compressed nodes are written one after the other, in the order they are
+     * closed, starting after the tree header. Their position and size in the
+     * file are kept in the node table, indexed by sequence number, which is
+     * written after the last node when the tree is closed.
+     */
+    private final HTNodeCodec fCodec;
+    private final Object fNodeTableLock = new Object();
+    private long[] fNodeOffsets = new long[0];
+    private int[] fNodeLengths = new int[0];
+    /* End of the compressed nodes, where the next one will be written */
+    private long fNodesEnd = HistoryTree.TREE_HEADER_SIZE;
+
+    /** Size of an entry of the node table: long (offset) + int (size) */
+    private static final int NODE_TABLE_ENTRY_SIZE = 12;
 
     /**
      * Standard constructor
@@ -57,7 +96,28 @@ class HT_IO {
      *             An exception can be thrown when file cannot be accessed
      */
     public HT_IO(HTConfig config, boolean newFile) throws IOException {
+        this(config, newFile, MAX_MAPPED_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor specifying the maximum size of the memory-mapped segments
+     * of the file. Mostly useful for testing the reads that go through
+     * several segments.
+     *
+     * @param config
+     *            The configuration object for the StateHistoryTree
+     * @param newFile
+     *            Flag indicating that the file must be created from scratch
+     * @param maxMappedSegmentSize
+     *            The maximum size, in bytes, of one mapped segment. It is
+     *            rounded down to a whole number of nodes (at least one).
+     * @throws IOException
+     *             An exception can be thrown when file cannot be accessed
+     */
+    public HT_IO(HTConfig config, boolean newFile, long maxMappedSegmentSize) throws IOException {
         fConfig = config;
+        fNodeCache = new HTNodeCache(config.getMaxCachedNodes());
+        fCodec = HTNodeCodec.create(config.getCompression());
 
         File historyTreeFile = config.getStateFile();
         if (newFile) {
@@ -84,6 +144,20 @@ class HT_IO {
         }
         this.fcIn = fis.getChannel();
         this.fcOut = fos.getChannel();
+
+        fNodesPerSegment = (int) Math.max(1, Math.min(MAX_MAPPED_SEGMENT_SIZE, maxMappedSegmentSize) / config.getBlockSize());
+        if (!newFile && fCodec == null) {
+            /*
+             * The file is complete, we can read its nodes directly from a
+             * memory mapping, instead of copying each block to the heap.
+             * (Compressed nodes have to be copied to be decompressed anyway.)
+             */
+            long nodesSectionSize = historyTreeFile.length() - HistoryTree.TREE_HEADER_SIZE;
+            long nbSegments = (nodesSectionSize / config.getBlockSize() + fNodesPerSegment - 1) / fNodesPerSegment;
+            if (nbSegments > 0 && nbSegments < Integer.MAX_VALUE) {
+                fMappedSegments = new MappedByteBuffer[(int) nbSegments];
+            }
+        }
     }
 
     /**
@@ -97,21 +171,36 @@ class HT_IO {
      *             reading. Instead of using a big reader-writer lock, we'll
      *             just catch this exception.
      */
-    public synchronized HTNode readNode(int seqNumber) throws ClosedChannelException {
+    public HTNode readNode(int seqNumber) throws ClosedChannelException {
         /* Do a cache lookup */
-        int offset = seqNumber & (CACHE_SIZE - 1);
-        HTNode readNode = fNodeCache[offset];
-        if (readNode != null && readNode.getSequenceNumber() == seqNumber) {
-          return readNode;
+        HTNode readNode = fNodeCache.get(seqNumber);
+        if (readNode != null) {
+            return readNode;
         }
 
         /* Lookup on disk */
         try {
-            seekFCToNodePos(fcIn, seqNumber);
-            readNode = HTNode.readNode(fConfig, fcIn);
+            if (fCodec != null) {
+                readNode = readCompressedNode(seqNumber);
+            } else {
+                ByteBuffer mappedBlock = getMappedBlock(seqNumber);
+                if (mappedBlock != null) {
+                    /* Decode the node directly from the mapped file */
+                    readNode = HTNode.readNode(fConfig, mappedBlock);
+                } else {
+                    /*
+                     * Only the position+read of the input channel needs to be
+                     * protected. The cache has its own locking.
+                     */
+                    synchronized (fcIn) {
+                        seekFCToNodePos(fcIn, seqNumber);
+                        readNode = HTNode.readNode(fConfig, fcIn);
+                    }
+                }
+            }
 
             /* Put the node in the cache. */
-            fNodeCache[offset] = readNode;
+            fNodeCache.put(readNode);
             return readNode;
         } catch (ClosedChannelException e) {
             throw e;
@@ -126,8 +215,12 @@ class HT_IO {
         try {
             /* Insert the node into the cache. */
             int seqNumber = node.getSequenceNumber();
-            int offset = seqNumber & (CACHE_SIZE - 1);
-            fNodeCache[offset] = node;
+            fNodeCache.put(node);
+
+            if (fCodec != null) {
+                writeCompressedNode(node);
+                return;
+            }
 
             /* Position ourselves at the start of the node and write it */
             seekFCToNodePos(fcOut, seqNumber);
@@ -138,24 +231,307 @@ class HT_IO {
         }
     }
 
+    /**
+     * Write the table of the positions of the compressed nodes after the last
+     * node. This should be done once all the nodes are written. It does
+     * nothing if the nodes are not compressed.
+     *
+     * @param nodeCount
+     *            The number of nodes in the tree
+     * @return The position of the table in the file, to be saved in the tree
+     *         header (0 if the nodes are not compressed)
+     * @throws IOException
+     *             If the table could not be written
+     */
+    public synchronized long writeNodeTable(int nodeCount) throws IOException {
+        if (fCodec == null) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(nodeCount * NODE_TABLE_ENTRY_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        synchronized (fNodeTableLock) {
+            for (int i = 0; i < nodeCount; i++) {
+                if (i >= fNodeLengths.length || fNodeLengths[i] == 0) {
+                    throw new IOException("Node " + i + " was not written"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                buffer.putLong(fNodeOffsets[i]);
+                buffer.putInt(fNodeLengths[i]);
+            }
+        }
+        buffer.flip();
+        writeFully(buffer, fNodesEnd);
+        return fNodesEnd;
+    }
+
+    /**
+     * Read the table of the positions of the compressed nodes of an existing
+     * file.
+     *
+     * @param tableOffset
+     *            The position of the table in the file, as returned by
+     *            {@link #writeNodeTable}
+     * @param nodeCount
+     *            The number of nodes in the tree
+     * @throws IOException
+     *             If the table could not be read, or is invalid
+     */
+    public void readNodeTable(long tableOffset, int nodeCount) throws IOException {
+        if (fCodec == null) {
+            return;
+        }
+        if (tableOffset < HistoryTree.TREE_HEADER_SIZE || nodeCount < 0
+                || tableOffset + (long) nodeCount * NODE_TABLE_ENTRY_SIZE > fcIn.size()) {
+            throw new IOException("Invalid node table"); //$NON-NLS-1$
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(nodeCount * NODE_TABLE_ENTRY_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        readFully(buffer, tableOffset);
+        buffer.flip();
+
+        long[] offsets = new long[nodeCount];
+        int[] lengths = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i] = buffer.getLong();
+            lengths[i] = buffer.getInt();
+            if (offsets[i] < HistoryTree.TREE_HEADER_SIZE || lengths[i] <= 0
+                    || offsets[i] + lengths[i] > tableOffset) {
+                throw new IOException("Invalid node table"); //$NON-NLS-1$
+            }
+        }
+        synchronized (fNodeTableLock) {
+            fNodeOffsets = offsets;
+            fNodeLengths = lengths;
+            fNodesEnd = tableOffset;
+        }
+    }
+
+    /**
+     * Get the position in the file where the nodes section (including the
+     * node table, for compressed files) ends. The attribute tree is stored
+     * there.
+     *
+     * @param nodeCount
+     *            The number of nodes in the tree
+     * @return The position in the file
+     */
+    public long getNodesSectionEnd(int nodeCount) {
+        if (fCodec == null) {
+            return HistoryTree.TREE_HEADER_SIZE
+                    + ((long) nodeCount * fConfig.getBlockSize());
+        }
+        synchronized (fNodeTableLock) {
+            return fNodesEnd + (long) nodeCount * NODE_TABLE_ENTRY_SIZE;
+        }
+    }
+
+    private void writeCompressedNode(HTNode node) throws IOException {
+        ByteBuffer block = node.serialize();
+        byte[] compressed = fCodec.compress(block.array(), block.limit());
+
+        final long offset = fNodesEnd;
+        writeFully(ByteBuffer.wrap(compressed), offset);
+
+        final int seqNumber = node.getSequenceNumber();
+        synchronized (fNodeTableLock) {
+            if (seqNumber >= fNodeOffsets.length) {
+                int newSize = Math.max(seqNumber + 1, fNodeOffsets.length * 2);
+                fNodeOffsets = Arrays.copyOf(fNodeOffsets, newSize);
+                fNodeLengths = Arrays.copyOf(fNodeLengths, newSize);
+            }
+            fNodeOffsets[seqNumber] = offset;
+            fNodeLengths[seqNumber] = compressed.length;
+            fNodesEnd = offset + compressed.length;
+        }
+        node.setOnDisk();
+    }
+
+    private HTNode readCompressedNode(int seqNumber) throws IOException {
+        long offset;
+        int length;
+        synchronized (fNodeTableLock) {
+            if (seqNumber < 0 || seqNumber >= fNodeLengths.length || fNodeLengths[seqNumber] == 0) {
+                throw new IOException("Node " + seqNumber + " is not in the file"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            offset = fNodeOffsets[seqNumber];
+            length = fNodeLengths[seqNumber];
+        }
+
+        /* Positional reads do not need to be synchronized */
+        ByteBuffer compressed = ByteBuffer.allocate(length);
+        readFully(compressed, offset);
+
+        byte[] block = new byte[fConfig.getBlockSize()];
+        fCodec.decompress(compressed.array(), length, block);
+
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return HTNode.readNode(fConfig, buffer);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int res = fcIn.read(buffer, position + buffer.position());
+            if (res < 0) {
+                throw new IOException("Unexpected end of the history file"); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            fcOut.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Get the cache of nodes used by this object. Mostly useful to look at its
+     * hit/miss statistics.
+     *
+     * @return The node cache
+     */
+    public HTNodeCache getNodeCache() {
+        return fNodeCache;
+    }
+
     public FileChannel getFcOut() {
         return this.fcOut;
     }
 
-    public FileInputStream supplyATReader(int nodeOffset) {
+    public FileInputStream supplyATReader(int nodeCount) {
         try {
             /*
              * Position ourselves at the start of the Mapping section in the
              * file (which is right after the Blocks)
              */
-            seekFCToNodePos(fcIn, nodeOffset);
+            synchronized (fcIn) {
+                fcIn.position(getNodesSectionEnd(nodeCount));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
         return fis;
     }
 
+    /**
+     * Get a view of the block of a node in the memory-mapped file.
+     *
+     * @param seqNumber
+     *            The sequence number of the node
+     * @return A buffer whose position 0 is the start of the node, or null if
+     *         the file is not memory-mapped, or if this node could not be
+     *         mapped.
+     * @throws ClosedChannelException
+     *             If the file was closed
+     */
+    private ByteBuffer getMappedBlock(int seqNumber) throws ClosedChannelException {
+        MappedByteBuffer[] segments = fMappedSegments;
+        if (segments == null) {
+            return null;
+        }
+        int segmentIndex = seqNumber / fNodesPerSegment;
+        if (segmentIndex >= segments.length) {
+            return null;
+        }
+
+        MappedByteBuffer segment = segments[segmentIndex];
+        if (segment == null) {
+            synchronized (segments) {
+                if (fMappedSegments != segments) {
+                    /* The file was closed, do not map it again */
+                    return null;
+                }
+                segment = segments[segmentIndex];
+                if (segment == null) {
+                    segment = mapSegment(segmentIndex);
+                    if (segment == null) {
+                        return null;
+                    }
+                    segments[segmentIndex] = segment;
+                }
+            }
+        }
+
+        final int blockSize = fConfig.getBlockSize();
+        final int offset = (seqNumber % fNodesPerSegment) * blockSize;
+        if (offset + blockSize > segment.capacity()) {
+            return null;
+        }
+
+        /* duplicate() so that concurrent readers have their own positions */
+        ByteBuffer block = segment.duplicate();
+        block.position(offset);
+        block.limit(offset + blockSize);
+        block = block.slice();
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        return block;
+    }
+
+    private MappedByteBuffer mapSegment(int segmentIndex) throws ClosedChannelException {
+        final long start = HistoryTree.TREE_HEADER_SIZE
+                + ((long) segmentIndex) * fNodesPerSegment * fConfig.getBlockSize();
+        try {
+            long size = Math.min((long) fNodesPerSegment * fConfig.getBlockSize(), fcIn.size() - start);
+            if (size <= 0) {
+                return null;
+            }
+            return fcIn.map(MapMode.READ_ONLY, start, size);
+        } catch (ClosedChannelException e) {
+            throw e;
+        } catch (IOException e) {
+            /*
+             * Mapping can fail if the address space is exhausted (on 32-bit
+             * VMs for example). Fall back to regular reads for good.
+             */
+            fMappedSegments = null;
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of segments of the file that are currently
+     * memory-mapped.
+     *
+     * @return The number of mapped segments
+     */
+    public int getNbMappedSegments() {
+        MappedByteBuffer[] segments = fMappedSegments;
+        if (segments == null) {
+            return 0;
+        }
+        int count = 0;
+        synchronized (segments) {
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drop the references to the mapped segments. The mappings are only
+     * released when the buffers are garbage-collected, and until then the
+     * file cannot be deleted on some platforms (Windows), so no reference
+     * must remain once the file is closed. Further reads will go to the
+     * closed channel and fail as expected.
+     */
+    private void unmapSegments() {
+        MappedByteBuffer[] segments = fMappedSegments;
+        fMappedSegments = null;
+        if (segments != null) {
+            synchronized (segments) {
+                Arrays.fill(segments, null);
+            }
+        }
+    }
+
     public synchronized void closeFile() {
+        fNodeCache.clear();
+        unmapSegments();
+        if (fCodec != null) {
+            fCodec.dispose();
+        }
         try {
             fis.close();
             fos.close();
@@ -169,7 +545,12 @@ class HT_IO {
 
         File historyTreeFile = fConfig.getStateFile();
         if (!historyTreeFile.delete()) {
-            /* We didn't succeed in deleting the file */
+            /*
+             * We didn't succeed in deleting the file. It can still be mapped
+             * if the buffers of its segments were not garbage-collected yet,
+             * try again when the VM exits.
+             */
+            historyTreeFile.deleteOnExit();
             //TODO log it?
         }
     }
@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.eclipse.linuxtools.internal.statesystem.core.Activator;
 import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeCompression;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 
 /**
@@ -47,7 +48,7 @@ public class HistoryTree {
     private static final int HISTORY_FILE_MAGIC_NUMBER = 0x05FFA900;
 
     /** File format version. Increment when breaking compatibility. */
-    private static final int FILE_VERSION = 4;
+    private static final int FILE_VERSION = 5;
 
     // ------------------------------------------------------------------------
     // Tree-specific configuration
@@ -120,6 +121,24 @@ public class HistoryTree {
      *             If an error happens reading the file
      */
     public HistoryTree(File existingStateFile, int expProviderVersion) throws IOException {
+        this(existingStateFile, expProviderVersion, -1);
+    }
+
+    /**
+     * "Reader" constructor : instantiate a SHTree from an existing tree file on
+     * disk, specifying the size of the node cache to use.
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expProviderVersion
+     *            The expected version of the state provider
+     * @param cacheSize
+     *            The size, in bytes, of the node cache. Use a negative value
+     *            to use the default size.
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public HistoryTree(File existingStateFile, int expProviderVersion, long cacheSize) throws IOException {
         /*
          * Open the file ourselves, get the tree header information we need,
          * then pass on the descriptor to the TreeIO object.
@@ -127,6 +146,7 @@ public class HistoryTree {
         int rootNodeSeqNb, res;
         int bs, maxc;
         long startTime;
+        long nodeTableOffset;
 
         /* Java I/O mumbo jumbo... */
         if (!existingStateFile.exists()) {
@@ -180,7 +200,13 @@ public class HistoryTree {
             rootNodeSeqNb = buffer.getInt();
             startTime = buffer.getLong();
 
-            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion, startTime);
+            /* Compression of the nodes, and position of their table if any */
+            HistoryTreeCompression compression = HTNodeCodec.fromId(buffer.getInt());
+            nodeTableOffset = buffer.getLong();
+
+            long realCacheSize = (cacheSize < 0 ? HTConfig.getDefaultCacheSize(bs) : cacheSize);
+            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion,
+                    startTime, realCacheSize, compression);
         }
 
         /*
@@ -189,6 +215,7 @@ public class HistoryTree {
          * the SHT otherwise?
          */
         this.treeIO = new HT_IO(config, false);
+        treeIO.readNodeTable(nodeTableOffset, nodeCount);
 
         this.latestBranch = buildLatestBranch(rootNodeSeqNb);
         this.treeEnd = getRootNode().getNodeEnd();
@@ -256,6 +283,9 @@ public class HistoryTree {
             }
 
             try (FileChannel fc = treeIO.getFcOut();) {
+                /* With compression, the node table follows the last node */
+                long nodeTableOffset = treeIO.writeNodeTable(nodeCount);
+
                 ByteBuffer buffer = ByteBuffer.allocate(TREE_HEADER_SIZE);
                 buffer.order(ByteOrder.LITTLE_ENDIAN);
                 buffer.clear();
@@ -279,6 +309,10 @@ public class HistoryTree {
                 /* start time of this history */
                 buffer.putLong(latestBranch.get(0).getNodeStart());
 
+                /* node compression, and position of the node table */
+                buffer.putInt(HTNodeCodec.toId(config.getCompression()));
+                buffer.putLong(nodeTableOffset);
+
                 buffer.flip();
                 int res = fc.write(buffer);
                 assert (res <= TREE_HEADER_SIZE);
@@ -365,8 +399,7 @@ public class HistoryTree {
      * @return The position in the file where to start writing
      */
     public long supplyATWriterFilePos() {
-        return HistoryTree.TREE_HEADER_SIZE
-                + ((long) getNodeCount() * config.getBlockSize());
+        return treeIO.getNodesSectionEnd(getNodeCount());
     }
 
     /**
@@ -392,6 +425,33 @@ public class HistoryTree {
         return treeIO.readNode(seqNumber);
     }
 
+    /**
+     * Get the number of node reads that were served by the node cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getNodeCacheHitCount() {
+        return treeIO.getNodeCache().getHitCount();
+    }
+
+    /**
+     * Get the number of node reads that had to go to disk.
+     *
+     * @return The number of cache misses
+     */
+    public long getNodeCacheMissCount() {
+        return treeIO.getNodeCache().getMissCount();
+    }
+
+    /**
+     * Get the number of nodes that were evicted from the node cache.
+     *
+     * @return The number of cache evictions
+     */
+    public long getNodeCacheEvictionCount() {
+        return treeIO.getNodeCache().getEvictionCount();
+    }
+
     /**
      * Write a node object to the history file.
      *
@@ -448,7 +508,7 @@ public class HistoryTree {
         HTNode targetNode = latestBranch.get(indexOfNode);
 
         /* Verify if there is enough room in this node to store this interval */
-        if (interval.getIntervalSize() > targetNode.getNodeFreeSpace()) {
+        if (targetNode.getSpaceNeeded(interval) > targetNode.getNodeFreeSpace()) {
             /* Nope, not enough room. Insert in a new sibling instead. */
             addSiblingNode(indexOfNode);
             tryInsertAtNode(interval, latestBranch.size() - 1);
@@ -781,7 +841,8 @@ public class HistoryTree {
                 + "Root node has sequence number: "
                 + latestBranch.get(0).getSequenceNumber() + "\n"
                 + "'Latest leaf' has sequence number: "
-                + latestBranch.get(latestBranch.size() - 1).getSequenceNumber();
+                + latestBranch.get(latestBranch.size() - 1).getSequenceNumber() + "\n"
+                + treeIO.getNodeCache().toString();
     }
 
     /**
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Node codec using the LZ4 block format.
+ *
+ * This is a simple (greedy, single hash table) implementation of the format,
+ * which favors speed over compression ratio. The compressed data can be read
+ * by any LZ4 block decoder.
+ *
+ * Each sequence of the compressed data is made of:
+ *
+ * <pre>
+ *   1 byte   token: literals length (high 4 bits), match length - 4 (low 4 bits)
+ *   n bytes  more literals length, if it was 15 (255 means more bytes follow)
+ *   n bytes  the literals
+ *   2 bytes  match offset (little-endian)
+ *   n bytes  more match length, if it was 15
+ * </pre>
+ *
+ * The last sequence only contains literals.
+ */
+final class LZ4NodeCodec extends HTNodeCodec {
+
+    private static final int MIN_MATCH = 4;
+    /* The last 5 bytes are always literals */
+    private static final int LAST_LITERALS = 5;
+    /* The last match must start at least 12 bytes before the end */
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+
+    private static final int RUN_MASK = 15;
+    private static final int HASH_LOG = 12;
+    /* Look for matches less often when no match was found for a while */
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final String ERR_MSG = "Invalid compressed node"; //$NON-NLS-1$
+
+    /* Only used by the writer thread */
+    private final int[] fHashTable = new int[1 << HASH_LOG];
+
+    @Override
+    byte[] compress(byte[] src, int length) {
+        byte[] dest = new byte[length + length / 255 + 16];
+        int op = 0;
+        int anchor = 0;
+
+        if (length > MF_LIMIT) {
+            Arrays.fill(fHashTable, -1);
+            final int mfLimit = length - MF_LIMIT;
+            final int matchLimit = length - LAST_LITERALS;
+            int ip = 0;
+
+            while (ip < mfLimit) {
+                final int sequence = readInt(src, ip);
+                final int hash = hash(sequence);
+                final int ref = fHashTable[hash];
+                fHashTable[hash] = ip;
+
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                    continue;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+
+                /* Token, literals, then the match */
+                final int literalLength = ip - anchor;
+                final int tokenPos = op++;
+                int token;
+                if (literalLength >= RUN_MASK) {
+                    token = RUN_MASK << 4;
+                    op = writeLength(dest, op, literalLength - RUN_MASK);
+                } else {
+                    token = literalLength << 4;
+                }
+                System.arraycopy(src, anchor, dest, op, literalLength);
+                op += literalLength;
+
+                final int offset = ip - ref;
+                dest[op++] = (byte) offset;
+                dest[op++] = (byte) (offset >>> 8);
+
+                final int extraLength = matchLength - MIN_MATCH;
+                if (extraLength >= RUN_MASK) {
+                    token |= RUN_MASK;
+                    op = writeLength(dest, op, extraLength - RUN_MASK);
+                } else {
+                    token |= extraLength;
+                }
+                dest[tokenPos] = (byte) token;
+
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        /* Last literals */
+        final int literalLength = length - anchor;
+        if (literalLength >= RUN_MASK) {
+            dest[op++] = (byte) (RUN_MASK << 4);
+            op = writeLength(dest, op, literalLength - RUN_MASK);
+        } else {
+            dest[op++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, anchor, dest, op, literalLength);
+        op += literalLength;
+
+        return Arrays.copyOf(dest, op);
+    }
+
+    @Override
+    void decompress(byte[] src, int length, byte[] dest) throws IOException {
+        int ip = 0;
+        int op = 0;
+
+        while (true) {
+            if (ip >= length) {
+                throw new IOException(ERR_MSG);
+            }
+            final int token = src[ip++] & 0xFF;
+
+            /* Literals */
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= length) {
+                        throw new IOException(ERR_MSG);
+                    }
+                    b = src[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > length - ip || literalLength > dest.length - op) {
+                throw new IOException(ERR_MSG);
+            }
+            System.arraycopy(src, ip, dest, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+
+            if (ip == length) {
+                /* That was the last sequence */
+                return;
+            }
+
+            /* Match */
+            if (ip + 2 > length) {
+                throw new IOException(ERR_MSG);
+            }
+            final int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+            ip += 2;
+            if (offset == 0 || offset > op) {
+                throw new IOException(ERR_MSG);
+            }
+
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= length) {
+                        throw new IOException(ERR_MSG);
+                    }
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dest.length - op) {
+                throw new IOException(ERR_MSG);
+            }
+
+            /* The match can overlap the output, copy byte per byte */
+            int ref = op - offset;
+            for (int i = 0; i < matchLength; i++) {
+                dest[op++] = dest[ref++];
+            }
+        }
+    }
+
+    private static int writeLength(byte[] dest, int pos, int length) {
+        int op = pos;
+        int remaining = length;
+        while (remaining >= 255) {
+            dest[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        dest[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(byte[] array, int pos) {
+        return (array[pos] & 0xFF)
+                | ((array[pos + 1] & 0xFF) << 8)
+                | ((array[pos + 2] & 0xFF) << 16)
+                | ((array[pos + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
+
+/**
+ * The intervals of a node that was read from disk, decoded into primitive
+ * arrays.
+ *
+ * Queries only need to look at the times and attributes of most of the
+ * intervals in a node, so no object is created when decoding a node: the
+ * {@link HTInterval} and its state value are only built for the intervals that
+ * are actually returned by a query.
+ */
+final class PackedIntervals {
+
+    private static final String ERR_MSG = "Invalid interval data. Maybe your file is corrupt?"; //$NON-NLS-1$
+
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] attributes;
+    private final byte[] types;
+    /* Integer/long value, double bits, or index in the strings table */
+    private final long[] values;
+    private final String[] strings;
+
+    private PackedIntervals(int count, String[] strings) {
+        this.starts = new long[count];
+        this.ends = new long[count];
+        this.attributes = new int[count];
+        this.types = new byte[count];
+        this.values = new long[count];
+        this.strings = strings;
+    }
+
+    /**
+     * Decode the data section of a node, as written by
+     * {@link HTInterval#writeInterval}.
+     *
+     * @param buffer
+     *            The buffer, positioned at the start of the data section
+     * @param count
+     *            The number of intervals in the node
+     * @param nodeStart
+     *            The start time of the node
+     * @param strings
+     *            The strings table of the node
+     * @return The decoded intervals
+     * @throws IOException
+     *             If the data is invalid
+     */
+    static PackedIntervals read(ByteBuffer buffer, int count, long nodeStart,
+            String[] strings) throws IOException {
+        PackedIntervals ret = new PackedIntervals(count, strings);
+        for (int i = 0; i < count; i++) {
+            final long start = nodeStart + VarInt.getUnsigned(buffer);
+            final long end = start + VarInt.getUnsigned(buffer);
+            final long attribute = VarInt.getUnsigned(buffer);
+            if (end < start || attribute > Integer.MAX_VALUE) {
+                throw new IOException(ERR_MSG);
+            }
+            ret.starts[i] = start;
+            ret.ends[i] = end;
+            ret.attributes[i] = (int) attribute;
+
+            final byte type = buffer.get();
+            ret.types[i] = type;
+            switch (type) {
+            case HTInterval.TYPE_NULL:
+                break;
+            case HTInterval.TYPE_INTEGER:
+            case HTInterval.TYPE_LONG:
+                ret.values[i] = VarInt.getSigned(buffer);
+                break;
+            case HTInterval.TYPE_DOUBLE:
+                ret.values[i] = buffer.getLong();
+                break;
+            case HTInterval.TYPE_STRING:
+                final long index = VarInt.getUnsigned(buffer);
+                if (index >= strings.length) {
+                    throw new IOException(ERR_MSG);
+                }
+                ret.values[i] = index;
+                break;
+            default:
+                /* Unknown data, better to not make anything up... */
+                throw new IOException(ERR_MSG);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return The number of intervals
+     */
+    int size() {
+        return starts.length;
+    }
+
+    /**
+     * @param index
+     *            The index of the interval
+     * @return Its start time
+     */
+    long getStartTime(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index
+     *            The index of the interval
+     * @return Its end time
+     */
+    long getEndTime(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @param index
+     *            The index of the interval
+     * @return Its attribute
+     */
+    int getAttribute(int index) {
+        return attributes[index];
+    }
+
+    /**
+     * @return The number of strings in the strings table
+     */
+    int getNbStrings() {
+        return strings.length;
+    }
+
+    /**
+     * @param index
+     *            The index in the strings table
+     * @return The string
+     */
+    String getString(int index) {
+        return strings[index];
+    }
+
+    /**
+     * Build the interval object at the given index
+     *
+     * @param index
+     *            The index of the interval
+     * @return The interval
+     */
+    HTInterval getInterval(int index) {
+        final long bits = values[index];
+        TmfStateValue value;
+        switch (types[index]) {
+        case HTInterval.TYPE_INTEGER:
+            value = TmfStateValue.newValueInt((int) bits);
+            break;
+        case HTInterval.TYPE_LONG:
+            value = TmfStateValue.newValueLong(bits);
+            break;
+        case HTInterval.TYPE_DOUBLE:
+            value = TmfStateValue.newValueDouble(Double.longBitsToDouble(bits));
+            break;
+        case HTInterval.TYPE_STRING:
+            value = TmfStateValue.newValueString(strings[(int) bits]);
+            break;
+        case HTInterval.TYPE_NULL:
+        default:
+            value = TmfStateValue.nullValue();
+            break;
+        }
+        try {
+            return new HTInterval(starts[index], ends[index], attributes[index], value);
+        } catch (TimeRangeException e) {
+            /* The times were checked when reading */
+            throw new IllegalStateException(e);
+        }
+    }
+}
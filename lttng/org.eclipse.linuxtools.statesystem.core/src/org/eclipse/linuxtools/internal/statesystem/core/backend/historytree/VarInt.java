@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of integers used in the History Tree nodes.
+ *
+ * Values are written 7 bits at a time, least significant group first, with
+ * the high bit of each byte set if more bytes follow. Small positive values
+ * (like time deltas and quarks) then only take one or two bytes. Signed values
+ * are first "zig-zag" encoded, so that small negative values are small too.
+ */
+final class VarInt {
+
+    private VarInt() {}
+
+    /**
+     * Get the number of bytes needed to encode a value with
+     * {@link #putUnsigned}.
+     *
+     * @param value
+     *            The value, considered unsigned
+     * @return The encoded size, in bytes
+     */
+    static int sizeOfUnsigned(long value) {
+        long v = value;
+        int size = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of bytes needed to encode a value with
+     * {@link #putSigned}.
+     *
+     * @param value
+     *            The signed value
+     * @return The encoded size, in bytes
+     */
+    static int sizeOfSigned(long value) {
+        return sizeOfUnsigned(zigZag(value));
+    }
+
+    /**
+     * Write a value, considered unsigned, at the current position of the
+     * buffer.
+     *
+     * @param buffer
+     *            The buffer to write to
+     * @param value
+     *            The value to write
+     */
+    static void putUnsigned(ByteBuffer buffer, long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * Write a signed value at the current position of the buffer.
+     *
+     * @param buffer
+     *            The buffer to write to
+     * @param value
+     *            The value to write
+     */
+    static void putSigned(ByteBuffer buffer, long value) {
+        putUnsigned(buffer, zigZag(value));
+    }
+
+    /**
+     * Read a value written with {@link #putUnsigned}.
+     *
+     * @param buffer
+     *            The buffer to read from
+     * @return The value
+     * @throws IOException
+     *             If the encoded value is too long to be valid
+     */
+    static long getUnsigned(ByteBuffer buffer) throws IOException {
+        long ret = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buffer.get();
+            ret |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return ret;
+            }
+        }
+        throw new IOException("Invalid variable-length value"); //$NON-NLS-1$
+    }
+
+    /**
+     * Read a value written with {@link #putSigned}.
+     *
+     * @param buffer
+     *            The buffer to read from
+     * @return The value
+     * @throws IOException
+     *             If the encoded value is too long to be valid
+     */
+    static long getSigned(ByteBuffer buffer) throws IOException {
+        final long v = getUnsigned(buffer);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
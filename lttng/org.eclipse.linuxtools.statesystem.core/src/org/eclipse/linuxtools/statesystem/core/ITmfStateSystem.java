@@ -12,6 +12,7 @@
 
 package org.eclipse.linuxtools.statesystem.core;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -20,6 +21,7 @@ import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedExc
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 
 /**
@@ -308,6 +310,37 @@ public interface ITmfStateSystem {
     List<ITmfStateInterval> queryFullState(long t)
             throws StateSystemDisposedException;
 
+    /**
+     * Version of {@link #queryFullState(long)} which writes the state
+     * information into an array supplied by the caller, so that it can be
+     * reused between queries instead of allocating a new list every time.
+     * This is useful for views that run a full query at every selection
+     * change. The state system can be queried concurrently by several
+     * threads, as long as each one uses its own array.
+     *
+     * If the array is large enough, the interval of quark 'n' is written at
+     * index 'n', and the indexes past the current number of attributes are
+     * set to null. Otherwise, a new array is allocated and returned, which the
+     * caller can reuse for its next queries.
+     *
+     * @param t
+     *            We will recreate the state information to what it was at time
+     *            t.
+     * @param stateInfo
+     *            The array in which to write the intervals. Can be null, a new
+     *            array will then be allocated.
+     * @return The array containing the intervals, where the offset = the
+     *         quark. This is the 'stateInfo' array if it was large enough.
+     * @throws TimeRangeException
+     *             If the 't' parameter is outside of the range of the state
+     *             history.
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 3.1
+     */
+    ITmfStateInterval[] queryFullState(long t, ITmfStateInterval[] stateInfo)
+            throws StateSystemDisposedException;
+
     /**
      * Singular query method. This one does not update the whole stateInfo
      * vector, like queryFullState() does. It only searches for one specific
@@ -422,4 +455,48 @@ public interface ITmfStateSystem {
     List<ITmfStateInterval> queryHistoryRange(int attributeQuark,
             long t1, long t2, long resolution, IProgressMonitor monitor)
             throws AttributeNotFoundException, StateSystemDisposedException;
+
+    /**
+     * Bulk version of
+     * {@link #queryHistoryRange(int, long, long, long, IProgressMonitor)},
+     * which gets the history of several attributes at once. The history
+     * backend is only traversed once for all the attributes, so this is much
+     * faster than doing one range query per attribute when many of them are
+     * needed, for example to populate a view with one row per attribute.
+     *
+     * The intervals are sent to the handler as they are found, in no
+     * particular order (neither in time nor in attributes). For each
+     * attribute, the same intervals as the single-attribute version are
+     * returned, that is, at most one per "resolution" step, plus the one at
+     * the end of the range.
+     *
+     * @param quarks
+     *            The attributes this query is interested in
+     * @param t1
+     *            Start time of the range query
+     * @param t2
+     *            Target end time of the query. If t2 is greater than the end of
+     *            the trace, we will return what we have up to the end of the
+     *            history.
+     * @param resolution
+     *            The "step" of this query. Use 1 to get every interval.
+     * @param monitor
+     *            A progress monitor. If the monitor is canceled during a query,
+     *            the handler will stop receiving intervals. You can use "null"
+     *            if you do not want to use one.
+     * @param handler
+     *            The handler that will receive the intervals
+     * @throws TimeRangeException
+     *             If t1 is invalid, if t2 < t1, or if the resolution isn't
+     *             greater than zero.
+     * @throws AttributeNotFoundException
+     *             If one of the attributes doesn't exist
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 3.1
+     */
+    void queryHistoryRange(Collection<Integer> quarks, long t1, long t2,
+            long resolution, IProgressMonitor monitor,
+            ITmfStateIntervalHandler handler)
+            throws AttributeNotFoundException, StateSystemDisposedException;
 }
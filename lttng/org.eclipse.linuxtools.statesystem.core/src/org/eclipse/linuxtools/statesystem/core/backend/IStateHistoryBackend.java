@@ -15,12 +15,15 @@ package org.eclipse.linuxtools.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 
 /**
@@ -176,6 +179,34 @@ public interface IStateHistoryBackend {
             throws TimeRangeException, AttributeNotFoundException,
             StateSystemDisposedException;
 
+    /**
+     * Find all the intervals of the given attributes that intersect the time
+     * range [t1, t2], and send them to the handler. Backends that store the
+     * intervals of several attributes together should find them in one pass,
+     * instead of doing one separate lookup per attribute and per timestamp.
+     *
+     * The intervals can be sent in any order. The caller is responsible for
+     * checking that the time range and quarks are valid.
+     *
+     * @param quarks
+     *            The attributes for which to get the intervals
+     * @param t1
+     *            Start of the time range
+     * @param t2
+     *            End of the time range
+     * @param monitor
+     *            Progress monitor to check for cancellation. The method
+     *            returns early if it is cancelled.
+     * @param handler
+     *            The handler which will receive the intervals
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed while a request is ongoing.
+     * @since 3.1
+     */
+    void doRangeQuery(Collection<Integer> quarks, long t1, long t2,
+            IProgressMonitor monitor, ITmfStateIntervalHandler handler)
+            throws StateSystemDisposedException;
+
     /**
      * Simple check to make sure the requested timestamps are within the borders
      * of this state history. This is used internally, but could also be used by
@@ -16,15 +16,20 @@ package org.eclipse.linuxtools.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.interval.TmfStateInterval;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 
@@ -171,6 +176,40 @@ public class InMemoryBackend implements IStateHistoryBackend {
         throw new AttributeNotFoundException();
     }
 
+    /**
+     * @since 3.1
+     */
+    @Override
+    public void doRangeQuery(Collection<Integer> quarks, long t1, long t2,
+            IProgressMonitor monitor, ITmfStateIntervalHandler handler) {
+        BitSet wanted = new BitSet();
+        for (Integer quark : quarks) {
+            wanted.set(quark);
+        }
+
+        /*
+         * Everything ending before t1 is skipped by the binary search, then we
+         * only need to check the start times. The handler is called outside of
+         * the lock, so it does not block the insertions.
+         */
+        List<ITmfStateInterval> found = new ArrayList<>();
+        synchronized (intervals) {
+            Iterator<ITmfStateInterval> iter = serachforEndTime(intervals, t1);
+            while (iter.hasNext()) {
+                ITmfStateInterval entry = iter.next();
+                if (entry.getStartTime() <= t2 && wanted.get(entry.getAttribute())) {
+                    found.add(entry);
+                }
+            }
+        }
+        for (ITmfStateInterval interval : found) {
+            if (monitor.isCanceled()) {
+                return;
+            }
+            handler.handleInterval(interval);
+        }
+    }
+
     @Override
     public boolean checkValidTime(long t) {
         if (t >= startTime && t <= latestTime) {
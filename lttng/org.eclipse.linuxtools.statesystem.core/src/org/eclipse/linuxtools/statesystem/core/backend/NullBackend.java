@@ -15,9 +15,12 @@ package org.eclipse.linuxtools.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 
 /**
@@ -65,6 +68,17 @@ public class NullBackend implements IStateHistoryBackend {
         return null;
     }
 
+    /**
+     * Null back-ends cannot run queries. The handler will not be called.
+     *
+     * @since 3.1
+     */
+    @Override
+    public void doRangeQuery(Collection<Integer> quarks, long t1, long t2,
+            IProgressMonitor monitor, ITmfStateIntervalHandler handler) {
+        /* Cannot do past queries */
+    }
+
     @Override
     public File supplyAttributeTreeWriterFile() {
         return null;
@@ -17,8 +17,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.CoreNode;
 import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTConfig;
 import org.eclipse.linuxtools.internal.statesystem.core.backend.historytree.HTInterval;
@@ -28,6 +34,7 @@ import org.eclipse.linuxtools.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
 
@@ -74,8 +81,40 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
      */
     public HistoryTreeBackend(File newStateFile, int blockSize,
             int maxChildren, int providerVersion, long startTime) throws IOException {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime,
+                HistoryTreeCompression.NONE);
+    }
+
+    /**
+     * Constructor for new history files, whose nodes will be compressed.
+     *
+     * @param newStateFile
+     *            The filename/location where to store the state history (Should
+     *            end in .ht)
+     * @param blockSize
+     *            The size of the blocks in the history file. This should be a
+     *            multiple of 4096. It is the maximum size of a node before
+     *            compression.
+     * @param maxChildren
+     *            The maximum number of children each core node can have
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param startTime
+     *            The earliest time stamp that will be stored in the history
+     * @param compression
+     *            The compression to use for the nodes of the file
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     * @since 3.1
+     */
+    public HistoryTreeBackend(File newStateFile, int blockSize,
+            int maxChildren, int providerVersion, long startTime,
+            HistoryTreeCompression compression) throws IOException {
         final HTConfig conf = new HTConfig(newStateFile, blockSize, maxChildren,
-                providerVersion, startTime);
+                providerVersion, startTime, HTConfig.getDefaultCacheSize(blockSize),
+                compression);
         sht = new HistoryTree(conf);
     }
 
@@ -214,6 +253,74 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return getRelevantInterval(t, attributeQuark);
     }
 
+    /**
+     * @since 3.1
+     */
+    @Override
+    public void doRangeQuery(Collection<Integer> quarks, long t1, long t2,
+            IProgressMonitor monitor, ITmfStateIntervalHandler handler)
+            throws StateSystemDisposedException {
+        BitSet wanted = new BitSet();
+        for (Integer quark : quarks) {
+            wanted.set(quark);
+        }
+
+        /*
+         * Walk down every branch of the tree that intersects [t1, t2], reading
+         * each node only once, and pick the intervals of all the requested
+         * attributes at the same time.
+         */
+        List<HTInterval> found = new ArrayList<>();
+        Deque<HTNode> queue = new ArrayDeque<>();
+        queue.add(sht.getRootNode());
+        try {
+            while (!queue.isEmpty()) {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                HTNode currentNode = queue.poll();
+                found.clear();
+                currentNode.getIntervalsInRange(wanted, t1, t2, found);
+                for (HTInterval interval : found) {
+                    handler.handleInterval(interval);
+                }
+
+                if (currentNode.getNodeType() == HTNode.NodeType.CORE) {
+                    addChildrenInRange((CoreNode) currentNode, t1, t2, queue);
+                }
+            }
+        } catch (ClosedChannelException e) {
+            throw new StateSystemDisposedException(e);
+        } catch (TimeRangeException e) {
+            /* Should not happen, the range was checked by the caller */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void addChildrenInRange(CoreNode node, long t1, long t2,
+            Deque<HTNode> queue) throws ClosedChannelException {
+        final int nbChildren = node.getNbChildren();
+        for (int i = 0; i < nbChildren; i++) {
+            final long childStart = node.getChildStart(i);
+            if (childStart > t2) {
+                /* Children are sorted by start time */
+                break;
+            }
+            final long childEnd;
+            if (i + 1 < nbChildren) {
+                childEnd = node.getChildStart(i + 1) - 1;
+            } else if (node.isOnDisk()) {
+                childEnd = node.getNodeEnd();
+            } else {
+                /* The latest child is still open */
+                childEnd = Long.MAX_VALUE;
+            }
+            if (childEnd >= t1) {
+                queue.add(sht.readNode(node.getChild(i)));
+            }
+        }
+    }
+
     @Override
     public boolean checkValidTime(long t) {
         return (t >= sht.getTreeStart() && t <= sht.getTreeEnd());
@@ -261,6 +368,37 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return sht.getFileSize();
     }
 
+    /**
+     * Get the number of node reads that were served by the node cache.
+     *
+     * @return The number of cache hits
+     * @since 3.1
+     */
+    public long getNodeCacheHitCount() {
+        return sht.getNodeCacheHitCount();
+    }
+
+    /**
+     * Get the number of node reads that had to go to the disk.
+     *
+     * @return The number of cache misses
+     * @since 3.1
+     */
+    public long getNodeCacheMissCount() {
+        return sht.getNodeCacheMissCount();
+    }
+
+    /**
+     * Get the number of nodes that were evicted from the node cache to make
+     * room for other ones.
+     *
+     * @return The number of cache evictions
+     * @since 3.1
+     */
+    public long getNodeCacheEvictionCount() {
+        return sht.getNodeCacheEvictionCount();
+    }
+
     /**
      * Return the average node usage as a percentage (between 0 and 100)
      *
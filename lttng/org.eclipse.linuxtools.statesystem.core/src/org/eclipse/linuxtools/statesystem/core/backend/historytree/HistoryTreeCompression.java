@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.backend.historytree;
+
+/**
+ * Compression of the nodes in a history tree file.
+ *
+ * With compression, each node is stored using only the space it needs, instead
+ * of a full block, and the file contains a table of the node positions to keep
+ * random access to the nodes. Nodes are decompressed every time they are read
+ * from disk (and are not in the node cache), so compressed files are slower to
+ * query. They are intended for histories that are kept or archived.
+ *
+ * The compression of an existing file is read from its header, it does not
+ * have to be specified to open it.
+ *
+ * @since 3.1
+ */
+public enum HistoryTreeCompression {
+
+    /** Nodes are stored as full blocks (the default) */
+    NONE,
+
+    /** Nodes are compressed with LZ4, which is fast */
+    LZ4,
+
+    /** Nodes are compressed with Deflate, slower but giving smaller files */
+    DEFLATE
+}
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.backend.historytree;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.linuxtools.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
+import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
+
+/**
+ * History Tree backend which splits the attribute (quark) space into several
+ * partitions. Each partition is stored in its own History Tree file, and is
+ * built by its own thread (using a {@link ThreadedHistoryTreeBackend}), so
+ * that the construction of a state history with many attributes can make use
+ * of more than one core.
+ *
+ * The attribute quark determines the partition in which an interval is stored,
+ * so that all the intervals of one given attribute are always found in the same
+ * tree. Single queries are then sent to only one partition, and full queries
+ * are merged from all of them.
+ *
+ * The first partition uses the file name that was passed to the constructor.
+ * It is also the one that will contain the attribute tree. The other partitions
+ * use that file name followed by a ".partN" suffix.
+ *
+ * @since 3.1
+ */
+public final class PartitionedHistoryTreeBackend implements IStateHistoryBackend {
+
+    private static final String PARTITION_SUFFIX = ".part"; //$NON-NLS-1$
+
+    /* The sub-backends, index == quark % nbPartitions */
+    private final HistoryTreeBackend[] partitions;
+
+    /**
+     * New state history constructor
+     *
+     * @param newStateFile
+     *            The name of the history file that will be created. Should end
+     *            in ".ht". Other partitions will use this name as prefix.
+     * @param blockSize
+     *            The size of the blocks in the files
+     * @param maxChildren
+     *            The maximum number of children allowed for each core node
+     * @param startTime
+     *            The earliest timestamp stored in the history
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param queueSize
+     *            The size of the interval insertion queue of each partition.
+     *            2000 - 10000 usually works well
+     * @param nbPartitions
+     *            The number of partitions (and of building threads) to use
+     * @throws IOException
+     *             If there was a problem opening the history files for writing
+     */
+    public PartitionedHistoryTreeBackend(File newStateFile, int blockSize,
+            int maxChildren, long startTime, int providerVersion,
+            int queueSize, int nbPartitions) throws IOException {
+        if (nbPartitions < 1) {
+            throw new IllegalArgumentException();
+        }
+        /*
+         * Delete leftover partitions of a previous history that had more of
+         * them, so they do not get picked up when reopening this one.
+         */
+        int extra = nbPartitions;
+        while (getPartitionFile(newStateFile, extra).exists()) {
+            if (!getPartitionFile(newStateFile, extra).delete()) {
+                throw new IOException("Cannot delete stale partition file " + //$NON-NLS-1$
+                        getPartitionFile(newStateFile, extra).getName());
+            }
+            extra++;
+        }
+
+        partitions = new HistoryTreeBackend[nbPartitions];
+        try {
+            for (int i = 0; i < nbPartitions; i++) {
+                partitions[i] = new ThreadedHistoryTreeBackend(getPartitionFile(newStateFile, i),
+                        blockSize, maxChildren, startTime, providerVersion, queueSize);
+            }
+        } catch (IOException e) {
+            /* Stop the threads and delete the files we might have started */
+            dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * New State History constructor. This version provides default values for
+     * blockSize and maxChildren.
+     *
+     * @param newStateFile
+     *            The name of the history file that will be created. Should end
+     *            in ".ht". Other partitions will use this name as prefix.
+     * @param startTime
+     *            The earliest timestamp stored in the history
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param queueSize
+     *            The size of the interval insertion queue of each partition.
+     *            2000 - 10000 usually works well
+     * @param nbPartitions
+     *            The number of partitions (and of building threads) to use
+     * @throws IOException
+     *             If there was a problem opening the history files for writing
+     */
+    public PartitionedHistoryTreeBackend(File newStateFile, long startTime,
+            int providerVersion, int queueSize, int nbPartitions) throws IOException {
+        this(newStateFile, 64 * 1024, 50, startTime, providerVersion, queueSize, nbPartitions);
+    }
+
+    /**
+     * Existing history constructor. Use this to open an existing partitioned
+     * history. The number of partitions is determined by the files found on
+     * disk.
+     *
+     * @param existingStateFile
+     *            Filename/location of the first partition of the history
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @throws IOException
+     *             If we can't read one of the files, if they don't exist, are
+     *             not recognized, or if the version of a file does not match
+     *             the expected providerVersion.
+     */
+    public PartitionedHistoryTreeBackend(File existingStateFile, int providerVersion)
+            throws IOException {
+        int nbPartitions = 0;
+        while (getPartitionFile(existingStateFile, nbPartitions).exists()) {
+            nbPartitions++;
+        }
+        if (nbPartitions == 0) {
+            throw new IOException("Selected state file does not exist"); //$NON-NLS-1$
+        }
+
+        partitions = new HistoryTreeBackend[nbPartitions];
+        try {
+            for (int i = 0; i < nbPartitions; i++) {
+                partitions[i] = new HistoryTreeBackend(getPartitionFile(existingStateFile, i), providerVersion);
+            }
+        } catch (IOException e) {
+            dispose();
+            throw e;
+        }
+
+        /*
+         * All partitions were closed with the same end time, otherwise the
+         * files come from different runs and cannot be used together.
+         */
+        for (HistoryTreeBackend partition : partitions) {
+            if (partition.getStartTime() != partitions[0].getStartTime() ||
+                    partition.getEndTime() != partitions[0].getEndTime()) {
+                dispose();
+                throw new IOException("Inconsistent time ranges in the " + //$NON-NLS-1$
+                        "history partitions, they might be corrupted."); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Get the file used to store one partition of a history.
+     *
+     * @param stateFile
+     *            The main history file, which is also the file of the first
+     *            partition
+     * @param index
+     *            The index of the partition
+     * @return The file of this partition
+     */
+    public static File getPartitionFile(File stateFile, int index) {
+        if (index == 0) {
+            return stateFile;
+        }
+        return new File(stateFile.getParentFile(), stateFile.getName() + PARTITION_SUFFIX + index);
+    }
+
+    /**
+     * Get the number of partitions used by this backend.
+     *
+     * @return The number of partitions
+     */
+    public int getNbPartitions() {
+        return partitions.length;
+    }
+
+    private HistoryTreeBackend getPartition(int quark) {
+        return partitions[quark % partitions.length];
+    }
+
+    // ------------------------------------------------------------------------
+    // IStateHistoryBackend
+    // ------------------------------------------------------------------------
+
+    @Override
+    public long getStartTime() {
+        return partitions[0].getStartTime();
+    }
+
+    @Override
+    public long getEndTime() {
+        long ret = Long.MIN_VALUE;
+        for (HistoryTreeBackend partition : partitions) {
+            ret = Math.max(ret, partition.getEndTime());
+        }
+        return ret;
+    }
+
+    @Override
+    public void insertPastState(long stateStartTime, long stateEndTime,
+            int quark, ITmfStateValue value) throws TimeRangeException {
+        getPartition(quark).insertPastState(stateStartTime, stateEndTime, quark, value);
+    }
+
+    @Override
+    public void finishedBuilding(long endTime) throws TimeRangeException {
+        /*
+         * Send the poison pill to every thread first, so that they can all
+         * close their trees at the same time. finishedBuilding() below will
+         * then only wait for each of them.
+         */
+        for (HistoryTreeBackend partition : partitions) {
+            ((ThreadedHistoryTreeBackend) partition).requestStop(endTime);
+        }
+        for (HistoryTreeBackend partition : partitions) {
+            partition.finishedBuilding(endTime);
+        }
+    }
+
+    @Override
+    public FileInputStream supplyAttributeTreeReader() {
+        return partitions[0].supplyAttributeTreeReader();
+    }
+
+    @Override
+    public File supplyAttributeTreeWriterFile() {
+        return partitions[0].supplyAttributeTreeWriterFile();
+    }
+
+    @Override
+    public long supplyAttributeTreeWriterFilePosition() {
+        return partitions[0].supplyAttributeTreeWriterFilePosition();
+    }
+
+    @Override
+    public void removeFiles() {
+        for (HistoryTreeBackend partition : partitions) {
+            if (partition != null) {
+                partition.removeFiles();
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (HistoryTreeBackend partition : partitions) {
+            if (partition != null) {
+                partition.dispose();
+            }
+        }
+    }
+
+    @Override
+    public void doQuery(List<ITmfStateInterval> currentStateInfo, long t)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (!checkValidTime(t)) {
+            throw new TimeRangeException();
+        }
+
+        /*
+         * Every partition only writes the entries of the quarks it contains.
+         * While building, some partitions may not have reached 't' yet, the
+         * transient state will provide the information for those.
+         */
+        for (HistoryTreeBackend partition : partitions) {
+            if (partition.checkValidTime(t)) {
+                partition.doQuery(currentStateInfo, t);
+            }
+        }
+    }
+
+    @Override
+    public ITmfStateInterval doSingularQuery(long t, int attributeQuark)
+            throws TimeRangeException, StateSystemDisposedException {
+        return getPartition(attributeQuark).doSingularQuery(t, attributeQuark);
+    }
+
+    @Override
+    public void doRangeQuery(Collection<Integer> quarks, long t1, long t2,
+            IProgressMonitor monitor, ITmfStateIntervalHandler handler)
+            throws StateSystemDisposedException {
+        /* Send each partition only the quarks it contains */
+        List<List<Integer>> quarksPerPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            quarksPerPartition.add(new ArrayList<Integer>());
+        }
+        for (Integer quark : quarks) {
+            quarksPerPartition.get(quark % partitions.length).add(quark);
+        }
+
+        for (int i = 0; i < partitions.length; i++) {
+            List<Integer> partitionQuarks = quarksPerPartition.get(i);
+            /*
+             * While building, a partition may not have reached t1 yet, the
+             * transient state will provide the information for it.
+             */
+            if (!partitionQuarks.isEmpty() && partitions[i].checkValidTime(t1)) {
+                partitions[i].doRangeQuery(partitionQuarks, t1, t2, monitor, handler);
+            }
+        }
+    }
+
+    @Override
+    public boolean checkValidTime(long t) {
+        return (t >= getStartTime() && t <= getEndTime());
+    }
+
+    /**
+     * Return the total size of the history files
+     *
+     * @return The current size of all the partition files, in bytes
+     */
+    public long getFileSize() {
+        long ret = 0;
+        for (HistoryTreeBackend partition : partitions) {
+            ret += partition.getFileSize();
+        }
+        return ret;
+    }
+
+    @Override
+    public void debugPrint(PrintWriter writer) {
+        /* Only used for debugging, shouldn't be externalized */
+        for (int i = 0; i < partitions.length; i++) {
+            writer.println("Partition #" + i + ':'); //$NON-NLS-1$
+            partitions[i].debugPrint(writer);
+        }
+    }
+}
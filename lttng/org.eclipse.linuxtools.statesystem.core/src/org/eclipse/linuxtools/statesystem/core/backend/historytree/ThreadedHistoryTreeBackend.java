@@ -35,6 +35,7 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
 
     private BlockingQueue<HTInterval> intervalQueue;
     private final Thread shtThread;
+    private boolean stopRequested = false;
 
     /**
      * New state history constructor
@@ -64,7 +65,40 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
     public ThreadedHistoryTreeBackend(File newStateFile, int blockSize,
             int maxChildren, long startTime, int providerVersion, int queueSize)
                     throws IOException {
-        super(newStateFile, blockSize, maxChildren, providerVersion, startTime);
+        this(newStateFile, blockSize, maxChildren, startTime, providerVersion,
+                queueSize, HistoryTreeCompression.NONE);
+    }
+
+    /**
+     * New state history constructor, for a file whose nodes will be
+     * compressed.
+     *
+     * @param newStateFile
+     *            The name of the history file that will be created. Should end
+     *            in ".ht"
+     * @param blockSize
+     *            The size of the blocks in the file
+     * @param maxChildren
+     *            The maximum number of children allowed for each core node
+     * @param startTime
+     *            The earliest timestamp stored in the history
+     * @param providerVersion
+     *            Version of of the state provider. We will only try to reopen
+     *            existing files if this version matches the one in the
+     *            framework.
+     * @param queueSize
+     *            The size of the interval insertion queue. 2000 - 10000 usually
+     *            works well
+     * @param compression
+     *            The compression to use for the nodes of the file
+     * @throws IOException
+     *             If there was a problem opening the history file for writing
+     * @since 3.1
+     */
+    public ThreadedHistoryTreeBackend(File newStateFile, int blockSize,
+            int maxChildren, long startTime, int providerVersion, int queueSize,
+            HistoryTreeCompression compression) throws IOException {
+        super(newStateFile, blockSize, maxChildren, providerVersion, startTime, compression);
 
         intervalQueue = new ArrayBlockingQueue<>(queueSize);
         shtThread = new Thread(this, "History Tree Thread"); //$NON-NLS-1$
@@ -159,10 +193,30 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
          * Send a "poison pill" in the queue, then wait for the HT to finish
          * its closeTree()
          */
+        requestStop(endTime);
+        try {
+            shtThread.join();
+        } catch (InterruptedException e) {
+            Activator.getDefault().logError("State system interrupted", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Send the "poison pill" to the insertion thread without waiting for it to
+     * finish. Used by {@link PartitionedHistoryTreeBackend} to close all its
+     * partitions in parallel.
+     *
+     * @param endTime
+     *            The end time to assign to the history
+     */
+    synchronized void requestStop(long endTime) {
+        if (stopRequested || !shtThread.isAlive()) {
+            return;
+        }
         try {
             HTInterval pill = new HTInterval(-1, endTime, -1, TmfStateValue.nullValue());
             intervalQueue.put(pill);
-            shtThread.join();
+            stopRequested = true;
         } catch (TimeRangeException e) {
             Activator.getDefault().logError("Error closing state system", e); //$NON-NLS-1$
         } catch (InterruptedException e) {
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.statesystem.core.interval;
+
+/**
+ * Callback receiving the state intervals found by a query that can return a
+ * large number of them, like a range query over several attributes. The
+ * intervals are passed as they are found, instead of being accumulated in a
+ * collection first.
+ *
+ * @since 3.1
+ */
+public interface ITmfStateIntervalHandler {
+
+    /**
+     * Handle one interval returned by the query. No particular order is
+     * guaranteed between the calls, either in time or in attributes.
+     *
+     * @param interval
+     *            The state interval
+     */
+    void handleInterval(ITmfStateInterval interval);
+}
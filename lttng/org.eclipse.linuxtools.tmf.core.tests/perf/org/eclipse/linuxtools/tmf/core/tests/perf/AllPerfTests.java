@@ -24,6 +24,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        org.eclipse.linuxtools.tmf.core.tests.perf.experiment.AllPerfTests.class,
         org.eclipse.linuxtools.tmf.core.tests.perf.synchronization.AllPerfTests.class
 })
 public class AllPerfTests {
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.perf.experiment;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ * Performance tests for the experiments
+ */
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        ExperimentMergeBenchmark.class
+})
+public class AllPerfTests {
+
+}
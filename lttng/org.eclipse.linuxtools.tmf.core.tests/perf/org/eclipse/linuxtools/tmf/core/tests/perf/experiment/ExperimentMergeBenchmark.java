@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.perf.experiment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfExperiment;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfSyntheticTraceStub;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.junit.Test;
+
+/**
+ * Benchmark of the merge of the events of the traces of an experiment, with
+ * in-memory traces so that only the merge is measured.
+ */
+public class ExperimentMergeBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.linuxtools#Experiment merge#";
+    private static final String TEST_SUMMARY = "Experiment merge: ";
+
+    /** Total number of events read from each experiment */
+    private static final int NB_EVENTS = 1000000;
+    private static final int LOOP_COUNT = 10;
+
+    /** Number of consecutive events of a trace in the bursty experiments */
+    private static final int BURST_SIZE = 100;
+
+    /**
+     * Test the merge of traces whose events alternate
+     */
+    @Test
+    public void testInterleaved() {
+        doMergeRun("1 trace, interleaved", 1, 1);
+        doMergeRun("16 traces, interleaved", 16, 1);
+        doMergeRun("256 traces, interleaved", 256, 1);
+    }
+
+    /**
+     * Test the merge of traces whose events come in bursts
+     */
+    @Test
+    public void testBursts() {
+        doMergeRun("16 traces, bursts", 16, BURST_SIZE);
+        doMergeRun("256 traces, bursts", 256, BURST_SIZE);
+    }
+
+    private static TmfExperiment createExperiment(int nbTraces, int burstSize) throws TmfTraceException {
+        int nbEvents = NB_EVENTS / nbTraces;
+        ITmfTrace[] traces = new ITmfTrace[nbTraces];
+        for (int i = 0; i < nbTraces; i++) {
+            /* Trace i has the events of the bursts i, i + nbTraces, ... */
+            long[] timestamps = new long[nbEvents];
+            for (int j = 0; j < nbEvents; j++) {
+                long burst = (long) (j / burstSize) * nbTraces + i;
+                timestamps[j] = burst * burstSize + j % burstSize;
+            }
+            traces[i] = new TmfSyntheticTraceStub("trace" + i, timestamps);
+        }
+        return new TmfExperiment(ITmfEvent.class, "experiment", traces);
+    }
+
+    private static void doMergeRun(String testName, int nbTraces, int burstSize) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + testName);
+        perf.tagAsSummary(pm, TEST_SUMMARY + testName, Dimension.CPU_TIME);
+
+        for (int x = 0; x < LOOP_COUNT; x++) {
+            TmfExperiment experiment = null;
+            try {
+                experiment = createExperiment(nbTraces, burstSize);
+            } catch (TmfTraceException e) {
+                fail(e.getMessage());
+                return;
+            }
+            pm.start();
+            ITmfContext context = experiment.seekEvent((ITmfLocation) null);
+            long nbRead = 0;
+            while (experiment.getNext(context) != null) {
+                nbRead++;
+            }
+            pm.stop();
+            assertEquals((NB_EVENTS / nbTraces) * nbTraces, nbRead);
+            context.dispose();
+            experiment.dispose();
+        }
+        pm.commit();
+    }
+}
@@ -25,7 +25,8 @@ import org.junit.runners.Suite;
         AnalysisModuleHelperTest.class,
         AnalysisParameterProviderTest.class,
         AnalysisRequirementTest.class,
-        AnalysisRequirementHelperTest.class
+        AnalysisRequirementHelperTest.class,
+        AnalysisSharedScanTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.linuxtools.tmf.core.analysis.ISharedScanAnalysisModule;
+import org.eclipse.linuxtools.tmf.core.analysis.TmfAbstractAnalysisModule;
+import org.eclipse.linuxtools.tmf.core.analysis.TmfAnalysisManager;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfEmptyTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the shared scans of the traces by their analysis modules
+ */
+public class AnalysisSharedScanTest {
+
+    private static final int NB_EVENTS = 1000;
+
+    /**
+     * Trace generating events, and counting how many it read
+     */
+    private static class CountingTraceStub extends TmfEmptyTraceStub {
+
+        private final AtomicInteger fNbRead = new AtomicInteger();
+
+        CountingTraceStub() {
+            super();
+            init("CountingTraceStub", ITmfEvent.class);
+        }
+
+        @Override
+        public synchronized ITmfContext armRequest(ITmfEventRequest request) {
+            return new TmfContext(null, 0);
+        }
+
+        @Override
+        public synchronized ITmfEvent getNext(ITmfContext context) {
+            long rank = context.getRank();
+            if (rank >= NB_EVENTS) {
+                return null;
+            }
+            context.increaseRank();
+            fNbRead.incrementAndGet();
+            return new TmfEvent(this, rank, new TmfTimestamp(rank), null, null, null, null);
+        }
+    }
+
+    /**
+     * Module taking part in the shared scans, it is never scheduled here
+     */
+    private static class SharedScanModuleStub extends TmfAbstractAnalysisModule
+            implements ISharedScanAnalysisModule {
+
+        @Override
+        protected boolean executeAnalysis(IProgressMonitor monitor) {
+            return true;
+        }
+
+        @Override
+        protected void canceling() {
+        }
+    }
+
+    private CountingTraceStub fTrace;
+
+    /**
+     * Create the trace
+     */
+    @Before
+    public void setUp() {
+        fTrace = new CountingTraceStub();
+    }
+
+    /**
+     * Dispose the trace
+     */
+    @After
+    public void tearDown() {
+        TmfAnalysisManager.setSharedScanEnabled(true);
+        fTrace.dispose();
+    }
+
+    private static TmfEventRequest newRequest() {
+        return new TmfEventRequest(ITmfEvent.class, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND) {
+        };
+    }
+
+    /**
+     * Test that the requests are held until all the modules are ready, and
+     * that the trace is then read only once for all of them
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testSharedScan() throws InterruptedException {
+        SharedScanModuleStub module1 = new SharedScanModuleStub();
+        SharedScanModuleStub module2 = new SharedScanModuleStub();
+        TmfAnalysisManager.joinSharedScan(fTrace, module1);
+        TmfAnalysisManager.joinSharedScan(fTrace, module2);
+
+        TmfEventRequest request1 = newRequest();
+        fTrace.sendRequest(request1);
+        TmfAnalysisManager.sharedScanReady(fTrace, module1);
+
+        /* Module 2 is not ready, the request is held */
+        Thread.sleep(200);
+        assertFalse(request1.isRunning());
+        assertFalse(request1.isCompleted());
+
+        TmfEventRequest request2 = newRequest();
+        fTrace.sendRequest(request2);
+        TmfAnalysisManager.sharedScanReady(fTrace, module2);
+
+        request1.waitForCompletion();
+        request2.waitForCompletion();
+        assertEquals(NB_EVENTS, request1.getNbRead());
+        assertEquals(NB_EVENTS, request2.getNbRead());
+        assertEquals(NB_EVENTS, fTrace.fNbRead.get());
+    }
+
+    /**
+     * Test that being ready twice, or without having joined, has no effect
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testReadyNotJoined() throws InterruptedException {
+        SharedScanModuleStub module1 = new SharedScanModuleStub();
+        SharedScanModuleStub module2 = new SharedScanModuleStub();
+        TmfAnalysisManager.sharedScanReady(fTrace, module1);
+
+        TmfAnalysisManager.joinSharedScan(fTrace, module1);
+        TmfAnalysisManager.joinSharedScan(fTrace, module2);
+        TmfEventRequest request = newRequest();
+        fTrace.sendRequest(request);
+        TmfAnalysisManager.sharedScanReady(fTrace, module1);
+        TmfAnalysisManager.sharedScanReady(fTrace, module1);
+
+        Thread.sleep(200);
+        assertFalse(request.isCompleted());
+
+        TmfAnalysisManager.sharedScanReady(fTrace, module2);
+        request.waitForCompletion();
+        assertTrue(request.isCompleted());
+        assertEquals(NB_EVENTS, request.getNbRead());
+    }
+
+    /**
+     * Test that the requests are not held when the shared scans are disabled
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testDisabled() throws InterruptedException {
+        TmfAnalysisManager.setSharedScanEnabled(false);
+        assertFalse(TmfAnalysisManager.isSharedScanEnabled());
+
+        SharedScanModuleStub module = new SharedScanModuleStub();
+        TmfAnalysisManager.joinSharedScan(fTrace, module);
+        TmfEventRequest request = newRequest();
+        fTrace.sendRequest(request);
+
+        request.waitForCompletion();
+        assertEquals(NB_EVENTS, request.getNbRead());
+        TmfAnalysisManager.sharedScanReady(fTrace, module);
+    }
+}
@@ -259,6 +259,31 @@ public class TmfTimeRangeTest {
         assertFalse("contains (high value)", range.contains(new TmfTimestamp(12351)));
     }
 
+    @Test
+    public void testContainsNanos() {
+        final TmfTimeRange range = new TmfTimeRange(new TmfTimestamp(12345, ITmfTimestamp.NANOSECOND_SCALE),
+                new TmfTimestamp(12350, ITmfTimestamp.NANOSECOND_SCALE));
+
+        assertTrue("contains (lower bound)", range.contains(12345));
+        assertTrue("contains (higher bound)", range.contains(12350));
+        assertFalse("contains (low value)", range.contains(12344));
+        assertFalse("contains (high value)", range.contains(12351));
+        assertTrue("contains (other scale)", range.contains(new TmfTimestamp(12346000, -12)));
+        assertFalse("contains (other scale)", range.contains(new TmfTimestamp(12, -6)));
+        assertTrue("contains (precision)", range.contains(new TmfTimestamp(12352, ITmfTimestamp.NANOSECOND_SCALE, 2)));
+
+        final TmfTimeRange open = new TmfTimeRange(TmfTimestamp.BIG_BANG, new TmfTimestamp(12350, ITmfTimestamp.NANOSECOND_SCALE));
+        assertTrue("contains (big bang)", open.contains(Long.MIN_VALUE));
+        assertFalse("contains (big bang)", open.contains(12351));
+
+        final TmfTimeRange seconds = new TmfTimeRange(new TmfTimestamp(1), new TmfTimestamp(2));
+        assertTrue("contains (seconds)", seconds.contains(1500000000L));
+        assertFalse("contains (seconds)", seconds.contains(999999999L));
+
+        assertTrue("contains (eternity)", TmfTimeRange.ETERNITY.contains(Long.MAX_VALUE));
+        assertFalse("contains (null range)", TmfTimeRange.NULL_RANGE.contains(0));
+    }
+
     @Test
     public void testContainsRange() {
         final ITmfTimestamp ts1 = new TmfTimestamp(10);
@@ -594,6 +594,39 @@ public class TmfTimestampTest {
         assertTrue("CompareTo", ts0.compareTo(ts0b, false) == -1);
     }
 
+    @Test
+    public void testCompareToFarApart() {
+        final ITmfTimestamp low = new TmfTimestamp(-5000000000000000000L, ITmfTimestamp.NANOSECOND_SCALE);
+        final ITmfTimestamp high = new TmfTimestamp(5000000000000000000L, ITmfTimestamp.NANOSECOND_SCALE);
+
+        assertTrue("CompareTo", low.compareTo(high, false) < 0);
+        assertTrue("CompareTo", high.compareTo(low, false) > 0);
+        assertTrue("CompareTo", low.compareTo(high, true) < 0);
+    }
+
+    // ------------------------------------------------------------------------
+    // toNanos
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testToNanos() {
+        assertEquals("toNanos", 1234, TmfTimestamp.toNanos(new TmfTimestamp(1234, ITmfTimestamp.NANOSECOND_SCALE)));
+        assertEquals("toNanos", 1234000000, TmfTimestamp.toNanos(new TmfTimestamp(1234, ITmfTimestamp.MILLISECOND_SCALE)));
+        assertEquals("toNanos", 12, TmfTimestamp.toNanos(new TmfTimestamp(12345, -12)));
+        assertEquals("toNanos", Long.MIN_VALUE, TmfTimestamp.toNanos(TmfTimestamp.BIG_BANG));
+        assertEquals("toNanos", Long.MAX_VALUE, TmfTimestamp.toNanos(TmfTimestamp.BIG_CRUNCH));
+
+        final ITmfTimestamp[] timestamps = { ts0, ts1, ts2, ts3, ts4, ts5, ts6 };
+        for (ITmfTimestamp ts : timestamps) {
+            assertEquals("toNanos", ts.normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue(), TmfTimestamp.toNanos(ts));
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testToNanosLargeScale() {
+        TmfTimestamp.toNanos(new TmfTimestamp(1, 10));
+    }
+
     // ------------------------------------------------------------------------
     // getDelta
     // ------------------------------------------------------------------------
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.event.matching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.matching.IMatchProcessingUnit;
+import org.eclipse.linuxtools.tmf.core.event.matching.ITmfNetworkMatchDefinition;
+import org.eclipse.linuxtools.tmf.core.event.matching.TmfEventDependency;
+import org.eclipse.linuxtools.tmf.core.event.matching.TmfEventMatching;
+import org.eclipse.linuxtools.tmf.core.event.matching.TmfEventMatching.MatchingType;
+import org.eclipse.linuxtools.tmf.core.event.matching.TmfNetworkEventMatching;
+import org.eclipse.linuxtools.tmf.core.event.matching.TmfNetworkEventMatching.Direction;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfSyntheticTraceStub;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the {@link TmfNetworkEventMatching} class, with a sender trace whose
+ * packets are sent every microsecond and a receiver trace that receives them
+ * some time later, except the lost ones.
+ */
+public class TmfNetworkEventMatchingTest {
+
+    private static final String SENDER = "sender";
+    private static final String RECEIVER = "receiver";
+
+    private static final int NB_PACKETS = 10000;
+    private static final long PERIOD = 1000;
+    private static final long LATENCY = 300;
+    /** One packet out of LOST_RATE is lost */
+    private static final int LOST_RATE = 10;
+
+    /**
+     * Match definition for the synthetic traces, whose packets are identified
+     * by their send time
+     */
+    private static class SyntheticMatchDefinition implements ITmfNetworkMatchDefinition {
+
+        @Override
+        public List<Object> getUniqueField(ITmfEvent event) {
+            return Collections.<Object> singletonList(event.getTimestamp().getValue() / PERIOD);
+        }
+
+        @Override
+        public boolean canMatchTrace(ITmfTrace trace) {
+            return trace instanceof TmfSyntheticTraceStub;
+        }
+
+        @Override
+        public MatchingType[] getApplicableMatchingTypes() {
+            return new MatchingType[] { MatchingType.NETWORK };
+        }
+
+        @Override
+        public Direction getDirection(ITmfEvent event) {
+            return event.getTrace().getName().equals(SENDER) ? Direction.OUT : Direction.IN;
+        }
+    }
+
+    /**
+     * Processing unit keeping the matches
+     */
+    private static class MatchList implements IMatchProcessingUnit {
+        private final List<TmfEventDependency> fMatches = new ArrayList<>();
+
+        @Override
+        public void init(Collection<ITmfTrace> traces) {
+            fMatches.clear();
+        }
+
+        @Override
+        public void addMatch(TmfEventDependency match) {
+            fMatches.add(match);
+        }
+
+        @Override
+        public void matchingEnded() {
+        }
+
+        @Override
+        public int countMatches() {
+            return fMatches.size();
+        }
+    }
+
+    /**
+     * Register the match definition of the synthetic traces
+     */
+    @BeforeClass
+    public static void setUp() {
+        TmfEventMatching.registerMatchObject(new SyntheticMatchDefinition());
+    }
+
+    private static TmfNetworkEventMatching createMatching(MatchList matches) throws TmfTraceException {
+        long[] sent = new long[NB_PACKETS];
+        long[] received = new long[NB_PACKETS - NB_PACKETS / LOST_RATE];
+        int nbReceived = 0;
+        for (int i = 0; i < NB_PACKETS; i++) {
+            sent[i] = i * PERIOD;
+            if (i % LOST_RATE != LOST_RATE - 1) {
+                received[nbReceived++] = i * PERIOD + LATENCY;
+            }
+        }
+        List<ITmfTrace> traces = Arrays.<ITmfTrace> asList(
+                new TmfSyntheticTraceStub(SENDER, sent),
+                new TmfSyntheticTraceStub(RECEIVER, received));
+        return new TmfNetworkEventMatching(traces, matches);
+    }
+
+    /**
+     * Test the matches and the metrics without expiry of the unmatched events
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testMatches() throws TmfTraceException {
+        MatchList matches = new MatchList();
+        TmfNetworkEventMatching matching = createMatching(matches);
+        assertTrue(matching.matchEvents());
+
+        int nbLost = NB_PACKETS / LOST_RATE;
+        assertEquals(NB_PACKETS - nbLost, matches.countMatches());
+        for (TmfEventDependency match : matches.fMatches) {
+            assertEquals(SENDER, match.getSourceEvent().getTrace().getName());
+            assertEquals(RECEIVER, match.getDestinationEvent().getTrace().getName());
+            assertEquals(LATENCY, match.getDestinationEvent().getTimestamp().getValue()
+                    - match.getSourceEvent().getTimestamp().getValue());
+        }
+
+        assertEquals(NB_PACKETS - nbLost, matching.getNbMatches());
+        assertEquals(2 * NB_PACKETS - nbLost, matching.getNbNetworkEvents());
+        assertEquals(nbLost, matching.getNbUnmatched());
+        assertEquals(nbLost, matching.getMaxUnmatched());
+        assertEquals(0, matching.getNbExpired());
+        assertEquals(2.0 * (NB_PACKETS - nbLost) / (2 * NB_PACKETS - nbLost), matching.getMatchRate(), 1e-9);
+        assertTrue(matching.toString().contains("Trace 0:"));
+        assertTrue(matching.toString().contains("  " + nbLost + " unmatched outgoing events"));
+    }
+
+    /**
+     * Test that the lost packets expire without losing any match
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testExpiry() throws TmfTraceException {
+        MatchList matches = new MatchList();
+        TmfNetworkEventMatching matching = createMatching(matches);
+        long window = 20 * PERIOD;
+        matching.setExpiryWindow(window);
+        assertEquals(window, matching.getExpiryWindow());
+        assertTrue(matching.matchEvents());
+
+        int nbLost = NB_PACKETS / LOST_RATE;
+        assertEquals(NB_PACKETS - nbLost, matches.countMatches());
+        assertEquals(nbLost, matching.getNbExpired() + matching.getNbUnmatched());
+        /* At most one and a half window of lost packets waits at once */
+        assertTrue(matching.getMaxUnmatched() <= (3 * window / 2) / (PERIOD * LOST_RATE) + 1);
+        assertTrue(matching.getMemoryUsage() > 0);
+    }
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.filter;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ * Test suite for org.eclipse.linuxtools.tmf.core.tests.filter
+ */
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+    TmfFilterCompilerTest.class,
+    TmfFilterPushdownTest.class
+})
+public class AllTests {
+
+}
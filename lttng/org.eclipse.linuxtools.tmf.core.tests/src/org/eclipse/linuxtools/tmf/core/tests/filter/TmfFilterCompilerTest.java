@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventField;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventType;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEventField;
+import org.eclipse.linuxtools.tmf.core.event.TmfEventType;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterCompiler;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterContainsNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterEventTypeNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterMatchesNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test that the filters compiled by {@link TmfFilterCompiler} give the same
+ * results as the filter trees they are compiled from.
+ */
+public class TmfFilterCompilerTest {
+
+    private static final String[] NAMES = { "foo", "FooBar", "bar", "baz", "" };
+    private static final ITmfEventType TYPE_A = new TmfEventType("context", "typeA", null);
+    private static final ITmfEventType TYPE_B = new TmfEventType("context", "typeB", null);
+
+    private static final List<ITmfEvent> fEvents = new ArrayList<>();
+
+    /**
+     * Event of another class, to test the event type nodes
+     */
+    private static class OtherEvent extends TmfEvent {
+        OtherEvent(long time, ITmfEventType type, ITmfEventField content) {
+            super(null, new TmfTimestamp(time, ITmfTimestamp.NANOSECOND_SCALE), "source", type, content, "reference");
+        }
+    }
+
+    /**
+     * Build the events
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        for (int i = 0; i < 200; i++) {
+            ITmfEventField sub = new TmfEventField("sub", null,
+                    new ITmfEventField[] { new TmfEventField("x", String.valueOf(i % 10), null) });
+            ITmfEventField[] fields;
+            if (i % 7 == 0) {
+                /* Some events do not have all the fields */
+                fields = new ITmfEventField[] { new TmfEventField("name", NAMES[i % NAMES.length], null) };
+            } else {
+                fields = new ITmfEventField[] {
+                        new TmfEventField("pid", Long.valueOf(i * 3), null),
+                        new TmfEventField("name", NAMES[i % NAMES.length], null),
+                        new TmfEventField("text", String.valueOf(i), null),
+                        sub };
+            }
+            ITmfEventField content = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null, fields);
+            ITmfEventType type = (i % 3 == 0 ? TYPE_A : TYPE_B);
+            if (i % 2 == 0) {
+                fEvents.add(new TmfEvent(null, new TmfTimestamp(i, ITmfTimestamp.NANOSECOND_SCALE), "source", type, content, "reference"));
+            } else {
+                fEvents.add(new OtherEvent(i, type, content));
+            }
+        }
+    }
+
+    /**
+     * Check that the compiled filter gives the same result as the tree for
+     * all the events
+     *
+     * @return The number of matching events
+     */
+    private static int checkFilter(TmfFilterRootNode root) {
+        ITmfFilter compiled = TmfFilterCompiler.compile(root);
+        int nbMatches = 0;
+        for (ITmfEvent event : fEvents) {
+            boolean expected = root.matches(event);
+            assertEquals(root.toString() + " " + event.getTimestamp().getValue(), expected, compiled.matches(event));
+            if (expected) {
+                nbMatches++;
+            }
+        }
+        return nbMatches;
+    }
+
+    private static void checkSomeMatch(TmfFilterRootNode root) {
+        int nbMatches = checkFilter(root);
+        assertTrue(nbMatches > 0);
+        assertTrue(nbMatches < fEvents.size());
+    }
+
+    private static TmfFilterCompareNode compare(TmfFilterRootNode parent, String field,
+            TmfFilterCompareNode.Type type, int result, String value) {
+        TmfFilterCompareNode node = new TmfFilterCompareNode(parent);
+        node.setField(field);
+        node.setType(type);
+        node.setResult(result);
+        node.setValue(value);
+        return node;
+    }
+
+    /**
+     * Test an event type node with an "and" node of conditions on content
+     * fields
+     */
+    @Test
+    public void testEventTypeAndFields() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        TmfFilterEventTypeNode typeNode = new TmfFilterEventTypeNode(root);
+        typeNode.setEventType(TmfEvent.class.getCanonicalName());
+        TmfFilterAndNode and = new TmfFilterAndNode(typeNode);
+        TmfFilterCompareNode pid = new TmfFilterCompareNode(and);
+        pid.setField("pid");
+        pid.setType(TmfFilterCompareNode.Type.NUM);
+        pid.setResult(1);
+        pid.setValue("100");
+        TmfFilterContainsNode name = new TmfFilterContainsNode(and);
+        name.setField("name");
+        name.setValue("foo");
+        name.setIgnoreCase(true);
+        checkSomeMatch(root);
+
+        and.setNot(true);
+        checkSomeMatch(root);
+    }
+
+    /**
+     * Test a custom parser event type, "class:type"
+     */
+    @Test
+    public void testCustomEventType() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        TmfFilterEventTypeNode typeNode = new TmfFilterEventTypeNode(root);
+        typeNode.setEventType(OtherEvent.class.getCanonicalName() + ":" + TYPE_B.getName());
+        checkSomeMatch(root);
+    }
+
+    /**
+     * Test an "or" node, with and without negation
+     */
+    @Test
+    public void testOr() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        TmfFilterOrNode or = new TmfFilterOrNode(root);
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(or);
+        equals.setField("name");
+        equals.setValue("bar");
+        TmfFilterMatchesNode matches = new TmfFilterMatchesNode(or);
+        matches.setField("text");
+        matches.setRegex("1.*");
+        checkSomeMatch(root);
+
+        or.setNot(true);
+        checkFilter(root);
+    }
+
+    /**
+     * Test a comparison with the timestamp of the events
+     */
+    @Test
+    public void testTimestampField() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        compare(root, ITmfEvent.EVENT_FIELD_TIMESTAMP, TmfFilterCompareNode.Type.TIMESTAMP, -1, "0.000000050");
+        checkFilter(root);
+    }
+
+    /**
+     * Test the other special fields and the sub-fields
+     */
+    @Test
+    public void testSpecialFields() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        compare(root, ITmfEvent.EVENT_FIELD_TYPE, TmfFilterCompareNode.Type.ALPHA, 0, "typeA");
+        checkSomeMatch(root);
+
+        root = new TmfFilterRootNode();
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(root);
+        equals.setField("/sub/x");
+        equals.setValue("7");
+        checkSomeMatch(root);
+
+        root = new TmfFilterRootNode();
+        TmfFilterContainsNode contains = new TmfFilterContainsNode(root);
+        contains.setField(ITmfEvent.EVENT_FIELD_CONTENT);
+        contains.setValue("FooBar");
+        checkSomeMatch(root);
+    }
+
+    /**
+     * Test comparisons on values that are not numbers, and a constant that
+     * is not a number
+     */
+    @Test
+    public void testInvalidNumbers() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        TmfFilterCompareNode node = compare(root, "name", TmfFilterCompareNode.Type.NUM, 0, "3");
+        node.setNot(true);
+        checkFilter(root);
+
+        root = new TmfFilterRootNode();
+        compare(root, "text", TmfFilterCompareNode.Type.NUM, -1, "abc");
+        ITmfFilter compiled = TmfFilterCompiler.compile(root);
+        for (ITmfEvent event : fEvents) {
+            assertFalse(compiled.matches(event));
+            assertFalse(root.matches(event));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventField;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEventField;
+import org.eclipse.linuxtools.tmf.core.event.TmfEventType;
+import org.eclipse.linuxtools.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterPushdown;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+/**
+ * Test the description of the events that can match a filter tree by
+ * {@link TmfFilterPushdown}
+ */
+public class TmfFilterPushdownTest {
+
+    private static final String[] TYPES = { "sched_switch", "sched_process_fork", "irq_handler_entry" };
+
+    private static TmfFilterEqualsNode addTypeEquals(ITmfFilterTreeNode parent, String type) {
+        TmfFilterEqualsNode node = new TmfFilterEqualsNode(parent);
+        node.setField(ITmfEvent.EVENT_FIELD_TYPE);
+        node.setValue(type);
+        return node;
+    }
+
+    private static TmfFilterCompareNode addCompare(ITmfFilterTreeNode parent, String field, int result, String value) {
+        TmfFilterCompareNode node = new TmfFilterCompareNode(parent);
+        node.setField(field);
+        node.setType(TmfFilterCompareNode.Type.NUM);
+        node.setResult(result);
+        node.setValue(value);
+        return node;
+    }
+
+    /**
+     * Check that all the events matching the filter match the description
+     */
+    private static void checkNecessary(ITmfFilterTreeNode filter, TmfFilterPushdown pushdown) {
+        int matches = 0;
+        for (int i = 0; i < 300; i++) {
+            String type = TYPES[i % TYPES.length];
+            ITmfEventField content = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null,
+                    new ITmfEventField[] { new TmfEventField("pid", Long.valueOf(i - 100), null) });
+            ITmfEvent event = new TmfEvent(null, new TmfTimestamp(i, ITmfTimestamp.NANOSECOND_SCALE),
+                    "source", new TmfEventType("context", type, null), content, "reference");
+            if (!filter.matches(event)) {
+                continue;
+            }
+            matches++;
+            Set<String> types = pushdown.getEventTypes();
+            assertTrue(types == null || types.contains(type));
+            for (Map.Entry<String, Range<Long>> entry : pushdown.getFieldRanges().entrySet()) {
+                assertEquals("pid", entry.getKey());
+                assertTrue(entry.getValue().contains(Long.valueOf(i - 100)));
+            }
+        }
+        assertTrue(matches > 0);
+    }
+
+    /**
+     * Test that a filter without any supported node does not restrict the
+     * events
+     */
+    @Test
+    public void testUnrestricted() {
+        assertTrue(TmfFilterPushdown.create(null, TmfTimeRange.ETERNITY).isUnrestricted());
+
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        TmfFilterEqualsNode equals = addTypeEquals(filter, TYPES[0]);
+        equals.setNot(true);
+        TmfFilterPushdown pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertTrue(pushdown.isUnrestricted());
+        checkNecessary(filter, pushdown);
+
+        equals.setNot(false);
+        equals.setIgnoreCase(true);
+        assertTrue(TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY).isUnrestricted());
+    }
+
+    /**
+     * Test the event types and time range of a simple filter
+     */
+    @Test
+    public void testEventType() {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        addTypeEquals(filter, TYPES[1]);
+        TmfTimeRange range = new TmfTimeRange(new TmfTimestamp(10, ITmfTimestamp.NANOSECOND_SCALE),
+                new TmfTimestamp(20, ITmfTimestamp.NANOSECOND_SCALE));
+        TmfFilterPushdown pushdown = TmfFilterPushdown.create(filter, range);
+        assertFalse(pushdown.isUnrestricted());
+        assertEquals(1, pushdown.getEventTypes().size());
+        assertTrue(pushdown.getEventTypes().contains(TYPES[1]));
+        assertEquals(range, pushdown.getTimeRange());
+        assertTrue(pushdown.getFieldRanges().isEmpty());
+        checkNecessary(filter, pushdown);
+    }
+
+    /**
+     * Test that the event types of an OR are merged, and those of an AND are
+     * intersected
+     */
+    @Test
+    public void testAndOr() {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        TmfFilterOrNode or = new TmfFilterOrNode(filter);
+        addTypeEquals(or, TYPES[0]);
+        addTypeEquals(or, TYPES[1]);
+        TmfFilterPushdown pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertEquals(2, pushdown.getEventTypes().size());
+        checkNecessary(filter, pushdown);
+
+        TmfFilterAndNode and = new TmfFilterAndNode(filter);
+        addTypeEquals(and, TYPES[1]);
+        pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertEquals(1, pushdown.getEventTypes().size());
+        assertTrue(pushdown.getEventTypes().contains(TYPES[1]));
+        checkNecessary(filter, pushdown);
+
+        /* A branch of the OR that is not described matches any type */
+        TmfFilterEqualsNode equals = addTypeEquals(or, TYPES[2]);
+        equals.setNot(true);
+        pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertEquals(1, pushdown.getEventTypes().size());
+        and.setNot(true);
+        pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertNull(pushdown.getEventTypes());
+        checkNecessary(filter, pushdown);
+    }
+
+    /**
+     * Test the ranges of the integer fields
+     */
+    @Test
+    public void testFieldRanges() {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        addCompare(filter, "pid", 1, "-10.5");
+        addCompare(filter, "pid", -1, "50");
+        TmfFilterPushdown pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertNull(pushdown.getEventTypes());
+        Range<Long> range = pushdown.getFieldRanges().get("pid");
+        assertTrue(range.contains(-10L));
+        assertFalse(range.contains(-11L));
+        assertTrue(range.contains(49L));
+        assertFalse(range.contains(50L));
+        checkNecessary(filter, pushdown);
+
+        /* Equality to a constant that is not an integer matches nothing */
+        TmfFilterRootNode equal = new TmfFilterRootNode();
+        addCompare(equal, "pid", 0, "1.5");
+        assertTrue(TmfFilterPushdown.create(equal, TmfTimeRange.ETERNITY).getFieldRanges().get("pid").isEmpty());
+
+        /* Negations, special fields and huge constants are not described */
+        TmfFilterRootNode other = new TmfFilterRootNode();
+        addCompare(other, "pid", 1, "10").setNot(true);
+        addCompare(other, ITmfEvent.EVENT_FIELD_SOURCE, 1, "10");
+        addCompare(other, "pid", -1, "100000000000000000000");
+        assertTrue(TmfFilterPushdown.create(other, TmfTimeRange.ETERNITY).isUnrestricted());
+    }
+
+    /**
+     * Test that only the fields restricted in all the branches of an OR are
+     * restricted
+     */
+    @Test
+    public void testOrFieldRanges() {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        TmfFilterOrNode or = new TmfFilterOrNode(filter);
+        addCompare(or, "pid", -1, "0");
+        addCompare(or, "pid", 1, "100");
+        TmfFilterPushdown pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        Range<Long> range = pushdown.getFieldRanges().get("pid");
+        assertTrue(range.contains(-100L));
+        assertTrue(range.contains(150L));
+        checkNecessary(filter, pushdown);
+
+        addTypeEquals(or, TYPES[0]);
+        pushdown = TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY);
+        assertTrue(pushdown.getFieldRanges().isEmpty());
+        checkNecessary(filter, pushdown);
+    }
+}
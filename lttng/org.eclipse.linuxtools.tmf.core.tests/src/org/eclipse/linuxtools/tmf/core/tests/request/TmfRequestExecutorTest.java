@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.linuxtools.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.linuxtools.internal.tmf.core.request.TmfRequestExecutor;
+import org.eclipse.linuxtools.internal.tmf.core.request.TmfRequestScheduler;
+import org.eclipse.linuxtools.tmf.core.component.TmfEventProvider;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.junit.Test;
+
+/**
+ * Test the scheduling of the requests by the {@link TmfRequestExecutor} and
+ * the {@link TmfRequestScheduler}
+ */
+public class TmfRequestExecutorTest {
+
+    /** Time to read one event, in ms */
+    private static final long EVENT_TIME = 1;
+
+    /**
+     * Provider of events that take some time to read
+     */
+    private static class SlowProvider extends TmfEventProvider {
+
+        @Override
+        public ITmfContext armRequest(ITmfEventRequest request) {
+            return new TmfContext(null, 0);
+        }
+
+        @Override
+        public ITmfEvent getNext(ITmfContext context) {
+            try {
+                Thread.sleep(EVENT_TIME);
+            } catch (InterruptedException e) {
+                return null;
+            }
+            long rank = context.getRank();
+            context.increaseRank();
+            return new TmfEvent(null, rank, new TmfTimestamp(rank), null, null, null, null);
+        }
+    }
+
+    /**
+     * Request keeping track of how many requests are running at the same time
+     */
+    private static class CountingRequest extends TmfEventRequest {
+
+        private final AtomicInteger fRunning;
+        private final AtomicInteger fMaxRunning;
+        private final List<CountingRequest> fCompletionOrder;
+
+        CountingRequest(int nbEvents, ExecutionType type, AtomicInteger running,
+                AtomicInteger maxRunning, List<CountingRequest> completionOrder) {
+            super(ITmfEvent.class, 0, nbEvents, type);
+            fRunning = running;
+            fMaxRunning = maxRunning;
+            fCompletionOrder = completionOrder;
+        }
+
+        @Override
+        public void handleStarted() {
+            super.handleStarted();
+            int running = fRunning.incrementAndGet();
+            int max;
+            do {
+                max = fMaxRunning.get();
+            } while (running > max && !fMaxRunning.compareAndSet(max, running));
+        }
+
+        @Override
+        public void handleCompleted() {
+            fRunning.decrementAndGet();
+            synchronized (fCompletionOrder) {
+                fCompletionOrder.add(this);
+            }
+            super.handleCompleted();
+        }
+    }
+
+    private final AtomicInteger fRunning = new AtomicInteger();
+    private final AtomicInteger fMaxRunning = new AtomicInteger();
+    private final List<CountingRequest> fCompleted = new ArrayList<>();
+
+    private CountingRequest send(TmfRequestExecutor executor, TmfEventProvider provider,
+            int nbEvents, ExecutionType type) {
+        CountingRequest request = new CountingRequest(nbEvents, type, fRunning, fMaxRunning, fCompleted);
+        executor.execute(new TmfEventThread(provider, request));
+        return request;
+    }
+
+    /**
+     * Wait for the threads of the requests to end, which happens right after
+     * the requests are marked as completed
+     */
+    private static void waitForThreads(TmfRequestExecutor executor, int nbRequests) throws InterruptedException {
+        for (int i = 0; i < 100 && executor.getNbCompletedRequests() < nbRequests; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Test that the requests of different providers run at the same time
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testConcurrentRequests() throws InterruptedException {
+        final int nbProviders = 4;
+        TmfRequestScheduler scheduler = new TmfRequestScheduler(nbProviders);
+        List<TmfRequestExecutor> executors = new ArrayList<>();
+        List<CountingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < nbProviders; i++) {
+            TmfRequestExecutor executor = new TmfRequestExecutor(scheduler);
+            executor.init();
+            executors.add(executor);
+            requests.add(send(executor, new SlowProvider(), 20, ExecutionType.BACKGROUND));
+        }
+        for (CountingRequest request : requests) {
+            request.waitForCompletion();
+            assertTrue(request.isCompleted());
+            assertEquals(20, request.getNbRead());
+        }
+        assertTrue(fMaxRunning.get() > 1);
+        assertTrue(fMaxRunning.get() <= nbProviders);
+
+        for (TmfRequestExecutor executor : executors) {
+            waitForThreads(executor, 1);
+            assertEquals(1, executor.getNbCompletedRequests());
+            assertTrue(executor.getTotalExecutionTime() >= 20 * EVENT_TIME * 1000000L);
+            executor.stop();
+            assertTrue(executor.isShutdown());
+        }
+    }
+
+    /**
+     * Test that the number of running requests is bounded, and that the
+     * waiting time of the queued requests is accounted for
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testBoundedRequests() throws InterruptedException {
+        TmfRequestScheduler scheduler = new TmfRequestScheduler(2);
+        TmfRequestExecutor executor = new TmfRequestExecutor(scheduler);
+        executor.init();
+        TmfEventProvider provider = new SlowProvider();
+        List<CountingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(send(executor, provider, 10, ExecutionType.FOREGROUND));
+        }
+        assertTrue(scheduler.getNbRunning() <= 2);
+        for (CountingRequest request : requests) {
+            request.waitForCompletion();
+            assertEquals(10, request.getNbRead());
+        }
+        waitForThreads(executor, 6);
+        assertEquals(6, executor.getNbCompletedRequests());
+        assertTrue(executor.getTotalWaitTime() > 0);
+        assertTrue(executor.getMaxWaitTime() <= executor.getTotalWaitTime());
+        assertEquals(0, scheduler.getNbRunning());
+
+        executor.stop();
+        assertTrue(executor.isTerminated());
+    }
+
+    /**
+     * Test that a foreground request takes the slot of a running background
+     * request
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testForegroundPriority() throws InterruptedException {
+        TmfRequestScheduler scheduler = new TmfRequestScheduler(1);
+        TmfRequestExecutor executor = new TmfRequestExecutor(scheduler);
+        executor.init();
+        TmfEventProvider provider = new SlowProvider();
+
+        CountingRequest background = send(executor, provider, 500, ExecutionType.BACKGROUND);
+        Thread.sleep(20 * EVENT_TIME);
+        CountingRequest foreground = send(executor, provider, 5, ExecutionType.FOREGROUND);
+
+        foreground.waitForCompletion();
+        background.waitForCompletion();
+        assertEquals(500, background.getNbRead());
+        assertEquals(5, foreground.getNbRead());
+        synchronized (fCompleted) {
+            assertEquals(foreground, fCompleted.get(0));
+            assertEquals(background, fCompleted.get(1));
+        }
+        executor.stop();
+    }
+
+    /**
+     * Test that stopping the executor cancels the running and queued requests
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testStop() throws InterruptedException {
+        TmfRequestScheduler scheduler = new TmfRequestScheduler(1);
+        TmfRequestExecutor executor = new TmfRequestExecutor(scheduler);
+        executor.init();
+        TmfEventProvider provider = new SlowProvider();
+
+        CountingRequest running = send(executor, provider, 100000, ExecutionType.BACKGROUND);
+        CountingRequest queued = send(executor, provider, 100000, ExecutionType.BACKGROUND);
+        Thread.sleep(20 * EVENT_TIME);
+        executor.stop();
+
+        running.waitForCompletion();
+        queued.waitForCompletion();
+        assertTrue(running.isCancelled());
+        assertTrue(queued.isCancelled());
+
+        /* New requests are cancelled right away */
+        CountingRequest late = send(executor, provider, 10, ExecutionType.FOREGROUND);
+        late.waitForCompletion();
+        assertTrue(late.isCancelled());
+        waitForThreads(executor, 1);
+        assertTrue(executor.isTerminated());
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.statesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.StateSystemFactory;
+import org.eclipse.linuxtools.statesystem.core.backend.InMemoryBackend;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventType;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEventType;
+import org.eclipse.linuxtools.tmf.core.statesystem.AbstractTmfStateProvider;
+import org.eclipse.linuxtools.tmf.core.statesystem.ITmfStateProvider;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.junit.Test;
+
+/**
+ * Test the hand-off of the events of {@link AbstractTmfStateProvider} to its
+ * event handler's thread
+ */
+public class AbstractTmfStateProviderTest {
+
+    private static final int BATCH_SIZE = 10;
+    private static final ITmfEventType TYPE = new TmfEventType("context", "type", null);
+
+    /**
+     * State provider counting the events it handles
+     */
+    private static class CountingStateProvider extends AbstractTmfStateProvider {
+        private final AtomicLong fCount = new AtomicLong();
+
+        CountingStateProvider() {
+            super(null, TmfEvent.class, "Counting State Provider", BATCH_SIZE);
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public ITmfStateProvider getNewInstance() {
+            return new CountingStateProvider();
+        }
+
+        @Override
+        protected void eventHandle(ITmfEvent event) {
+            fCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Thread sending events to the provider until it is stopped
+     */
+    private static class Producer extends Thread {
+        private final AbstractTmfStateProvider fProvider;
+        private final AtomicLong fCount = new AtomicLong();
+        private volatile boolean fStopped = false;
+        private volatile Throwable fError = null;
+
+        Producer(AbstractTmfStateProvider provider) {
+            fProvider = provider;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long time = 0;
+                while (!fStopped) {
+                    fProvider.processEvent(createEvent(time++));
+                    fCount.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                fError = e;
+            }
+        }
+    }
+
+    private static ITmfEvent createEvent(long time) {
+        return new TmfEvent(null, new TmfTimestamp(time, -9), null, TYPE, null, null);
+    }
+
+    private static ITmfStateSystemBuilder createStateSystem() {
+        return StateSystemFactory.newStateSystem("test", new InMemoryBackend(0));
+    }
+
+    /**
+     * Test that an event sent while the event handler is idle is handled
+     * without waiting for the batch to be full
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test(timeout = 10000)
+    public void testPartialBatch() throws InterruptedException {
+        CountingStateProvider provider = new CountingStateProvider();
+        ITmfStateSystemBuilder ss = createStateSystem();
+        provider.assignTargetStateSystem(ss);
+        provider.processEvent(createEvent(0));
+        while (provider.fCount.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(10);
+        provider.processEvent(createEvent(1));
+        while (provider.fCount.get() == 1) {
+            Thread.sleep(1);
+        }
+        provider.dispose();
+        assertEquals(2, provider.fCount.get());
+        assertTrue(ss.waitUntilBuilt(0));
+    }
+
+    /**
+     * Test disposing of the provider while another thread is still sending
+     * events. The event handler must stop and close the state system, without
+     * blocking the sender.
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test(timeout = 60000)
+    public void testDisposeWhileProcessing() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            CountingStateProvider provider = new CountingStateProvider();
+            ITmfStateSystemBuilder ss = createStateSystem();
+            provider.assignTargetStateSystem(ss);
+            Producer producer = new Producer(provider);
+            producer.start();
+            try {
+                while (provider.fCount.get() < i * 100) {
+                    Thread.sleep(1);
+                }
+                provider.dispose();
+                assertTrue(ss.waitUntilBuilt(0));
+            } finally {
+                producer.fStopped = true;
+                producer.join();
+            }
+            assertNull(producer.fError);
+            assertTrue(provider.fCount.get() <= producer.fCount.get());
+        }
+    }
+}
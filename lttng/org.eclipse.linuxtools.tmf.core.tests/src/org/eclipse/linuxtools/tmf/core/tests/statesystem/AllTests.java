@@ -20,6 +20,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    AbstractTmfStateProviderTest.class,
+    BatchRingBufferTest.class,
     ExperimentStateSystemModuleTest.class,
     StateSystemAnalysisModuleTest.class
 })
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.statesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.linuxtools.internal.tmf.core.statesystem.BatchRingBuffer;
+import org.junit.Test;
+
+/**
+ * Test the queue of {@link BatchRingBuffer}
+ */
+public class BatchRingBufferTest {
+
+    private static final int NB_ELEMENTS = 100000;
+    private static final Long END = Long.valueOf(-1);
+
+    /**
+     * Consumer thread adding up the elements until the end marker
+     */
+    private static class Consumer extends Thread {
+        private final BatchRingBuffer<Long> fQueue;
+        private final AtomicLong fSum = new AtomicLong();
+        private final AtomicLong fCount = new AtomicLong();
+        private volatile long fSlowdown = 0;
+        private volatile Throwable fError = null;
+        private volatile boolean fInOrder = true;
+        private long fLast = -1;
+
+        Consumer(BatchRingBuffer<Long> queue) {
+            fQueue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    int size = fQueue.takeBatch();
+                    for (int i = 0; i < size; i++) {
+                        Long element = fQueue.get(i);
+                        if (element == END) {
+                            fQueue.release();
+                            return;
+                        }
+                        if (element.longValue() != fLast + 1) {
+                            fInOrder = false;
+                        }
+                        fLast = element.longValue();
+                        fSum.addAndGet(element);
+                        fCount.incrementAndGet();
+                    }
+                    if (fSlowdown > 0) {
+                        Thread.sleep(fSlowdown);
+                    }
+                    fQueue.release();
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                fError = e;
+            }
+        }
+    }
+
+    /**
+     * Test that all the elements are received in order
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testTransfer() throws InterruptedException {
+        BatchRingBuffer<Long> queue = new BatchRingBuffer<>(4, 100);
+        Consumer consumer = new Consumer(queue);
+        consumer.start();
+        for (long i = 0; i < NB_ELEMENTS; i++) {
+            queue.put(Long.valueOf(i));
+        }
+        queue.put(END);
+        queue.flush();
+        consumer.join();
+        assertNull(consumer.fError);
+        assertTrue(consumer.fInOrder);
+        assertEquals(NB_ELEMENTS, consumer.fCount.get());
+    }
+
+    /**
+     * Test waiting for the consumer to process all the elements, when the
+     * last batch is not full
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testAwaitEmpty() throws InterruptedException {
+        BatchRingBuffer<Long> queue = new BatchRingBuffer<>(4, 1000);
+        Consumer consumer = new Consumer(queue);
+        consumer.start();
+        long sum = 0;
+        for (long i = 0; i < 1500; i++) {
+            queue.put(Long.valueOf(i));
+            sum += i;
+        }
+        queue.awaitEmpty();
+        assertEquals(1500, consumer.fCount.get());
+        assertEquals(sum, consumer.fSum.get());
+
+        queue.put(END);
+        queue.flush();
+        consumer.join();
+        assertNull(consumer.fError);
+    }
+
+    /**
+     * Test that the producer blocks, and counts the stalls, when the consumer
+     * is slower
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        BatchRingBuffer<Long> queue = new BatchRingBuffer<>(2, 10);
+        Consumer consumer = new Consumer(queue);
+        consumer.fSlowdown = 5;
+        consumer.start();
+        for (long i = 0; i < 200; i++) {
+            queue.put(Long.valueOf(i));
+        }
+        queue.put(END);
+        queue.flush();
+        consumer.join();
+        assertNull(consumer.fError);
+        assertEquals(200, consumer.fCount.get());
+        assertTrue(queue.getFullStalls() > 0);
+    }
+
+    /**
+     * Test several producer threads, followed by a last element put from
+     * another thread. The elements put after the last one are dropped.
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testMultipleProducers() throws InterruptedException {
+        final int nbProducers = 4;
+        final BatchRingBuffer<Long> queue = new BatchRingBuffer<>(4, 100);
+        Consumer consumer = new Consumer(queue);
+        consumer.start();
+
+        Thread[] producers = new Thread[nbProducers];
+        long sum = 0;
+        for (int p = 0; p < nbProducers; p++) {
+            final long first = p * NB_ELEMENTS;
+            producers[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (long i = first; i < first + NB_ELEMENTS; i++) {
+                            queue.put(Long.valueOf(i));
+                        }
+                    } catch (InterruptedException e) {
+                        /* The count will be wrong */
+                    }
+                }
+            };
+            producers[p].start();
+            for (long i = first; i < first + NB_ELEMENTS; i++) {
+                sum += i;
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        queue.putLast(END);
+        for (long i = 0; i < 100 * 100; i++) {
+            queue.put(Long.valueOf(i));
+        }
+        queue.flush();
+        consumer.join();
+        assertNull(consumer.fError);
+        assertEquals(nbProducers * NB_ELEMENTS, consumer.fCount.get());
+        assertEquals(sum, consumer.fSum.get());
+    }
+
+    /**
+     * Test that an element put while the consumer is waiting is received
+     * without a flush
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test(timeout = 10000)
+    public void testWaitingConsumer() throws InterruptedException {
+        BatchRingBuffer<Long> queue = new BatchRingBuffer<>(4, 100);
+        Consumer consumer = new Consumer(queue);
+        consumer.start();
+        for (long i = 0; i < 3; i++) {
+            queue.put(Long.valueOf(i));
+            while (consumer.fCount.get() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        queue.putLast(END);
+        consumer.join();
+        assertNull(consumer.fError);
+        assertTrue(consumer.fInOrder);
+    }
+
+    /**
+     * Test that an invalid size is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new BatchRingBuffer<Long>(4, 0);
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.statistics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.linuxtools.statesystem.core.StateSystemFactory;
+import org.eclipse.linuxtools.statesystem.core.backend.InMemoryBackend;
+import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.linuxtools.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.linuxtools.tmf.core.statistics.TmfStateStatistics;
+import org.eclipse.linuxtools.tmf.core.statistics.TmfStateStatistics.Attributes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the histogram queries of {@link TmfStateStatistics}, on a "totals"
+ * state system built from known event times.
+ */
+public class TmfStateStatisticsHistogramTest {
+
+    private static final int NB_EVENTS = 20000;
+
+    /** Dense part of the trace, followed by a sparse part */
+    private static final long DENSE_END = 100000L;
+    private static final long END_TIME = 10000000L;
+
+    private static long[] fEventTimes;
+    private static TmfStateStatistics fStats;
+
+    /**
+     * Build the state systems
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateValueTypeException
+     *             Fails the test
+     * @throws TimeRangeException
+     *             Fails the test
+     */
+    @BeforeClass
+    public static void setUpClass() throws TimeRangeException, StateValueTypeException, AttributeNotFoundException {
+        Random random = new Random(42);
+        fEventTimes = new long[NB_EVENTS];
+        long time = 0;
+        for (int i = 0; i < NB_EVENTS; i++) {
+            fEventTimes[i] = time;
+            if (time < DENSE_END) {
+                time += 1 + random.nextInt(10);
+            } else {
+                time += 1 + random.nextInt(1000);
+            }
+        }
+
+        ITmfStateSystemBuilder totals = StateSystemFactory.newStateSystem("totals", new InMemoryBackend(0));
+        int quark = totals.getQuarkAbsoluteAndAdd(Attributes.TOTAL);
+        for (long eventTime : fEventTimes) {
+            totals.incrementAttribute(eventTime, quark);
+        }
+        totals.closeHistory(END_TIME);
+
+        ITmfStateSystemBuilder types = StateSystemFactory.newStateSystem("types", new InMemoryBackend(0));
+        types.closeHistory(END_TIME);
+
+        fStats = new TmfStateStatistics(totals, types);
+    }
+
+    /**
+     * Dispose the state systems
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        fStats.dispose();
+    }
+
+    /**
+     * Compute the expected histogram from the event times. Each bucket counts
+     * the events after its start and up to its end, plus the events at the
+     * start of the first one if it is the start of the trace.
+     */
+    private static long[] expected(long start, long end, int nb) {
+        long increment = (end - start) / nb;
+        long[] borders = new long[nb + 1];
+        for (int i = 0; i < nb; i++) {
+            borders[i] = Math.min(start + i * increment, END_TIME);
+        }
+        borders[nb] = Math.min(end, END_TIME);
+
+        long[] counts = new long[nb];
+        for (int i = 0; i < nb; i++) {
+            long first = (i == 0 && start == 0) ? 0 : countUpTo(borders[i]);
+            counts[i] = countUpTo(borders[i + 1]) - first;
+        }
+        return counts;
+    }
+
+    /** Number of events at or before the given time */
+    private static long countUpTo(long time) {
+        int index = Arrays.binarySearch(fEventTimes, time);
+        return (index >= 0 ? index + 1 : -index - 1);
+    }
+
+    private static void checkHistogram(long start, long end, int nb) {
+        long[] expected = expected(start, end, nb);
+        long[] counts = fStats.getHistogram(start, end, nb);
+        assertArrayEquals(expected, counts);
+
+        List<Long> list = fStats.histogramQuery(start, end, nb);
+        assertEquals(nb, list.size());
+        for (int i = 0; i < nb; i++) {
+            assertEquals(expected[i], list.get(i).longValue());
+        }
+    }
+
+    /**
+     * Test the whole trace with many events per bucket, where the state is
+     * queried at each border
+     */
+    @Test
+    public void testFewBuckets() {
+        checkHistogram(0, END_TIME, 10);
+        long[] counts = fStats.getHistogram(0, END_TIME, 10);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        assertEquals(NB_EVENTS, total);
+    }
+
+    /**
+     * Test the whole trace with few events per bucket, where all the intervals
+     * are read in one range query
+     */
+    @Test
+    public void testManyBuckets() {
+        checkHistogram(0, END_TIME, 5000);
+    }
+
+    /**
+     * Test a range in the middle of the trace, covering both the dense and the
+     * sparse parts
+     */
+    @Test
+    public void testSubRange() {
+        checkHistogram(DENSE_END / 2, DENSE_END * 3, 50);
+        checkHistogram(DENSE_END / 2, DENSE_END * 3, 20000);
+    }
+
+    /**
+     * Test a range going past the end of the trace, and one with fewer time
+     * units than buckets
+     */
+    @Test
+    public void testBoundaries() {
+        checkHistogram(END_TIME / 2, END_TIME * 2, 100);
+        checkHistogram(1000, 1010, 100);
+    }
+}
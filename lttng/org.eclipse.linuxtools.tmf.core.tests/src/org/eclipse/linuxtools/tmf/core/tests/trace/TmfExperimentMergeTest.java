@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfExperiment;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfSyntheticTraceStub;
+import org.junit.Test;
+
+/**
+ * Test the order in which the events of the traces of an experiment are
+ * merged, with random timestamps that include identical timestamps.
+ */
+public class TmfExperimentMergeTest {
+
+    private static final int NB_EVENTS = 200;
+
+    /**
+     * Create an experiment, and the expected events as strings
+     * "timestamp/trace/rank" in the order they must be read: by timestamp,
+     * then by index of the trace in the experiment.
+     */
+    private static TmfExperiment createExperiment(int nbTraces, Random random, List<String> expected)
+            throws TmfTraceException {
+        ITmfTrace[] traces = new ITmfTrace[nbTraces];
+        List<long[]> all = new ArrayList<>();
+        for (int i = 0; i < nbTraces; i++) {
+            long[] timestamps = new long[NB_EVENTS];
+            long time = random.nextInt(100);
+            for (int j = 0; j < NB_EVENTS; j++) {
+                /* Long bursts and identical timestamps */
+                time += (random.nextInt(4) == 0) ? random.nextInt(50) : random.nextInt(2);
+                timestamps[j] = time;
+                all.add(new long[] { time, i, j });
+            }
+            traces[i] = new TmfSyntheticTraceStub("trace" + i, timestamps);
+        }
+        Collections.sort(all, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                int result = Long.compare(o1[0], o2[0]);
+                return (result != 0) ? result : Long.compare(o1[1], o2[1]);
+            }
+        });
+        for (long[] event : all) {
+            expected.add(event[0] + "/trace" + event[1] + '/' + event[2]);
+        }
+        return new TmfExperiment(ITmfEvent.class, "experiment", traces);
+    }
+
+    private static String toString(ITmfEvent event) {
+        return event.getTimestamp().getValue() + "/" + event.getTrace().getName() + '/' + event.getRank();
+    }
+
+    /**
+     * Test that all the events are read in order, for experiments of various
+     * sizes
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testMergeOrder() throws TmfTraceException {
+        Random random = new Random(17);
+        for (int nbTraces : new int[] { 1, 2, 3, 16, 17 }) {
+            List<String> expected = new ArrayList<>();
+            TmfExperiment experiment = createExperiment(nbTraces, random, expected);
+            ITmfContext context = experiment.seekEvent((ITmfLocation) null);
+            List<String> actual = new ArrayList<>();
+            ITmfEvent event = experiment.getNext(context);
+            while (event != null) {
+                actual.add(toString(event));
+                event = experiment.getNext(context);
+            }
+            assertEquals(expected, actual);
+            assertEquals(nbTraces * NB_EVENTS, context.getRank());
+            experiment.dispose();
+        }
+    }
+
+    /**
+     * Test that the location of the context after an event can be used to
+     * read the following events again
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testLocations() throws TmfTraceException {
+        List<String> expected = new ArrayList<>();
+        TmfExperiment experiment = createExperiment(5, new Random(42), expected);
+        ITmfContext context = experiment.seekEvent((ITmfLocation) null);
+        for (int i = 0; i < expected.size(); i += 97) {
+            for (int j = (int) context.getRank(); j < i; j++) {
+                experiment.getNext(context);
+            }
+            ITmfLocation location = context.getLocation();
+            ITmfContext other = experiment.seekEvent(location);
+            assertEquals(i, other.getRank());
+            assertEquals(context.getLocation(), other.getLocation());
+            for (String event : expected.subList(i, Math.min(i + 10, expected.size()))) {
+                assertEquals(event, toString(experiment.getNext(other)));
+            }
+            other.dispose();
+        }
+        for (int j = (int) context.getRank(); j < expected.size(); j++) {
+            experiment.getNext(context);
+        }
+        assertNull(experiment.getNext(context));
+        experiment.dispose();
+    }
+
+    /**
+     * Test an experiment without traces
+     */
+    @Test
+    public void testNoTrace() {
+        TmfExperiment experiment = new TmfExperiment(ITmfEvent.class, "empty", new ITmfTrace[0]);
+        assertNull(experiment.getNext(experiment.seekEvent((ITmfLocation) null)));
+        assertEquals(0, experiment.getTraces().length);
+        experiment.dispose();
+    }
+}
@@ -23,7 +23,10 @@ import org.junit.runners.Suite;
     TmfBTreeIndexTest.class,
     TmfCheckpointIndexTest.class,
     TmfCheckpointIndexTest2.class,
+    TmfCheckpointIndexerJobTest.class,
     TmfCheckpointTest.class,
     TmfExperimentCheckpointIndexTest.class,
+    TmfExperimentParallelIndexTest.class,
+    TmfTextTraceParallelIndexTest.class,
 })
 public class AllTests {}
\ No newline at end of file
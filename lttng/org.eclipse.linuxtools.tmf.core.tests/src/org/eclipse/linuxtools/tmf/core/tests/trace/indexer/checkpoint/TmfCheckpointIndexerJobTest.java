@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.trace.indexer.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.TmfCheckpointIndexer;
+import org.eclipse.linuxtools.tmf.core.trace.location.TmfLongLocation;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfSyntheticTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the checkpoints of a trace indexed without waiting for the
+ * completion are built in the indexing job, which can cancel them.
+ */
+public class TmfCheckpointIndexerJobTest {
+
+    private static final int INTERVAL = 10;
+    private static final int NB_EVENTS = 1000;
+    private static final long TIMEOUT = 10;
+
+    private TestIndexer fIndexer;
+    private ITmfTrace fTrace;
+
+    /**
+     * An indexer that builds the checkpoints of the trace, or waits for its
+     * building to be cancelled
+     */
+    private static class TestIndexer extends TmfCheckpointIndexer {
+
+        private final CountDownLatch fStarted = new CountDownLatch(1);
+        private final CountDownLatch fCancelled = new CountDownLatch(1);
+        private volatile boolean fWaitForCancel = false;
+        private volatile Job fJob = null;
+
+        public TestIndexer(ITmfTrace trace) {
+            super(trace, INTERVAL);
+        }
+
+        @Override
+        protected boolean canBuildCheckpoints() {
+            return true;
+        }
+
+        @Override
+        protected boolean buildCheckpoints() {
+            fJob = Job.getJobManager().currentJob();
+            fStarted.countDown();
+            if (fWaitForCancel) {
+                try {
+                    fCancelled.await(TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                }
+                return false;
+            }
+            for (long rank = 0; rank < NB_EVENTS; rank += INTERVAL) {
+                updateIndex(new TmfContext(new TmfLongLocation(rank), rank), new TmfTimestamp(rank));
+            }
+            setTraceRange(new TmfTimeRange(new TmfTimestamp(0), new TmfTimestamp(NB_EVENTS - 1)), NB_EVENTS);
+            return true;
+        }
+
+        @Override
+        protected void cancelCheckpoints() {
+            fCancelled.countDown();
+            super.cancelCheckpoints();
+        }
+
+        public ITmfCheckpointIndex getCheckpoints() {
+            return getTraceIndex();
+        }
+
+        public Job waitForJob() throws InterruptedException {
+            assertTrue(fStarted.await(TIMEOUT, TimeUnit.SECONDS));
+            Job job = fJob;
+            assertNotNull(job);
+            job.join();
+            return job;
+        }
+    }
+
+    /**
+     * Create the trace and its indexer
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Before
+    public void setUp() throws TmfTraceException {
+        fTrace = new TmfSyntheticTraceStub("trace", new long[0]) {
+            @Override
+            protected ITmfTraceIndexer createIndexer(int interval) {
+                fIndexer = new TestIndexer(this);
+                return fIndexer;
+            }
+        };
+    }
+
+    /**
+     * Dispose the trace
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+    }
+
+    /**
+     * Test that the checkpoints are built in the indexing job
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testBuildInJob() throws InterruptedException {
+        fTrace.indexTrace(false);
+        Job job = fIndexer.waitForJob();
+
+        assertEquals(IStatus.OK, job.getResult().getSeverity());
+        assertFalse(fIndexer.isIndexing());
+        assertEquals(NB_EVENTS / INTERVAL, fIndexer.getCheckpoints().size());
+    }
+
+    /**
+     * Test that cancelling the indexing job cancels the building of the
+     * checkpoints, without reading the trace instead
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testCancelJob() throws InterruptedException {
+        fIndexer.fWaitForCancel = true;
+        fTrace.indexTrace(false);
+        assertTrue(fIndexer.fStarted.await(TIMEOUT, TimeUnit.SECONDS));
+        fIndexer.fJob.cancel();
+        Job job = fIndexer.waitForJob();
+
+        assertEquals(0, fIndexer.fCancelled.getCount());
+        assertEquals(IStatus.CANCEL, job.getResult().getSeverity());
+        assertFalse(fIndexer.isIndexing());
+        assertEquals(0, fTrace.getNbEvents());
+    }
+}
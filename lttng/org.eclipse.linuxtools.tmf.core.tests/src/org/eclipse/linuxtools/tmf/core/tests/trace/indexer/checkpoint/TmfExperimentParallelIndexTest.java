@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.trace.indexer.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfExperimentStub;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.TmfSyntheticTraceStub;
+import org.junit.Test;
+
+/**
+ * Test the index of an experiment built by indexing its traces and reading
+ * parts of the experiment concurrently, which must be the same as the index
+ * built by reading the experiment in order.
+ */
+public class TmfExperimentParallelIndexTest {
+
+    private static final int NB_TRACES = 3;
+    private static final int BLOCK_SIZE = 10;
+
+    /**
+     * Create an experiment of traces with various densities and time ranges,
+     * and the expected timestamps of its events
+     */
+    private static TmfExperimentStub createExperiment(Random random, List<Long> expected) throws TmfTraceException {
+        ITmfTrace[] traces = new ITmfTrace[NB_TRACES];
+        List<long[]> all = new ArrayList<>();
+        for (int i = 0; i < NB_TRACES; i++) {
+            int nbEvents = 1000 + random.nextInt(5000);
+            long[] timestamps = new long[nbEvents];
+            long time = random.nextInt(100000);
+            int step = 1 + random.nextInt(20);
+            for (int j = 0; j < nbEvents; j++) {
+                time += random.nextInt(step);
+                timestamps[j] = time;
+                all.add(new long[] { time, i });
+            }
+            traces[i] = new TmfSyntheticTraceStub("trace" + i, timestamps);
+        }
+        Collections.sort(all, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                int result = Long.compare(o1[0], o2[0]);
+                return (result != 0) ? result : Long.compare(o1[1], o2[1]);
+            }
+        });
+        for (long[] event : all) {
+            expected.add(event[0]);
+        }
+        return new TmfExperimentStub("experiment", traces, BLOCK_SIZE);
+    }
+
+    /**
+     * Test that each checkpoint points to the right event
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testCheckpoints() throws TmfTraceException {
+        List<Long> expected = new ArrayList<>();
+        TmfExperimentStub experiment = createExperiment(new Random(3), expected);
+        experiment.getIndexer().buildIndex(0, TmfTimeRange.ETERNITY, true);
+
+        assertEquals(expected.size(), experiment.getNbEvents());
+        assertEquals(expected.get(0).longValue(), experiment.getStartTime().getValue());
+        assertEquals(expected.get(expected.size() - 1).longValue(), experiment.getEndTime().getValue());
+        long nbEvents = 0;
+        for (ITmfTrace trace : experiment.getTraces()) {
+            nbEvents += trace.getNbEvents();
+        }
+        assertEquals(expected.size(), nbEvents);
+
+        ITmfCheckpointIndex checkpoints = experiment.getIndexer().getCheckpoints();
+        assertEquals((expected.size() + BLOCK_SIZE - 1) / BLOCK_SIZE, checkpoints.size());
+        for (int i = 0; i < checkpoints.size(); i++) {
+            ITmfCheckpoint checkpoint = checkpoints.get(i);
+            ITmfContext context = experiment.seekEvent(checkpoint.getLocation());
+            assertEquals(i * BLOCK_SIZE, context.getRank());
+            ITmfEvent event = experiment.getNext(context);
+            assertEquals(expected.get(i * BLOCK_SIZE).longValue(), event.getTimestamp().getValue());
+            assertEquals(expected.get(i * BLOCK_SIZE).longValue(), checkpoint.getTimestamp().getValue());
+            context.dispose();
+        }
+        experiment.dispose();
+    }
+}
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.tests.trace.indexer.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomEvent;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTraceDefinition;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTraceDefinition.OutputColumn;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTrace;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition.Cardinality;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputData;
+import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputLine;
+import org.eclipse.linuxtools.tmf.core.project.model.TmfTraceType;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.text.SyslogEvent;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.text.SyslogMatchResultTrace;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.text.SyslogTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the index of text traces built by parsing chunks of their file in
+ * parallel, which must be the same as the index built by reading the trace in
+ * order. The files span several chunks.
+ */
+public class TmfTextTraceParallelIndexTest {
+
+    private static final int NB_LINES = 60000;
+    private static final int STEP = 499;
+
+    private final List<ITmfTrace> fTraces = new ArrayList<>();
+    private Path fDirectory;
+
+    /**
+     * Create the directory of the trace files. It is not the temporary
+     * directory, where the indexes of the traces are saved.
+     *
+     * @throws IOException
+     *             Thrown when the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        fDirectory = Files.createTempDirectory("TmfTextTraceParallelIndexTest"); //$NON-NLS-1$
+    }
+
+    /**
+     * Dispose the traces and delete their files and indexes
+     *
+     * @throws IOException
+     *             Thrown when the files cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        for (ITmfTrace trace : fTraces) {
+            File directory = new File(TmfTraceManager.getSupplementaryFileDir(trace));
+            trace.dispose();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(directory.toPath());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(fDirectory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(fDirectory);
+    }
+
+    /**
+     * Test that the index of a system log, with events of one or several
+     * lines, is the same when it is built in parallel.
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testSyslog() throws IOException, TmfTraceException {
+        List<String> lines = new ArrayList<>();
+        int nbEvents = createSyslogLines(lines);
+
+        SyslogTrace parallelTrace = new SyslogTrace();
+        parallelTrace.initTrace(null, writeFile(lines).toString(), SyslogEvent.class);
+        parallelTrace.setParallelParsing(true);
+        fTraces.add(parallelTrace);
+        SyslogTrace sequentialTrace = new SyslogTrace();
+        sequentialTrace.initTrace(null, writeFile(lines).toString(), SyslogEvent.class);
+        fTraces.add(sequentialTrace);
+
+        checkIndex(parallelTrace, sequentialTrace, nbEvents);
+    }
+
+    /**
+     * Test that a system log which copies the groups of its first lines has
+     * the same events as one which parses them with their own matcher, when
+     * its index is built in parallel.
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testSyslogCopyFirstLineGroups() throws IOException, TmfTraceException {
+        List<String> lines = new ArrayList<>();
+        int nbEvents = createSyslogLines(lines);
+
+        SyslogTrace parallelTrace = new SyslogMatchResultTrace();
+        parallelTrace.initTrace(null, writeFile(lines).toString(), SyslogEvent.class);
+        parallelTrace.setParallelParsing(true);
+        fTraces.add(parallelTrace);
+        SyslogTrace sequentialTrace = new SyslogTrace();
+        sequentialTrace.initTrace(null, writeFile(lines).toString(), SyslogEvent.class);
+        fTraces.add(sequentialTrace);
+
+        checkIndex(parallelTrace, sequentialTrace, nbEvents);
+    }
+
+    /**
+     * Test that the index of a custom text trace is the same when it is built
+     * in parallel, when the lines that continue an event also match the
+     * pattern of the lines starting an event. The chunks that start with such
+     * a line must be parsed again from the end of the previous event.
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testCustomTxt() throws IOException, TmfTraceException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < NB_LINES; i++) {
+            lines.add(String.format("%02d:%02d:%02d.%03d line %d of the custom text trace", //$NON-NLS-1$
+                    i / 3600000, i / 60000 % 60, i / 1000 % 60, i % 1000, i));
+        }
+
+        CustomTxtTrace parallelTrace = new CustomTxtTrace(createDefinition());
+        parallelTrace.initTrace(null, writeFile(lines).toString(), CustomEvent.class);
+        assertTrue(parallelTrace.isParallelParsing());
+        fTraces.add(parallelTrace);
+        CustomTxtTrace sequentialTrace = new CustomTxtTrace(createDefinition());
+        sequentialTrace.initTrace(null, writeFile(lines).toString(), CustomEvent.class);
+        sequentialTrace.setParallelParsing(false);
+        fTraces.add(sequentialTrace);
+
+        /* Each event has a line starting it and a line continuing it */
+        checkIndex(parallelTrace, sequentialTrace, NB_LINES / 2);
+    }
+
+    /**
+     * Test that a custom text trace which copies the groups of its first
+     * lines has the same events as one which hands over their matchers.
+     *
+     * @throws IOException
+     *             Fails the test
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testCustomTxtCopyFirstLineGroups() throws IOException, TmfTraceException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < NB_LINES; i++) {
+            lines.add(String.format("%02d:%02d:%02d.%03d line %d of the custom text trace", //$NON-NLS-1$
+                    i / 3600000, i / 60000 % 60, i / 1000 % 60, i % 1000, i));
+        }
+
+        CustomTxtTrace parallelTrace = new CustomTxtTrace(createDefinition());
+        parallelTrace.setCopyFirstLineGroups(true);
+        parallelTrace.initTrace(null, writeFile(lines).toString(), CustomEvent.class);
+        fTraces.add(parallelTrace);
+        CustomTxtTrace sequentialTrace = new CustomTxtTrace(createDefinition());
+        sequentialTrace.initTrace(null, writeFile(lines).toString(), CustomEvent.class);
+        assertFalse(sequentialTrace.isCopyFirstLineGroups());
+        sequentialTrace.setParallelParsing(false);
+        fTraces.add(sequentialTrace);
+
+        checkIndex(parallelTrace, sequentialTrace, NB_LINES / 2);
+    }
+
+    /**
+     * Add the lines of a system log, with events of one or several lines, and
+     * return the number of events
+     */
+    private static int createSyslogLines(List<String> lines) {
+        int nbEvents = 0;
+        for (int i = 0; lines.size() < NB_LINES; i++) {
+            lines.add(String.format("Jan 12 %02d:%02d:%02d host%d logger%d: message %d", //$NON-NLS-1$
+                    i / 3600 % 24, i / 60 % 60, i % 60, i % 7, i % 3, i));
+            for (int j = 0; j < i % 4; j++) {
+                lines.add("    continuation " + j + " of message " + i); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            nbEvents++;
+        }
+        return nbEvents;
+    }
+
+    /**
+     * Create a definition where each event has two lines, which can both
+     * start an event
+     */
+    private static CustomTxtTraceDefinition createDefinition() {
+        List<InputData> columns = new ArrayList<>();
+        columns.add(new InputData(CustomTraceDefinition.TAG_TIMESTAMP, CustomTraceDefinition.ACTION_SET, "HH:mm:ss.SSS")); //$NON-NLS-1$
+        columns.add(new InputData(CustomTraceDefinition.TAG_MESSAGE, CustomTraceDefinition.ACTION_SET));
+        InputLine root = new InputLine(new Cardinality(1, 1), "(\\d\\d:\\d\\d:\\d\\d\\.\\d\\d\\d) (.*)", columns); //$NON-NLS-1$
+        root.addChild(new InputLine(new Cardinality(1, 1), ".*", Collections.<InputData> emptyList())); //$NON-NLS-1$
+        List<InputLine> inputs = new ArrayList<>();
+        inputs.add(root);
+        return new CustomTxtTraceDefinition(TmfTraceType.CUSTOM_TXT_CATEGORY, "TwoLines", inputs, new ArrayList<OutputColumn>(), "HH:mm:ss.SSS"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private Path writeFile(List<String> lines) throws IOException {
+        Path file = Files.createTempFile(fDirectory, "trace", ".log"); //$NON-NLS-1$ //$NON-NLS-2$
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        assertTrue(Files.size(file) > 2 * (1 << 20));
+        return file;
+    }
+
+    /**
+     * Index both traces, and check that they have the same events at the same
+     * ranks
+     */
+    private static void checkIndex(ITmfTrace parallelTrace, ITmfTrace sequentialTrace, int nbEvents) {
+        parallelTrace.indexTrace(true);
+        sequentialTrace.indexTrace(true);
+
+        assertEquals(nbEvents, sequentialTrace.getNbEvents());
+        assertEquals(nbEvents, parallelTrace.getNbEvents());
+        assertEquals(sequentialTrace.getStartTime(), parallelTrace.getStartTime());
+        assertEquals(sequentialTrace.getEndTime(), parallelTrace.getEndTime());
+
+        for (long rank = 0; rank < nbEvents; rank += STEP) {
+            ITmfContext expectedContext = sequentialTrace.seekEvent(rank);
+            ITmfContext context = parallelTrace.seekEvent(rank);
+            assertEquals(rank, context.getRank());
+            assertEquals(expectedContext.getLocation(), context.getLocation());
+            ITmfEvent expected = sequentialTrace.getNext(expectedContext);
+            ITmfEvent event = parallelTrace.getNext(context);
+            assertNotNull(event);
+            assertEquals(expected.getTimestamp(), event.getTimestamp());
+            assertEquals(expected.getContent().getValue().toString(), event.getContent().getValue().toString());
+            assertEquals(expected.getContent().toString(), event.getContent().toString());
+            expectedContext.dispose();
+            context.dispose();
+        }
+    }
+}
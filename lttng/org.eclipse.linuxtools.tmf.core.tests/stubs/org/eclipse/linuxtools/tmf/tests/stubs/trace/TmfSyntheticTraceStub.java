@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.tests.stubs.trace;
+
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfEventParser;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.TmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.linuxtools.tmf.core.trace.location.TmfLongLocation;
+
+/**
+ * <b><u>TmfSyntheticTraceStub</u></b>
+ * <p>
+ * Trace whose events are generated in memory from an array of timestamps, in
+ * nanoseconds. The location of an event is its index in the array.
+ */
+public class TmfSyntheticTraceStub extends TmfTrace implements ITmfEventParser {
+
+    private final long[] fTimestamps;
+    private long fCurrentIndex = 0;
+
+    /**
+     * Constructor
+     *
+     * @param name
+     *            The name of the trace, also used as its path
+     * @param timestamps
+     *            The timestamps of the events, in increasing order
+     * @throws TmfTraceException
+     *             If the trace cannot be initialized
+     */
+    public TmfSyntheticTraceStub(String name, long[] timestamps) throws TmfTraceException {
+        super();
+        fTimestamps = Arrays.copyOf(timestamps, timestamps.length);
+        initTrace(null, name, ITmfEvent.class, name);
+    }
+
+    @Override
+    public IStatus validate(IProject project, String path) {
+        return Status.OK_STATUS;
+    }
+
+    @Override
+    public ITmfContext seekEvent(ITmfLocation location) {
+        long index = (location == null) ? 0 : (Long) location.getLocationInfo();
+        fCurrentIndex = index;
+        return new TmfContext(new TmfLongLocation(index), index);
+    }
+
+    @Override
+    public ITmfContext seekEvent(double ratio) {
+        return seekEvent(new TmfLongLocation(Math.round(ratio * fTimestamps.length)));
+    }
+
+    @Override
+    public double getLocationRatio(ITmfLocation location) {
+        return (double) (Long) location.getLocationInfo() / fTimestamps.length;
+    }
+
+    @Override
+    public ITmfLocation getCurrentLocation() {
+        return new TmfLongLocation(fCurrentIndex);
+    }
+
+    @Override
+    public ITmfEvent parseEvent(ITmfContext context) {
+        ITmfLocation location = context.getLocation();
+        long index = (location == null) ? 0 : (Long) location.getLocationInfo();
+        if (index >= fTimestamps.length) {
+            return null;
+        }
+        fCurrentIndex = index + 1;
+        ITmfTimestamp timestamp = new TmfTimestamp(fTimestamps[(int) index], ITmfTimestamp.NANOSECOND_SCALE);
+        return new TmfEvent(this, index, timestamp, null, null, null, null);
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.tests.stubs.trace.text;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestampFormat;
+import org.eclipse.linuxtools.tmf.core.trace.text.TextTraceEventContent;
+import org.eclipse.linuxtools.tmf.tests.stubs.trace.text.SyslogEventType.Index;
+
+/**
+ * Extension of the system log trace which copies the groups of its first
+ * lines, and parses them from the copy.
+ */
+public class SyslogMatchResultTrace extends SyslogTrace {
+
+    /* The current calendar to use */
+    private static final Calendar CURRENT = Calendar.getInstance();
+
+    /**
+     * Constructor
+     */
+    public SyslogMatchResultTrace() {
+        setCopyFirstLineGroups(true);
+    }
+
+    @Override
+    protected SyslogEvent parseFirstLine(Matcher matcher, String line) {
+        throw new UnsupportedOperationException("The groups of the first lines are copied"); //$NON-NLS-1$
+    }
+
+    @Override
+    protected SyslogEvent parseFirstLine(MatchResult matchResult, String line) {
+
+        ITmfTimestamp timestamp = null;
+
+        try {
+            synchronized (TIMESTAMP_SIMPLEDATEFORMAT) {
+                TIMESTAMP_SIMPLEDATEFORMAT.setTimeZone(TmfTimestampFormat.getDefaulTimeFormat().getTimeZone());
+                Date date = TIMESTAMP_SIMPLEDATEFORMAT.parse(matchResult.group(1));
+                GregorianCalendar calendar = new GregorianCalendar();
+                calendar.setTime(date);
+                calendar.set(Calendar.YEAR, CURRENT.get(Calendar.YEAR));
+                if (calendar.after(CURRENT)) {
+                    calendar.set(Calendar.YEAR, CURRENT.get(Calendar.YEAR) - 1);
+                }
+                long ms = calendar.getTimeInMillis();
+                timestamp = new TmfTimestamp(ms, TIMESTAMP_SCALE);
+            }
+        } catch (ParseException e) {
+            timestamp = new TmfTimestamp();
+        }
+
+        TextTraceEventContent content = new TextTraceEventContent(SyslogEventType.LABELS);
+        content.setValue(new StringBuffer(line));
+        content.setFieldValue(Index.TIMESTAMP, matchResult.group(1));
+        content.setFieldValue(Index.HOST, matchResult.group(2));
+        content.setFieldValue(Index.LOGGER, matchResult.group(3));
+        content.setFieldValue(Index.MESSAGE, new StringBuffer(matchResult.group(4) != null ? matchResult.group(4) : "")); //$NON-NLS-1$
+
+        return new SyslogEvent(
+                this,
+                timestamp,
+                "", //$NON-NLS-1$
+                SyslogEventType.INSTANCE,
+                content,
+                ""); //$NON-NLS-1$
+    }
+}
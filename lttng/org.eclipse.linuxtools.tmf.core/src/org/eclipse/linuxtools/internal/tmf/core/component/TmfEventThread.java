@@ -20,6 +20,7 @@ import org.eclipse.linuxtools.tmf.core.component.TmfEventProvider;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 
 /**
@@ -172,6 +173,14 @@ public class TmfEventThread implements Runnable {
             return;
         }
 
+        /*
+         * With an event filter, the provider may skip events, which are then
+         * only counted in the rank of the context.
+         */
+        final boolean countRanks = (fRequest instanceof TmfEventRequest) &&
+                ((TmfEventRequest) fRequest).getEventFilter() != null &&
+                context.hasValidRank();
+
         try {
             // Get the ordered events
             ITmfEvent event = fProvider.getNext(context);
@@ -196,8 +205,14 @@ public class TmfEventThread implements Runnable {
                     }
                 }
 
+                if (countRanks) {
+                    nbRead = (int) Math.min(context.getRank() - fRequest.getIndex(), Integer.MAX_VALUE);
+                } else {
+                    nbRead++;
+                }
+
                 // To avoid an unnecessary read passed the last event requested
-                if (++nbRead < nbRequested) {
+                if (nbRead < nbRequested) {
                     event = fProvider.getNext(context);
                 }
             }
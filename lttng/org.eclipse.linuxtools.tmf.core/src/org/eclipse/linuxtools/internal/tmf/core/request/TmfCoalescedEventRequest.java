@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.eclipse.linuxtools.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
@@ -103,6 +104,10 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
      *            The request to add
      */
     public void addRequest(ITmfEventRequest request) {
+        if (fRequests.isEmpty()) {
+            /* A request with a filter is not coalesced with other ones */
+            setEventFilter(getEventFilter(request));
+        }
         fRequests.add(request);
         merge(request);
     }
@@ -116,6 +121,7 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
      */
     public boolean isCompatible(ITmfEventRequest request) {
         if (request.getExecType() == getExecType() &&
+                getEventFilter() == null && getEventFilter(request) == null &&
                 ranksOverlap(request) &&
                 timeRangesOverlap(request)) {
             return true;
@@ -123,6 +129,13 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         return false;
     }
 
+    private static ITmfFilter getEventFilter(ITmfEventRequest request) {
+        if (request instanceof TmfEventRequest) {
+            return ((TmfEventRequest) request).getEventFilter();
+        }
+        return null;
+    }
+
     private boolean ranksOverlap(ITmfEventRequest request) {
         long start = request.getIndex();
         long end = start + request.getNbRequested();
@@ -14,71 +14,73 @@
 
 package org.eclipse.linuxtools.internal.tmf.core.request;
 
+import java.util.ArrayDeque;
+import java.util.List;
 import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.eclipse.linuxtools.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.linuxtools.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.linuxtools.internal.tmf.core.request.TmfRequestScheduler.Task;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
 
 /**
- * The request scheduler works with 5 slots with a specific time. It has 4 slots
- * for foreground requests and 1 slot for background requests, and it passes
- * through all the slots (foreground first and background after).
+ * The request executor of an event provider. It keeps the foreground and
+ * background requests of the provider in two queues, from which the
+ * {@link TmfRequestScheduler} shared by all the providers picks the requests
+ * to run. Several requests can then run at the same time, on this provider or
+ * on others, while the foreground requests keep priority over the background
+ * ones.
  *
- * Example: if we have one foreground and one background request, the foreground
- * request will be executed four times more often than the background request.
+ * The executor also accumulates the time its requests spent waiting to be
+ * run, and running.
  *
  * @author Francois Chouinard
  * @author Simon Delisle
- * @version 1.1
+ * @version 1.2
  */
 public class TmfRequestExecutor implements Executor {
 
-    // ------------------------------------------------------------------------
-    // Constants
-    // ------------------------------------------------------------------------
-
-    private static final long REQUEST_TIME = 100;
-    private static final int FOREGROUND_SLOT = 4;
-
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
 
-    // The request executor
-    private final ExecutorService fExecutor = Executors.newCachedThreadPool();
-    private final String fExecutorName;
-
-    // The request queues
-    private final Queue<TmfEventThread> fForegroundTasks = new ArrayBlockingQueue<>(100);
-    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayBlockingQueue<>(100);
+    private final TmfRequestScheduler fScheduler;
 
-    // The tasks
-    private TmfEventThread fActiveTask;
+    // The request queues, guarded by the scheduler
+    private final Queue<Task> fForegroundTasks = new ArrayDeque<>();
+    private final Queue<Task> fBackgroundTasks = new ArrayDeque<>();
 
-    private Timer fTimer;
-    private TimerTask fTimerTask;
+    private volatile boolean fIsShutdown = false;
 
-    private int fForegroundCycle = 0;
+    // The statistics of the completed requests, guarded by "this"
+    private int fNbStarted = 0;
+    private int fNbCompleted = 0;
+    private long fTotalWaitTime = 0;
+    private long fTotalRunTime = 0;
+    private long fMaxWaitTime = 0;
 
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
 
     /**
-     * Default constructor
+     * Default constructor, using the shared scheduler
      */
     public TmfRequestExecutor() {
-        String canonicalName = fExecutor.getClass().getCanonicalName();
-        fExecutorName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
+        this(TmfRequestScheduler.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param scheduler
+     *            The scheduler running the requests
+     */
+    public TmfRequestExecutor(TmfRequestScheduler scheduler) {
+        fScheduler = scheduler;
         if (TmfCoreTracer.isComponentTraced()) {
-            TmfCoreTracer.trace(fExecutor + " created"); //$NON-NLS-1$
+            TmfCoreTracer.trace(this + " created"); //$NON-NLS-1$
         }
     }
 
@@ -89,15 +91,46 @@ public class TmfRequestExecutor implements Executor {
     /**
      * @return the shutdown state (i.e. if it is accepting new requests)
      */
-    public synchronized boolean isShutdown() {
-        return fExecutor.isShutdown();
+    public boolean isShutdown() {
+        return fIsShutdown;
     }
 
     /**
      * @return the termination state
      */
     public synchronized boolean isTerminated() {
-        return fExecutor.isTerminated();
+        return fIsShutdown && fNbCompleted == fNbStarted;
+    }
+
+    /**
+     * @return The number of requests that completed
+     */
+    public synchronized int getNbCompletedRequests() {
+        return fNbCompleted;
+    }
+
+    /**
+     * @return The total time the completed requests waited in the queues,
+     *         before being run or after being suspended, in nanoseconds
+     */
+    public synchronized long getTotalWaitTime() {
+        return fTotalWaitTime;
+    }
+
+    /**
+     * @return The longest time a completed request waited in the queues, in
+     *         nanoseconds
+     */
+    public synchronized long getMaxWaitTime() {
+        return fMaxWaitTime;
+    }
+
+    /**
+     * @return The total time the completed requests were running, in
+     *         nanoseconds
+     */
+    public synchronized long getTotalExecutionTime() {
+        return fTotalRunTime;
     }
 
     // ------------------------------------------------------------------------
@@ -108,17 +141,11 @@ public class TmfRequestExecutor implements Executor {
      * Initialize the executor
      */
     public void init() {
-        if (fTimer != null) {
-            return;
-        }
-        // Initialize the timer for the schedSwitch
-        fTimerTask = new SchedSwitch();
-        fTimer = new Timer(true);
-        fTimer.schedule(fTimerTask, 0, REQUEST_TIME);
+        fScheduler.register(this);
     }
 
     @Override
-    public synchronized void execute(final Runnable command) {
+    public void execute(final Runnable command) {
 
         // We are expecting MyEventThread:s
         if (!(command instanceof TmfEventThread)) {
@@ -126,163 +153,53 @@ public class TmfRequestExecutor implements Executor {
             return;
         }
 
-        // Wrap the thread in a MyThread
         TmfEventThread thread = (TmfEventThread) command;
-        TmfEventThread wrapper = new TmfEventThread(thread) {
-            @Override
-            public void run() {
-                try {
-                    command.run();
-                } finally {
-                    scheduleNext();
-                }
-            }
-        };
-
-        // Add the thread to the appropriate queue
-        ExecutionType priority = thread.getExecType();
-
-        if (priority == ExecutionType.FOREGROUND) {
-            fForegroundTasks.add(wrapper);
-        } else {
-            fBackgroundTasks.add(wrapper);
-        }
-    }
-
-    /**
-     * Timer task to trigger scheduleNext()
-     */
-    private class SchedSwitch extends TimerTask {
-
-        SchedSwitch() {
-        }
-
-        @Override
-        public void run() {
-            scheduleNext();
-        }
-    }
-
-    /**
-     * Executes the next pending request, if applicable.
-     */
-    protected synchronized void scheduleNext() {
-        if (!isShutdown()) {
-            if (fActiveTask == null) {
-                schedule();
-            } else if (fActiveTask.getExecType() == ExecutionType.FOREGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        fForegroundTasks.add(fActiveTask);
-                        schedule();
-                    }
-                }
-
-            } else if (fActiveTask.getExecType() == ExecutionType.BACKGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        fBackgroundTasks.add(fActiveTask);
-                        schedule();
-                    }
-                }
-            }
+        if (fIsShutdown) {
+            thread.cancel();
+            return;
         }
+        fScheduler.submit(this, thread);
     }
 
     /**
      * Stops the executor
      */
-    public synchronized void stop() {
-        if (fTimerTask != null) {
-            fTimerTask.cancel();
-        }
-
-        if (fTimer != null) {
-            fTimer.cancel();
+    public void stop() {
+        fIsShutdown = true;
+        List<Task> tasks = fScheduler.removeTasks(this);
+
+        /*
+         * Cancel the requests outside of the scheduler lock, since this calls
+         * their handlers. The suspended ones are resumed so that their thread
+         * ends.
+         */
+        for (Task task : tasks) {
+            TmfEventThread thread = task.getThread();
+            thread.cancel();
+            thread.resume();
         }
-
-        if (fActiveTask != null) {
-            fActiveTask.cancel();
-        }
-
-        while ((fActiveTask = fForegroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
-        while ((fActiveTask = fBackgroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
-
-        fExecutor.shutdown();
         if (TmfCoreTracer.isComponentTraced()) {
-            TmfCoreTracer.trace(fExecutor + " terminated"); //$NON-NLS-1$
+            TmfCoreTracer.trace(this + " terminated"); //$NON-NLS-1$
         }
     }
 
     // ------------------------------------------------------------------------
-    // Helper methods
+    // Helper methods, called by the scheduler
     // ------------------------------------------------------------------------
 
-    /**
-     * Determine which type of request (foreground or background) we schedule
-     * next
-     */
-    private void schedule() {
-        if (!fForegroundTasks.isEmpty()) {
-            scheduleNextForeground();
-        } else {
-            scheduleNextBackground();
-        }
-    }
-
-    /**
-     * Schedule the next foreground request
-     */
-    private void scheduleNextForeground() {
-        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty()) {
-            ++fForegroundCycle;
-            fActiveTask = fForegroundTasks.poll();
-            executefActiveTask();
-        } else {
-            fActiveTask = null;
-            scheduleNextBackground();
-        }
-    }
-
-    /**
-     * Schedule the next background request
-     */
-    private void scheduleNextBackground() {
-        fForegroundCycle = 0;
-        if (!fBackgroundTasks.isEmpty()) {
-            fActiveTask = fBackgroundTasks.poll();
-            executefActiveTask();
-        }
+    Queue<Task> getQueue(ExecutionType type) {
+        return (type == ExecutionType.FOREGROUND ? fForegroundTasks : fBackgroundTasks);
     }
 
-    /**
-     * Execute or resume the active task
-     */
-    private void executefActiveTask() {
-        if (fActiveTask.getThread().isPaused()) {
-            fActiveTask.getThread().resume();
-        } else {
-            fExecutor.execute(fActiveTask);
-        }
+    synchronized void requestStarted() {
+        fNbStarted++;
     }
 
-    /**
-     * Check if the scheduler has tasks
-     */
-    private boolean hasTasks() {
-        return !(fForegroundTasks.isEmpty() && fBackgroundTasks.isEmpty());
+    synchronized void requestCompleted(long waitTime, long runTime) {
+        fNbCompleted++;
+        fTotalWaitTime += waitTime;
+        fTotalRunTime += runTime;
+        fMaxWaitTime = Math.max(fMaxWaitTime, waitTime);
     }
 
     // ------------------------------------------------------------------------
@@ -292,7 +209,7 @@ public class TmfRequestExecutor implements Executor {
     @Override
     @SuppressWarnings("nls")
     public String toString() {
-        return "[TmfRequestExecutor(" + fExecutorName + ")]";
+        return "[TmfRequestExecutor(" + fScheduler.getMaxRunning() + " slots)]";
     }
 
 }
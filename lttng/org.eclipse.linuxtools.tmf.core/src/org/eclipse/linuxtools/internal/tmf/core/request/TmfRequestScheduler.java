@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.core.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.linuxtools.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.linuxtools.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
+
+/**
+ * Scheduler of the requests of all the event providers. Up to a fixed number
+ * of requests run at the same time, whatever the provider they were sent to.
+ * The other ones wait in the queues of their {@link TmfRequestExecutor}.
+ *
+ * When a slot frees up, the next request is picked:
+ * <ul>
+ * <li>by priority: foreground requests go first, but every
+ * {@value #FOREGROUND_SLOT} foreground requests, a background request gets a
+ * slot, so that it is never starved;</li>
+ * <li>by provider: the executors are visited in a round-robin order, so that
+ * the requests of one trace do not delay those of the other traces.</li>
+ * </ul>
+ *
+ * A foreground request sent while all the slots are used suspends a running
+ * background request to take its slot. Every {@value #REQUEST_TIME} ms, if
+ * requests are waiting and all the slots are used, the running request that
+ * has held its slot the longest (background ones first) is suspended and put
+ * back at the end of its queue. This time slicing also makes sure that a
+ * request waiting for another one cannot hold its slot forever.
+ *
+ * The time each request spends waiting in the queues and running is reported
+ * to its executor, and traced when the request completes.
+ */
+public class TmfRequestScheduler {
+
+    // ------------------------------------------------------------------------
+    // Constants
+    // ------------------------------------------------------------------------
+
+    /** Time slice of the requests, in ms */
+    public static final long REQUEST_TIME = 100;
+
+    /** Number of foreground requests started for one background request */
+    public static final int FOREGROUND_SLOT = 4;
+
+    private static final long NS_PER_MS = 1000000L;
+
+    // ------------------------------------------------------------------------
+    // Attributes
+    // ------------------------------------------------------------------------
+
+    private final int fMaxRunning;
+
+    private final ExecutorService fThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "TMF request"); //$NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /* All the following fields are guarded by "this" */
+    private final List<TmfRequestExecutor> fExecutors = new ArrayList<>();
+    private final List<Task> fRunning = new ArrayList<>();
+    private int fNextExecutor = 0;
+    private int fForegroundCycle = 0;
+    private Timer fTimer = null;
+
+    /**
+     * Shared scheduler, created on first use
+     */
+    private static final class DefaultHolder {
+        static final TmfRequestScheduler INSTANCE = new TmfRequestScheduler(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // ------------------------------------------------------------------------
+    // Constructors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     *
+     * @param maxRunning
+     *            The maximum number of requests running at the same time
+     */
+    public TmfRequestScheduler(int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("Invalid number of running requests: " + maxRunning); //$NON-NLS-1$
+        }
+        fMaxRunning = maxRunning;
+    }
+
+    /**
+     * Get the scheduler shared by the event providers, which runs as many
+     * requests at the same time as there are processors.
+     *
+     * @return The default scheduler
+     */
+    public static TmfRequestScheduler getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // ------------------------------------------------------------------------
+    // Getters
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return The maximum number of requests running at the same time
+     */
+    public int getMaxRunning() {
+        return fMaxRunning;
+    }
+
+    /**
+     * @return The number of requests currently running
+     */
+    public synchronized int getNbRunning() {
+        return fRunning.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations, called by the executors
+    // ------------------------------------------------------------------------
+
+    synchronized void register(TmfRequestExecutor executor) {
+        if (fExecutors.contains(executor)) {
+            return;
+        }
+        fExecutors.add(executor);
+        if (fTimer == null) {
+            fTimer = new Timer("TMF request scheduler", true); //$NON-NLS-1$
+            fTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    rotate();
+                }
+            }, REQUEST_TIME, REQUEST_TIME);
+        }
+    }
+
+    synchronized void unregister(TmfRequestExecutor executor) {
+        int index = fExecutors.indexOf(executor);
+        if (index < 0) {
+            return;
+        }
+        fExecutors.remove(index);
+        if (fNextExecutor > index) {
+            fNextExecutor--;
+        }
+        if (fExecutors.isEmpty() && fTimer != null) {
+            fTimer.cancel();
+            fTimer = null;
+        }
+    }
+
+    synchronized void submit(TmfRequestExecutor executor, TmfEventThread thread) {
+        register(executor);
+        Task task = new Task(executor, thread);
+        executor.getQueue(task.getExecType()).add(task);
+        if (task.getExecType() == ExecutionType.FOREGROUND && fRunning.size() >= fMaxRunning) {
+            /* Take the slot of a background request, if there is one */
+            Task victim = findVictim(true);
+            if (victim != null) {
+                suspend(victim);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Remove the tasks of an executor, which is being stopped.
+     *
+     * @return The tasks that were running or waiting
+     */
+    synchronized List<Task> removeTasks(TmfRequestExecutor executor) {
+        List<Task> tasks = new ArrayList<>();
+        for (Task task : fRunning) {
+            if (task.fExecutor == executor) {
+                tasks.add(task);
+            }
+        }
+        tasks.addAll(executor.getQueue(ExecutionType.FOREGROUND));
+        tasks.addAll(executor.getQueue(ExecutionType.BACKGROUND));
+        executor.getQueue(ExecutionType.FOREGROUND).clear();
+        executor.getQueue(ExecutionType.BACKGROUND).clear();
+        unregister(executor);
+        return tasks;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private synchronized void completed(Task task) {
+        final long now = System.nanoTime();
+        if (fRunning.remove(task)) {
+            task.fRunTime += now - task.fSince;
+        } else if (task.fExecutor.getQueue(task.getExecType()).remove(task)) {
+            /* It completed right after being suspended */
+            task.fWaitTime += now - task.fSince;
+        }
+        task.fExecutor.requestCompleted(task.fWaitTime, task.fRunTime);
+        if (TmfCoreTracer.isRequestTraced()) {
+            TmfCoreTracer.traceRequest(task.fThread.getRequest(), "COMPLETED (waited " + //$NON-NLS-1$
+                    task.fWaitTime / NS_PER_MS + " ms, ran " + task.fRunTime / NS_PER_MS + " ms)"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        dispatch();
+    }
+
+    private synchronized void rotate() {
+        if (fRunning.size() < fMaxRunning || !hasQueued(ExecutionType.FOREGROUND) && !hasQueued(ExecutionType.BACKGROUND)) {
+            return;
+        }
+        Task victim = findVictim(false);
+        if (victim != null && System.nanoTime() - victim.fSince >= REQUEST_TIME * NS_PER_MS) {
+            suspend(victim);
+            dispatch();
+        }
+    }
+
+    /**
+     * Find the running task to suspend: a background one if possible, then
+     * the one that is running since the longest time.
+     */
+    private Task findVictim(boolean backgroundOnly) {
+        Task victim = null;
+        for (Task task : fRunning) {
+            if (backgroundOnly && task.getExecType() != ExecutionType.BACKGROUND) {
+                continue;
+            }
+            if (victim == null ||
+                    (victim.getExecType() == ExecutionType.FOREGROUND && task.getExecType() == ExecutionType.BACKGROUND) ||
+                    (victim.getExecType() == task.getExecType() && task.fSince < victim.fSince)) {
+                victim = task;
+            }
+        }
+        return victim;
+    }
+
+    private void suspend(Task task) {
+        final long now = System.nanoTime();
+        fRunning.remove(task);
+        task.fThread.suspend();
+        task.fRunTime += now - task.fSince;
+        task.fSince = now;
+        task.fExecutor.getQueue(task.getExecType()).add(task);
+    }
+
+    private void dispatch() {
+        while (fRunning.size() < fMaxRunning) {
+            Task task = pollNext();
+            if (task == null) {
+                return;
+            }
+            final long now = System.nanoTime();
+            task.fWaitTime += now - task.fSince;
+            task.fSince = now;
+            fRunning.add(task);
+            if (task.fStarted) {
+                task.fThread.resume();
+            } else {
+                task.fStarted = true;
+                task.fExecutor.requestStarted();
+                fThreads.execute(task);
+            }
+        }
+    }
+
+    private Task pollNext() {
+        boolean foreground = hasQueued(ExecutionType.FOREGROUND);
+        boolean background = hasQueued(ExecutionType.BACKGROUND);
+        if (foreground && (fForegroundCycle < FOREGROUND_SLOT || !background)) {
+            fForegroundCycle++;
+            return pollRoundRobin(ExecutionType.FOREGROUND);
+        }
+        if (background) {
+            fForegroundCycle = 0;
+            return pollRoundRobin(ExecutionType.BACKGROUND);
+        }
+        return null;
+    }
+
+    private Task pollRoundRobin(ExecutionType type) {
+        final int nbExecutors = fExecutors.size();
+        for (int i = 0; i < nbExecutors; i++) {
+            int index = (fNextExecutor + i) % nbExecutors;
+            Task task = fExecutors.get(index).getQueue(type).poll();
+            if (task != null) {
+                fNextExecutor = (index + 1) % nbExecutors;
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasQueued(ExecutionType type) {
+        for (TmfRequestExecutor executor : fExecutors) {
+            if (!executor.getQueue(type).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+    // Inner classes
+    // ------------------------------------------------------------------------
+
+    /**
+     * A request being scheduled, with its timing information
+     */
+    final class Task implements Runnable {
+
+        private final TmfRequestExecutor fExecutor;
+        private final TmfEventThread fThread;
+
+        /* Guarded by the scheduler */
+        private boolean fStarted = false;
+        private long fSince = System.nanoTime();
+        private long fWaitTime = 0;
+        private long fRunTime = 0;
+
+        Task(TmfRequestExecutor executor, TmfEventThread thread) {
+            fExecutor = executor;
+            fThread = thread;
+        }
+
+        TmfEventThread getThread() {
+            return fThread;
+        }
+
+        ExecutionType getExecType() {
+            return fThread.getExecType();
+        }
+
+        @Override
+        public void run() {
+            try {
+                fThread.run();
+            } finally {
+                completed(this);
+            }
+        }
+    }
+}
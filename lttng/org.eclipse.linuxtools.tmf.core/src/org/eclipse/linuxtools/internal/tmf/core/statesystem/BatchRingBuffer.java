@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.core.statesystem;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue between producer threads and exactly one consumer thread, in
+ * which the elements are moved in batches.
+ *
+ * The queue is a ring of slots, each one holding a batch of elements. The
+ * producer fills the slot at the tail in place, and publishes it once it is
+ * full. The consumer reads the slot at the head, and releases it once all its
+ * elements are processed. The two threads only synchronize once per batch,
+ * instead of once per element like a {@link java.util.concurrent.BlockingQueue}.
+ *
+ * The producer blocks while all the slots are used (backpressure), and the
+ * consumer blocks while there is no published batch. Both spin for a while
+ * before parking. Before parking, the consumer publishes the current batch
+ * if the producer is not busy with it, and while the consumer is parked the
+ * producer publishes each element right away, so that the elements are not
+ * held back when they arrive slowly.
+ *
+ * The producer methods ({@link #put}, {@link #putLast}, {@link #flush},
+ * {@link #awaitEmpty}) can be called from several threads, they are
+ * serialized by a lock. The consumer methods ({@link #takeBatch},
+ * {@link #get}, {@link #release}) must be called by only one thread at a
+ * time.
+ *
+ * @param <T>
+ *            The type of the elements
+ */
+public final class BatchRingBuffer<T> {
+
+    /** Number of times a thread checks the queue again before parking */
+    private static final int SPIN_TRIES = 64;
+
+    private final Object[][] fSlots;
+    private final int[] fSizes;
+    private final int fBatchSize;
+
+    /** Sequence number of the next batch to read, written by the consumer */
+    private final AtomicLong fHead = new AtomicLong();
+    /** Sequence number of the next batch to write, written by the producer */
+    private final AtomicLong fTail = new AtomicLong();
+
+    private volatile Thread fWaitingProducer = null;
+    private volatile Thread fWaitingConsumer = null;
+
+    /* Statistics, each one is only incremented by one thread */
+    private volatile long fFullStalls = 0;
+    private volatile long fEmptyStalls = 0;
+
+    /* Producer state, guarded by the producer lock */
+    private final ReentrantLock fProducerLock = new ReentrantLock();
+    private Object[] fWriteSlot = null;
+    private int fWriteSize = 0;
+    private boolean fClosed = false;
+
+    /* Consumer state */
+    private Object[] fReadSlot = null;
+    private int fReadSize = 0;
+
+    /**
+     * Constructor
+     *
+     * @param nbBatches
+     *            The number of batches the queue can hold
+     * @param batchSize
+     *            The maximum number of elements of a batch
+     */
+    public BatchRingBuffer(int nbBatches, int batchSize) {
+        if (nbBatches < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Invalid queue size"); //$NON-NLS-1$
+        }
+        fSlots = new Object[nbBatches][batchSize];
+        fSizes = new int[nbBatches];
+        fBatchSize = batchSize;
+    }
+
+    // ------------------------------------------------------------------------
+    // Getters
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the maximum number of elements of a batch
+     *
+     * @return The batch size
+     */
+    public int getBatchSize() {
+        return fBatchSize;
+    }
+
+    /**
+     * Get the number of times the producer had to wait because all the slots
+     * of the queue were used
+     *
+     * @return The number of stalls of the producer
+     */
+    public long getFullStalls() {
+        return fFullStalls;
+    }
+
+    /**
+     * Get the number of times the consumer had to wait because no batch was
+     * published
+     *
+     * @return The number of stalls of the consumer
+     */
+    public long getEmptyStalls() {
+        return fEmptyStalls;
+    }
+
+    // ------------------------------------------------------------------------
+    // Producer operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Add an element to the current batch, which is published if it is full.
+     * The element is dropped if the queue was closed by {@link #putLast}.
+     *
+     * @param element
+     *            The element to add
+     * @throws InterruptedException
+     *             If the producer is interrupted while the queue is full
+     */
+    public void put(T element) throws InterruptedException {
+        fProducerLock.lock();
+        try {
+            if (!fClosed) {
+                add(element);
+            }
+        } finally {
+            fProducerLock.unlock();
+        }
+        /*
+         * The consumer may have started waiting while the lock was held, and
+         * then could not publish the batch itself.
+         */
+        if (fWaitingConsumer != null) {
+            flush();
+        }
+    }
+
+    /**
+     * Add a last element and publish it. The elements put afterwards are
+     * dropped, so that they cannot fill the queue once the consumer stopped
+     * at this element.
+     *
+     * @param element
+     *            The last element
+     * @throws InterruptedException
+     *             If the producer is interrupted while the queue is full
+     */
+    public void putLast(T element) throws InterruptedException {
+        fProducerLock.lock();
+        try {
+            if (!fClosed) {
+                fClosed = true;
+                add(element);
+                publish();
+            }
+        } finally {
+            fProducerLock.unlock();
+        }
+    }
+
+    /**
+     * Publish the current batch, even if it is not full.
+     */
+    public void flush() {
+        fProducerLock.lock();
+        try {
+            publish();
+        } finally {
+            fProducerLock.unlock();
+        }
+    }
+
+    /**
+     * Publish the current batch, and wait until the consumer released all the
+     * batches.
+     *
+     * @throws InterruptedException
+     *             If the producer is interrupted while waiting
+     */
+    public void awaitEmpty() throws InterruptedException {
+        fProducerLock.lock();
+        try {
+            publish();
+            final long tail = fTail.get();
+            if (!awaitHead(tail)) {
+                parkUntilHead(tail);
+            }
+        } finally {
+            fProducerLock.unlock();
+        }
+    }
+
+    /* Must be called while holding the producer lock */
+    private void add(T element) throws InterruptedException {
+        if (fWriteSlot == null) {
+            /* Wait for the slot at the tail to be released by the consumer */
+            final long tail = fTail.get();
+            if (!awaitHead(tail - fSlots.length + 1)) {
+                fFullStalls++;
+                parkUntilHead(tail - fSlots.length + 1);
+            }
+            fWriteSlot = fSlots[(int) (tail % fSlots.length)];
+        }
+        fWriteSlot[fWriteSize++] = element;
+        if (fWriteSize == fBatchSize) {
+            publish();
+        }
+    }
+
+    /* Must be called while holding the producer lock */
+    private void publish() {
+        if (fWriteSize == 0) {
+            return;
+        }
+        final long tail = fTail.get();
+        fSizes[(int) (tail % fSlots.length)] = fWriteSize;
+        fWriteSlot = null;
+        fWriteSize = 0;
+        fTail.set(tail + 1);
+        Thread consumer = fWaitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean awaitHead(long target) {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (fHead.get() >= target) {
+                return true;
+            }
+            Thread.yield();
+        }
+        return false;
+    }
+
+    private void parkUntilHead(long target) throws InterruptedException {
+        fWaitingProducer = Thread.currentThread();
+        try {
+            while (fHead.get() < target) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            fWaitingProducer = null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Consumer operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Wait for the next batch. Its elements are then read with {@link #get},
+     * and it must be released with {@link #release} before taking the next
+     * one.
+     *
+     * @return The number of elements of the batch
+     * @throws InterruptedException
+     *             If the consumer is interrupted while waiting
+     */
+    public int takeBatch() throws InterruptedException {
+        final long head = fHead.get();
+        if (!awaitTail(head + 1)) {
+            fEmptyStalls++;
+            parkUntilTail(head + 1);
+        }
+        final int index = (int) (head % fSlots.length);
+        fReadSlot = fSlots[index];
+        fReadSize = fSizes[index];
+        return fReadSize;
+    }
+
+    /**
+     * Get an element of the batch that was taken
+     *
+     * @param index
+     *            The index of the element in the batch
+     * @return The element
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= fReadSize) {
+            throw new IndexOutOfBoundsException();
+        }
+        return (T) fReadSlot[index];
+    }
+
+    /**
+     * Release the batch that was taken, so that the producer can fill its slot
+     * again.
+     */
+    public void release() {
+        /* Do not keep references to the elements */
+        for (int i = 0; i < fReadSize; i++) {
+            fReadSlot[i] = null;
+        }
+        fReadSlot = null;
+        fReadSize = 0;
+        fHead.set(fHead.get() + 1);
+        Thread producer = fWaitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    private boolean awaitTail(long target) {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (fTail.get() >= target) {
+                return true;
+            }
+            Thread.yield();
+        }
+        return false;
+    }
+
+    private void parkUntilTail(long target) throws InterruptedException {
+        fWaitingConsumer = Thread.currentThread();
+        try {
+            /*
+             * Publish the elements put before the consumer was waiting. If a
+             * producer holds the lock, it will see the waiting consumer once
+             * it releases it, and publish them.
+             */
+            if (fProducerLock.tryLock()) {
+                try {
+                    publish();
+                } finally {
+                    fProducerLock.unlock();
+                }
+            }
+            while (fTail.get() < target) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            fWaitingConsumer = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.core.trace;
+
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+/**
+ * The result of the match of a line of a text trace, copied from the matcher
+ * so that the matcher can be reused for the following lines. Only the bounds
+ * of the groups are copied, the groups are extracted from the line when they
+ * are read.
+ */
+public final class TextLineMatchResult implements MatchResult {
+
+    private final String fLine;
+    private final int[] fBounds;
+
+    /**
+     * Copy the result of the last match of a matcher
+     *
+     * @param matcher
+     *            The matcher, which matched the line
+     * @param line
+     *            The line that was matched
+     */
+    public TextLineMatchResult(Matcher matcher, String line) {
+        fLine = line;
+        fBounds = new int[(matcher.groupCount() + 1) * 2];
+        for (int group = 0; group <= matcher.groupCount(); group++) {
+            fBounds[group * 2] = matcher.start(group);
+            fBounds[group * 2 + 1] = matcher.end(group);
+        }
+    }
+
+    @Override
+    public int start() {
+        return start(0);
+    }
+
+    @Override
+    public int start(int group) {
+        checkGroup(group);
+        return fBounds[group * 2];
+    }
+
+    @Override
+    public int end() {
+        return end(0);
+    }
+
+    @Override
+    public int end(int group) {
+        checkGroup(group);
+        return fBounds[group * 2 + 1];
+    }
+
+    @Override
+    public String group() {
+        return group(0);
+    }
+
+    @Override
+    public String group(int group) {
+        checkGroup(group);
+        int start = fBounds[group * 2];
+        if (start == -1) {
+            return null;
+        }
+        return fLine.substring(start, fBounds[group * 2 + 1]);
+    }
+
+    @Override
+    public int groupCount() {
+        return fBounds.length / 2 - 1;
+    }
+
+    private void checkGroup(int group) {
+        if (group < 0 || group > groupCount()) {
+            throw new IndexOutOfBoundsException("No group " + group); //$NON-NLS-1$
+        }
+    }
+}
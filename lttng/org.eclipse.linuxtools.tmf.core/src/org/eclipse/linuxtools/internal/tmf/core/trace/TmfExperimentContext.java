@@ -19,8 +19,11 @@ import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 
 /**
  * The experiment context in TMF.
@@ -33,6 +36,15 @@ import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
  * <p>
  * The last trace refers to the trace from which the last event was "consumed"
  * at the experiment level.
+ * <p>
+ * The next event is picked with a tournament (loser) tree over the events of
+ * the traces, so that each event read costs O(log N) comparisons instead of N
+ * for an experiment of N traces. While the last trace keeps providing events
+ * that come before the next event of every other trace, the tree is not
+ * updated at all and each event costs a single comparison.
+ * <p>
+ * The location is updated in place when an event is consumed, and the
+ * location array is only copied when the location is queried.
  */
 public final class TmfExperimentContext extends TmfContext {
 
@@ -53,6 +65,27 @@ public final class TmfExperimentContext extends TmfContext {
     private final List<ITmfEvent> fEvents;
     private int fLastTraceRead;
 
+    /* Timestamps of the events that can be compared as nanosecond values */
+    private final boolean[] fIsNanos;
+    private final long[] fNanos;
+
+    /*
+     * Tournament tree: internal node i (1 <= i < N) holds the loser of the
+     * match between its children 2i and 2i+1, and the leaf of trace t is the
+     * node N+t.
+     */
+    private final int[] fLosers;
+    private int fWinner = NO_TRACE;
+    private boolean fTreeValid = false;
+    /* Best trace after the winner, or NO_TRACE if there is none */
+    private int fRunnerUp = NO_TRACE;
+    private boolean fRunnerUpValid = false;
+
+    /* Current location of each trace, copied into the location when needed */
+    private ITmfLocation[] fLocations;
+    private long[] fRanks;
+    private boolean fLocationDirty = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -68,7 +101,9 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = NO_TRACE;
         fContexts = new ArrayList<>(nbTraces);
         fEvents = new ArrayList<>(nbTraces);
-
+        fLosers = new int[Math.max(nbTraces, 1)];
+        fIsNanos = new boolean[nbTraces];
+        fNanos = new long[nbTraces];
 
         /* Initialize the arrays to the requested size */
         for (int i = 0; i < nbTraces; i++) {
@@ -146,6 +181,60 @@ public final class TmfExperimentContext extends TmfContext {
      */
     public void setEvent(int traceIndex, ITmfEvent event) {
         fEvents.set(traceIndex, event);
+        final ITmfTimestamp ts = (event == null) ? null : event.getTimestamp();
+        fIsNanos[traceIndex] = (ts instanceof TmfTimestamp) &&
+                ts.getScale() == ITmfTimestamp.NANOSECOND_SCALE && ts.getPrecision() == 0;
+        if (fIsNanos[traceIndex]) {
+            fNanos[traceIndex] = ts.getValue();
+        }
+        if (!fTreeValid) {
+            return;
+        }
+        if (traceIndex != fWinner) {
+            fTreeValid = false;
+            return;
+        }
+        /*
+         * The winner was replaced: if its new event still comes before the
+         * best of the other traces, it still wins all its matches and the
+         * tree does not change. Otherwise replay its matches up to the root.
+         */
+        if (!fRunnerUpValid) {
+            fRunnerUp = computeRunnerUp();
+            fRunnerUpValid = true;
+        }
+        if (fRunnerUp == NO_TRACE || before(traceIndex, fRunnerUp)) {
+            return;
+        }
+        int nbTraces = fEvents.size();
+        int candidate = traceIndex;
+        for (int node = (nbTraces + traceIndex) >>> 1; node > 0; node >>>= 1) {
+            int loser = fLosers[node];
+            if (before(loser, candidate)) {
+                fLosers[node] = candidate;
+                candidate = loser;
+            }
+        }
+        fWinner = candidate;
+        fRunnerUpValid = false;
+    }
+
+    /**
+     * Get the index of the trace whose current event comes first, in the
+     * order of the timestamps. Between traces whose events have the same
+     * timestamp, the trace with the lowest index comes first.
+     *
+     * @return The index of the trace, or {@link #NO_TRACE} if no trace has an
+     *         event with a timestamp
+     */
+    public int getNextTrace() {
+        if (!fTreeValid) {
+            buildTree();
+        }
+        if (fWinner == NO_TRACE || !hasTimestamp(fWinner)) {
+            return NO_TRACE;
+        }
+        return fWinner;
     }
 
     /**
@@ -168,6 +257,118 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = newIndex;
     }
 
+    /**
+     * Update the location and rank of a trace in the experiment location
+     *
+     * @param traceIndex
+     *            The index of the trace in the experiment
+     * @param location
+     *            The new location of that trace
+     * @param rank
+     *            The new rank of that trace
+     */
+    public void updateLocation(int traceIndex, ITmfLocation location, long rank) {
+        if (fLocations == null) {
+            TmfLocationArray locationArray = ((TmfExperimentLocation) super.getLocation()).getLocationInfo();
+            fLocations = locationArray.getLocations();
+            fRanks = locationArray.getRanks();
+        }
+        fLocations[traceIndex] = location;
+        fRanks[traceIndex] = rank;
+        fLocationDirty = true;
+    }
+
+    @Override
+    public ITmfLocation getLocation() {
+        if (fLocationDirty) {
+            super.setLocation(new TmfExperimentLocation(new TmfLocationArray(fLocations, fRanks)));
+            fLocationDirty = false;
+        }
+        return super.getLocation();
+    }
+
+    @Override
+    public void setLocation(ITmfLocation location) {
+        super.setLocation(location);
+        fLocations = null;
+        fRanks = null;
+        fLocationDirty = false;
+    }
+
+    // ------------------------------------------------------------------------
+    // Tournament tree
+    // ------------------------------------------------------------------------
+
+    private boolean hasTimestamp(int traceIndex) {
+        ITmfEvent event = fEvents.get(traceIndex);
+        return event != null && event.getTimestamp() != null;
+    }
+
+    /**
+     * Check if the event of a trace comes before the event of another trace.
+     * The traces without event come last.
+     */
+    private boolean before(int trace1, int trace2) {
+        if (fIsNanos[trace1] && fIsNanos[trace2]) {
+            final long nanos1 = fNanos[trace1];
+            final long nanos2 = fNanos[trace2];
+            return (nanos1 != nanos2) ? nanos1 < nanos2 : trace1 < trace2;
+        }
+        if (!hasTimestamp(trace2)) {
+            return hasTimestamp(trace1) || trace1 < trace2;
+        }
+        if (!hasTimestamp(trace1)) {
+            return false;
+        }
+        ITmfTimestamp ts1 = fEvents.get(trace1).getTimestamp();
+        ITmfTimestamp ts2 = fEvents.get(trace2).getTimestamp();
+        int result = ts1.compareTo(ts2, true);
+        return (result != 0) ? result < 0 : trace1 < trace2;
+    }
+
+    private void buildTree() {
+        int nbTraces = fEvents.size();
+        if (nbTraces == 0) {
+            fWinner = NO_TRACE;
+        } else {
+            /* Winners of the internal nodes, then of the leaves */
+            int[] winners = new int[2 * nbTraces];
+            for (int i = 0; i < nbTraces; i++) {
+                winners[nbTraces + i] = i;
+            }
+            for (int node = nbTraces - 1; node > 0; node--) {
+                int left = winners[2 * node];
+                int right = winners[2 * node + 1];
+                if (before(right, left)) {
+                    winners[node] = right;
+                    fLosers[node] = left;
+                } else {
+                    winners[node] = left;
+                    fLosers[node] = right;
+                }
+            }
+            fWinner = (nbTraces == 1) ? 0 : winners[1];
+        }
+        fTreeValid = true;
+        fRunnerUpValid = false;
+    }
+
+    /**
+     * The best trace after the winner is the best of the traces that lost
+     * against it on its way to the root.
+     */
+    private int computeRunnerUp() {
+        int nbTraces = fEvents.size();
+        int runnerUp = NO_TRACE;
+        for (int node = (nbTraces + fWinner) >>> 1; node > 0; node >>>= 1) {
+            int loser = fLosers[node];
+            if (runnerUp == NO_TRACE || before(loser, runnerUp)) {
+                runnerUp = loser;
+            }
+        }
+        return runnerUp;
+    }
+
     // ------------------------------------------------------------------------
     // Object
     // ------------------------------------------------------------------------
@@ -186,13 +387,16 @@ public final class TmfExperimentContext extends TmfContext {
         if (this == other) {
             return true;
         }
-        if (!super.equals(other)) {
-            return false;
-        }
         if (!(other instanceof TmfExperimentContext)) {
             return false;
         }
         final TmfExperimentContext o = (TmfExperimentContext) other;
+        /* Bring the locations up to date before they are compared */
+        getLocation();
+        o.getLocation();
+        if (!super.equals(other)) {
+            return false;
+        }
         boolean isEqual = true;
         int i = 0;
         while (isEqual && (i < fContexts.size())) {
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.core.trace.indexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.linuxtools.internal.tmf.core.Activator;
+import org.eclipse.linuxtools.internal.tmf.core.trace.TmfExperimentLocation;
+import org.eclipse.linuxtools.internal.tmf.core.trace.TmfLocationArray;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.TmfExperiment;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
+
+/**
+ * Builds the checkpoints of an experiment concurrently.
+ * <p>
+ * The traces of the experiment are first indexed concurrently. The experiment
+ * is then split in segments of about the same number of events: a segment
+ * starts at the first events of the traces at or after a given time, found
+ * with the indexes of the traces, and its rank is the sum of their ranks. The
+ * segments are read concurrently and their checkpoints are added to the index
+ * in order.
+ */
+public class TmfExperimentIndexBuilder {
+
+    /** The maximum number of threads reading the traces */
+    private static final int NB_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /** The number of segments read by each thread, to balance their load */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    /** The minimum number of checkpoints in a segment */
+    private static final int MIN_SEGMENT_CHECKPOINTS = 16;
+
+    private final TmfExperiment fExperiment;
+    private final ITmfTraceIndexer fIndexer;
+    private final int fInterval;
+    private volatile boolean fCancelled = false;
+
+    /**
+     * The timestamp of an event of a trace, standing for a number of events
+     */
+    private static final class Sample implements Comparable<Sample> {
+        private final ITmfTimestamp fTimestamp;
+        private final long fWeight;
+
+        public Sample(ITmfTimestamp timestamp, long weight) {
+            fTimestamp = timestamp;
+            fWeight = weight;
+        }
+
+        @Override
+        public int compareTo(Sample other) {
+            return fTimestamp.compareTo(other.fTimestamp, false);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param experiment
+     *            The experiment to index
+     * @param indexer
+     *            The indexer of the experiment, to which the checkpoints are
+     *            added with {@link ITmfTraceIndexer#updateIndex}
+     * @param interval
+     *            The number of events between checkpoints
+     */
+    public TmfExperimentIndexBuilder(TmfExperiment experiment, ITmfTraceIndexer indexer, int interval) {
+        fExperiment = experiment;
+        fIndexer = indexer;
+        fInterval = interval;
+    }
+
+    /**
+     * Stop building the checkpoints
+     */
+    public void cancel() {
+        fCancelled = true;
+    }
+
+    /**
+     * Build the checkpoints of the experiment
+     *
+     * @return true if all the checkpoints were added, false if the building
+     *         was cancelled or failed
+     */
+    public boolean build() {
+        final ITmfTrace[] traces = fExperiment.getTraces();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(NB_THREADS, traces.length));
+        try {
+            /* Index the traces */
+            List<Future<Void>> indexed = new ArrayList<>();
+            for (final ITmfTrace trace : traces) {
+                indexed.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (!fCancelled) {
+                            trace.indexTrace(true);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : indexed) {
+                future.get();
+            }
+            if (fCancelled) {
+                return false;
+            }
+
+            /* Read the segments */
+            List<TmfExperimentLocation> starts = findSegmentStarts(traces);
+            List<Future<List<ITmfCheckpoint>>> segments = new ArrayList<>();
+            for (int i = 0; i < starts.size(); i++) {
+                final TmfExperimentLocation start = starts.get(i);
+                final long end = (i + 1 < starts.size()) ? getRank(starts.get(i + 1)) : Long.MAX_VALUE;
+                segments.add(executor.submit(new Callable<List<ITmfCheckpoint>>() {
+                    @Override
+                    public List<ITmfCheckpoint> call() {
+                        return readSegment(start, end);
+                    }
+                }));
+            }
+
+            /*
+             * The checkpoints read in order were already added by the
+             * experiment, the index ignores them.
+             */
+            for (Future<List<ITmfCheckpoint>> segment : segments) {
+                for (ITmfCheckpoint checkpoint : segment.get()) {
+                    ITmfContext context = new TmfContext(checkpoint.getLocation(), checkpoint.getCheckpointRank() * fInterval);
+                    fIndexer.updateIndex(context, checkpoint.getTimestamp());
+                }
+            }
+            return !fCancelled;
+        } catch (InterruptedException e) {
+            return false;
+        } catch (ExecutionException e) {
+            Activator.logError("Error indexing experiment " + fExperiment.getName(), e.getCause()); //$NON-NLS-1$
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Find the locations where the segments start. The first one is the
+     * start of the experiment (null). The others are taken at the times that
+     * split the events in segments of about the same size, estimated from the
+     * timestamps of the events at regular ranks of each trace.
+     */
+    private List<TmfExperimentLocation> findSegmentStarts(ITmfTrace[] traces) {
+        List<TmfExperimentLocation> starts = new ArrayList<>();
+        starts.add(null);
+
+        long nbEvents = 0;
+        for (ITmfTrace trace : traces) {
+            nbEvents += trace.getNbEvents();
+        }
+        long nbSegments = Math.min(NB_THREADS * SEGMENTS_PER_THREAD, nbEvents / ((long) fInterval * MIN_SEGMENT_CHECKPOINTS));
+        if (nbSegments <= 1) {
+            return starts;
+        }
+
+        /* Each sample stands for the events of its trace since the previous one */
+        List<Sample> samples = new ArrayList<>();
+        for (ITmfTrace trace : traces) {
+            long weight = trace.getNbEvents() / nbSegments;
+            for (int i = 1; i < nbSegments && weight > 0; i++) {
+                ITmfContext context = trace.seekEvent(i * weight);
+                ITmfEvent event = trace.getNext(context);
+                context.dispose();
+                if (event != null) {
+                    samples.add(new Sample(event.getTimestamp(), weight));
+                }
+            }
+        }
+        Collections.sort(samples);
+
+        /* Start a segment where the total weight reaches each segment size */
+        long total = 0;
+        long segment = 1;
+        ITmfTimestamp previous = null;
+        for (Sample sample : samples) {
+            total += sample.fWeight;
+            if (total * nbSegments < segment * nbEvents) {
+                continue;
+            }
+            while (total * nbSegments >= segment * nbEvents) {
+                segment++;
+            }
+            if (previous == null || sample.fTimestamp.compareTo(previous, false) > 0) {
+                starts.add(seekTraces(traces, sample.fTimestamp));
+                previous = sample.fTimestamp;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Get the location of the experiment at the first events of the traces
+     * at or after a time
+     */
+    private static TmfExperimentLocation seekTraces(ITmfTrace[] traces, ITmfTimestamp timestamp) {
+        ITmfLocation[] locations = new ITmfLocation[traces.length];
+        long[] ranks = new long[traces.length];
+        for (int i = 0; i < traces.length; i++) {
+            ITmfContext context = traces[i].seekEvent(timestamp);
+            if (context.getLocation() == null) {
+                /* All the events of the trace are before, go to its end */
+                context.dispose();
+                context = traces[i].seekEvent(traces[i].getNbEvents());
+                while (traces[i].getNext(context) != null) {
+                    // The number of events was not up to date
+                }
+            }
+            locations[i] = context.getLocation();
+            ranks[i] = context.getRank();
+            context.dispose();
+        }
+        return new TmfExperimentLocation(new TmfLocationArray(locations, ranks));
+    }
+
+    private static long getRank(TmfExperimentLocation location) {
+        long rank = 0;
+        for (long traceRank : location.getLocationInfo().getRanks()) {
+            rank += traceRank;
+        }
+        return rank;
+    }
+
+    /**
+     * Read the events of the experiment from a location to a rank, and return
+     * the checkpoints of the events at the checkpoint ranks
+     */
+    private List<ITmfCheckpoint> readSegment(TmfExperimentLocation start, long end) {
+        List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+        ITmfContext context = fExperiment.seekEvent(start);
+        while (!fCancelled && context.getRank() < end) {
+            long rank = context.getRank();
+            ITmfLocation location = (rank % fInterval == 0) ? context.getLocation() : null;
+            ITmfEvent event = fExperiment.getNext(context);
+            if (event == null) {
+                break;
+            }
+            if (location != null) {
+                checkpoints.add(new TmfCheckpoint(event.getTimestamp(), location, rank / fInterval));
+            }
+        }
+        context.dispose();
+        return checkpoints;
+    }
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.core.trace.indexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.linuxtools.internal.tmf.core.Activator;
+import org.eclipse.linuxtools.tmf.core.io.BufferedRandomAccessFile;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
+import org.eclipse.linuxtools.tmf.core.trace.location.TmfLongLocation;
+
+/**
+ * The indexer of the line-based text traces. It builds the checkpoints of a
+ * whole trace by parsing chunks of its file concurrently, instead of reading
+ * all the events with a request.
+ * <p>
+ * The file is split in chunks of the same size, at line boundaries. Each
+ * chunk is parsed on a worker thread, with its own reader of the file, from
+ * the first line starting an event in the chunk up to the first event
+ * starting after the chunk. The chunks are then reassembled in order, which
+ * gives the ranks of their events. If the last event of a chunk ends at
+ * another line than the one where the next chunk found its first event, the
+ * next chunk is parsed again from the end of that event, so the events are
+ * the same as when the file is read in order.
+ */
+public abstract class TmfTextTraceIndexer extends TmfBTreeTraceIndexer {
+
+    /** The size of the chunks of the file */
+    private static final long CHUNK_SIZE = 1 << 20;
+
+    /** The maximum number of threads parsing the chunks */
+    private static final int NB_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /** The maximum number of chunks parsed ahead of the reassembled ones */
+    private static final int MAX_PENDING_CHUNKS = 2 * NB_THREADS;
+
+    /**
+     * A reader of the events of a text trace, with its own file. It is used
+     * from a single thread.
+     */
+    public interface IChunkReader extends Closeable {
+
+        /**
+         * Get the length of the file
+         *
+         * @return The length of the file
+         * @throws IOException
+         *             If the file cannot be read
+         */
+        long length() throws IOException;
+
+        /**
+         * Position the reader at the first event starting at or after the
+         * start of the first line at or after an offset. The reader can use
+         * {@link TmfTextTraceIndexer#seekLine} to find the line.
+         *
+         * @param offset
+         *            The offset in the file
+         * @return The offset of the event, or -1 if there is no event
+         * @throws IOException
+         *             If the file cannot be read
+         */
+        long seekEvent(long offset) throws IOException;
+
+        /**
+         * Parse the event at the position of the reader, and position the
+         * reader at the next event
+         *
+         * @return The timestamp of the event, or null if there is no event
+         */
+        ITmfTimestamp readEvent();
+
+        /**
+         * Get the offset of the event at the position of the reader
+         *
+         * @return The offset of the event, or -1 if there is no event
+         */
+        long getEventOffset();
+    }
+
+    /**
+     * The offsets and timestamps of the events starting in a chunk
+     */
+    private static final class Chunk {
+        private final long fEnd;
+        private long fFirstOffset = -1;
+        private long fNextOffset = -1;
+        private int fNbEvents = 0;
+        private long[] fOffsets = new long[256];
+        private ITmfTimestamp[] fTimestamps = new ITmfTimestamp[256];
+
+        public Chunk(long end) {
+            fEnd = end;
+        }
+
+        public void add(long offset, ITmfTimestamp timestamp) {
+            if (fNbEvents == fOffsets.length) {
+                fOffsets = Arrays.copyOf(fOffsets, fNbEvents * 2);
+                fTimestamps = Arrays.copyOf(fTimestamps, fNbEvents * 2);
+            }
+            fOffsets[fNbEvents] = offset;
+            fTimestamps[fNbEvents] = timestamp;
+            fNbEvents++;
+        }
+    }
+
+    private final int fInterval;
+    private volatile boolean fIsCancelled = false;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoints interval
+     */
+    public TmfTextTraceIndexer(ITmfTrace trace, int interval) {
+        super(trace, interval);
+        fInterval = interval;
+    }
+
+    /**
+     * Returns whether the file of the trace is parsed in chunks. If not, the
+     * trace is indexed by reading its events with a request.
+     *
+     * @return true if the file of the trace is parsed in chunks
+     */
+    protected abstract boolean isParallelParsing();
+
+    /**
+     * Create a reader of the events of the trace, with its own file. It is
+     * created on the indexing thread and used on a worker thread.
+     *
+     * @return The reader
+     * @throws IOException
+     *             If the file cannot be opened
+     */
+    protected abstract IChunkReader createChunkReader() throws IOException;
+
+    /**
+     * Position a file at the start of the first line at or after an offset
+     *
+     * @param file
+     *            The file
+     * @param offset
+     *            The offset in the file
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public static void seekLine(BufferedRandomAccessFile file, long offset) throws IOException {
+        if (offset <= 0) {
+            file.seek(0);
+            return;
+        }
+        /* Skip the rest of the line of the previous byte, up to its newline */
+        file.seek(offset - 1);
+        file.getNextLine();
+    }
+
+    @Override
+    protected void cancelCheckpoints() {
+        fIsCancelled = true;
+        super.cancelCheckpoints();
+    }
+
+    @Override
+    protected boolean canBuildCheckpoints() {
+        return isParallelParsing();
+    }
+
+    @Override
+    protected boolean buildCheckpoints() {
+        ExecutorService executor = Executors.newFixedThreadPool(NB_THREADS);
+        try {
+            long length;
+            try (IChunkReader reader = createChunkReader()) {
+                length = reader.length();
+            }
+            long nbChunks = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            long nextChunk = 0;
+            long expectedOffset = 0;
+            long rank = 0;
+            ITmfTimestamp startTime = null;
+            ITmfTimestamp endTime = null;
+            for (long i = 0; i < nbChunks; i++) {
+                while (nextChunk < nbChunks && pending.size() < MAX_PENDING_CHUNKS) {
+                    long start = nextChunk * CHUNK_SIZE;
+                    long end = Math.min(length, start + CHUNK_SIZE);
+                    pending.add(executor.submit(new ChunkParser(createChunkReader(), start, end)));
+                    nextChunk++;
+                }
+                Chunk chunk = pending.remove().get();
+                if (fIsCancelled) {
+                    return false;
+                }
+                if (i > 0 && chunk.fFirstOffset != expectedOffset) {
+                    /* The previous event did not end where the chunk was split */
+                    if (expectedOffset < 0) {
+                        chunk = new Chunk(chunk.fEnd);
+                    } else {
+                        chunk = new ChunkParser(createChunkReader(), expectedOffset, chunk.fEnd).call();
+                    }
+                }
+
+                for (int j = 0; j < chunk.fNbEvents; j++) {
+                    ITmfTimestamp timestamp = chunk.fTimestamps[j];
+                    if (rank % fInterval == 0) {
+                        updateIndex(new TmfContext(new TmfLongLocation(chunk.fOffsets[j]), rank), timestamp);
+                    }
+                    if (startTime == null || startTime.compareTo(timestamp, false) > 0) {
+                        startTime = timestamp;
+                    }
+                    if (endTime == null || endTime.compareTo(timestamp, false) < 0) {
+                        endTime = timestamp;
+                    }
+                    rank++;
+                }
+                expectedOffset = chunk.fNextOffset;
+            }
+
+            if (rank == 0 || fIsCancelled) {
+                return false;
+            }
+            setTraceRange(new TmfTimeRange(startTime, endTime), rank);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        } catch (IOException e) {
+            Activator.logError("Error indexing trace " + fTrace.getName(), e); //$NON-NLS-1$
+            return false;
+        } catch (ExecutionException e) {
+            Activator.logError("Error indexing trace " + fTrace.getName(), e.getCause()); //$NON-NLS-1$
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse the events starting in a chunk of the file. The last event is
+     * parsed up to its end, after the chunk.
+     */
+    private final class ChunkParser implements Callable<Chunk> {
+        private final IChunkReader fReader;
+        private final long fStart;
+        private final long fEnd;
+
+        public ChunkParser(IChunkReader reader, long start, long end) {
+            fReader = reader;
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            Chunk chunk = new Chunk(fEnd);
+            try (IChunkReader reader = fReader) {
+                long offset = reader.seekEvent(fStart);
+                chunk.fFirstOffset = offset;
+                while (offset >= 0 && offset < fEnd && !fIsCancelled) {
+                    ITmfTimestamp timestamp = reader.readEvent();
+                    if (timestamp == null) {
+                        offset = -1;
+                        break;
+                    }
+                    chunk.add(offset, timestamp);
+                    offset = reader.getEventOffset();
+                }
+                chunk.fNextOffset = offset;
+            }
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.analysis;
+
+/**
+ * Interface of the analysis modules that can take part in a shared scan of
+ * their trace, see {@link TmfAnalysisManager#joinSharedScan}.
+ *
+ * A module implementing this interface promises that, once it is scheduled,
+ * it calls {@link TmfAnalysisManager#sharedScanReady} as soon as it has sent
+ * its event request to the trace, or as soon as it knows it will not send
+ * one. It must not wait for its request to complete before doing so.
+ *
+ * @since 3.1
+ */
+public interface ISharedScanAnalysisModule extends IAnalysisModule {
+
+}
@@ -273,12 +273,14 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
 
         /* Do not execute if analysis has already run */
         if (fFinishedLatch.getCount() == 0) {
+            TmfAnalysisManager.sharedScanReady(trace, this);
             return;
         }
 
         /* Do not execute if analysis already running */
         synchronized (syncObj) {
             if (fStarted) {
+                TmfAnalysisManager.sharedScanReady(trace, this);
                 return;
             }
             fStarted = true;
@@ -297,6 +299,8 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent implements
                 } catch (TmfAnalysisException e) {
                     Activator.logError("Error executing analysis with trace " + getTrace().getName(), e); //$NON-NLS-1$
                 } finally {
+                    /* In case the analysis did not read the trace */
+                    TmfAnalysisManager.sharedScanReady(trace, TmfAbstractAnalysisModule.this);
                     synchronized (syncObj) {
                         monitor.done();
                         setAnalysisCompleted();
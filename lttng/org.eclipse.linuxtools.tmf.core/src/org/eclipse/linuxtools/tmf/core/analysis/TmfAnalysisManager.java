@@ -15,8 +15,12 @@ package org.eclipse.linuxtools.tmf.core.analysis;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.eclipse.linuxtools.internal.tmf.core.Activator;
 import org.eclipse.linuxtools.internal.tmf.core.analysis.TmfAnalysisModuleSources;
@@ -37,6 +41,28 @@ public class TmfAnalysisManager {
     private static final List<IAnalysisModuleSource> fSources = new ArrayList<>();
     private static final List<ITmfNewAnalysisModuleListener> fListeners = new ArrayList<>();
 
+    /**
+     * Maximum time, in ms, during which the event requests of a trace are held
+     * back waiting for the modules of a shared scan
+     *
+     * @since 3.1
+     */
+    public static final long SHARED_SCAN_TIMEOUT = 5000;
+
+    /* The shared scans being prepared, guarded by fSharedScans */
+    private static final Map<ITmfTrace, SharedScan> fSharedScans = new HashMap<>();
+    private static volatile boolean fSharedScanEnabled = true;
+    private static Timer fSharedScanTimer = null;
+
+    /**
+     * The modules that joined the shared scan of a trace and did not send
+     * their request yet
+     */
+    private static final class SharedScan {
+        final Set<IAnalysisModule> fModules = new HashSet<>();
+        TimerTask fTimeout = null;
+    }
+
     /**
      * Constructor, not to be used
      * TODO This class is not meant to be instantiated, put me private in next major release
@@ -227,4 +253,112 @@ public class TmfAnalysisManager {
         }
     }
 
+    // ------------------------------------------------------------------------
+    // Shared scans
+    // ------------------------------------------------------------------------
+
+    /**
+     * Enable or disable the shared scans. When they are disabled, each
+     * analysis module reads the trace on its own.
+     *
+     * @param enabled
+     *            If the shared scans are enabled
+     * @since 3.1
+     */
+    public static void setSharedScanEnabled(boolean enabled) {
+        fSharedScanEnabled = enabled;
+    }
+
+    /**
+     * Get if the analysis modules of a trace read it in one shared scan
+     *
+     * @return If the shared scans are enabled
+     * @since 3.1
+     */
+    public static boolean isSharedScanEnabled() {
+        return fSharedScanEnabled;
+    }
+
+    /**
+     * Add a module to the shared scan of a trace. This must be called before
+     * the module is scheduled.
+     *
+     * While some modules of a trace have joined its shared scan but have not
+     * sent their request yet, the requests sent to the trace are held back.
+     * Once they are all ready, the requests are coalesced, so that the trace is
+     * read only once and each event is dispatched to all the modules.
+     *
+     * The requests are released after {@link #SHARED_SCAN_TIMEOUT} ms even if
+     * some modules are not ready, so that a module that fails to start does
+     * not block the trace.
+     *
+     * @param trace
+     *            The trace the module will read
+     * @param module
+     *            The module that will send a request to the trace
+     * @since 3.1
+     */
+    public static void joinSharedScan(final ITmfTrace trace, ISharedScanAnalysisModule module) {
+        if (!fSharedScanEnabled) {
+            return;
+        }
+        synchronized (fSharedScans) {
+            SharedScan scan = fSharedScans.get(trace);
+            if (scan == null) {
+                final SharedScan newScan = new SharedScan();
+                trace.notifyPendingRequest(true);
+                if (fSharedScanTimer == null) {
+                    fSharedScanTimer = new Timer("TMF shared scan", true); //$NON-NLS-1$
+                }
+                newScan.fTimeout = new TimerTask() {
+                    @Override
+                    public void run() {
+                        releaseSharedScan(trace, newScan);
+                    }
+                };
+                fSharedScanTimer.schedule(newScan.fTimeout, SHARED_SCAN_TIMEOUT);
+                fSharedScans.put(trace, newScan);
+                scan = newScan;
+            }
+            scan.fModules.add(module);
+        }
+    }
+
+    /**
+     * Notify that a module of a shared scan has sent its request to the trace,
+     * or that it will not send one. When all the modules of the scan are
+     * ready, the requests of the trace are released.
+     *
+     * Calling this for a module that is not part of a shared scan has no
+     * effect.
+     *
+     * @param trace
+     *            The trace read by the module
+     * @param module
+     *            The module
+     * @since 3.1
+     */
+    public static void sharedScanReady(ITmfTrace trace, IAnalysisModule module) {
+        SharedScan scan;
+        synchronized (fSharedScans) {
+            scan = fSharedScans.get(trace);
+            if (scan == null || !scan.fModules.remove(module) || !scan.fModules.isEmpty()) {
+                return;
+            }
+            scan.fTimeout.cancel();
+        }
+        releaseSharedScan(trace, scan);
+    }
+
+    private static void releaseSharedScan(ITmfTrace trace, SharedScan scan) {
+        synchronized (fSharedScans) {
+            if (fSharedScans.get(trace) != scan) {
+                /* Already released */
+                return;
+            }
+            fSharedScans.remove(trace);
+        }
+        trace.notifyPendingRequest(false);
+    }
+
 }
@@ -20,7 +20,7 @@ import org.eclipse.linuxtools.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.linuxtools.statesystem.core.statevalue.TmfStateValue;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.statesystem.AbstractTmfStateProvider;
-import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
 import org.eclipse.osgi.util.NLS;
 
@@ -96,7 +96,7 @@ public abstract class CallStackStateProvider extends AbstractTmfStateProvider {
             /* Check if the event is a function entry */
             String functionEntryName = functionEntry(event);
             if (functionEntryName != null) {
-                long timestamp = event.getTimestamp().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+                long timestamp = TmfTimestamp.toNanos(event.getTimestamp());
                 String thread = getThreadName(event);
                 int threadQuark = ss.getQuarkAbsoluteAndAdd(THREADS, thread);
                 Long threadId = getThreadId(event);
@@ -112,7 +112,7 @@ public abstract class CallStackStateProvider extends AbstractTmfStateProvider {
             /* Check if the event is a function exit */
             String functionExitName = functionExit(event);
             if (functionExitName != null) {
-                long timestamp = event.getTimestamp().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+                long timestamp = TmfTimestamp.toNanos(event.getTimestamp());
                 String thread = getThreadName(event);
                 int quark = ss.getQuarkAbsoluteAndAdd(THREADS, thread, CALL_STACK);
                 ITmfStateValue poppedValue = ss.popAttribute(timestamp, quark);
@@ -211,9 +211,13 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
             if (fPendingCoalescedRequests.size() > 0) {
                 Iterator<TmfCoalescedEventRequest> iter = fPendingCoalescedRequests.iterator();
                 while (iter.hasNext()) {
-                    ExecutionType type = (fIsTimeout ? ExecutionType.BACKGROUND : ExecutionType.FOREGROUND);
+                    /*
+                     * Foreground requests wait for the end of the signals,
+                     * background requests for the coalescing delay.
+                     */
                     ITmfEventRequest request = iter.next();
-                    if (type == request.getExecType()) {
+                    boolean fire = (request.getExecType() == ExecutionType.BACKGROUND) ? fIsTimeout : (fSignalDepth == 0);
+                    if (fire) {
                         queueRequest(request);
                         iter.remove();
                     }
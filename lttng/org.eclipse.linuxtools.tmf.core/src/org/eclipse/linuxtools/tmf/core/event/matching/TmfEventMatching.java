@@ -14,16 +14,16 @@ package org.eclipse.linuxtools.tmf.core.event.matching;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
-import org.eclipse.linuxtools.internal.tmf.core.Activator;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
-import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
-import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
-import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 
 /**
  * Abstract class to extend to match certain type of events in a trace
@@ -177,39 +177,41 @@ public abstract class TmfEventMatching implements ITmfEventMatching {
         // TODO Start a new thread here?
         initMatching();
 
-        /**
-         * For each trace, get the events and for each event, call the
-         * MatchEvent method
-         *
-         * FIXME This would use a lot of memory if the traces are big, because
-         * all involved events from first trace will have to be kept before a
-         * first match is possible with second trace.
-         *
-         * <pre>
-         * Other possible matching strategy:
-         * Incremental:
-         * Sliding window:
-         * Other strategy: start with the shortest trace, take a few events
-         * at the beginning and at the end
-         * Experiment strategy: have the experiment do the request, then events will
-         * come from both traces chronologically, but then instead of ITmfTrace[], it
-         * would be preferable to have experiment
-         * </pre>
+        /*
+         * Read the events of all the traces in chronological order and call
+         * the MatchEvent method for each event. An event is matched as soon
+         * as its companion event is read, so only the events waiting for a
+         * companion in the traces read so far have to be kept, instead of all
+         * the involved events of the first trace.
          */
-        for (ITmfTrace trace : fTraces) {
-            EventMatchingBuildRequest request = new EventMatchingBuildRequest(this, trace);
-
-            /*
-             * Send the request to the trace here, since there is probably no
-             * experiment.
-             */
-            trace.sendRequest(request);
-            try {
-                request.waitForCompletion();
-            } catch (InterruptedException e) {
-                Activator.logInfo(e.getMessage());
+        final ITmfTrace[] traces = fTraces.toArray(new ITmfTrace[fTraces.size()]);
+        final ITmfContext[] contexts = new ITmfContext[traces.length];
+        final ITmfEvent[] events = new ITmfEvent[traces.length];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(traces.length, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer trace1, Integer trace2) {
+                int result = events[trace1].getTimestamp().compareTo(events[trace2].getTimestamp());
+                return (result != 0) ? result : trace1.compareTo(trace2);
+            }
+        });
+        for (int i = 0; i < traces.length; i++) {
+            contexts[i] = traces[i].seekEvent((ITmfLocation) null);
+            events[i] = traces[i].getNext(contexts[i]);
+            if (events[i] != null) {
+                queue.add(i);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            matchEvent(events[i], traces[i]);
+            events[i] = traces[i].getNext(contexts[i]);
+            if (events[i] != null) {
+                queue.add(i);
             }
         }
+        for (ITmfContext context : contexts) {
+            context.dispose();
+        }
 
         finalizeMatching();
 
@@ -232,40 +234,3 @@ public abstract class TmfEventMatching implements ITmfEventMatching {
     }
 
 }
-
-class EventMatchingBuildRequest extends TmfEventRequest {
-
-    private final TmfEventMatching matching;
-    private final ITmfTrace trace;
-
-    EventMatchingBuildRequest(TmfEventMatching matching, ITmfTrace trace) {
-        super(ITmfEvent.class,
-                TmfTimeRange.ETERNITY,
-                0,
-                ITmfEventRequest.ALL_DATA,
-                ITmfEventRequest.ExecutionType.FOREGROUND);
-        this.matching = matching;
-        this.trace = trace;
-    }
-
-    @Override
-    public void handleData(final ITmfEvent event) {
-        super.handleData(event);
-        matching.matchEvent(event, trace);
-    }
-
-    @Override
-    public void handleSuccess() {
-        super.handleSuccess();
-    }
-
-    @Override
-    public void handleCancel() {
-        super.handleCancel();
-    }
-
-    @Override
-    public void handleFailure() {
-        super.handleFailure();
-    }
-}
@@ -12,33 +12,61 @@
 
 package org.eclipse.linuxtools.tmf.core.event.matching;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.TmfEvent;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfNanoTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
 
 /**
  * This class matches events typically network-style, ie. where some events are
  * 'send' events and the other 'receive' events or out/in events
  *
+ * The unmatched events are not kept: only a 64-bit hash of their unique
+ * fields, their trace and their timestamp are. The event given as companion
+ * in a match only has its trace and timestamp. Unmatched events older than
+ * the expiry window, compared to the event being matched, are dropped (see
+ * {@link #setExpiryWindow}).
+ *
  * @author Geneviève Bastien
  * @since 3.0
  */
 public class TmfNetworkEventMatching extends TmfEventMatching {
 
+    /**
+     * Expiry window that keeps the unmatched events until the end
+     *
+     * @since 3.1
+     */
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    /** Bytes used by an entry of the unmatched tables (key, time, trace) */
+    private static final int ENTRY_SIZE = 8 + 8 + 4;
+
     /**
      * Hashtables for unmatches incoming events
      */
-    private final Map<ITmfTrace, Map<List<Object>, ITmfEvent>> fUnmatchedIn = new LinkedHashMap<>();
+    private final UnmatchedTable fUnmatchedIn = new UnmatchedTable();
 
     /**
      * Hashtables for unmatches outgoing events
      */
-    private final Map<ITmfTrace, Map<List<Object>, ITmfEvent>> fUnmatchedOut = new LinkedHashMap<>();
+    private final UnmatchedTable fUnmatchedOut = new UnmatchedTable();
+
+    private ITmfTrace[] fTraceArray = new ITmfTrace[0];
+    private long fExpiryWindow = NO_EXPIRY;
+
+    /* Metrics */
+    private long fNbNetworkEvents;
+    private long fNbMatches;
+    private long fNbExpired;
+    private int fMaxUnmatched;
 
     /**
      * Enum for in and out types
@@ -76,18 +104,47 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
         super(traces, tmfEventMatches);
     }
 
+    /**
+     * Set the expiry window of the unmatched events. An unmatched event is
+     * kept at least until an event more recent than its timestamp plus the
+     * window is matched, and at most one and a half window. The window must
+     * be larger than the network latency plus the offset between the clocks
+     * of the traces, or some matches will be missed.
+     *
+     * @param window
+     *            The window, in nanoseconds, or {@link #NO_EXPIRY} to keep the
+     *            unmatched events until the end of the matching
+     * @since 3.1
+     */
+    public void setExpiryWindow(long window) {
+        if (window < 0) {
+            throw new IllegalArgumentException();
+        }
+        fExpiryWindow = window;
+    }
+
+    /**
+     * @return The expiry window of the unmatched events, in nanoseconds
+     * @since 3.1
+     */
+    public long getExpiryWindow() {
+        return fExpiryWindow;
+    }
+
     /**
      * Method that initializes any data structure for the event matching
      */
     @Override
     public void initMatching() {
         // Initialize the matching infrastructure (unmatched event lists)
-        fUnmatchedIn.clear();
-        fUnmatchedOut.clear();
-        for (ITmfTrace trace : getTraces()) {
-            fUnmatchedIn.put(trace, new HashMap<List<Object>, ITmfEvent>());
-            fUnmatchedOut.put(trace, new HashMap<List<Object>, ITmfEvent>());
-        }
+        Collection<? extends ITmfTrace> traces = getTraces();
+        fTraceArray = traces.toArray(new ITmfTrace[traces.size()]);
+        fUnmatchedIn.clear(fTraceArray.length);
+        fUnmatchedOut.clear(fTraceArray.length);
+        fNbNetworkEvents = 0;
+        fNbMatches = 0;
+        fNbExpired = 0;
+        fMaxUnmatched = 0;
         super.initMatching();
     }
 
@@ -97,7 +154,10 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
      * @param tbl
      *            The table to count events for
      * @return The number of events
+     * @deprecated The unmatched events are not kept in maps anymore, use
+     *             {@link #getNbUnmatched()}
      */
+    @Deprecated
     protected int countEvents(Map<List<Object>, ITmfEvent> tbl) {
         return tbl.size();
     }
@@ -118,10 +178,11 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
         if (evType == null) {
             return;
         }
+        fNbNetworkEvents++;
 
         /* Get the event's unique fields */
-        List<Object> eventKey = def.getUniqueField(event);
-        Map<ITmfTrace, Map<List<Object>, ITmfEvent>> unmatchedTbl, companionTbl;
+        long eventKey = hashKey(def.getUniqueField(event));
+        UnmatchedTable unmatchedTbl, companionTbl;
 
         /* Point to the appropriate table */
         switch (evType) {
@@ -137,16 +198,30 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
             return;
         }
 
+        long time = TmfTimestamp.toNanos(event.getTimestamp());
+        if (fExpiryWindow != NO_EXPIRY && time > Long.MIN_VALUE + fExpiryWindow) {
+            /*
+             * Sweep the tables only once the oldest event is half a window
+             * past its expiry, so that each sweep is amortized on the events
+             * of that half window
+             */
+            long minTime = time - fExpiryWindow;
+            long sweepTime = minTime - fExpiryWindow / 2;
+            fNbExpired += fUnmatchedIn.expire(minTime, sweepTime) + fUnmatchedOut.expire(minTime, sweepTime);
+        }
+
         boolean found = false;
         TmfEventDependency dep = null;
-        /* Search for the event in the companion table */
-        for (Map<List<Object>, ITmfEvent> map : companionTbl.values()) {
-            if (map.containsKey(eventKey)) {
+        /* Search for the event in the companion table of each trace */
+        for (int i = 0; i < fTraceArray.length; i++) {
+            int slot = companionTbl.find(eventKey, i);
+            if (slot >= 0) {
                 found = true;
-                ITmfEvent companionEvent = map.get(eventKey);
+                ITmfEvent companionEvent = new TmfEvent(fTraceArray[i], ITmfContext.UNKNOWN_RANK,
+                        new TmfNanoTimestamp(companionTbl.getTime(slot)), null, null, null, null);
 
                 /* Remove the element from the companion table */
-                map.remove(eventKey);
+                companionTbl.remove(slot);
 
                 /* Create the dependency object */
                 switch (evType) {
@@ -168,6 +243,7 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
          * lists
          */
         if (found) {
+            fNbMatches++;
             getProcessingUnit().addMatch(dep);
         } else {
             /*
@@ -181,11 +257,116 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
              * events as value for the unmatched table. Not necessary right now
              * though
              */
-            if (!unmatchedTbl.get(trace).containsKey(eventKey)) {
-                unmatchedTbl.get(trace).put(eventKey, event);
+            unmatchedTbl.putIfAbsent(eventKey, indexOf(trace), time);
+            fMaxUnmatched = Math.max(fMaxUnmatched, getNbUnmatched());
+        }
+
+    }
+
+    private int indexOf(ITmfTrace trace) {
+        for (int i = 0; i < fTraceArray.length; i++) {
+            if (fTraceArray[i] == trace) {
+                return i;
             }
         }
+        throw new IllegalArgumentException();
+    }
 
+    /**
+     * Hash the unique fields of an event on 64 bits. The integer values are
+     * hashed from their value, so that the keys of the packets, made of
+     * sequence numbers, practically never collide.
+     */
+    private static long hashKey(List<Object> fields) {
+        long hash = fields.size();
+        for (Object field : fields) {
+            long value;
+            if (field instanceof Long || field instanceof Integer || field instanceof Short || field instanceof Byte) {
+                value = ((Number) field).longValue();
+            } else {
+                value = (field == null) ? 0 : field.hashCode();
+            }
+            hash = mix(hash * 31 + value);
+        }
+        return hash;
+    }
+
+    /** Finalization step of MurmurHash3, which spreads the bits of a long */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ------------------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return The number of send and receive events processed
+     * @since 3.1
+     */
+    public long getNbNetworkEvents() {
+        return fNbNetworkEvents;
+    }
+
+    /**
+     * @return The number of matches found
+     * @since 3.1
+     */
+    public long getNbMatches() {
+        return fNbMatches;
+    }
+
+    /**
+     * @return The number of events currently waiting for their companion
+     * @since 3.1
+     */
+    public int getNbUnmatched() {
+        return fUnmatchedIn.size() + fUnmatchedOut.size();
+    }
+
+    /**
+     * @return The largest number of events that waited for their companion
+     *         at the same time
+     * @since 3.1
+     */
+    public int getMaxUnmatched() {
+        return fMaxUnmatched;
+    }
+
+    /**
+     * @return The number of unmatched events dropped by the expiry window
+     * @since 3.1
+     */
+    public long getNbExpired() {
+        return fNbExpired;
+    }
+
+    /**
+     * Get the proportion of the send and receive events that are part of a
+     * match
+     *
+     * @return The match rate, between 0 and 1
+     * @since 3.1
+     */
+    public double getMatchRate() {
+        if (fNbNetworkEvents == 0) {
+            return 0;
+        }
+        return (2.0 * fNbMatches) / fNbNetworkEvents;
+    }
+
+    /**
+     * @return The memory used by the tables of the unmatched events, in bytes
+     * @since 3.1
+     */
+    public long getMemoryUsage() {
+        return (long) (fUnmatchedIn.capacity() + fUnmatchedOut.capacity()) * ENTRY_SIZE;
     }
 
     /**
@@ -199,14 +380,173 @@ public class TmfNetworkEventMatching extends TmfEventMatching {
         final String cr = System.getProperty("line.separator");
         StringBuilder b = new StringBuilder();
         b.append(getProcessingUnit());
-        int i = 0;
-        for (ITmfTrace trace : getTraces()) {
-            b.append("Trace " + i++ + ":" + cr +
-                    "  " + countEvents(fUnmatchedIn.get(trace)) + " unmatched incoming events" + cr +
-                    "  " + countEvents(fUnmatchedOut.get(trace)) + " unmatched outgoing events" + cr);
+        for (int i = 0; i < fTraceArray.length; i++) {
+            b.append("Trace " + i + ":" + cr +
+                    "  " + fUnmatchedIn.count(i) + " unmatched incoming events" + cr +
+                    "  " + fUnmatchedOut.count(i) + " unmatched outgoing events" + cr);
         }
 
         return b.toString();
     }
 
+    // ------------------------------------------------------------------------
+    // Unmatched events table
+    // ------------------------------------------------------------------------
+
+    /**
+     * Open addressing hash table of the unmatched events, keyed on the hash of
+     * their unique fields and their trace, with linear probing.
+     */
+    private static final class UnmatchedTable {
+
+        private static final int INITIAL_CAPACITY = 64;
+        private static final int EMPTY = -1;
+
+        private long[] fKeys;
+        private long[] fTimes;
+        private int[] fTraces;
+        private int[] fCounts = new int[0];
+        private int fSize;
+        /* Oldest time in the table, used to skip needless expiry scans */
+        private long fMinTime = Long.MAX_VALUE;
+
+        UnmatchedTable() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            fKeys = new long[capacity];
+            fTimes = new long[capacity];
+            fTraces = new int[capacity];
+            Arrays.fill(fTraces, EMPTY);
+            fSize = 0;
+        }
+
+        void clear(int nbTraces) {
+            allocate(INITIAL_CAPACITY);
+            fCounts = new int[nbTraces];
+            fMinTime = Long.MAX_VALUE;
+        }
+
+        int size() {
+            return fSize;
+        }
+
+        int capacity() {
+            return fKeys.length;
+        }
+
+        int count(int trace) {
+            return fCounts[trace];
+        }
+
+        long getTime(int slot) {
+            return fTimes[slot];
+        }
+
+        private int slotOf(long key, int trace) {
+            return (int) mix(key + trace) & (fKeys.length - 1);
+        }
+
+        int find(long key, int trace) {
+            int mask = fKeys.length - 1;
+            for (int slot = slotOf(key, trace); fTraces[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (fKeys[slot] == key && fTraces[slot] == trace) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void putIfAbsent(long key, int trace, long time) {
+            if (find(key, trace) >= 0) {
+                return;
+            }
+            if (2 * (fSize + 1) > fKeys.length) {
+                rehash(2 * fKeys.length, Long.MIN_VALUE);
+            }
+            insert(key, trace, time);
+            fCounts[trace]++;
+            fMinTime = Math.min(fMinTime, time);
+        }
+
+        private void insert(long key, int trace, long time) {
+            int mask = fKeys.length - 1;
+            int slot = slotOf(key, trace);
+            while (fTraces[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            fKeys[slot] = key;
+            fTimes[slot] = time;
+            fTraces[slot] = trace;
+            fSize++;
+        }
+
+        /**
+         * Remove the entry of a slot, moving back the following entries of
+         * its cluster so that no lookup stops too early
+         */
+        void remove(int slot) {
+            int mask = fKeys.length - 1;
+            fCounts[fTraces[slot]]--;
+            fSize--;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (fTraces[next] != EMPTY) {
+                int home = slotOf(fKeys[next], fTraces[next]);
+                /* Move the entry if its home slot is not between the hole and it */
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    fKeys[hole] = fKeys[next];
+                    fTimes[hole] = fTimes[next];
+                    fTraces[hole] = fTraces[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            fTraces[hole] = EMPTY;
+        }
+
+        /**
+         * Remove the entries older than a time, if an entry is older than the
+         * sweep time
+         *
+         * @return The number of entries removed
+         */
+        int expire(long minTime, long sweepTime) {
+            if (fMinTime >= sweepTime) {
+                return 0;
+            }
+            int before = fSize;
+            int capacity = fKeys.length;
+            /* Shrink the table if most of it is empty */
+            while (capacity > INITIAL_CAPACITY && 8 * fSize < capacity) {
+                capacity /= 2;
+            }
+            rehash(capacity, minTime);
+            return before - fSize;
+        }
+
+        /**
+         * Copy the entries that are not older than a time to new arrays
+         */
+        private void rehash(int capacity, long minTime) {
+            long[] keys = fKeys;
+            long[] times = fTimes;
+            int[] traces = fTraces;
+            allocate(Math.max(capacity, INITIAL_CAPACITY));
+            fMinTime = Long.MAX_VALUE;
+            for (int i = 0; i < keys.length; i++) {
+                int trace = traces[i];
+                if (trace == EMPTY) {
+                    continue;
+                }
+                if (times[i] < minTime) {
+                    fCounts[trace]--;
+                } else {
+                    insert(keys[i], trace, times[i]);
+                    fMinTime = Math.min(fMinTime, times[i]);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,447 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.filter.model;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventField;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEventType;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+
+/**
+ * Compiler of filter trees into predicates that match the events faster than
+ * the {@link ITmfFilterTreeNode#matches} of the nodes, with the same result.
+ *
+ * The work that does not depend on the event is done once, when compiling:
+ * the field names are classified and the sub-field paths are split, the
+ * constants are parsed and the regular expressions are compiled. The event
+ * type tests are evaluated before their siblings, since they do not read the
+ * event content, and their result is cached per event class and per event
+ * type. The children of the nodes are held in arrays instead of being copied
+ * for each event.
+ *
+ * A compiled filter is a snapshot of the tree: it does not follow the changes
+ * made to the nodes afterwards. It keeps some state between the events (the
+ * cached results, a number parser and the regular expression matchers), so it
+ * must only be used by one thread at a time. Compile the tree again for each
+ * thread that needs it.
+ *
+ * Nodes of other types than the ones defined in this package are kept as they
+ * are and evaluated with their own {@link ITmfFilterTreeNode#matches} method.
+ *
+ * @since 3.1
+ */
+public final class TmfFilterCompiler {
+
+    private TmfFilterCompiler() {
+    }
+
+    /**
+     * Compile a filter tree
+     *
+     * @param node
+     *            The root of the tree
+     * @return The predicate equivalent to the tree
+     */
+    public static ITmfFilter compile(ITmfFilterTreeNode node) {
+        if (node instanceof TmfFilterRootNode) {
+            return new AndFilter(compileChildren(node), false);
+        } else if (node instanceof TmfFilterNode) {
+            return new OrFilter(compileChildren(node), false);
+        } else if (node instanceof TmfFilterAndNode) {
+            return new AndFilter(compileChildren(node), ((TmfFilterAndNode) node).isNot());
+        } else if (node instanceof TmfFilterOrNode) {
+            return new OrFilter(compileChildren(node), ((TmfFilterOrNode) node).isNot());
+        } else if (node instanceof TmfFilterEventTypeNode) {
+            return new EventTypeFilter(((TmfFilterEventTypeNode) node).getEventType(), compileChildren(node));
+        } else if (node instanceof TmfFilterEqualsNode) {
+            return new EqualsFilter((TmfFilterEqualsNode) node);
+        } else if (node instanceof TmfFilterContainsNode) {
+            return new ContainsFilter((TmfFilterContainsNode) node);
+        } else if (node instanceof TmfFilterMatchesNode) {
+            return new MatchesFilter((TmfFilterMatchesNode) node);
+        } else if (node instanceof TmfFilterCompareNode) {
+            return new CompareFilter((TmfFilterCompareNode) node);
+        }
+        return node;
+    }
+
+    /**
+     * Compile the children of a node, the event type tests first
+     */
+    private static ITmfFilter[] compileChildren(ITmfFilterTreeNode node) {
+        List<ITmfFilter> typeFilters = new ArrayList<>();
+        List<ITmfFilter> otherFilters = new ArrayList<>();
+        for (ITmfFilterTreeNode child : node.getChildren()) {
+            ITmfFilter filter = compile(child);
+            if (filter instanceof EventTypeFilter) {
+                typeFilters.add(filter);
+            } else {
+                otherFilters.add(filter);
+            }
+        }
+        typeFilters.addAll(otherFilters);
+        return typeFilters.toArray(new ITmfFilter[typeFilters.size()]);
+    }
+
+    // ------------------------------------------------------------------------
+    // Logical operators
+    // ------------------------------------------------------------------------
+
+    private static final class AndFilter implements ITmfFilter {
+        private final ITmfFilter[] fChildren;
+        private final boolean fNot;
+
+        AndFilter(ITmfFilter[] children, boolean not) {
+            fChildren = children;
+            fNot = not;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            for (ITmfFilter child : fChildren) {
+                if (!child.matches(event)) {
+                    return fNot;
+                }
+            }
+            return !fNot;
+        }
+    }
+
+    private static final class OrFilter implements ITmfFilter {
+        private final ITmfFilter[] fChildren;
+        private final boolean fNot;
+
+        OrFilter(ITmfFilter[] children, boolean not) {
+            fChildren = children;
+            fNot = not;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            for (ITmfFilter child : fChildren) {
+                if (child.matches(event)) {
+                    return !fNot;
+                }
+            }
+            /* Same as TmfFilterOrNode, which does not negate this result */
+            return false;
+        }
+    }
+
+    private static final class EventTypeFilter implements ITmfFilter {
+        private final String fType;
+        private final boolean fCustom;
+        private final ITmfFilter[] fChildren;
+
+        private Class<?> fLastClass = null;
+        private boolean fLastClassMatch = false;
+        private ITmfEventType fLastType = null;
+        private boolean fLastTypeMatch = false;
+
+        EventTypeFilter(String type, ITmfFilter[] children) {
+            fType = type;
+            /* Special case for custom parsers, "class:type" */
+            fCustom = (type != null && type.contains(":")); //$NON-NLS-1$
+            fChildren = children;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (fType == null) {
+                return false;
+            }
+            Class<?> eventClass = event.getClass();
+            if (eventClass != fLastClass) {
+                String className = eventClass.getCanonicalName();
+                if (className == null) {
+                    fLastClassMatch = false;
+                } else if (fCustom) {
+                    fLastClassMatch = fType.startsWith(className);
+                } else {
+                    fLastClassMatch = fType.equals(className);
+                }
+                fLastClass = eventClass;
+            }
+            if (!fLastClassMatch) {
+                return false;
+            }
+            if (fCustom) {
+                ITmfEventType type = event.getType();
+                if (type != fLastType) {
+                    fLastTypeMatch = (type != null && fType.endsWith(type.getName()));
+                    fLastType = type;
+                }
+                if (!fLastTypeMatch) {
+                    return false;
+                }
+            }
+            for (ITmfFilter child : fChildren) {
+                if (!child.matches(event)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Field accessor
+    // ------------------------------------------------------------------------
+
+    /**
+     * Field of the event, resolved the same way as
+     * {@link TmfFilterTreeNode#getFieldValue}
+     */
+    private static final class FieldAccessor {
+        private static final int NONE = 0;
+        private static final int CONTENT = 1;
+        private static final int TYPE = 2;
+        private static final int TIMESTAMP = 3;
+        private static final int SOURCE = 4;
+        private static final int REFERENCE = 5;
+        private static final int FIELD = 6;
+        private static final int SUBFIELD = 7;
+
+        private final int fKind;
+        private final String fName;
+        private final String[] fPath;
+
+        FieldAccessor(String field) {
+            fName = field;
+            String[] path = null;
+            if (ITmfEvent.EVENT_FIELD_CONTENT.equals(field)) {
+                fKind = CONTENT;
+            } else if (ITmfEvent.EVENT_FIELD_TYPE.equals(field)) {
+                fKind = TYPE;
+            } else if (ITmfEvent.EVENT_FIELD_TIMESTAMP.equals(field)) {
+                fKind = TIMESTAMP;
+            } else if (ITmfEvent.EVENT_FIELD_SOURCE.equals(field)) {
+                fKind = SOURCE;
+            } else if (ITmfEvent.EVENT_FIELD_REFERENCE.equals(field)) {
+                fKind = REFERENCE;
+            } else if (field == null) {
+                fKind = NONE;
+            } else if (field.isEmpty() || field.charAt(0) != '/') {
+                fKind = FIELD;
+            } else {
+                fKind = SUBFIELD;
+                path = TmfFilterTreeNode.splitPath(field);
+            }
+            fPath = path;
+        }
+
+        Object getValue(ITmfEvent event) {
+            ITmfEventField eventField;
+            switch (fKind) {
+            case CONTENT:
+                return event.getContent().toString();
+            case TYPE:
+                return event.getType().getName();
+            case TIMESTAMP:
+                return event.getTimestamp().toString();
+            case SOURCE:
+                return event.getSource();
+            case REFERENCE:
+                return event.getReference();
+            case FIELD:
+                eventField = event.getContent().getField(fName);
+                break;
+            case SUBFIELD:
+                eventField = event.getContent().getSubField(fPath);
+                break;
+            default:
+                return null;
+            }
+            return (eventField == null ? null : eventField.getValue());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Field conditions
+    // ------------------------------------------------------------------------
+
+    private static final class EqualsFilter implements ITmfFilter {
+        private final FieldAccessor fField;
+        private final String fValue;
+        private final boolean fIgnoreCase;
+        private final boolean fNot;
+
+        EqualsFilter(TmfFilterEqualsNode node) {
+            fField = new FieldAccessor(node.getField());
+            fValue = node.getValue();
+            fIgnoreCase = node.isIgnoreCase();
+            fNot = node.isNot();
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            Object value = fField.getValue(event);
+            if (value == null) {
+                return fNot;
+            }
+            String valueString = value.toString();
+            if (valueString == null) {
+                return fNot;
+            }
+            if (fIgnoreCase) {
+                return valueString.equalsIgnoreCase(fValue) ^ fNot;
+            }
+            return valueString.equals(fValue) ^ fNot;
+        }
+    }
+
+    private static final class ContainsFilter implements ITmfFilter {
+        private final FieldAccessor fField;
+        private final String fValue;
+        private final String fValueUpperCase;
+        private final boolean fIgnoreCase;
+        private final boolean fNot;
+
+        ContainsFilter(TmfFilterContainsNode node) {
+            fField = new FieldAccessor(node.getField());
+            fValue = node.getValue();
+            fValueUpperCase = (fValue == null ? null : fValue.toUpperCase());
+            fIgnoreCase = node.isIgnoreCase();
+            fNot = node.isNot();
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            Object value = fField.getValue(event);
+            if (value == null || fValue == null) {
+                return fNot;
+            }
+            String valueString = value.toString();
+            if (fIgnoreCase) {
+                return valueString.toUpperCase().contains(fValueUpperCase) ^ fNot;
+            }
+            return valueString.contains(fValue) ^ fNot;
+        }
+    }
+
+    private static final class MatchesFilter implements ITmfFilter {
+        private final FieldAccessor fField;
+        private final Matcher fMatcher;
+        private final boolean fNot;
+
+        MatchesFilter(TmfFilterMatchesNode node) {
+            fField = new FieldAccessor(node.getField());
+            Matcher matcher = null;
+            if (node.getRegex() != null) {
+                try {
+                    matcher = Pattern.compile(node.getRegex(), Pattern.DOTALL).matcher(""); //$NON-NLS-1$
+                } catch (PatternSyntaxException e) {
+                }
+            }
+            fMatcher = matcher;
+            fNot = node.isNot();
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (fMatcher == null) {
+                return fNot;
+            }
+            Object value = fField.getValue(event);
+            if (value == null) {
+                return fNot;
+            }
+            return fMatcher.reset(value.toString()).matches() ^ fNot;
+        }
+    }
+
+    private static final class CompareFilter implements ITmfFilter {
+        private final FieldAccessor fField;
+        private final TmfFilterCompareNode.Type fType;
+        private final int fResult;
+        private final boolean fNot;
+        private final String fValue;
+        private final NumberFormat fNumberFormat = NumberFormat.getInstance();
+
+        /* The constant, parsed once */
+        private double fValueNumber;
+        private TmfTimestamp fValueTimestamp = null;
+        private boolean fValid = false;
+
+        CompareFilter(TmfFilterCompareNode node) {
+            fField = new FieldAccessor(node.getField());
+            fType = node.getType();
+            fResult = node.getResult();
+            fNot = node.isNot();
+            fValue = node.getValue();
+            if (fValue == null) {
+                return;
+            }
+            try {
+                if (fType == TmfFilterCompareNode.Type.NUM) {
+                    fValueNumber = fNumberFormat.parse(fValue).doubleValue();
+                    fValid = true;
+                } else if (fType == TmfFilterCompareNode.Type.TIMESTAMP) {
+                    fValueTimestamp = new TmfTimestamp((long) (1E9 * fNumberFormat.parse(fValue).doubleValue()));
+                    fValid = true;
+                } else if (fType == TmfFilterCompareNode.Type.ALPHA) {
+                    fValid = true;
+                }
+            } catch (ParseException e) {
+            }
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            Object value = fField.getValue(event);
+            if (value == null || !fValid) {
+                return fNot;
+            }
+            if (fType == TmfFilterCompareNode.Type.NUM) {
+                double valueDouble;
+                if (value instanceof Number) {
+                    valueDouble = ((Number) value).doubleValue();
+                } else {
+                    try {
+                        valueDouble = fNumberFormat.parse(value.toString()).doubleValue();
+                    } catch (ParseException e) {
+                        return fNot;
+                    }
+                }
+                return (Double.compare(valueDouble, fValueNumber) == fResult) ^ fNot;
+            } else if (fType == TmfFilterCompareNode.Type.ALPHA) {
+                int comp = value.toString().compareTo(fValue);
+                if (comp < -1) {
+                    comp = -1;
+                } else if (comp > 1) {
+                    comp = 1;
+                }
+                return (comp == fResult) ^ fNot;
+            } else if (fType == TmfFilterCompareNode.Type.TIMESTAMP) {
+                TmfTimestamp valueTimestamp;
+                if (value instanceof TmfTimestamp) {
+                    valueTimestamp = (TmfTimestamp) value;
+                } else {
+                    try {
+                        valueTimestamp = new TmfTimestamp((long) (1E9 * fNumberFormat.parse(value.toString()).doubleValue()));
+                    } catch (ParseException e) {
+                        return fNot;
+                    }
+                }
+                return (valueTimestamp.compareTo(fValueTimestamp, false) == fResult) ^ fNot;
+            }
+            return fNot;
+        }
+    }
+}
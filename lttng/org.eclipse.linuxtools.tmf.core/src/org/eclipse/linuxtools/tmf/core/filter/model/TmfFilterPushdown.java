@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.core.filter.model;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
+
+import com.google.common.collect.Range;
+
+/**
+ * Description of the events that can match a filter tree, simple enough for a
+ * trace to check before building the events, so that it can skip the ones
+ * that cannot match without decoding their content.
+ *
+ * The description is a necessary condition: every event matched by the filter
+ * satisfies it, but some events that satisfy it may not be matched. The filter
+ * must still be applied to the events the trace returns. The parts of the
+ * tree that cannot be described (negations, regular expressions, sub-fields,
+ * ...) do not restrict the events.
+ *
+ * It describes:
+ * <ul>
+ * <li>the names of the event types, from the case-sensitive equality tests on
+ * {@link ITmfEvent#EVENT_FIELD_TYPE};</li>
+ * <li>the ranges of the integer fields of the event content, from the
+ * numerical comparisons of these fields with a constant. An event that does
+ * not have the field does not match the comparison, and an event whose field
+ * is not an integer is not restricted by the range;</li>
+ * <li>the time range of the events, which is given when creating the
+ * description since the timestamp comparisons of the filters depend on how
+ * the timestamps are formatted.</li>
+ * </ul>
+ *
+ * @since 3.1
+ */
+public final class TmfFilterPushdown {
+
+    /** Integers beyond this value are not all exactly represented as doubles */
+    private static final double MAX_EXACT_DOUBLE = 1L << 53;
+
+    private static final TmfFilterPushdown UNRESTRICTED = new TmfFilterPushdown(
+            null, TmfTimeRange.ETERNITY, Collections.<String, Range<Long>> emptyMap());
+
+    private final @Nullable Set<String> fEventTypes;
+    private final TmfTimeRange fTimeRange;
+    private final Map<String, Range<Long>> fFieldRanges;
+
+    private TmfFilterPushdown(@Nullable Set<String> eventTypes, TmfTimeRange timeRange,
+            Map<String, Range<Long>> fieldRanges) {
+        fEventTypes = (eventTypes == null) ? null : Collections.unmodifiableSet(eventTypes);
+        fTimeRange = timeRange;
+        fFieldRanges = Collections.unmodifiableMap(fieldRanges);
+    }
+
+    /**
+     * Describe the events that can match a filter tree
+     *
+     * @param filter
+     *            The root of the filter tree, or null for no filter
+     * @param timeRange
+     *            The time range of the events to read
+     * @return The description of the events
+     */
+    public static TmfFilterPushdown create(@Nullable ITmfFilterTreeNode filter, TmfTimeRange timeRange) {
+        TmfFilterPushdown pushdown = (filter == null) ? UNRESTRICTED : describe(filter);
+        return new TmfFilterPushdown(pushdown.fEventTypes, timeRange, pushdown.fFieldRanges);
+    }
+
+    // ------------------------------------------------------------------------
+    // Getters
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the names of the types of the events that can match
+     *
+     * @return The type names, or null if the events of any type can match
+     */
+    public @Nullable Set<String> getEventTypes() {
+        return fEventTypes;
+    }
+
+    /**
+     * @return The time range of the events that can match
+     */
+    public TmfTimeRange getTimeRange() {
+        return fTimeRange;
+    }
+
+    /**
+     * Get the ranges of the integer fields of the events that can match. The
+     * keys are the names of the fields of the event content.
+     *
+     * @return The field ranges
+     */
+    public Map<String, Range<Long>> getFieldRanges() {
+        return fFieldRanges;
+    }
+
+    /**
+     * Check if this description can reject an event
+     *
+     * @return If any event matches this description
+     */
+    public boolean isUnrestricted() {
+        return fEventTypes == null && fFieldRanges.isEmpty() &&
+                fTimeRange.getStartTime().equals(TmfTimestamp.BIG_BANG) &&
+                fTimeRange.getEndTime().equals(TmfTimestamp.BIG_CRUNCH);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private static TmfFilterPushdown describe(ITmfFilterTreeNode node) {
+        if (node instanceof TmfFilterRootNode || node instanceof TmfFilterEventTypeNode) {
+            /* The event type node is not described, only its children */
+            return describeAnd(node);
+        } else if (node instanceof TmfFilterNode) {
+            return describeOr(node);
+        } else if (node instanceof TmfFilterAndNode) {
+            return ((TmfFilterAndNode) node).isNot() ? UNRESTRICTED : describeAnd(node);
+        } else if (node instanceof TmfFilterOrNode) {
+            return ((TmfFilterOrNode) node).isNot() ? UNRESTRICTED : describeOr(node);
+        } else if (node instanceof TmfFilterEqualsNode) {
+            return describeEquals((TmfFilterEqualsNode) node);
+        } else if (node instanceof TmfFilterCompareNode) {
+            return describeCompare((TmfFilterCompareNode) node);
+        }
+        return UNRESTRICTED;
+    }
+
+    private static TmfFilterPushdown describeAnd(ITmfFilterTreeNode node) {
+        TmfFilterPushdown result = UNRESTRICTED;
+        for (ITmfFilterTreeNode child : node.getChildren()) {
+            result = result.and(describe(child));
+        }
+        return result;
+    }
+
+    private static TmfFilterPushdown describeOr(ITmfFilterTreeNode node) {
+        TmfFilterPushdown result = null;
+        for (ITmfFilterTreeNode child : node.getChildren()) {
+            TmfFilterPushdown pushdown = describe(child);
+            result = (result == null) ? pushdown : result.or(pushdown);
+        }
+        return (result == null) ? UNRESTRICTED : result;
+    }
+
+    private static TmfFilterPushdown describeEquals(TmfFilterEqualsNode node) {
+        if (node.isNot() || node.isIgnoreCase() || node.getValue() == null ||
+                !ITmfEvent.EVENT_FIELD_TYPE.equals(node.getField())) {
+            return UNRESTRICTED;
+        }
+        Set<String> eventTypes = new HashSet<>();
+        eventTypes.add(node.getValue());
+        return new TmfFilterPushdown(eventTypes, TmfTimeRange.ETERNITY,
+                Collections.<String, Range<Long>> emptyMap());
+    }
+
+    private static TmfFilterPushdown describeCompare(TmfFilterCompareNode node) {
+        String field = node.getField();
+        if (node.isNot() || node.getType() != TmfFilterCompareNode.Type.NUM ||
+                node.getValue() == null || field == null || field.isEmpty() ||
+                field.charAt(0) == ':' || field.charAt(0) == '/') {
+            return UNRESTRICTED;
+        }
+        double value;
+        try {
+            /* Parsed the same way as the compare node */
+            value = NumberFormat.getInstance().parse(node.getValue()).doubleValue();
+        } catch (ParseException e) {
+            return UNRESTRICTED;
+        }
+        /*
+         * The node compares the field values as doubles, which only gives the
+         * same order as the long values if the constant is small enough.
+         */
+        if (Double.isNaN(value) || Math.abs(value) >= MAX_EXACT_DOUBLE ||
+                (value == 0 && Double.doubleToRawLongBits(value) != 0)) {
+            return UNRESTRICTED;
+        }
+        Range<Long> range;
+        switch (node.getResult()) {
+        case -1:
+            range = Range.lessThan((long) Math.ceil(value));
+            break;
+        case 1:
+            range = Range.greaterThan((long) Math.floor(value));
+            break;
+        case 0:
+            long longValue = (long) value;
+            range = (longValue == value) ? Range.singleton(longValue) : Range.closedOpen(0L, 0L);
+            break;
+        default:
+            return UNRESTRICTED;
+        }
+        Map<String, Range<Long>> fieldRanges = new HashMap<>();
+        fieldRanges.put(field, range);
+        return new TmfFilterPushdown(null, TmfTimeRange.ETERNITY, fieldRanges);
+    }
+
+    /**
+     * Description of the events matching both descriptions
+     */
+    private TmfFilterPushdown and(TmfFilterPushdown other) {
+        Set<String> eventTypes;
+        if (fEventTypes == null) {
+            eventTypes = other.fEventTypes;
+        } else if (other.fEventTypes == null) {
+            eventTypes = fEventTypes;
+        } else {
+            eventTypes = new HashSet<>(fEventTypes);
+            eventTypes.retainAll(other.fEventTypes);
+        }
+        Map<String, Range<Long>> fieldRanges = new HashMap<>(fFieldRanges);
+        for (Map.Entry<String, Range<Long>> entry : other.fFieldRanges.entrySet()) {
+            Range<Long> range = fieldRanges.get(entry.getKey());
+            fieldRanges.put(entry.getKey(), (range == null) ? entry.getValue() : intersect(range, entry.getValue()));
+        }
+        return new TmfFilterPushdown(eventTypes, TmfTimeRange.ETERNITY, fieldRanges);
+    }
+
+    /**
+     * Description of the events matching either description
+     */
+    private TmfFilterPushdown or(TmfFilterPushdown other) {
+        Set<String> eventTypes = null;
+        if (fEventTypes != null && other.fEventTypes != null) {
+            eventTypes = new HashSet<>(fEventTypes);
+            eventTypes.addAll(other.fEventTypes);
+        }
+        /* Only the fields restricted on both sides stay restricted */
+        Map<String, Range<Long>> fieldRanges = new HashMap<>();
+        for (Map.Entry<String, Range<Long>> entry : fFieldRanges.entrySet()) {
+            Range<Long> range = other.fFieldRanges.get(entry.getKey());
+            if (range != null) {
+                fieldRanges.put(entry.getKey(), span(range, entry.getValue()));
+            }
+        }
+        return new TmfFilterPushdown(eventTypes, TmfTimeRange.ETERNITY, fieldRanges);
+    }
+
+    private static Range<Long> intersect(Range<Long> range1, Range<Long> range2) {
+        if (!range1.isConnected(range2)) {
+            return Range.closedOpen(0L, 0L);
+        }
+        return range1.intersection(range2);
+    }
+
+    private static Range<Long> span(Range<Long> range1, Range<Long> range2) {
+        if (range1.isEmpty()) {
+            return range2;
+        } else if (range2.isEmpty()) {
+            return range1;
+        }
+        return range1.span(range2);
+    }
+
+    @Override
+    public String toString() {
+        ITmfTimestamp start = fTimeRange.getStartTime();
+        ITmfTimestamp end = fTimeRange.getEndTime();
+        return "TmfFilterPushdown [types=" + fEventTypes + ", start=" + start.getValue() + //$NON-NLS-1$ //$NON-NLS-2$
+                ", end=" + end.getValue() + ", fields=" + fFieldRanges + ']'; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -175,6 +175,24 @@ public abstract class TmfFilterTreeNode implements ITmfFilterTreeNode, Cloneable
             return fPathAsArray;
         }
 
+        String[] array = splitPath(field);
+
+        // Save new values.
+        // Array first for solving concurrency issues
+        fPathAsArray = array;
+        fPathAsString = field;
+
+        return array;
+    }
+
+    /**
+     * Split a sub-field path ("/field/subfield") into the names of the fields
+     *
+     * @param field
+     *            The path, starting with a slash
+     * @return The field names
+     */
+    static String[] splitPath(String field) {
         // Generate the new path array
         StringBuilder sb = new StringBuilder();
         List<String> list = new ArrayList<>();
@@ -203,12 +221,6 @@ public abstract class TmfFilterTreeNode implements ITmfFilterTreeNode, Cloneable
         // Transform to array
         String[] array = new String[list.size()];
         list.toArray(array);
-
-        // Save new values.
-        // Array first for solving concurrency issues
-        fPathAsArray = array;
-        fPathAsString = field;
-
         return array;
     }
 
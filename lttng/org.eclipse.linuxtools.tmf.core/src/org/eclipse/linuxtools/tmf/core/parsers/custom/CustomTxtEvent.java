@@ -12,6 +12,7 @@
 
 package org.eclipse.linuxtools.tmf.core.parsers.custom;
 
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 
 import org.eclipse.linuxtools.tmf.core.event.ITmfEventField;
@@ -89,6 +90,19 @@ public class CustomTxtEvent extends CustomEvent {
      *            The regex matcher to use
      */
     public void processGroups(InputLine input, Matcher matcher) {
+        processGroups(input, (MatchResult) matcher);
+    }
+
+    /**
+     * Process an entry in the trace file, from the result of its match
+     *
+     * @param input
+     *            The input line to read
+     * @param matcher
+     *            The result of the match of the input line
+     * @since 3.1
+     */
+    public void processGroups(InputLine input, MatchResult matcher) {
         if (input.columns == null) {
             return;
         }
@@ -17,8 +17,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 
@@ -27,10 +29,13 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.linuxtools.internal.tmf.core.Activator;
+import org.eclipse.linuxtools.internal.tmf.core.trace.TextLineMatchResult;
+import org.eclipse.linuxtools.internal.tmf.core.trace.indexer.TmfTextTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.linuxtools.tmf.core.io.BufferedRandomAccessFile;
 import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputLine;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfEventParser;
@@ -39,7 +44,6 @@ import org.eclipse.linuxtools.tmf.core.trace.TmfTrace;
 import org.eclipse.linuxtools.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.linuxtools.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
@@ -61,6 +65,9 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
     private final CustomTxtTraceDefinition fDefinition;
     private final CustomTxtEventType fEventType;
     private BufferedRandomAccessFile fFile;
+    private TxtReader fReader;
+    private volatile boolean fParallelParsing = true;
+    private volatile boolean fCopyFirstLineGroups = false;
 
     /**
      * Basic constructor.
@@ -115,6 +122,7 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
             } catch (IOException e) {
             } finally {
                 fFile = null;
+                fReader = null;
             }
         }
     }
@@ -136,23 +144,7 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
             } else if (location.getLocationInfo() instanceof Long) {
                 fFile.seek((Long) location.getLocationInfo());
             }
-            long rawPos = fFile.getFilePointer();
-            String line = fFile.getNextLine();
-            while (line != null) {
-                for (final InputLine input : getFirstLines()) {
-                    final Matcher matcher = input.getPattern().matcher(line);
-                    if (matcher.matches()) {
-                        context.setLocation(new TmfLongLocation(rawPos));
-                        context.firstLineMatcher = matcher;
-                        context.firstLine = line;
-                        context.nextLineLocation = fFile.getFilePointer();
-                        context.inputLine = input;
-                        return context;
-                    }
-                }
-                rawPos = fFile.getFilePointer();
-                line = fFile.getNextLine();
-            }
+            getReader().findEvent(context);
             return context;
         } catch (final FileNotFoundException e) {
             Activator.logError("Error seeking event. File not found: " + getPath(), e); //$NON-NLS-1$
@@ -233,141 +225,14 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
         if (!(tmfContext instanceof CustomTxtTraceContext)) {
             return null;
         }
+        return getReader().parse((CustomTxtTraceContext) tmfContext);
+    }
 
-        final CustomTxtTraceContext context = (CustomTxtTraceContext) tmfContext;
-        if (context.getLocation() == null || !(context.getLocation().getLocationInfo() instanceof Long) || NULL_LOCATION.equals(context.getLocation())) {
-            return null;
-        }
-
-        CustomTxtEvent event = parseFirstLine(context);
-
-        final HashMap<InputLine, Integer> countMap = new HashMap<>();
-        InputLine currentInput = null;
-        if (context.inputLine.childrenInputs != null && context.inputLine.childrenInputs.size() > 0) {
-            currentInput = context.inputLine.childrenInputs.get(0);
-            countMap.put(currentInput, 0);
-        }
-
-        try {
-            if (fFile.getFilePointer() != context.nextLineLocation) {
-                fFile.seek(context.nextLineLocation);
-            }
-            long rawPos = fFile.getFilePointer();
-            String line = fFile.getNextLine();
-            while (line != null) {
-                boolean processed = false;
-                if (currentInput == null) {
-                    for (final InputLine input : getFirstLines()) {
-                        final Matcher matcher = input.getPattern().matcher(line);
-                        if (matcher.matches()) {
-                            context.setLocation(new TmfLongLocation(rawPos));
-                            context.firstLineMatcher = matcher;
-                            context.firstLine = line;
-                            context.nextLineLocation = fFile.getFilePointer();
-                            context.inputLine = input;
-                            return event;
-                        }
-                    }
-                } else {
-                    if (countMap.get(currentInput) >= currentInput.getMinCount()) {
-                        final List<InputLine> nextInputs = currentInput.getNextInputs(countMap);
-                        if (nextInputs.size() == 0 || nextInputs.get(nextInputs.size() - 1).getMinCount() == 0) {
-                            for (final InputLine input : getFirstLines()) {
-                                final Matcher matcher = input.getPattern().matcher(line);
-                                if (matcher.matches()) {
-                                    context.setLocation(new TmfLongLocation(rawPos));
-                                    context.firstLineMatcher = matcher;
-                                    context.firstLine = line;
-                                    context.nextLineLocation = fFile.getFilePointer();
-                                    context.inputLine = input;
-                                    return event;
-                                }
-                            }
-                        }
-                        for (final InputLine input : nextInputs) {
-                            final Matcher matcher = input.getPattern().matcher(line);
-                            if (matcher.matches()) {
-                                event.processGroups(input, matcher);
-                                currentInput = input;
-                                if (countMap.get(currentInput) == null) {
-                                    countMap.put(currentInput, 1);
-                                } else {
-                                    countMap.put(currentInput, countMap.get(currentInput) + 1);
-                                }
-                                Iterator<InputLine> iter = countMap.keySet().iterator();
-                                while (iter.hasNext()) {
-                                    final InputLine inputLine = iter.next();
-                                    if (inputLine.level > currentInput.level) {
-                                        iter.remove();
-                                    }
-                                }
-                                if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
-                                    currentInput = currentInput.childrenInputs.get(0);
-                                    countMap.put(currentInput, 0);
-                                } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
-                                    if (currentInput.getNextInputs(countMap).size() > 0) {
-                                        currentInput = currentInput.getNextInputs(countMap).get(0);
-                                        if (countMap.get(currentInput) == null) {
-                                            countMap.put(currentInput, 0);
-                                        }
-                                        iter = countMap.keySet().iterator();
-                                        while (iter.hasNext()) {
-                                            final InputLine inputLine = iter.next();
-                                            if (inputLine.level > currentInput.level) {
-                                                iter.remove();
-                                            }
-                                        }
-                                    } else {
-                                        currentInput = null;
-                                    }
-                                }
-                                processed = true;
-                                break;
-                            }
-                        }
-                    }
-                    if (!processed && currentInput != null) {
-                        final Matcher matcher = currentInput.getPattern().matcher(line);
-                        if (matcher.matches()) {
-                            event.processGroups(currentInput, matcher);
-                            countMap.put(currentInput, countMap.get(currentInput) + 1);
-                            if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
-                                currentInput = currentInput.childrenInputs.get(0);
-                                countMap.put(currentInput, 0);
-                            } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
-                                if (currentInput.getNextInputs(countMap).size() > 0) {
-                                    currentInput = currentInput.getNextInputs(countMap).get(0);
-                                    if (countMap.get(currentInput) == null) {
-                                        countMap.put(currentInput, 0);
-                                    }
-                                    final Iterator<InputLine> iter = countMap.keySet().iterator();
-                                    while (iter.hasNext()) {
-                                        final InputLine inputLine = iter.next();
-                                        if (inputLine.level > currentInput.level) {
-                                            iter.remove();
-                                        }
-                                    }
-                                } else {
-                                    currentInput = null;
-                                }
-                            }
-                        }
-                        ((StringBuffer) event.getContent().getValue()).append("\n").append(line); //$NON-NLS-1$
-                    }
-                }
-                rawPos = fFile.getFilePointer();
-                line = fFile.getNextLine();
-            }
-        } catch (final IOException e) {
-            Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
-        }
-        for (final Entry<InputLine, Integer> entry : countMap.entrySet()) {
-            if (entry.getValue() < entry.getKey().getMinCount()) {
-                event = null;
-            }
+    private TxtReader getReader() {
+        if (fReader == null || fReader.fReaderFile != fFile) {
+            fReader = new TxtReader(fFile);
         }
-        context.setLocation(NULL_LOCATION);
-        return event;
+        return fReader;
     }
 
     /**
@@ -384,9 +249,14 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
      *            Trace context
      * @return The first event
      */
+    @SuppressWarnings("deprecation")
     public CustomTxtEvent parseFirstLine(final CustomTxtTraceContext context) {
         final CustomTxtEvent event = new CustomTxtEvent(fDefinition, this, TmfTimestamp.ZERO, "", fEventType, ""); //$NON-NLS-1$ //$NON-NLS-2$
-        event.processGroups(context.inputLine, context.firstLineMatcher);
+        if (context.firstLineMatchResult != null) {
+            event.processGroups(context.inputLine, context.firstLineMatchResult);
+        } else {
+            event.processGroups(context.inputLine, context.firstLineMatcher);
+        }
         event.setContent(new CustomEventContent(event, new StringBuffer(context.firstLine)));
         return event;
     }
@@ -458,6 +328,330 @@ public class CustomTxtTrace extends TmfTrace implements ITmfEventParser, ITmfPer
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new TmfTextTraceIndexer(this, interval) {
+            @Override
+            protected boolean isParallelParsing() {
+                return fParallelParsing;
+            }
+
+            @Override
+            protected IChunkReader createChunkReader() {
+                return new TxtChunkReader();
+            }
+        };
+    }
+
+    /**
+     * Set whether the trace is indexed by parsing chunks of its file in
+     * parallel, each with its own reader of the file, instead of reading all
+     * its events in order. It is on by default.
+     *
+     * @param parallelParsing
+     *            true to parse the file in parallel
+     * @since 3.1
+     */
+    public void setParallelParsing(boolean parallelParsing) {
+        fParallelParsing = parallelParsing;
+    }
+
+    /**
+     * Returns whether the trace is indexed by parsing chunks of its file in
+     * parallel.
+     *
+     * @return true if the file is parsed in parallel
+     * @since 3.1
+     */
+    public boolean isParallelParsing() {
+        return fParallelParsing;
+    }
+
+    /**
+     * Set whether the groups of the lines starting an event are copied from
+     * the matchers shared by all the lines, instead of creating a new matcher
+     * for each line starting an event. The deprecated
+     * {@link CustomTxtTraceContext#firstLineMatcher} is then null. It is off
+     * by default.
+     *
+     * @param copyFirstLineGroups
+     *            true to copy the groups of the first lines
+     * @since 3.1
+     */
+    public void setCopyFirstLineGroups(boolean copyFirstLineGroups) {
+        fCopyFirstLineGroups = copyFirstLineGroups;
+    }
+
+    /**
+     * Returns whether the groups of the lines starting an event are copied
+     * from shared matchers.
+     *
+     * @return true if the groups of the first lines are copied
+     * @since 3.1
+     */
+    public boolean isCopyFirstLineGroups() {
+        return fCopyFirstLineGroups;
+    }
+
+    /**
+     * A reader of the events of a text file. It reuses a matcher for each
+     * input line. When the trace copies the groups of the first lines, the
+     * groups of a line starting an event are copied to the context, which
+     * parses it later. Otherwise the matcher is handed over to the context.
+     */
+    private final class TxtReader {
+
+        private final BufferedRandomAccessFile fReaderFile;
+        private final Map<InputLine, Matcher> fMatchers = new IdentityHashMap<>();
+
+        public TxtReader(BufferedRandomAccessFile file) {
+            fReaderFile = file;
+        }
+
+        /**
+         * Find the first line starting an event from the position of the
+         * file, and set up the context at this event.
+         */
+        public boolean findEvent(final CustomTxtTraceContext context) throws IOException {
+            long rawPos = fReaderFile.getFilePointer();
+            String line = fReaderFile.getNextLine();
+            while (line != null) {
+                for (final InputLine input : getFirstLines()) {
+                    final Matcher matcher = match(input, line);
+                    if (matcher != null) {
+                        setupContext(context, rawPos, line, input);
+                        return true;
+                    }
+                }
+                rawPos = fReaderFile.getFilePointer();
+                line = fReaderFile.getNextLine();
+            }
+            return false;
+        }
+
+        /**
+         * Parse the event of the context, and set up the context at the next
+         * event.
+         */
+        public CustomTxtEvent parse(final CustomTxtTraceContext context) {
+            if (context.getLocation() == null || !(context.getLocation().getLocationInfo() instanceof Long) || NULL_LOCATION.equals(context.getLocation())) {
+                return null;
+            }
+
+            CustomTxtEvent event = parseFirstLine(context);
+
+            final HashMap<InputLine, Integer> countMap = new HashMap<>();
+            InputLine currentInput = null;
+            if (context.inputLine.childrenInputs != null && context.inputLine.childrenInputs.size() > 0) {
+                currentInput = context.inputLine.childrenInputs.get(0);
+                countMap.put(currentInput, 0);
+            }
+
+            try {
+                if (fReaderFile.getFilePointer() != context.nextLineLocation) {
+                    fReaderFile.seek(context.nextLineLocation);
+                }
+                long rawPos = fReaderFile.getFilePointer();
+                String line = fReaderFile.getNextLine();
+                while (line != null) {
+                    boolean processed = false;
+                    if (currentInput == null) {
+                        for (final InputLine input : getFirstLines()) {
+                            final Matcher matcher = match(input, line);
+                            if (matcher != null) {
+                                setupContext(context, rawPos, line, input);
+                                return event;
+                            }
+                        }
+                    } else {
+                        if (countMap.get(currentInput) >= currentInput.getMinCount()) {
+                            final List<InputLine> nextInputs = currentInput.getNextInputs(countMap);
+                            if (nextInputs.size() == 0 || nextInputs.get(nextInputs.size() - 1).getMinCount() == 0) {
+                                for (final InputLine input : getFirstLines()) {
+                                    final Matcher matcher = match(input, line);
+                                    if (matcher != null) {
+                                        setupContext(context, rawPos, line, input);
+                                        return event;
+                                    }
+                                }
+                            }
+                            for (final InputLine input : nextInputs) {
+                                final Matcher matcher = match(input, line);
+                                if (matcher != null) {
+                                    event.processGroups(input, matcher);
+                                    currentInput = input;
+                                    if (countMap.get(currentInput) == null) {
+                                        countMap.put(currentInput, 1);
+                                    } else {
+                                        countMap.put(currentInput, countMap.get(currentInput) + 1);
+                                    }
+                                    Iterator<InputLine> iter = countMap.keySet().iterator();
+                                    while (iter.hasNext()) {
+                                        final InputLine inputLine = iter.next();
+                                        if (inputLine.level > currentInput.level) {
+                                            iter.remove();
+                                        }
+                                    }
+                                    if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
+                                        currentInput = currentInput.childrenInputs.get(0);
+                                        countMap.put(currentInput, 0);
+                                    } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
+                                        if (currentInput.getNextInputs(countMap).size() > 0) {
+                                            currentInput = currentInput.getNextInputs(countMap).get(0);
+                                            if (countMap.get(currentInput) == null) {
+                                                countMap.put(currentInput, 0);
+                                            }
+                                            iter = countMap.keySet().iterator();
+                                            while (iter.hasNext()) {
+                                                final InputLine inputLine = iter.next();
+                                                if (inputLine.level > currentInput.level) {
+                                                    iter.remove();
+                                                }
+                                            }
+                                        } else {
+                                            currentInput = null;
+                                        }
+                                    }
+                                    processed = true;
+                                    break;
+                                }
+                            }
+                        }
+                        if (!processed && currentInput != null) {
+                            final Matcher matcher = match(currentInput, line);
+                            if (matcher != null) {
+                                event.processGroups(currentInput, matcher);
+                                countMap.put(currentInput, countMap.get(currentInput) + 1);
+                                if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
+                                    currentInput = currentInput.childrenInputs.get(0);
+                                    countMap.put(currentInput, 0);
+                                } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
+                                    if (currentInput.getNextInputs(countMap).size() > 0) {
+                                        currentInput = currentInput.getNextInputs(countMap).get(0);
+                                        if (countMap.get(currentInput) == null) {
+                                            countMap.put(currentInput, 0);
+                                        }
+                                        final Iterator<InputLine> iter = countMap.keySet().iterator();
+                                        while (iter.hasNext()) {
+                                            final InputLine inputLine = iter.next();
+                                            if (inputLine.level > currentInput.level) {
+                                                iter.remove();
+                                            }
+                                        }
+                                    } else {
+                                        currentInput = null;
+                                    }
+                                }
+                            }
+                            ((StringBuffer) event.getContent().getValue()).append("\n").append(line); //$NON-NLS-1$
+                        }
+                    }
+                    rawPos = fReaderFile.getFilePointer();
+                    line = fReaderFile.getNextLine();
+                }
+            } catch (final IOException e) {
+                Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
+            }
+            for (final Entry<InputLine, Integer> entry : countMap.entrySet()) {
+                if (entry.getValue() < entry.getKey().getMinCount()) {
+                    event = null;
+                }
+            }
+            context.setLocation(NULL_LOCATION);
+            return event;
+        }
+
+        private Matcher match(InputLine input, String line) {
+            Matcher matcher = fMatchers.get(input);
+            if (matcher == null) {
+                matcher = input.getPattern().matcher(line);
+                fMatchers.put(input, matcher);
+            } else {
+                matcher.reset(line);
+            }
+            return matcher.matches() ? matcher : null;
+        }
+
+        @SuppressWarnings("deprecation")
+        private void setupContext(CustomTxtTraceContext context, long rawPos, String line, InputLine input) throws IOException {
+            context.setLocation(new TmfLongLocation(rawPos));
+            if (fCopyFirstLineGroups) {
+                context.firstLineMatcher = null;
+                context.firstLineMatchResult = new TextLineMatchResult(fMatchers.get(input), line);
+            } else {
+                context.firstLineMatcher = fMatchers.remove(input);
+                context.firstLineMatchResult = context.firstLineMatcher;
+            }
+            context.firstLine = line;
+            context.nextLineLocation = fReaderFile.getFilePointer();
+            context.inputLine = input;
+        }
+    }
+
+    /**
+     * A reader of the events of a chunk of the file, with its own file, which
+     * is opened when it is first used.
+     */
+    private final class TxtChunkReader implements TmfTextTraceIndexer.IChunkReader {
+
+        private final CustomTxtTraceContext fContext = new CustomTxtTraceContext(NULL_LOCATION, 0);
+        private BufferedRandomAccessFile fChunkFile;
+        private TxtReader fChunkReader;
+
+        public TxtChunkReader() {
+            /* The patterns are compiled lazily, compile them on this thread */
+            compilePatterns(getFirstLines());
+        }
+
+        private void compilePatterns(List<InputLine> inputs) {
+            for (InputLine input : inputs) {
+                input.getPattern();
+                if (input.childrenInputs != null) {
+                    compilePatterns(input.childrenInputs);
+                }
+            }
+        }
+
+        private BufferedRandomAccessFile getFile() throws IOException {
+            if (fChunkFile == null) {
+                fChunkFile = new BufferedRandomAccessFile(getPath(), "r"); //$NON-NLS-1$
+                fChunkReader = new TxtReader(fChunkFile);
+            }
+            return fChunkFile;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return getFile().length();
+        }
+
+        @Override
+        public long seekEvent(long offset) throws IOException {
+            TmfTextTraceIndexer.seekLine(getFile(), offset);
+            if (!fChunkReader.findEvent(fContext)) {
+                fContext.setLocation(NULL_LOCATION);
+            }
+            return getEventOffset();
+        }
+
+        @Override
+        public ITmfTimestamp readEvent() {
+            CustomTxtEvent event = fChunkReader.parse(fContext);
+            return (event == null) ? null : event.getTimestamp();
+        }
+
+        @Override
+        public long getEventOffset() {
+            if (NULL_LOCATION.equals(fContext.getLocation())) {
+                return -1;
+            }
+            return (Long) fContext.getLocation().getLocationInfo();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fChunkFile != null) {
+                fChunkFile.close();
+            }
+        }
     }
 }
+
@@ -12,6 +12,7 @@
 
 package org.eclipse.linuxtools.tmf.core.parsers.custom;
 
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 
 import org.eclipse.linuxtools.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputLine;
@@ -26,9 +27,24 @@ import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
  */
 public class CustomTxtTraceContext extends TmfContext {
 
-    /** Regex matcher for the first line of the trace */
+    /**
+     * Regex matcher for the first line of the trace
+     *
+     * @deprecated It is null when the trace copies the groups of its first
+     *             lines, since its matchers are then reused for the following
+     *             lines. Use {@link #firstLineMatchResult}.
+     */
+    @Deprecated
     public Matcher firstLineMatcher;
 
+    /**
+     * Result of the match of the first line of the trace, which is its
+     * matcher or a copy of its groups
+     *
+     * @since 3.1
+     */
+    public MatchResult firstLineMatchResult;
+
     /** First line of the text file */
     public String firstLine;
 
@@ -56,6 +72,7 @@ public class CustomTxtTraceContext extends TmfContext {
         int result = super.hashCode();
         result = prime * result + ((firstLine == null) ? 0 : firstLine.hashCode());
         result = prime * result + ((firstLineMatcher == null) ? 0 : firstLineMatcher.hashCode());
+        result = prime * result + ((firstLineMatchResult == null) ? 0 : firstLineMatchResult.hashCode());
         result = prime * result + ((inputLine == null) ? 0 : inputLine.hashCode());
         result = prime * result + (int) (nextLineLocation ^ (nextLineLocation >>> 32));
         return result;
@@ -87,6 +104,13 @@ public class CustomTxtTraceContext extends TmfContext {
         } else if (!firstLineMatcher.equals(other.firstLineMatcher)) {
             return false;
         }
+        if (firstLineMatchResult == null) {
+            if (other.firstLineMatchResult != null) {
+                return false;
+            }
+        } else if (!firstLineMatchResult.equals(other.firstLineMatchResult)) {
+            return false;
+        }
         if (inputLine == null) {
             if (other.inputLine != null) {
                 return false;
@@ -17,6 +17,7 @@ import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.linuxtools.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
 import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
 
 /**
@@ -93,6 +94,9 @@ public abstract class TmfEventRequest implements ITmfEventRequest {
     /** The number of reads so far */
     private int fNbRead;
 
+    /** The filter of the events, or null */
+    private ITmfFilter fEventFilter;
+
     private final CountDownLatch startedLatch = new CountDownLatch(1);
     private final CountDownLatch completedLatch = new CountDownLatch(1);
 
@@ -250,6 +254,16 @@ public abstract class TmfEventRequest implements ITmfEventRequest {
         return fRange;
     }
 
+    /**
+     * Get the filter of the events this request is interested in
+     *
+     * @return The event filter, or null if all the events are handled
+     * @since 3.1
+     */
+    public ITmfFilter getEventFilter() {
+        return fEventFilter;
+    }
+
     // ------------------------------------------------------------------------
     // Setters
     // ------------------------------------------------------------------------
@@ -270,6 +284,22 @@ public abstract class TmfEventRequest implements ITmfEventRequest {
         setIndex(index);
     }
 
+    /**
+     * Set the filter of the events this request is interested in, before
+     * sending it. The event provider may then skip events that do not match
+     * the filter, without passing them to {@link #handleData}, but it can
+     * also pass some of them: the request must still apply the filter. The
+     * skipped events count in the number of requested events. A request with
+     * a filter is not coalesced with other requests.
+     *
+     * @param filter
+     *            The event filter, or null to handle all the events
+     * @since 3.1
+     */
+    public void setEventFilter(ITmfFilter filter) {
+        fEventFilter = filter;
+    }
+
     // ------------------------------------------------------------------------
     // Operators
     // ------------------------------------------------------------------------
@@ -12,9 +12,7 @@
 
 package org.eclipse.linuxtools.tmf.core.statesystem;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-
+import org.eclipse.linuxtools.internal.tmf.core.statesystem.BatchRingBuffer;
 import org.eclipse.linuxtools.statesystem.core.ITmfStateSystem;
 import org.eclipse.linuxtools.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
@@ -32,6 +30,15 @@ import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
  * processEvent() is replaced with eventHandle(), so that all the multi-thread
  * logic is abstracted away.
  *
+ * The events are passed to the other thread in batches, to reduce the
+ * synchronization between the two threads. When the queue is full,
+ * processEvent() blocks until the event handler catches up. A batch is handed
+ * off before it is full if the event handler is idle, and waitForEmptyQueue()
+ * and dispose() hand off the events that are still in the current batch.
+ * dispose() can be called from another thread than processEvent(), for
+ * example when the analysis is cancelled, the events received afterwards are
+ * dropped.
+ *
  * @author Alexandre Montplaisir
  * @since 2.0
  */
@@ -39,9 +46,17 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
 
     private static final int DEFAULT_EVENTS_QUEUE_SIZE = 10000;
 
+    /**
+     * Default number of events handed off at once to the event handler's
+     * thread
+     *
+     * @since 3.1
+     */
+    public static final int DEFAULT_BATCH_SIZE = 250;
+
     private final ITmfTrace trace;
     private final Class<? extends ITmfEvent> eventType;
-    private final BlockingQueue<ITmfEvent> eventsQueue;
+    private final BatchRingBuffer<ITmfEvent> eventsQueue;
     private final Thread eventHandlerThread;
 
     private boolean ssAssigned;
@@ -62,9 +77,35 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
      */
     public AbstractTmfStateProvider(ITmfTrace trace,
             Class<? extends ITmfEvent> eventType, String id) {
+        this(trace, eventType, id, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Instantiate a new state provider plugin, specifying the number of events
+     * handed off at once to the event handler's thread. Larger batches reduce
+     * the synchronization between the threads, smaller ones reduce the delay
+     * before the events are handled.
+     *
+     * @param trace
+     *            The LTTng 2.0 kernel trace directory
+     * @param eventType
+     *            The specific class for the event type that will be used within
+     *            the subclass
+     * @param id
+     *            Name given to this state change input. Only used internally.
+     * @param batchSize
+     *            The maximum number of events of a batch
+     * @since 3.1
+     */
+    public AbstractTmfStateProvider(ITmfTrace trace,
+            Class<? extends ITmfEvent> eventType, String id, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize); //$NON-NLS-1$
+        }
         this.trace = trace;
         this.eventType = eventType;
-        eventsQueue = new ArrayBlockingQueue<>(DEFAULT_EVENTS_QUEUE_SIZE);
+        int nbBatches = Math.max(2, DEFAULT_EVENTS_QUEUE_SIZE / batchSize);
+        eventsQueue = new BatchRingBuffer<>(nbBatches, batchSize);
         ssAssigned = false;
 
         String id2 = (id == null ? "Unamed" : id); //$NON-NLS-1$
@@ -102,11 +143,48 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
         return ss;
     }
 
+    /**
+     * Get the number of events handed off at once to the event handler's
+     * thread
+     *
+     * @return The maximum number of events of a batch
+     * @since 3.1
+     */
+    public int getBatchSize() {
+        return eventsQueue.getBatchSize();
+    }
+
+    /**
+     * Get the number of times processEvent() blocked because the queue was
+     * full, which means the event handler is the bottleneck.
+     *
+     * @return The number of stalls of the events queue
+     * @since 3.1
+     */
+    public long getQueueFullStalls() {
+        return eventsQueue.getFullStalls();
+    }
+
+    /**
+     * Get the number of times the event handler waited for events, which
+     * means the reading of the trace is the bottleneck.
+     *
+     * @return The number of times the events queue was empty
+     * @since 3.1
+     */
+    public long getQueueEmptyStalls() {
+        return eventsQueue.getEmptyStalls();
+    }
+
     @Override
     public void dispose() {
-        /* Insert a null event in the queue to stop the event handler's thread. */
+        /*
+         * Insert a null event in the queue to stop the event handler's thread.
+         * The request thread may still be adding events, which are dropped
+         * after this one.
+         */
         try {
-            eventsQueue.put(END_EVENT);
+            eventsQueue.putLast(END_EVENT);
             eventHandlerThread.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
@@ -142,15 +220,12 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
      */
     public void waitForEmptyQueue() {
         /*
-         * We will first insert a dummy event that is guaranteed to not modify
-         * the state. That way, when that event leaves the queue, we will know
-         * for sure that the state system processed the preceding real event.
+         * The event handler releases a batch only once it processed all its
+         * events, so when the queue is empty, the state system processed the
+         * last real event.
          */
         try {
-            eventsQueue.put(EMPTY_QUEUE_EVENT);
-            while (!eventsQueue.isEmpty()) {
-                Thread.sleep(100);
-            }
+            eventsQueue.awaitEmpty();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -162,11 +237,8 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
 
     /** Fake event indicating the build is over, and the provider should close */
     private static class EndEvent extends TmfEvent {}
-    /** Fake event indicating we want to clear the current queue */
-    private static class EmptyQueueEvent extends TmfEvent {}
 
     private static final EndEvent END_EVENT = new EndEvent();
-    private static final EmptyQueueEvent EMPTY_QUEUE_EVENT = new EmptyQueueEvent();
 
     // ------------------------------------------------------------------------
     // Inner classes
@@ -186,28 +258,28 @@ public abstract class AbstractTmfStateProvider implements ITmfStateProvider {
                 System.err.println("Cannot run event manager without assigning a target state system first!"); //$NON-NLS-1$
                 return;
             }
-            ITmfEvent event;
-
             try {
-                event = eventsQueue.take();
-                /* This is a singleton, we want to do != instead of !x.equals */
-                while (event != END_EVENT) {
-                    if (event == EMPTY_QUEUE_EVENT) {
-                        /* Synchronization event, should be ignored */
-                        event = eventsQueue.take();
-                        continue;
-                    }
-
-                    currentEvent = event;
-
-                    /* Make sure this is an event the sub-class can process */
-                    if (eventType.isInstance(event) && event.getType() != null) {
-                        eventHandle(event);
+                while (true) {
+                    final int size = eventsQueue.takeBatch();
+                    for (int i = 0; i < size; i++) {
+                        ITmfEvent event = eventsQueue.get(i);
+                        /* This is a singleton, we want to do == instead of x.equals */
+                        if (event == END_EVENT) {
+                            /* We've received the last event, clean up */
+                            eventsQueue.release();
+                            closeStateSystem();
+                            return;
+                        }
+
+                        currentEvent = event;
+
+                        /* Make sure this is an event the sub-class can process */
+                        if (eventType.isInstance(event) && event.getType() != null) {
+                            eventHandle(event);
+                        }
                     }
-                    event = eventsQueue.take();
+                    eventsQueue.release();
                 }
-                /* We've received the last event, clean up */
-                closeStateSystem();
             } catch (InterruptedException e) {
                 /* We've been interrupted abnormally */
                 System.out.println("Event handler interrupted!"); //$NON-NLS-1$
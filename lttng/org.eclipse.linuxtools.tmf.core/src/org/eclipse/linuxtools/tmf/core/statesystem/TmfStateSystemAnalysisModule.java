@@ -32,8 +32,11 @@ import org.eclipse.linuxtools.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.linuxtools.statesystem.core.backend.InMemoryBackend;
 import org.eclipse.linuxtools.statesystem.core.backend.NullBackend;
 import org.eclipse.linuxtools.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.linuxtools.statesystem.core.backend.historytree.PartitionedHistoryTreeBackend;
 import org.eclipse.linuxtools.statesystem.core.backend.historytree.ThreadedHistoryTreeBackend;
+import org.eclipse.linuxtools.tmf.core.analysis.ISharedScanAnalysisModule;
 import org.eclipse.linuxtools.tmf.core.analysis.TmfAbstractAnalysisModule;
+import org.eclipse.linuxtools.tmf.core.analysis.TmfAnalysisManager;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
@@ -52,15 +55,23 @@ import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
  * and optionally a backend (default to NULL) and, if required, a filename
  * (defaults to the analysis'ID)
  *
+ * The module takes part in the shared scan of its trace: its event request is
+ * coalesced with the ones of the other modules, and since the state provider
+ * processes the events in its own thread, the modules handle each event in
+ * parallel.
+ *
  * @author Geneviève Bastien
  * @since 3.0
  */
 @NonNullByDefault
 public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisModule
-        implements ITmfAnalysisModuleWithStateSystems {
+        implements ITmfAnalysisModuleWithStateSystems, ISharedScanAnalysisModule {
 
     private static final String EXTENSION = ".ht"; //$NON-NLS-1$
 
+    /* Maximum number of threads used to build a partitioned history */
+    private static final int MAX_PARTITIONS = 16;
+
     private final CountDownLatch fInitialized = new CountDownLatch(1);
 
     @Nullable private ITmfStateSystemBuilder fStateSystem;
@@ -81,7 +92,13 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         /** Null history */
         NULL,
         /** State system backed with partial history */
-        PARTIAL
+        PARTIAL,
+        /**
+         * Full history split into several files, built in parallel
+         *
+         * @since 3.1
+         */
+        PARTITIONED
     }
 
 
@@ -192,6 +209,11 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
                 htFile = new File(directory + getSsFileName());
                 createPartialHistory(id, provider, htFile);
                 break;
+            case PARTITIONED:
+                directory = TmfTraceManager.getSupplementaryFileDir(getTrace());
+                htFile = new File(directory + getSsFileName());
+                createPartitionedHistory(id, provider, htFile);
+                break;
             case INMEM:
                 createInMemoryHistory(id, provider);
                 break;
@@ -275,6 +297,47 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
     }
 
+    /*
+     * Load or create a full history which is split into several partitions,
+     * each partition being built by its own thread. This is similar to
+     * createFullHistory(), but makes use of more cores for state systems with
+     * lots of attributes.
+     */
+    private void createPartitionedHistory(String id, ITmfStateProvider provider, File htFile) throws TmfTraceException {
+
+        /* If the target files already exist, do not rebuild them uselessly */
+        if (htFile.exists()) {
+            final int version = provider.getVersion();
+            try {
+                IStateHistoryBackend backend = new PartitionedHistoryTreeBackend(htFile, version);
+                fHtBackend = backend;
+                fStateSystem = StateSystemFactory.newStateSystem(id, backend, false);
+                fInitialized.countDown();
+                return;
+            } catch (IOException e) {
+                /* Fall-through and rebuild the history from scratch */
+            }
+        }
+
+        /* Size of the blocking queue of each partition */
+        final int QUEUE_SIZE = 10000;
+
+        /* Keep one core for the trace reading and the state provider */
+        final int nbPartitions = Math.max(1, Math.min(MAX_PARTITIONS,
+                Runtime.getRuntime().availableProcessors() - 1));
+
+        try {
+            IStateHistoryBackend backend = new PartitionedHistoryTreeBackend(htFile,
+                    provider.getStartTime(), provider.getVersion(), QUEUE_SIZE, nbPartitions);
+            fHtBackend = backend;
+            fStateSystem = StateSystemFactory.newStateSystem(id, backend);
+            provider.assignTargetStateSystem(fStateSystem);
+            build(provider);
+        } catch (IOException e) {
+            throw new TmfTraceException(e.toString(), e);
+        }
+    }
+
     /*
      * Create a new state system backed with a partial history. A partial
      * history is similar to a "full" one (which you get with
@@ -398,6 +461,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
 
         request = new StateSystemEventRequest(provider);
         provider.getTrace().sendRequest(request);
+        TmfAnalysisManager.sharedScanReady(provider.getTrace(), this);
 
         /*
          * Only now that we've actually started the build, we'll update the
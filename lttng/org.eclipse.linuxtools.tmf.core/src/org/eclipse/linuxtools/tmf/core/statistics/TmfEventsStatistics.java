@@ -267,7 +267,7 @@ public class TmfEventsStatistics implements ITmfStatistics {
         public void handleData(ITmfEvent event) {
             super.handleData(event);
             if (event.getTrace() == trace) {
-                long ts = event.getTimestamp().normalize(0, SCALE).getValue();
+                long ts = TmfTimestamp.toNanos(event.getTimestamp());
                 Long key = results.floorKey(ts);
                 if (key != null) {
                     incrementValue(key);
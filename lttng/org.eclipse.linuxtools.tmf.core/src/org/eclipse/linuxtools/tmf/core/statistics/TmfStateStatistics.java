@@ -13,8 +13,9 @@
 
 package org.eclipse.linuxtools.tmf.core.statistics;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import org.eclipse.linuxtools.statesystem.core.ITmfStateSystem;
 import org.eclipse.linuxtools.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.linuxtools.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateIntervalHandler;
 
 /**
  * Implementation of ITmfStatistics which uses a state history for storing its
@@ -40,6 +42,13 @@ import org.eclipse.linuxtools.statesystem.core.interval.ITmfStateInterval;
  */
 public class TmfStateStatistics implements ITmfStatistics {
 
+    /**
+     * Average number of events per bucket under which a histogram query reads
+     * all the intervals of the time range in one pass, instead of querying
+     * the state at each bucket border.
+     */
+    private static final int SWEEP_THRESHOLD = 8;
+
     // ------------------------------------------------------------------------
     // Fields
     // ------------------------------------------------------------------------
@@ -100,39 +109,74 @@ public class TmfStateStatistics implements ITmfStatistics {
 
     @Override
     public List<Long> histogramQuery(final long start, final long end, final int nb) {
-        final List<Long> list = new LinkedList<>();
-        final long increment = (end - start) / nb;
+        final long[] counts = getHistogram(start, end, nb);
+        final List<Long> list = new ArrayList<>(counts.length);
+        for (long count : counts) {
+            list.add(count);
+        }
+        return list;
+    }
 
+    /**
+     * Array version of {@link #histogramQuery}, which returns the number of
+     * events in each of the 'nb' equal-sized ranges between 'start' and 'end'.
+     *
+     * The total count is needed at each border between the ranges. The
+     * borders are visited in ascending order, and the state interval found
+     * for one border is reused for the following ones it contains. If the
+     * ranges hold few events each, all the intervals of the time range are
+     * instead read in a single range query, which is cheaper than one query
+     * per border.
+     *
+     * @param start
+     *            Start time of the query
+     * @param end
+     *            End time of the query
+     * @param nb
+     *            The number of ranges to separate the complete time range into.
+     *            It will be the length of the returned array.
+     * @return The number of events found in each sub-range, or an empty array
+     *         if the statistics were cancelled
+     * @since 3.1
+     */
+    public long[] getHistogram(final long start, final long end, final int nb) {
         if (totalsStats.isCancelled()) {
-            return list;
+            return new long[0];
         }
+        final long[] counts = new long[nb];
+        final long increment = (end - start) / nb;
 
         /*
-         * We will do one state system query per "border", and save the
-         * differences between each border.
+         * The times at which we need the total count: the start of each
+         * bucket, and the end of the last one. We stretch the end time of the
+         * last bucket to the end time of the requested range, in case it got
+         * truncated down.
          */
-        long prevTotal = (start == totalsStats.getStartTime()) ? 0 : getEventCountAt(start);
-        long curTime = start + increment;
-
-        long curTotal, count;
-        for (int i = 0; i < nb - 1; i++) {
-            curTotal = getEventCountAt(curTime);
-            count = curTotal - prevTotal;
-            list.add(count);
-
-            curTime += increment;
-            prevTotal = curTotal;
+        final long[] times = new long[nb + 1];
+        for (int i = 0; i < nb; i++) {
+            times[i] = checkEndTime(checkStartTime(start + i * increment, totalsStats), totalsStats);
         }
+        times[nb] = checkEndTime(checkStartTime(end, totalsStats), totalsStats);
 
-        /*
-         * For the last bucket, we'll stretch its end time to the end time of
-         * the requested range, in case it got truncated down.
-         */
-        curTotal = getEventCountAt(end);
-        count = curTotal - prevTotal;
-        list.add(count);
+        final long[] totals;
+        try {
+            final int quark = totalsStats.getQuarkAbsolute(Attributes.TOTAL);
+            totals = getEventCountsAt(quark, times);
+        } catch (StateSystemDisposedException e) {
+            /* Assume there is no (more) events */
+            return counts;
+        } catch (AttributeNotFoundException e) {
+            e.printStackTrace();
+            return counts;
+        }
 
-        return list;
+        if (start == totalsStats.getStartTime()) {
+            totals[0] = 0;
+        }
+        for (int i = 0; i < nb; i++) {
+            counts[i] = totals[i + 1] - totals[i];
+        }
+        return counts;
     }
 
     @Override
@@ -293,6 +337,72 @@ public class TmfStateStatistics implements ITmfStatistics {
         return 0;
     }
 
+    /**
+     * Get the total count at each of the given times, which must be within
+     * the range of the state system and in ascending order.
+     */
+    private long[] getEventCountsAt(final int quark, final long[] times)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        final int last = times.length - 1;
+        final long[] totals = new long[times.length];
+        final boolean[] found = new boolean[times.length];
+
+        ITmfStateInterval first = totalsStats.querySingleState(times[0], quark);
+        totals[0] = first.getStateValue().unboxInt();
+        found[0] = true;
+        ITmfStateInterval current = totalsStats.querySingleState(times[last], quark);
+        totals[last] = current.getStateValue().unboxInt();
+        found[last] = true;
+
+        /* The number of intervals in the range is about the number of events */
+        if (times[last] > times[0] &&
+                totals[last] - totals[0] <= (long) SWEEP_THRESHOLD * last) {
+            totalsStats.queryHistoryRange(Collections.singleton(quark), times[0], times[last], 1, null,
+                    new ITmfStateIntervalHandler() {
+                        @Override
+                        public void handleInterval(ITmfStateInterval interval) {
+                            final long value = interval.getStateValue().unboxInt();
+                            for (int i = firstIndexAfter(times, interval.getStartTime());
+                                    i < times.length && times[i] <= interval.getEndTime(); i++) {
+                                totals[i] = value;
+                                found[i] = true;
+                            }
+                        }
+                    });
+        }
+
+        /* Query the remaining borders, in ascending order */
+        current = first;
+        for (int i = 1; i < last; i++) {
+            if (found[i]) {
+                continue;
+            }
+            if (times[i] < current.getStartTime() || times[i] > current.getEndTime()) {
+                current = totalsStats.querySingleState(times[i], quark);
+            }
+            totals[i] = current.getStateValue().unboxInt();
+        }
+        return totals;
+    }
+
+    /**
+     * Index of the first element of a sorted array that is not before the
+     * given time
+     */
+    private static int firstIndexAfter(long[] times, long time) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     private static long checkStartTime(long initialStart, ITmfStateSystem ss) {
         long start = initialStart;
         if (start < ss.getStartTime()) {
@@ -20,7 +20,9 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.linuxtools.statesystem.core.ITmfStateSystem;
+import org.eclipse.linuxtools.tmf.core.analysis.ISharedScanAnalysisModule;
 import org.eclipse.linuxtools.tmf.core.analysis.TmfAbstractAnalysisModule;
+import org.eclipse.linuxtools.tmf.core.analysis.TmfAnalysisManager;
 import org.eclipse.linuxtools.tmf.core.exceptions.TmfAnalysisException;
 import org.eclipse.linuxtools.tmf.core.statesystem.ITmfAnalysisModuleWithStateSystems;
 import org.eclipse.linuxtools.tmf.core.statesystem.TmfStateSystemAnalysisModule;
@@ -33,7 +35,7 @@ import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
  * @since 3.0
  */
 public class TmfStatisticsModule extends TmfAbstractAnalysisModule
-        implements ITmfAnalysisModuleWithStateSystems {
+        implements ITmfAnalysisModuleWithStateSystems, ISharedScanAnalysisModule {
 
     /** ID of this analysis module */
     public static final String ID = "org.eclipse.linuxtools.tmf.core.statistics.analysis"; //$NON-NLS-1$
@@ -63,6 +65,43 @@ public class TmfStatisticsModule extends TmfAbstractAnalysisModule
         return fStatistics;
     }
 
+    /**
+     * Get the number of events in each of 'nb' equal-sized ranges between
+     * 'start' and 'end', typically to fill a histogram. This uses the
+     * single-pass array query of the state system statistics, instead of
+     * building a list of boxed counts.
+     *
+     * This method will block the caller until the results are returned, so it
+     * should not be called from a signal handler or from the UI thread.
+     *
+     * @param start
+     *            Start time of the query
+     * @param end
+     *            End time of the query
+     * @param nb
+     *            The number of ranges to separate the complete time range into
+     * @return The number of events found in each sub-range, or an empty array
+     *         if the statistics are not available
+     * @see ITmfStatistics#histogramQuery
+     * @since 3.1
+     */
+    public long[] getHistogram(long start, long end, int nb) {
+        ITmfStatistics stats = fStatistics;
+        if (stats == null) {
+            return new long[0];
+        }
+        if (stats instanceof TmfStateStatistics) {
+            return ((TmfStateStatistics) stats).getHistogram(start, end, nb);
+        }
+        List<Long> list = stats.histogramQuery(start, end, nb);
+        long[] counts = new long[list.size()];
+        int i = 0;
+        for (Long count : list) {
+            counts[i++] = count;
+        }
+        return counts;
+    }
+
     /**
      * Wait until the analyses/state systems underneath are ready to be queried.
      */
@@ -108,9 +147,19 @@ public class TmfStatisticsModule extends TmfAbstractAnalysisModule
             throw new IllegalStateException();
         }
 
+        /*
+         * The sub-analyses read the trace in the same scan as this module,
+         * they join it before this module leaves it.
+         */
+        TmfAnalysisManager.joinSharedScan(trace, totalsModule);
+        TmfAnalysisManager.joinSharedScan(trace, eventTypesModule);
+        TmfAnalysisManager.sharedScanReady(trace, this);
+
         IStatus status1 = totalsModule.schedule();
         IStatus status2 = eventTypesModule.schedule();
         if (!(status1.isOK() && status2.isOK())) {
+            TmfAnalysisManager.sharedScanReady(trace, totalsModule);
+            TmfAnalysisManager.sharedScanReady(trace, eventTypesModule);
             cancelSubAnalyses();
             return false;
         }
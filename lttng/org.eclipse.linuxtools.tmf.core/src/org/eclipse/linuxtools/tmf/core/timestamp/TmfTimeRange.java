@@ -47,6 +47,15 @@ public class TmfTimeRange {
     private final ITmfTimestamp fStartTime;
     private final ITmfTimestamp fEndTime;
 
+    /*
+     * Bounds in nanoseconds, used to check the nanosecond timestamps without
+     * normalizing them when both bounds are nanosecond timestamps (or the big
+     * bang and the big crunch)
+     */
+    private final boolean fNanoRange;
+    private final long fStartNanos;
+    private final long fEndNanos;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -57,6 +66,9 @@ public class TmfTimeRange {
     private TmfTimeRange() {
         fStartTime = TmfTimestamp.BIG_BANG;
         fEndTime = TmfTimestamp.BIG_BANG;
+        fNanoRange = false;
+        fStartNanos = Long.MIN_VALUE;
+        fEndNanos = Long.MIN_VALUE;
     }
 
     /**
@@ -71,6 +83,9 @@ public class TmfTimeRange {
         }
         fStartTime = startTime;
         fEndTime = endTime;
+        fNanoRange = (isNanos(startTime) || isBigBang(startTime)) && (isNanos(endTime) || isBigCrunch(endTime));
+        fStartNanos = isNanos(startTime) ? startTime.getValue() : Long.MIN_VALUE;
+        fEndNanos = isNanos(endTime) ? endTime.getValue() : Long.MAX_VALUE;
     }
 
     /**
@@ -84,6 +99,9 @@ public class TmfTimeRange {
         }
         fStartTime = range.getStartTime();
         fEndTime = range.getEndTime();
+        fNanoRange = range.fNanoRange;
+        fStartNanos = range.fStartNanos;
+        fEndNanos = range.fEndNanos;
     }
 
     // ------------------------------------------------------------------------
@@ -116,9 +134,28 @@ public class TmfTimeRange {
      * @return True if [startTime] <= [ts] <= [endTime]
      */
     public boolean contains(final ITmfTimestamp ts) {
+        if (fNanoRange && isNanos(ts)) {
+            final long value = ts.getValue();
+            return (fStartNanos <= value) && (value <= fEndNanos);
+        }
         return (fStartTime.compareTo(ts, true) <= 0) && (fEndTime.compareTo(ts, true) >= 0);
     }
 
+    /**
+     * Check if a time in nanoseconds is within the time range
+     *
+     * @param nanos
+     *            The time to check, in nanoseconds
+     * @return True if [startTime] <= [nanos] <= [endTime]
+     * @since 3.1
+     */
+    public boolean contains(final long nanos) {
+        if (fNanoRange) {
+            return (fStartNanos <= nanos) && (nanos <= fEndNanos);
+        }
+        return contains(new TmfNanoTimestamp(nanos));
+    }
+
     /**
      * Check if the time range is within the time range
      *
@@ -154,6 +191,26 @@ public class TmfTimeRange {
                         : fEndTime);
     }
 
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    /**
+     * Check if a timestamp is exactly compared to the other nanosecond
+     * timestamps by comparing the values
+     */
+    private static boolean isNanos(final ITmfTimestamp ts) {
+        return (ts instanceof TmfTimestamp) && ts.getScale() == ITmfTimestamp.NANOSECOND_SCALE && ts.getPrecision() == 0;
+    }
+
+    private static boolean isBigBang(final ITmfTimestamp ts) {
+        return ts.getValue() == Long.MIN_VALUE && ts.getScale() == TmfTimestamp.BIG_BANG.getScale();
+    }
+
+    private static boolean isBigCrunch(final ITmfTimestamp ts) {
+        return ts.getValue() == Long.MAX_VALUE && ts.getScale() == TmfTimestamp.BIG_CRUNCH.getScale();
+    }
+
     // ------------------------------------------------------------------------
     // Object
     // ------------------------------------------------------------------------
@@ -213,6 +270,11 @@ public class TmfTimeRange {
             return true;
         }
 
+        @Override
+        public boolean contains(long nanos) {
+            return true;
+        }
+
         @Override
         public boolean contains(TmfTimeRange range) {
             return true;
@@ -251,6 +251,52 @@ public class TmfTimestamp implements ITmfTimestamp {
         return new TmfTimestamp(value, scale, precision);
     }
 
+    /**
+     * Scale a value as {@link #normalize} does, without applying an offset
+     *
+     * @throws ArithmeticException
+     *             If the scales are too far apart
+     */
+    private static long scaleValue(final long value, final int fromScale, final int toScale) {
+        if (fromScale == toScale) {
+            return value;
+        }
+        final int scaleDiff = Math.abs(fromScale - toScale);
+        if (scaleDiff >= scalingFactors.length) {
+            throw new ArithmeticException("Scaling exception"); //$NON-NLS-1$
+        }
+        final long scalingFactor = scalingFactors[scaleDiff];
+        return (toScale < fromScale) ? value * scalingFactor : value / scalingFactor;
+    }
+
+    /**
+     * Get the value of a timestamp in nanoseconds. This is the value of
+     * <code>ts.normalize(0, NANOSECOND_SCALE)</code>, computed without creating
+     * a new timestamp when the timestamp is a {@link TmfTimestamp}.
+     *
+     * @param ts
+     *            The timestamp
+     * @return The value of the timestamp in nanoseconds
+     * @throws ArithmeticException
+     *             If the timestamp cannot be scaled to nanoseconds
+     * @since 3.1
+     */
+    public static long toNanos(final ITmfTimestamp ts) {
+        if (!(ts instanceof TmfTimestamp)) {
+            return ts.normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+        }
+        final int scale = ts.getScale();
+        final long value = ts.getValue();
+        if (scale == ITmfTimestamp.NANOSECOND_SCALE) {
+            return value;
+        }
+        if (scale == BIG_BANG.getScale() && (value == Long.MIN_VALUE || value == Long.MAX_VALUE)) {
+            /* The big bang and the big crunch are not scaled */
+            return value;
+        }
+        return scaleValue(value, scale, ITmfTimestamp.NANOSECOND_SCALE);
+    }
+
     @Override
     public int compareTo(final ITmfTimestamp ts, final boolean withinPrecision) {
 
@@ -269,12 +315,22 @@ public class TmfTimestamp implements ITmfTimestamp {
         }
 
         try {
-            final ITmfTimestamp nts = ts.normalize(0, fScale);
-            final long delta = fValue - nts.getValue();
-            if ((delta == 0) || (withinPrecision && (Math.abs(delta) <= (fPrecision + nts.getPrecision())))) {
+            final long value;
+            final long precision;
+            if (ts instanceof TmfTimestamp) {
+                /* Scale the raw values, without creating a normalized timestamp */
+                final int scale = ts.getScale();
+                value = scaleValue(ts.getValue(), scale, fScale);
+                precision = (int) scaleValue(ts.getPrecision(), scale, fScale);
+            } else {
+                final ITmfTimestamp nts = ts.normalize(0, fScale);
+                value = nts.getValue();
+                precision = nts.getPrecision();
+            }
+            if (fValue == value || (withinPrecision && (Math.abs(fValue - value) <= (fPrecision + precision)))) {
                 return 0;
             }
-            return (delta > 0) ? 1 : -1;
+            return (fValue > value) ? 1 : -1;
         }
         catch (final ArithmeticException e) {
             // Scaling error. We can figure it out nonetheless.
@@ -299,6 +355,9 @@ public class TmfTimestamp implements ITmfTimestamp {
 
     @Override
     public ITmfTimestamp getDelta(final ITmfTimestamp ts) {
+        if (ts instanceof TmfTimestamp && ts.getScale() == fScale) {
+            return new TmfTimestampDelta(fValue - ts.getValue(), fScale, fPrecision + ts.getPrecision());
+        }
         final ITmfTimestamp nts = ts.normalize(0, fScale);
         final long value = fValue - nts.getValue();
         return new TmfTimestampDelta(value, fScale, fPrecision + nts.getPrecision());
@@ -405,8 +405,13 @@ public class TmfExperiment extends TmfTrace implements ITmfEventParser, ITmfPers
         return event;
     }
 
+    /**
+     * The context is only used by the caller: the traces synchronize the
+     * reading of their own contexts, so the experiment does not need to hold
+     * its lock while merging their events.
+     */
     @Override
-    public synchronized ITmfEvent getNext(ITmfContext context) {
+    public ITmfEvent getNext(ITmfContext context) {
 
         // Validate the context
         if (!(context instanceof TmfExperimentContext)) {
@@ -414,7 +419,8 @@ public class TmfExperiment extends TmfTrace implements ITmfEventParser, ITmfPers
         }
 
         // Make sure that we have something to read from
-        if (fTraces == null) {
+        final ITmfTrace[] traces = fTraces;
+        if (traces == null) {
             return null;
         }
 
@@ -425,23 +431,12 @@ public class TmfExperiment extends TmfTrace implements ITmfEventParser, ITmfPers
         final int lastTrace = expContext.getLastTrace();
         if (lastTrace != TmfExperimentContext.NO_TRACE) {
             final ITmfContext traceContext = expContext.getContext(lastTrace);
-            expContext.setEvent(lastTrace, fTraces[lastTrace].getNext(traceContext));
+            expContext.setEvent(lastTrace, traces[lastTrace].getNext(traceContext));
             expContext.setLastTrace(TmfExperimentContext.NO_TRACE);
         }
 
-        // Scan the candidate events and identify the "next" trace to read from
-        int trace = TmfExperimentContext.NO_TRACE;
-        ITmfTimestamp timestamp = TmfTimestamp.BIG_CRUNCH;
-        for (int i = 0; i < fTraces.length; i++) {
-            final ITmfEvent event = expContext.getEvent(i);
-            if (event != null && event.getTimestamp() != null) {
-                final ITmfTimestamp otherTS = event.getTimestamp();
-                if (otherTS.compareTo(timestamp, true) < 0) {
-                    trace = i;
-                    timestamp = otherTS;
-                }
-            }
-        }
+        // Identify the "next" trace to read from
+        final int trace = expContext.getNextTrace();
 
         ITmfEvent event = null;
         if (trace != TmfExperimentContext.NO_TRACE) {
@@ -456,10 +451,7 @@ public class TmfExperiment extends TmfTrace implements ITmfEventParser, ITmfPers
                 }
 
                 // Update the experiment location
-                TmfLocationArray locationArray = new TmfLocationArray(
-                        ((TmfExperimentLocation) expContext.getLocation()).getLocationInfo(),
-                        trace, traceContext.getLocation(), traceContext.getRank());
-                expContext.setLocation(new TmfExperimentLocation(locationArray));
+                expContext.updateLocation(trace, traceContext.getLocation(), traceContext.getRank());
 
                 processEvent(event);
             }
@@ -22,9 +22,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -40,6 +42,7 @@ import org.eclipse.linuxtools.internal.tmf.core.Activator;
 import org.eclipse.linuxtools.tmf.core.TmfCommonConstants;
 import org.eclipse.linuxtools.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.linuxtools.tmf.core.analysis.IAnalysisModuleHelper;
+import org.eclipse.linuxtools.tmf.core.analysis.ISharedScanAnalysisModule;
 import org.eclipse.linuxtools.tmf.core.analysis.TmfAnalysisManager;
 import org.eclipse.linuxtools.tmf.core.component.TmfEventProvider;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
@@ -279,6 +282,9 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
      * Instantiate the applicable analysis modules and executes the analysis
      * modules that are meant to be automatically executed
      *
+     * The modules that support it read the trace in one shared scan, see
+     * {@link TmfAnalysisManager#joinSharedScan}.
+     *
      * @return An IStatus indicating whether the analysis could be run
      *         successfully or not
      * @since 3.0
@@ -286,17 +292,32 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     protected IStatus executeAnalysis() {
         MultiStatus status = new MultiStatus(Activator.PLUGIN_ID, IStatus.OK, null, null);
         Map<String, IAnalysisModuleHelper> modules = TmfAnalysisManager.getAnalysisModules(this.getClass());
+        List<IAnalysisModule> automaticModules = new ArrayList<>();
         for (IAnalysisModuleHelper helper : modules.values()) {
             try {
                 IAnalysisModule module = helper.newModule(this);
                 fAnalysisModules.put(module.getId(), module);
                 if (module.isAutomatic()) {
-                    status.add(module.schedule());
+                    automaticModules.add(module);
                 }
             } catch (TmfAnalysisException e) {
                 status.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage()));
             }
         }
+
+        /* All the modules must join the scan before any of them starts */
+        for (IAnalysisModule module : automaticModules) {
+            if (module instanceof ISharedScanAnalysisModule) {
+                TmfAnalysisManager.joinSharedScan(this, (ISharedScanAnalysisModule) module);
+            }
+        }
+        for (IAnalysisModule module : automaticModules) {
+            IStatus moduleStatus = module.schedule();
+            if (!moduleStatus.isOK()) {
+                TmfAnalysisManager.sharedScanReady(this, module);
+            }
+            status.add(moduleStatus);
+        }
         return status;
     }
 
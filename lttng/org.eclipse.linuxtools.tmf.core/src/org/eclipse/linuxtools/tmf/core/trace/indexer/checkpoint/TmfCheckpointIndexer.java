@@ -15,9 +15,11 @@ package org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.linuxtools.internal.tmf.core.Messages;
+import org.eclipse.linuxtools.internal.tmf.core.trace.indexer.TmfExperimentIndexBuilder;
 import org.eclipse.linuxtools.internal.tmf.core.trace.indexer.TmfMemoryIndex;
 import org.eclipse.linuxtools.tmf.core.component.TmfEventProvider;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
@@ -26,9 +28,11 @@ import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.signal.TmfTraceUpdatedSignal;
 import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTraceCompleteness;
+import org.eclipse.linuxtools.tmf.core.trace.TmfExperiment;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 
@@ -77,6 +81,22 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
      */
     private ITmfEventRequest fIndexingRequest = null;
 
+    /**
+     * The builder of the checkpoints of an experiment, if it is being indexed
+     * without a request
+     */
+    private volatile TmfExperimentIndexBuilder fExperimentBuilder = null;
+
+    /** Whether the indexer was disposed */
+    private volatile boolean fIsDisposed = false;
+
+    /** The progress monitor of the job running buildCheckpoints() */
+    private volatile IProgressMonitor fBuildMonitor = null;
+
+    /** The time range and number of events found by buildCheckpoints() */
+    private TmfTimeRange fBuiltRange = null;
+    private long fBuiltNbEvents = 0;
+
     // ------------------------------------------------------------------------
     // Construction
     // ------------------------------------------------------------------------
@@ -118,9 +138,11 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
 
     @Override
     public void dispose() {
+        fIsDisposed = true;
         if ((fIndexingRequest != null) && !fIndexingRequest.isCompleted()) {
             fIndexingRequest.cancel();
         }
+        cancelCheckpoints();
 
         fTraceIndex.dispose();
     }
@@ -154,18 +176,43 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
 
         // No need to build the index, it has been restored
         if (!fTraceIndex.isCreatedFromScratch()) {
-            // Set some trace attributes that depends on indexing
-            TmfTraceUpdatedSignal signal = new TmfTraceUpdatedSignal(this, fTrace, new TmfTimeRange(fTraceIndex.getTimeRange().getStartTime(), fTraceIndex.getTimeRange().getEndTime()), fTraceIndex.getNbEvents());
+            signalIndexRange(fTraceIndex.getTimeRange(), fTraceIndex.getNbEvents(), waitForCompletion);
+            fIsIndexing = false;
+            return;
+        }
+
+        // Build the whole index without reading the events in a request, if
+        // the trace supports it. It falls back to the request on failure.
+        if (isCompleteTrace(fTrace) && range.getEndTime().equals(TmfTimestamp.BIG_CRUNCH)
+                && fTraceIndex.size() <= 1 && canBuildCheckpoints()) {
             if (waitForCompletion) {
-                fTrace.broadcast(signal);
+                buildIndexDirectly(offset, range, new NullProgressMonitor(), true);
             } else {
-                fTrace.broadcastAsync(signal);
+                Job job = new Job("Indexing " + fTrace.getName() + "...") { //$NON-NLS-1$ //$NON-NLS-2$
+                    @Override
+                    protected IStatus run(final IProgressMonitor monitor) {
+                        buildIndexDirectly(offset, range, monitor, false);
+                        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+                    }
+
+                    @Override
+                    protected void canceling() {
+                        cancelCheckpoints();
+                    }
+                };
+                job.schedule();
             }
-            fIsIndexing = false;
             return;
         }
 
-        // The monitoring job
+        sendIndexingRequest(offset, range, scheduleMonitoringJob(), waitForCompletion);
+    }
+
+    /**
+     * Schedule the job monitoring the indexing request. It shows the number
+     * of events read by the request until it is cancelled.
+     */
+    private Job scheduleMonitoringJob() {
         final Job job = new Job("Indexing " + fTrace.getName() + "...") { //$NON-NLS-1$ //$NON-NLS-2$
             @Override
             protected IStatus run(final IProgressMonitor monitor) {
@@ -189,7 +236,38 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         };
         job.setSystem(!isCompleteTrace(fTrace));
         job.schedule();
+        return job;
+    }
+
+    /**
+     * Build the index with buildCheckpoints(), whose progress is reported to
+     * the monitor by updateIndex()
+     */
+    private void buildIndexDirectly(long offset, TmfTimeRange range, IProgressMonitor monitor, boolean waitForCompletion) {
+        monitor.beginTask(Messages.TmfCheckpointIndexer_Indexing + ' ' + fTrace.getName(), IProgressMonitor.UNKNOWN);
+        fBuildMonitor = monitor;
+        boolean built;
+        try {
+            built = buildCheckpoints();
+        } finally {
+            fBuildMonitor = null;
+            monitor.done();
+        }
+        if (!built) {
+            if (fIsDisposed || monitor.isCanceled()) {
+                fIsIndexing = false;
+                return;
+            }
+            // Read the whole trace with a request instead
+            sendIndexingRequest(offset, range, scheduleMonitoringJob(), waitForCompletion);
+            return;
+        }
+        fTraceIndex.setIndexComplete();
+        signalIndexRange(fBuiltRange, fBuiltNbEvents, waitForCompletion);
+        fIsIndexing = false;
+    }
 
+    private void sendIndexingRequest(final long offset, final TmfTimeRange range, final Job job, final boolean waitForCompletion) {
         // Build a background request for all the trace data. The index is
         // updated as we go by readNextEvent().
         fIndexingRequest = new TmfEventRequest(ITmfEvent.class,
@@ -238,6 +316,98 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         }
     }
 
+    // ------------------------------------------------------------------------
+    // ITmfTraceIndexer - buildIndex without request
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns whether the checkpoints of the whole trace can be built by
+     * {@link #buildCheckpoints}, instead of reading all the events of the trace
+     * in order with a request. By default, this is the case of the experiments
+     * of several traces.
+     *
+     * @return true if the trace can be indexed by {@link #buildCheckpoints}
+     * @since 3.1
+     */
+    protected boolean canBuildCheckpoints() {
+        return (fTrace instanceof TmfExperiment) && ((TmfExperiment) fTrace).getTraces().length > 1;
+    }
+
+    /**
+     * Build the checkpoints of the whole trace, by calling
+     * {@link #updateIndex} for each of them in order, and set the time range
+     * and number of events of the trace with {@link #setTraceRange}.
+     * <p>
+     * The traces of an experiment are indexed concurrently, then the
+     * experiment is split at locations found from their indexes and the parts
+     * are read concurrently.
+     *
+     * @return true if the index was built, false if it was not and the trace
+     *         must be read with a request
+     * @since 3.1
+     */
+    protected boolean buildCheckpoints() {
+        if (!(fTrace instanceof TmfExperiment)) {
+            return false;
+        }
+        TmfExperimentIndexBuilder builder = new TmfExperimentIndexBuilder((TmfExperiment) fTrace, this, fCheckpointInterval);
+        fExperimentBuilder = builder;
+        try {
+            if (!builder.build()) {
+                return false;
+            }
+        } finally {
+            fExperimentBuilder = null;
+        }
+        setTraceRange(fTrace.getTimeRange(), fTrace.getNbEvents());
+        return true;
+    }
+
+    /**
+     * Cancel the building of the checkpoints by {@link #buildCheckpoints},
+     * when its job is cancelled or the indexer is disposed. The subclasses
+     * that build the checkpoints override it to stop building them, and
+     * return false from {@link #buildCheckpoints}.
+     *
+     * @since 3.1
+     */
+    protected void cancelCheckpoints() {
+        TmfExperimentIndexBuilder builder = fExperimentBuilder;
+        if (builder != null) {
+            builder.cancel();
+        }
+    }
+
+    /**
+     * Set the time range and number of events of the trace, once its
+     * checkpoints are built by {@link #buildCheckpoints}. They are stored in
+     * the index and sent to the trace when the indexing completes.
+     *
+     * @param range
+     *            The time range of the trace
+     * @param nbEvents
+     *            The number of events of the trace
+     * @since 3.1
+     */
+    protected void setTraceRange(TmfTimeRange range, long nbEvents) {
+        fBuiltRange = range;
+        fBuiltNbEvents = nbEvents;
+        fTraceIndex.setTimeRange(range);
+        fTraceIndex.setNbEvents(nbEvents);
+    }
+
+    /**
+     * Set the trace attributes that depend on the indexing
+     */
+    private void signalIndexRange(TmfTimeRange range, long nbEvents, boolean waitForCompletion) {
+        TmfTraceUpdatedSignal signal = new TmfTraceUpdatedSignal(this, fTrace, new TmfTimeRange(range.getStartTime(), range.getEndTime()), nbEvents);
+        if (waitForCompletion) {
+            fTrace.broadcast(signal);
+        } else {
+            fTrace.broadcastAsync(signal);
+        }
+    }
+
     /**
      * Notify the interested parties that the trace time range has changed
      *
@@ -263,6 +433,10 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
             // Add new entry at proper location (if empty)
             if (fTraceIndex.size() == position) {
                 fTraceIndex.insert(new TmfCheckpoint(timestamp, context.getLocation(), position));
+                IProgressMonitor monitor = fBuildMonitor;
+                if (monitor != null) {
+                    monitor.setTaskName(Messages.TmfCheckpointIndexer_Indexing + ' ' + fTrace.getName() + " (" + context.getRank() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
             }
         }
     }
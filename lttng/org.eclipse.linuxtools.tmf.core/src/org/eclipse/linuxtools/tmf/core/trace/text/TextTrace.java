@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,9 +27,12 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.linuxtools.internal.tmf.core.Activator;
+import org.eclipse.linuxtools.internal.tmf.core.trace.TextLineMatchResult;
+import org.eclipse.linuxtools.internal.tmf.core.trace.indexer.TmfTextTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.linuxtools.tmf.core.io.BufferedRandomAccessFile;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfEventParser;
@@ -36,7 +40,6 @@ import org.eclipse.linuxtools.tmf.core.trace.TmfTrace;
 import org.eclipse.linuxtools.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.linuxtools.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
@@ -65,6 +68,15 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
     /** The text file */
     protected BufferedRandomAccessFile fFile;
 
+    /** The reader of the text file, used under the trace lock */
+    private TextReader fReader;
+
+    /** Whether the trace is indexed by parsing chunks of its file in parallel */
+    private volatile boolean fParallelParsing = false;
+
+    /** Whether the groups of the first lines are copied from a shared matcher */
+    private volatile boolean fCopyFirstLineGroups = false;
+
     /**
      * Constructor
      */
@@ -133,6 +145,7 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
             } catch (IOException e) {
             } finally {
                 fFile = null;
+                fReader = null;
             }
         }
     }
@@ -149,17 +162,7 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
             } else if (location.getLocationInfo() instanceof Long) {
                 fFile.seek((Long) location.getLocationInfo());
             }
-            long rawPos = fFile.getFilePointer();
-            String line = fFile.getNextLine();
-            while (line != null) {
-                Matcher matcher = getFirstLinePattern().matcher(line);
-                if (matcher.matches()) {
-                    setupContext(context, rawPos, line, matcher);
-                    return context;
-                }
-                rawPos = fFile.getFilePointer();
-                line = fFile.getNextLine();
-            }
+            getReader().findEvent(context);
             return context;
         } catch (IOException e) {
             Activator.logError("Error seeking file: " + getPath(), e); //$NON-NLS-1$
@@ -167,13 +170,6 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
         }
     }
 
-    private void setupContext(TextTraceContext context, long rawPos, String line, Matcher matcher) throws IOException {
-        context.setLocation(new TmfLongLocation(rawPos));
-        context.firstLineMatcher = matcher;
-        context.firstLine = line;
-        context.nextLineLocation = fFile.getFilePointer();
-    }
-
     @Override
     public synchronized TextTraceContext seekEvent(double ratio) {
         if (fFile == null) {
@@ -253,35 +249,14 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
         if (fFile == null) {
             return null;
         }
-        TextTraceContext context = tmfContext;
-        if (context.getLocation() == null || !(context.getLocation().getLocationInfo() instanceof Long) || NULL_LOCATION.equals(context.getLocation())) {
-            return null;
-        }
-
-        T event = parseFirstLine(context.firstLineMatcher, context.firstLine);
+        return getReader().parse(tmfContext);
+    }
 
-        try {
-            if (fFile.getFilePointer() != context.nextLineLocation) {
-                fFile.seek(context.nextLineLocation);
-            }
-            long rawPos = fFile.getFilePointer();
-            String line = fFile.getNextLine();
-            while (line != null) {
-                Matcher matcher = getFirstLinePattern().matcher(line);
-                if (matcher.matches()) {
-                    setupContext(context, rawPos, line, matcher);
-                    return event;
-                }
-                parseNextLine(event, line);
-                rawPos = fFile.getFilePointer();
-                line = fFile.getNextLine();
-            }
-        } catch (IOException e) {
-            Activator.logError("Error reading file: " + getPath(), e); //$NON-NLS-1$
+    private TextReader getReader() {
+        if (fReader == null || fReader.fReaderFile != fFile) {
+            fReader = new TextReader(fFile);
         }
-
-        context.setLocation(NULL_LOCATION);
-        return event;
+        return fReader;
     }
 
     /**
@@ -302,6 +277,24 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
      */
     protected abstract T parseFirstLine(Matcher matcher, String line);
 
+    /**
+     * Parses the first line data from the groups copied from its match, and
+     * returns a new event. It is called instead of
+     * {@link #parseFirstLine(Matcher, String)} when the trace copies the
+     * groups of the first lines, and must then be overridden.
+     *
+     * @param matchResult
+     *            The groups of the match of the first line pattern
+     * @param line
+     *            The line to parse
+     * @return The parsed event
+     * @see #setCopyFirstLineGroups(boolean)
+     * @since 3.1
+     */
+    protected T parseFirstLine(MatchResult matchResult, String line) {
+        throw new UnsupportedOperationException("The trace copies the groups of its first lines but does not parse them"); //$NON-NLS-1$
+    }
+
     /**
      * Parses the next line data for the current event.
      *
@@ -369,11 +362,249 @@ public abstract class TextTrace<T extends TextTraceEvent> extends TmfTrace imple
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new TmfTextTraceIndexer(this, interval) {
+            @Override
+            protected boolean isParallelParsing() {
+                return fParallelParsing;
+            }
+
+            @Override
+            protected IChunkReader createChunkReader() {
+                return new TextChunkReader();
+            }
+        };
     }
 
     @Override
     public ITmfLocation restoreLocation(ByteBuffer bufferIn) {
         return new TmfLongLocation(bufferIn);
     }
+
+    // ------------------------------------------------------------------------
+    // Parallel parsing
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set whether the trace is indexed by parsing chunks of its file in
+     * parallel, each with its own reader of the file, instead of reading all
+     * its events in order. It is off by default, since
+     * {@link #parseFirstLine} and {@link #parseNextLine} are then called from
+     * several threads at once, and must not modify a state shared between
+     * the events.
+     *
+     * @param parallelParsing
+     *            true to parse the file in parallel
+     * @since 3.1
+     */
+    public void setParallelParsing(boolean parallelParsing) {
+        fParallelParsing = parallelParsing;
+    }
+
+    /**
+     * Returns whether the trace is indexed by parsing chunks of its file in
+     * parallel.
+     *
+     * @return true if the file is parsed in parallel
+     * @since 3.1
+     */
+    public boolean isParallelParsing() {
+        return fParallelParsing;
+    }
+
+    // ------------------------------------------------------------------------
+    // First line groups
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set whether the groups of the lines starting an event are copied from a
+     * matcher shared by all the lines, and parsed by
+     * {@link #parseFirstLine(MatchResult, String)}. Otherwise a new matcher is
+     * created for each line starting an event, and handed over to
+     * {@link #parseFirstLine(Matcher, String)}. A trace that sets it must
+     * override {@link #parseFirstLine(MatchResult, String)}.
+     *
+     * @param copyFirstLineGroups
+     *            true to copy the groups of the first lines
+     * @since 3.1
+     */
+    protected void setCopyFirstLineGroups(boolean copyFirstLineGroups) {
+        fCopyFirstLineGroups = copyFirstLineGroups;
+    }
+
+    /**
+     * Returns whether the groups of the lines starting an event are copied
+     * from a shared matcher.
+     *
+     * @return true if the groups of the first lines are copied
+     * @since 3.1
+     */
+    protected boolean isCopyFirstLineGroups() {
+        return fCopyFirstLineGroups;
+    }
+
+    /**
+     * A reader of the events of a text file. It reuses the matcher of the
+     * first line pattern for the lines that do not start an event. When the
+     * trace copies the groups of the first lines, the matcher is reused for
+     * all the lines and the groups are copied to the context. Otherwise the
+     * matcher of a line starting an event is handed over to the context.
+     */
+    private final class TextReader {
+
+        private final BufferedRandomAccessFile fReaderFile;
+        private Matcher fMatcher;
+
+        public TextReader(BufferedRandomAccessFile file) {
+            fReaderFile = file;
+        }
+
+        /**
+         * Find the first line starting an event from the position of the
+         * file, and set up the context at this event.
+         */
+        public boolean findEvent(TextTraceContext context) throws IOException {
+            long rawPos = fReaderFile.getFilePointer();
+            String line = fReaderFile.getNextLine();
+            while (line != null) {
+                Matcher matcher = matchFirstLine(line);
+                if (matcher != null) {
+                    setupContext(context, rawPos, line, matcher);
+                    return true;
+                }
+                rawPos = fReaderFile.getFilePointer();
+                line = fReaderFile.getNextLine();
+            }
+            return false;
+        }
+
+        /**
+         * Parse the event of the context, and set up the context at the next
+         * event.
+         */
+        @SuppressWarnings("deprecation")
+        public T parse(TextTraceContext context) {
+            if (context.getLocation() == null || !(context.getLocation().getLocationInfo() instanceof Long) || NULL_LOCATION.equals(context.getLocation())) {
+                return null;
+            }
+
+            T event;
+            if (context.firstLineMatcher == null) {
+                event = parseFirstLine(context.firstLineMatchResult, context.firstLine);
+            } else {
+                event = parseFirstLine(context.firstLineMatcher, context.firstLine);
+            }
+
+            try {
+                if (fReaderFile.getFilePointer() != context.nextLineLocation) {
+                    fReaderFile.seek(context.nextLineLocation);
+                }
+                long rawPos = fReaderFile.getFilePointer();
+                String line = fReaderFile.getNextLine();
+                while (line != null) {
+                    Matcher matcher = matchFirstLine(line);
+                    if (matcher != null) {
+                        setupContext(context, rawPos, line, matcher);
+                        return event;
+                    }
+                    parseNextLine(event, line);
+                    rawPos = fReaderFile.getFilePointer();
+                    line = fReaderFile.getNextLine();
+                }
+            } catch (IOException e) {
+                Activator.logError("Error reading file: " + getPath(), e); //$NON-NLS-1$
+            }
+
+            context.setLocation(NULL_LOCATION);
+            return event;
+        }
+
+        /**
+         * Match a line with the first line pattern, and return the matcher if
+         * it starts an event. The matcher is no longer reused if it is handed
+         * over to the context.
+         */
+        private Matcher matchFirstLine(String line) {
+            if (fMatcher == null) {
+                fMatcher = getFirstLinePattern().matcher(line);
+            } else {
+                fMatcher.reset(line);
+            }
+            if (!fMatcher.matches()) {
+                return null;
+            }
+            Matcher matcher = fMatcher;
+            if (!fCopyFirstLineGroups) {
+                fMatcher = null;
+            }
+            return matcher;
+        }
+
+        @SuppressWarnings("deprecation")
+        private void setupContext(TextTraceContext context, long rawPos, String line, Matcher matcher) throws IOException {
+            context.setLocation(new TmfLongLocation(rawPos));
+            if (fCopyFirstLineGroups) {
+                context.firstLineMatcher = null;
+                context.firstLineMatchResult = new TextLineMatchResult(matcher, line);
+            } else {
+                context.firstLineMatcher = matcher;
+                context.firstLineMatchResult = matcher;
+            }
+            context.firstLine = line;
+            context.nextLineLocation = fReaderFile.getFilePointer();
+        }
+    }
+
+    /**
+     * A reader of the events of a chunk of the file, with its own file, which
+     * is opened when it is first used.
+     */
+    private final class TextChunkReader implements TmfTextTraceIndexer.IChunkReader {
+
+        private final TextTraceContext fContext = new TextTraceContext(NULL_LOCATION, 0);
+        private BufferedRandomAccessFile fChunkFile;
+        private TextReader fChunkReader;
+
+        private BufferedRandomAccessFile getFile() throws IOException {
+            if (fChunkFile == null) {
+                fChunkFile = new BufferedRandomAccessFile(getPath(), "r"); //$NON-NLS-1$
+                fChunkReader = new TextReader(fChunkFile);
+            }
+            return fChunkFile;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return getFile().length();
+        }
+
+        @Override
+        public long seekEvent(long offset) throws IOException {
+            TmfTextTraceIndexer.seekLine(getFile(), offset);
+            if (!fChunkReader.findEvent(fContext)) {
+                fContext.setLocation(NULL_LOCATION);
+            }
+            return getEventOffset();
+        }
+
+        @Override
+        public ITmfTimestamp readEvent() {
+            T event = fChunkReader.parse(fContext);
+            return (event == null) ? null : event.getTimestamp();
+        }
+
+        @Override
+        public long getEventOffset() {
+            if (NULL_LOCATION.equals(fContext.getLocation())) {
+                return -1;
+            }
+            return (Long) fContext.getLocation().getLocationInfo();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fChunkFile != null) {
+                fChunkFile.close();
+            }
+        }
+    }
 }
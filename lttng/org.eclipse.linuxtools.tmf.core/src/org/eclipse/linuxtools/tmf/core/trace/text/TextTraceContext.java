@@ -12,6 +12,7 @@
 
 package org.eclipse.linuxtools.tmf.core.trace.text;
 
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 
 import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
@@ -24,8 +25,22 @@ import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
  */
 public class TextTraceContext extends TmfContext {
 
-    /** The Matcher object for the first line. */
+    /**
+     * The Matcher object for the first line.
+     *
+     * @deprecated It is null when the trace copies the groups of its first
+     *             lines, since its matcher is then reused for the following
+     *             lines. Use {@link #firstLineMatchResult}.
+     */
+    @Deprecated
     public Matcher firstLineMatcher;
+    /**
+     * The result of the match of the first line. It is the matcher of the
+     * first line, or a copy of its groups.
+     *
+     * @since 3.1
+     */
+    public MatchResult firstLineMatchResult;
     /** The first line string */
     public String firstLine;
     /** The location of the next line */
@@ -53,6 +68,7 @@ public class TextTraceContext extends TmfContext {
         this(other.getLocation(), other.getRank());
         firstLine = other.firstLine;
         firstLineMatcher = other.firstLineMatcher;
+        firstLineMatchResult = other.firstLineMatchResult;
         nextLineLocation = other.nextLineLocation;
     }
 
@@ -62,6 +78,7 @@ public class TextTraceContext extends TmfContext {
         int result = super.hashCode();
         result = prime * result + ((firstLine == null) ? 0 : firstLine.hashCode());
         result = prime * result + ((firstLineMatcher == null) ? 0 : firstLineMatcher.hashCode());
+        result = prime * result + ((firstLineMatchResult == null) ? 0 : firstLineMatchResult.hashCode());
         result = prime * result + (int) (nextLineLocation ^ (nextLineLocation >>> 32));
         return result;
     }
@@ -92,6 +109,13 @@ public class TextTraceContext extends TmfContext {
         } else if (!firstLineMatcher.equals(other.firstLineMatcher)) {
             return false;
         }
+        if (firstLineMatchResult == null) {
+            if (other.firstLineMatchResult != null) {
+                return false;
+            }
+        } else if (!firstLineMatchResult.equals(other.firstLineMatchResult)) {
+            return false;
+        }
         if (nextLineLocation != other.nextLineLocation) {
             return false;
         }
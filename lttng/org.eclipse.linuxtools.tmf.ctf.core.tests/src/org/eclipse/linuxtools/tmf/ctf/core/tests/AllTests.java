@@ -35,6 +35,8 @@ import org.junit.runners.Suite;
     CtfTmfLostEventsTest.class,
     CtfTmfTimestampTest.class,
     CtfTmfTraceTest.class,
+    CtfTmfTraceFilterTest.class,
+    CtfTmfTraceIndexerTest.class,
     EventContextTest.class,
     FunkyTraceTest.class,
 
@@ -19,7 +19,15 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterPushdown;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.linuxtools.tmf.ctf.core.CtfIterator;
 import org.eclipse.linuxtools.tmf.ctf.core.CtfLocation;
 import org.eclipse.linuxtools.tmf.ctf.core.CtfLocationInfo;
@@ -240,4 +248,44 @@ public class CtfIteratorTest {
         CtfLocation location = new CtfLocation(new CtfLocationInfo(1, 0));
         iterator.setLocation(location);
     }
+
+    /**
+     * Test that an iterator with a filter pushdown returns the events matching
+     * the filter, with their rank in the trace
+     *
+     * @throws CTFReaderException
+     *             error
+     */
+    @Test
+    public void testFilterPushdown() throws CTFReaderException {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(filter);
+        equals.setField(ITmfEvent.EVENT_FIELD_TYPE);
+        equals.setValue("sched_switch");
+
+        List<Long> expected = new ArrayList<>();
+        try (CtfIterator all = new CtfIterator(trace);) {
+            long rank = 0;
+            while (all.hasMoreEvents()) {
+                if (filter.matches(all.getCurrentEvent())) {
+                    expected.add(rank);
+                }
+                rank++;
+                all.advance();
+            }
+        }
+
+        List<Long> actual = new ArrayList<>();
+        try (CtfIterator filtered = new CtfIterator(trace);) {
+            filtered.setFilterPushdown(TmfFilterPushdown.create(filter, TmfTimeRange.ETERNITY));
+            while (filtered.hasMoreEvents()) {
+                assertEquals("sched_switch", filtered.getCurrentEvent().getType().getName());
+                actual.add(filtered.getRank());
+                filtered.increaseRank();
+                filtered.advance();
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
 }
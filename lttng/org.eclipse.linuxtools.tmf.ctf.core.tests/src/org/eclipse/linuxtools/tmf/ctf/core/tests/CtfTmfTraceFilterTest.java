@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.ctf.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.linuxtools.ctf.core.tests.synthetictraces.LttngKernelTraceGenerator;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfEvent;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfTrace;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the requests with an event filter on a {@link CtfTmfTrace}, whose
+ * events that cannot match are skipped while reading the trace. The requests
+ * must handle the same events as when all the events are read, and the
+ * skipped events must count in the number of requested events.
+ */
+public class CtfTmfTraceFilterTest {
+
+    private static final int NB_STREAMS = 4;
+    private static final int NB_EVENTS = 20000;
+    private static final String FIELD_NAME = "prev_tid";
+
+    private static File fDirectory;
+    private static File fTraceDir;
+
+    private CtfTmfTrace fTrace;
+    private List<ITmfEvent> fAllEvents;
+
+    /**
+     * Write the test trace. It is not directly in the temporary directory,
+     * where the supplementary files of a trace without resource are written.
+     *
+     * @throws IOException
+     *             If the temporary directory cannot be created
+     */
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        fDirectory = File.createTempFile("CtfTmfTraceFilterTest", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+        fTraceDir = new File(fDirectory, "CtfTmfTraceFilterTest");
+        new LttngKernelTraceGenerator(Integer.MAX_VALUE / 2, NB_EVENTS, NB_STREAMS).writeTrace(fTraceDir);
+    }
+
+    /**
+     * Delete the test trace
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        deleteDirectory(fTraceDir);
+        fDirectory.delete();
+    }
+
+    /**
+     * Open the trace and read all its events
+     *
+     * @throws TmfTraceException
+     *             If the trace cannot be opened
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Before
+    public void setUp() throws TmfTraceException, InterruptedException {
+        fTrace = new CtfTmfTrace();
+        fTrace.initTrace(null, fTraceDir.getPath(), CtfTmfEvent.class);
+        fAllEvents = new ArrayList<>();
+        TmfEventRequest request = new TmfEventRequest(CtfTmfEvent.class, TmfTimeRange.ETERNITY,
+                0, ITmfEventRequest.ALL_DATA, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                fAllEvents.add(event);
+            }
+        };
+        fTrace.sendRequest(request);
+        request.waitForCompletion();
+    }
+
+    /**
+     * Dispose of the trace and delete its supplementary files
+     */
+    @After
+    public void tearDown() {
+        if (fTrace != null) {
+            File supplementaryDir = new File(TmfTraceManager.getSupplementaryFileDir(fTrace));
+            fTrace.dispose();
+            deleteDirectory(supplementaryDir);
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+
+    private static TmfFilterRootNode createFilter(long maxValue) {
+        TmfFilterRootNode filter = new TmfFilterRootNode();
+        TmfFilterCompareNode compare = new TmfFilterCompareNode(filter);
+        compare.setField(FIELD_NAME);
+        compare.setResult(-1);
+        compare.setValue(Long.toString(maxValue));
+        return filter;
+    }
+
+    private long getMedianValue() {
+        List<Long> values = new ArrayList<>();
+        for (ITmfEvent event : fAllEvents) {
+            values.add((Long) event.getContent().getField(FIELD_NAME).getValue());
+        }
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    private List<ITmfTimestamp> getExpected(ITmfFilter filter, int index, int nbRequested) {
+        List<ITmfTimestamp> expected = new ArrayList<>();
+        int end = (int) Math.min(fAllEvents.size(), (long) index + nbRequested);
+        for (ITmfEvent event : fAllEvents.subList(index, end)) {
+            if (filter.matches(event)) {
+                expected.add(event.getTimestamp());
+            }
+        }
+        return expected;
+    }
+
+    private List<ITmfTimestamp> getFiltered(final ITmfFilter filter, int index, int nbRequested)
+            throws InterruptedException {
+        final List<ITmfTimestamp> actual = new ArrayList<>();
+        TmfEventRequest request = new TmfEventRequest(CtfTmfEvent.class, TmfTimeRange.ETERNITY,
+                index, nbRequested, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                if (filter.matches(event)) {
+                    actual.add(event.getTimestamp());
+                }
+            }
+        };
+        request.setEventFilter(filter);
+        fTrace.sendRequest(request);
+        request.waitForCompletion();
+        assertTrue(request.isCompleted());
+        assertFalse(request.isFailed());
+        /* The skipped events are not passed to the request */
+        assertTrue(request.getNbRead() < Math.min(nbRequested, fAllEvents.size() - index));
+        return actual;
+    }
+
+    /**
+     * Test a request for all the events
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testAllEvents() throws InterruptedException {
+        ITmfFilter filter = createFilter(getMedianValue());
+        List<ITmfTimestamp> expected = getExpected(filter, 0, ITmfEventRequest.ALL_DATA);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, getFiltered(filter, 0, ITmfEventRequest.ALL_DATA));
+    }
+
+    /**
+     * Test requests for a number of events, from the start of the trace and
+     * from another rank. The requests must stop after the same events as
+     * without the filter, since the skipped events count in their rank.
+     *
+     * @throws InterruptedException
+     *             Fails the test
+     */
+    @Test
+    public void testNbRequested() throws InterruptedException {
+        ITmfFilter filter = createFilter(getMedianValue());
+        int nbRequested = fAllEvents.size() / 3;
+        assertEquals(getExpected(filter, 0, nbRequested), getFiltered(filter, 0, nbRequested));
+
+        int index = fAllEvents.size() / 4;
+        assertEquals(getExpected(filter, index, nbRequested), getFiltered(filter, index, nbRequested));
+    }
+}
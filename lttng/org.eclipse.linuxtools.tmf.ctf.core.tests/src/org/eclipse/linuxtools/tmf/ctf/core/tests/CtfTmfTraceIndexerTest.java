@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.tmf.ctf.core.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.linuxtools.ctf.core.tests.synthetictraces.LttngKernelTraceGenerator;
+import org.eclipse.linuxtools.internal.tmf.ctf.core.CtfTmfTraceIndexer;
+import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
+import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.synchronization.ITmfTimestampTransform;
+import org.eclipse.linuxtools.tmf.core.synchronization.TmfTimestampTransformLinear;
+import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfEvent;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the index of a CTF trace, whose checkpoints are built from the headers
+ * of the events. They must be the same as the locations of the events read by
+ * the trace.
+ */
+public class CtfTmfTraceIndexerTest {
+
+    private static final int NB_STREAMS = 4;
+    private static final int NB_EVENTS = 20000;
+    private static final int INTERVAL = 1000;
+    private static final long TRANSFORM_OFFSET = -1000;
+
+    private File fTempDir;
+    private File fTraceDir;
+    private CtfTmfTrace fTrace;
+    private TestIndexer fIndexer;
+
+    /**
+     * Generate a trace
+     *
+     * @throws IOException
+     *             If the trace directory cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        /*
+         * The index of a trace without resource is saved in a directory of
+         * the temporary directory named after the trace, so the trace is
+         * not put directly in the temporary directory.
+         */
+        fTempDir = File.createTempFile("CtfTmfTraceIndexerTest", "");
+        fTempDir.delete();
+        fTempDir.mkdir();
+        fTraceDir = new File(fTempDir, fTempDir.getName() + "-trace");
+        new LttngKernelTraceGenerator(Integer.MAX_VALUE / 2, NB_EVENTS, NB_STREAMS).writeTrace(fTraceDir);
+    }
+
+    /**
+     * Open the trace, with the timestamp transform it has after a
+     * synchronization
+     */
+    private void openTrace(ITmfTimestampTransform transform) throws TmfTraceException {
+        fTrace = new CtfTmfTrace() {
+            @Override
+            protected ITmfTraceIndexer createIndexer(int interval) {
+                fIndexer = new TestIndexer(this, INTERVAL);
+                return fIndexer;
+            }
+        };
+        if (transform != null) {
+            fTrace.setTimestampTransform(transform);
+        }
+        fTrace.initTrace((IResource) null, fTraceDir.getAbsolutePath(), CtfTmfEvent.class);
+    }
+
+    private static class TestIndexer extends CtfTmfTraceIndexer {
+        public TestIndexer(CtfTmfTrace trace, int interval) {
+            super(trace, interval);
+        }
+
+        public ITmfCheckpointIndex getCheckpoints() {
+            return getTraceIndex();
+        }
+    }
+
+    /**
+     * Dispose the trace and delete it
+     */
+    @After
+    public void tearDown() {
+        if (fTrace != null) {
+            fTrace.dispose();
+        }
+        File indexDir = new File(System.getProperty("java.io.tmpdir"), fTraceDir.getName());
+        for (File dir : new File[] { fTempDir, indexDir }) {
+            delete(dir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Test that each checkpoint, and seeking its rank, gives the location and
+     * event read at that rank
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testCheckpoints() throws TmfTraceException {
+        openTrace(null);
+        checkCheckpoints();
+    }
+
+    /**
+     * Test that the checkpoints have the locations and timestamps of the
+     * events read at their ranks when the timestamps of the trace are
+     * transformed
+     *
+     * @throws TmfTraceException
+     *             Fails the test
+     */
+    @Test
+    public void testCheckpointsWithTransform() throws TmfTraceException {
+        openTrace(new TmfTimestampTransformLinear(1.0, TRANSFORM_OFFSET));
+        checkCheckpoints();
+    }
+
+    private void checkCheckpoints() {
+        fTrace.indexTrace(true);
+        ITmfCheckpointIndex checkpoints = fIndexer.getCheckpoints();
+
+        ITmfContext context = fTrace.seekEvent((ITmfLocation) null);
+        long nbEvents = 0;
+        ITmfEvent first = null;
+        ITmfEvent last = null;
+        while (true) {
+            ITmfLocation location = context.getLocation();
+            ITmfEvent event = fTrace.getNext(context);
+            if (event == null) {
+                break;
+            }
+            if (nbEvents % INTERVAL == 0) {
+                assertEquals(location, checkpoints.get(nbEvents / INTERVAL).getLocation());
+                assertEquals(event.getTimestamp(), checkpoints.get(nbEvents / INTERVAL).getTimestamp());
+                ITmfContext checkpoint = fTrace.seekEvent(nbEvents);
+                assertEquals(nbEvents, checkpoint.getRank());
+                assertEquals(location, checkpoint.getLocation());
+                ITmfContext again = fTrace.seekEvent(checkpoint.getLocation());
+                assertEquals(location, again.getLocation());
+                assertEquals(event.getTimestamp(), fTrace.getNext(again).getTimestamp());
+                again.dispose();
+                assertEquals(event.getTimestamp(), fTrace.getNext(checkpoint).getTimestamp());
+                checkpoint.dispose();
+            }
+            if (first == null) {
+                first = event;
+            }
+            last = event;
+            nbEvents++;
+        }
+        context.dispose();
+
+        assertEquals(nbEvents, fTrace.getNbEvents());
+        assertEquals(first.getTimestamp(), fTrace.getStartTime());
+        assertEquals(last.getTimestamp(), fTrace.getEndTime());
+    }
+}
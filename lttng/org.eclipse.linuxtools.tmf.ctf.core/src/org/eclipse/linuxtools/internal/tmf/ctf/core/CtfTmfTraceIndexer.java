@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.linuxtools.internal.tmf.ctf.core;
+
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+
+import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
+import org.eclipse.linuxtools.ctf.core.trace.CTFEventFilter;
+import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTrace;
+import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
+import org.eclipse.linuxtools.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfLocation;
+import org.eclipse.linuxtools.tmf.ctf.core.CtfTmfTrace;
+
+/**
+ * The indexer of the CTF traces. It builds the checkpoints of a whole trace
+ * from the headers of its events, without decoding their contexts and
+ * payload, instead of reading all the events with a request.
+ */
+public class CtfTmfTraceIndexer extends TmfBTreeTraceIndexer {
+
+    private final CtfTmfTrace fCtfTrace;
+    private final int fInterval;
+    private volatile boolean fIsCancelled = false;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoints interval
+     */
+    public CtfTmfTraceIndexer(CtfTmfTrace trace, int interval) {
+        super(trace, interval);
+        fCtfTrace = trace;
+        fInterval = interval;
+    }
+
+    @Override
+    protected void cancelCheckpoints() {
+        fIsCancelled = true;
+        super.cancelCheckpoints();
+    }
+
+    @Override
+    protected boolean canBuildCheckpoints() {
+        return fCtfTrace.getCTFTrace() != null;
+    }
+
+    @Override
+    protected boolean buildCheckpoints() {
+        CTFTrace trace = fCtfTrace.getCTFTrace();
+        CTFEventFilter rejectAll = new CTFEventFilter(trace, Collections.<String> emptySet(), Long.MIN_VALUE, Long.MAX_VALUE);
+        try (CheckpointReader reader = new CheckpointReader(trace)) {
+            /* All the events are skipped, and counted, as soon as the filter is set */
+            reader.setEventFilter(rejectAll);
+            if (reader.fNbEvents == 0) {
+                return false;
+            }
+            TmfTimeRange range = new TmfTimeRange(fCtfTrace.createTimestamp(reader.fStartTime), fCtfTrace.createTimestamp(reader.fEndTime));
+            setTraceRange(range, reader.fNbEvents);
+            return true;
+        } catch (CTFReaderException e) {
+            Activator.getDefault().logError(e.getMessage(), e);
+            return false;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reader that adds a checkpoint for the events it skips at the checkpoint
+     * ranks. Their locations are computed as in the CtfIterator when it
+     * advances: the timestamp of the event in nanoseconds, before the
+     * timestamp transform of the trace, and its index among the events with
+     * the same timestamp. The timestamps of the checkpoints are transformed,
+     * as the timestamps of the events.
+     */
+    private final class CheckpointReader extends CTFTraceReader {
+
+        private long fNbEvents = 0;
+        private long fStartTime = 0;
+        private long fEndTime = 0;
+        private long fIndex = 0;
+
+        public CheckpointReader(CTFTrace trace) throws CTFReaderException {
+            super(trace);
+        }
+
+        @Override
+        protected void eventSkipped(EventDefinition event) {
+            if (fIsCancelled) {
+                throw new CancellationException();
+            }
+            long timestamp = getTrace().timestampCyclesToNanos(event.getTimestamp());
+            if (fNbEvents == 0) {
+                fStartTime = timestamp;
+                fIndex = 0;
+            } else if (timestamp == fEndTime) {
+                fIndex++;
+            } else {
+                fIndex = 0;
+            }
+            if (fNbEvents % fInterval == 0) {
+                TmfContext context = new TmfContext(new CtfLocation(timestamp, fIndex), fNbEvents);
+                updateIndex(context, fCtfTrace.createTimestamp(timestamp));
+            }
+            fEndTime = timestamp;
+            fNbEvents++;
+        }
+    }
+}
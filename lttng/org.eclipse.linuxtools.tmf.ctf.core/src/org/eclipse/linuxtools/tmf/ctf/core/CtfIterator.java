@@ -13,13 +13,24 @@
 
 package org.eclipse.linuxtools.tmf.ctf.core;
 
+import java.util.Map;
+
+import org.eclipse.linuxtools.ctf.core.event.EventDefinition;
+import org.eclipse.linuxtools.ctf.core.trace.CTFEventFilter;
 import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
 import org.eclipse.linuxtools.ctf.core.trace.CTFStreamInputReader;
 import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
 import org.eclipse.linuxtools.internal.tmf.ctf.core.Activator;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterPushdown;
+import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+
 /**
  * The CTF trace reader iterator.
  *
@@ -42,6 +53,9 @@ public class CtfIterator extends CTFTraceReader
     private CtfLocation fPreviousLocation;
     private CtfTmfEvent fPreviousEvent;
 
+    /* Whether the event at the current location was not skipped yet */
+    private boolean fSkippingCurrentEvent = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -214,10 +228,111 @@ public class CtfIterator extends CTFTraceReader
         return ret;
     }
 
+    /**
+     * Only return the events that match a filter pushdown description. The
+     * other events are skipped while reading, without being built, but they
+     * are still counted in the rank and location of this iterator.
+     *
+     * The events returned must still be checked against the filter. Since the
+     * iterators of the {@link CtfIteratorManager} are shared by the contexts of
+     * the trace, only use this on an iterator created for this purpose.
+     *
+     * @param pushdown
+     *            The description of the events to return, or null to return
+     *            all the events
+     * @since 3.1
+     */
+    public synchronized void setFilterPushdown(TmfFilterPushdown pushdown) {
+        CTFEventFilter filter = null;
+        if (pushdown != null && !pushdown.isUnrestricted()) {
+            TmfTimeRange range = pushdown.getTimeRange();
+            filter = new CTFEventFilter(fTrace.getCTFTrace(), pushdown.getEventTypes(),
+                    toNanos(range.getStartTime()), toNanos(range.getEndTime()));
+            for (Map.Entry<String, Range<Long>> entry : pushdown.getFieldRanges().entrySet()) {
+                String name = entry.getKey();
+                /*
+                 * The CTF fields are shown without their leading underscore,
+                 * such a name would be looked up as another field
+                 */
+                if (name.startsWith("_")) { //$NON-NLS-1$
+                    continue;
+                }
+                Range<Long> fieldRange = entry.getValue();
+                long min = Long.MIN_VALUE;
+                long max = Long.MAX_VALUE;
+                if (fieldRange.hasLowerBound()) {
+                    min = fieldRange.lowerEndpoint();
+                    if (fieldRange.lowerBoundType() == BoundType.OPEN) {
+                        min++;
+                    }
+                }
+                if (fieldRange.hasUpperBound()) {
+                    max = fieldRange.upperEndpoint();
+                    if (fieldRange.upperBoundType() == BoundType.OPEN) {
+                        max--;
+                    }
+                }
+                filter.addFieldRange(name, min, max);
+            }
+        }
+        /*
+         * The reader skips the current event if it is rejected, which is at
+         * the current location instead of the next one.
+         */
+        fSkippingCurrentEvent = super.hasMoreEvents();
+        try {
+            setEventFilter(filter);
+        } catch (CTFReaderException e) {
+            Activator.getDefault().logError(e.getMessage(), e);
+        }
+        if (fSkippingCurrentEvent) {
+            /* No event was skipped */
+            fSkippingCurrentEvent = false;
+        } else if (super.hasMoreEvents()) {
+            moveLocation(getCurrentTimestamp());
+        } else {
+            fCurLocation = NULL_LOCATION;
+        }
+    }
+
+    private static long toNanos(ITmfTimestamp timestamp) {
+        if (timestamp.equals(TmfTimestamp.BIG_BANG)) {
+            return Long.MIN_VALUE;
+        } else if (timestamp.equals(TmfTimestamp.BIG_CRUNCH)) {
+            return Long.MAX_VALUE;
+        }
+        return timestamp.normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+    }
+
     // ------------------------------------------------------------------------
     // CTFTraceReader
     // ------------------------------------------------------------------------
 
+    /**
+     * @since 3.1
+     */
+    @Override
+    protected void eventSkipped(EventDefinition event) {
+        if (fSkippingCurrentEvent) {
+            fSkippingCurrentEvent = false;
+        } else {
+            moveLocation(fTrace.getCTFTrace().timestampCyclesToNanos(event.getTimestamp()));
+        }
+        increaseRank();
+    }
+
+    /**
+     * Move the current location to the event following the one at the
+     * current location, at a given timestamp
+     */
+    private void moveLocation(long timestampValue) {
+        if (fCurLocation.getLocationInfo().getTimestamp() == timestampValue) {
+            fCurLocation = new CtfLocation(timestampValue, fCurLocation.getLocationInfo().getIndex() + 1);
+        } else {
+            fCurLocation = new CtfLocation(timestampValue, 0L);
+        }
+    }
+
     @Override
     public boolean seek(long timestamp) {
         return seek(new CtfLocationInfo(timestamp, 0));
@@ -233,14 +348,7 @@ public class CtfIterator extends CTFTraceReader
         }
 
         if (ret) {
-            long timestamp = fCurLocation.getLocationInfo().getTimestamp();
-            final long timestampValue = getCurrentTimestamp();
-            if (timestamp == timestampValue) {
-                long index = fCurLocation.getLocationInfo().getIndex();
-                fCurLocation = new CtfLocation(timestampValue, index + 1);
-            } else {
-                fCurLocation = new CtfLocation(timestampValue, 0L);
-            }
+            moveLocation(getCurrentTimestamp());
         } else {
             fCurLocation = NULL_LOCATION;
         }
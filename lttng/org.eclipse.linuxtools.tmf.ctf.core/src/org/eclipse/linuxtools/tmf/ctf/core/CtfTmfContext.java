@@ -13,6 +13,7 @@
 
 package org.eclipse.linuxtools.tmf.ctf.core;
 
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterPushdown;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 
@@ -35,6 +36,9 @@ public class CtfTmfContext implements ITmfContext {
 
     private final CtfTmfTrace fTrace;
 
+    /* The iterator of this context only, which skips the filtered events */
+    private CtfIterator fFilteredIterator = null;
+
     // -------------------------------------------
     // Constructor
     // -------------------------------------------
@@ -125,6 +129,16 @@ public class CtfTmfContext implements ITmfContext {
      * @return success or not
      */
     public synchronized boolean advance() {
+        if (fFilteredIterator != null) {
+            /* The iterator counts the location and rank of the skipped events */
+            long rank = fFilteredIterator.getRank();
+            boolean retVal = fFilteredIterator.advance();
+            fCurLocation = fFilteredIterator.getLocation();
+            if (hasValidRank()) {
+                fCurRank += fFilteredIterator.getRank() - rank;
+            }
+            return retVal;
+        }
         final CtfLocationInfo curLocationData = fCurLocation.getLocationInfo();
         CtfIterator iterator = getIterator();
         boolean retVal = iterator.advance();
@@ -144,9 +158,43 @@ public class CtfTmfContext implements ITmfContext {
         return retVal;
     }
 
+    /**
+     * Only return the events that match a filter pushdown description, from
+     * the current location. The other events are skipped without being built,
+     * but they are counted in the rank of this context.
+     *
+     * The context then uses an iterator of its own instead of one shared by
+     * the contexts of the trace, until it is disposed.
+     *
+     * @param pushdown
+     *            The description of the events to return
+     * @since 3.1
+     */
+    public synchronized void setFilterPushdown(TmfFilterPushdown pushdown) {
+        if (pushdown.isUnrestricted() || fFilteredIterator != null ||
+                CtfLocation.INVALID_LOCATION.equals(fCurLocation.getLocationInfo())) {
+            return;
+        }
+        CtfIterator iterator = fTrace.createIterator();
+        if (iterator == null) {
+            return;
+        }
+        iterator.seek(fCurLocation.getLocationInfo());
+        iterator.setRank(0);
+        iterator.setFilterPushdown(pushdown);
+        fFilteredIterator = iterator;
+        fCurLocation = iterator.getLocation();
+        if (hasValidRank()) {
+            fCurRank += iterator.getRank();
+        }
+    }
+
     @Override
     public void dispose() {
         CtfIteratorManager.removeIterator(fTrace, this);
+        if (fFilteredIterator != null) {
+            fFilteredIterator.dispose();
+        }
     }
 
     /**
@@ -180,6 +228,8 @@ public class CtfTmfContext implements ITmfContext {
         try {
             ret = (CtfTmfContext) super.clone();
             /* Fields are immutable, no need to deep-copy them */
+            /* The clone does not skip events, at the same location and rank */
+            ret.fFilteredIterator = null;
         } catch (CloneNotSupportedException e) {
             /* Should not happen, we're calling Object.clone() */
         }
@@ -197,6 +247,9 @@ public class CtfTmfContext implements ITmfContext {
      * @return an iterator
      */
     private CtfIterator getIterator() {
+        if (fFilteredIterator != null) {
+            return fFilteredIterator;
+        }
         return CtfIteratorManager.getIterator(fTrace, this);
     }
 }
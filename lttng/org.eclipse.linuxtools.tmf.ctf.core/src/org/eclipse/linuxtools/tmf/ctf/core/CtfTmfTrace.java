@@ -33,12 +33,18 @@ import org.eclipse.linuxtools.ctf.core.trace.CTFReaderException;
 import org.eclipse.linuxtools.ctf.core.trace.CTFTrace;
 import org.eclipse.linuxtools.ctf.core.trace.CTFTraceReader;
 import org.eclipse.linuxtools.internal.tmf.ctf.core.Activator;
+import org.eclipse.linuxtools.internal.tmf.ctf.core.CtfTmfTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEvent;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEventField;
 import org.eclipse.linuxtools.tmf.core.event.ITmfEventType;
 import org.eclipse.linuxtools.tmf.core.event.TmfEventField;
 import org.eclipse.linuxtools.tmf.core.event.TmfEventTypeManager;
 import org.eclipse.linuxtools.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
+import org.eclipse.linuxtools.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterPushdown;
+import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest;
+import org.eclipse.linuxtools.tmf.core.request.TmfEventRequest;
 import org.eclipse.linuxtools.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfContext;
@@ -49,7 +55,6 @@ import org.eclipse.linuxtools.tmf.core.trace.TmfTrace;
 import org.eclipse.linuxtools.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.linuxtools.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
@@ -292,6 +297,27 @@ public class CtfTmfTrace extends TmfTrace
         return context;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the request has a filter tree, the events that cannot match it are
+     * skipped while reading, without being built.
+     *
+     * @since 3.1
+     */
+    @Override
+    public synchronized ITmfContext armRequest(final ITmfEventRequest request) {
+        ITmfContext context = super.armRequest(request);
+        if (context instanceof CtfTmfContext && request instanceof TmfEventRequest) {
+            ITmfFilter filter = ((TmfEventRequest) request).getEventFilter();
+            if (filter instanceof ITmfFilterTreeNode) {
+                TmfFilterPushdown pushdown = TmfFilterPushdown.create((ITmfFilterTreeNode) filter, request.getRange());
+                ((CtfTmfContext) context).setFilterPushdown(pushdown);
+            }
+        }
+        return context;
+    }
+
     /**
      * Method readNextEvent.
      *
@@ -470,7 +496,7 @@ public class CtfTmfTrace extends TmfTrace
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new CtfTmfTraceIndexer(this, interval);
     }
 
     /**
@@ -12,12 +12,16 @@
 
 package org.eclipse.linuxtools.internal.tmf.pcap.core.analysis;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
+import org.eclipse.linuxtools.internal.tmf.pcap.core.Activator;
 import org.eclipse.linuxtools.internal.tmf.pcap.core.event.PcapEvent;
 import org.eclipse.linuxtools.internal.tmf.pcap.core.event.TmfPacketStreamBuilder;
 import org.eclipse.linuxtools.internal.tmf.pcap.core.protocol.TmfPcapProtocol;
@@ -43,8 +47,11 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
      */
     public static final String ID = "org.eclipse.linuxtools.tmf.pcap.core.analysis.stream"; //$NON-NLS-1$
 
+    private static final String EMPTY_STRING = ""; //$NON-NLS-1$
+
     private @Nullable ITmfEventRequest fRequest;
     private final Map<TmfPcapProtocol, TmfPacketStreamBuilder> fBuilders;
+    private volatile boolean fIsFinished = false;
 
     /**
      * The default constructor. It initializes all variables.
@@ -88,10 +95,45 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
     @Override
     protected boolean executeAnalysis(@Nullable IProgressMonitor monitor) throws TmfAnalysisException {
         IProgressMonitor mon = (monitor == null ? new NullProgressMonitor() : monitor);
-        if (getTrace() == null) {
+        ITmfTrace trace = getTrace();
+        if (trace == null) {
             return false;
         }
 
+        fIsFinished = false;
+        try {
+            /*
+             * A single pcap trace is parsed directly from its file, in
+             * parallel, for all the protocols at once. The events of an
+             * experiment are read with a request.
+             */
+            if (trace instanceof PcapTrace) {
+                return parsePcapFile((PcapTrace) trace, mon);
+            }
+            return readEvents(trace, mon);
+        } finally {
+            fIsFinished = true;
+        }
+    }
+
+    private boolean parsePcapFile(PcapTrace trace, IProgressMonitor monitor) {
+        PcapFile file = trace.getPcapFile();
+        if (file == null) {
+            return false;
+        }
+        try {
+            return TmfPacketStreamBuilder.parsePcapFile(file, fBuilders.values(), monitor) && !monitor.isCanceled();
+        } catch (IOException | BadPcapFileException e) {
+            String message = e.getMessage();
+            if (message == null) {
+                message = EMPTY_STRING;
+            }
+            Activator.logError(message, e);
+            return false;
+        }
+    }
+
+    private boolean readEvents(ITmfTrace trace, IProgressMonitor mon) {
         ITmfEventRequest request = fRequest;
         if ((request != null) && (!request.isCompleted())) {
             request.cancel();
@@ -115,7 +157,7 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
 
             }
         };
-        getTrace().sendRequest(request);
+        trace.sendRequest(request);
         fRequest = request;
         try {
             request.waitForCompletion();
@@ -154,11 +196,7 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
      * @return Whether the analysis is finished or not.
      */
     public boolean isFinished() {
-        ITmfEventRequest req = fRequest;
-        if (req == null) {
-            return false;
-        }
-        return req.isCompleted();
+        return fIsFinished;
     }
 
 }
@@ -12,14 +12,19 @@
 
 package org.eclipse.linuxtools.internal.tmf.pcap.core.event;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.linuxtools.internal.pcap.core.packet.Packet;
 import org.eclipse.linuxtools.internal.pcap.core.protocol.PcapProtocol;
 import org.eclipse.linuxtools.internal.pcap.core.protocol.pcap.PcapPacket;
 import org.eclipse.linuxtools.internal.pcap.core.stream.PacketStream;
 import org.eclipse.linuxtools.internal.pcap.core.stream.PacketStreamBuilder;
+import org.eclipse.linuxtools.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.linuxtools.internal.pcap.core.trace.PcapFile;
 import org.eclipse.linuxtools.internal.tmf.pcap.core.protocol.TmfPcapProtocol;
 import org.eclipse.linuxtools.internal.tmf.pcap.core.util.ProtocolConversion;
 
@@ -57,6 +62,33 @@ public class TmfPacketStreamBuilder {
         fBuilder.addPacketToStream(pcapPacket);
     }
 
+    /**
+     * Method that parses a whole pcap file to build the streams of several
+     * builders. The file is parsed in parallel, directly from the file instead
+     * of from the events of the trace, and the streams are updated while the
+     * file is being parsed. The index of the file is reused, and completed.
+     *
+     * @param file
+     *            The pcap file of the trace.
+     * @param builders
+     *            The builders of the streams.
+     * @param monitor
+     *            The progress monitor, to cancel the parsing.
+     * @return Whether the whole file was parsed, or false if the parsing was
+     *         cancelled.
+     * @throws IOException
+     *             When an IO error occurs.
+     * @throws BadPcapFileException
+     *             When the pcap file is not valid.
+     */
+    public static boolean parsePcapFile(PcapFile file, Collection<TmfPacketStreamBuilder> builders, IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        List<PacketStreamBuilder> pcapBuilders = new ArrayList<>();
+        for (TmfPacketStreamBuilder builder : builders) {
+            pcapBuilders.add(builder.fBuilder);
+        }
+        return PacketStreamBuilder.parsePcapFile(file, pcapBuilders, monitor);
+    }
+
     /**
      * Method that returns the number of streams built.
      *
@@ -15,6 +15,7 @@ package org.eclipse.linuxtools.internal.tmf.pcap.core.trace;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -39,6 +40,7 @@ import org.eclipse.linuxtools.tmf.core.trace.ITmfEventParser;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTraceProperties;
 import org.eclipse.linuxtools.tmf.core.trace.TmfContext;
 import org.eclipse.linuxtools.tmf.core.trace.TmfTrace;
+import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
 import org.eclipse.linuxtools.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.linuxtools.tmf.core.trace.location.ITmfLocation;
 import org.eclipse.linuxtools.tmf.core.trace.location.TmfLongLocation;
@@ -59,6 +61,7 @@ public class PcapTrace extends TmfTrace implements ITmfEventParser, ITmfTracePro
     private static final @NonNull Map<String, String> EMPTY_MAP = ImmutableMap.of();
     private static final String EMPTY_STRING = ""; //$NON-NLS-1$
     private static final int CONFIDENCE = 50;
+    private static final String INDEX_FILE_NAME = "pcap_index.idx"; //$NON-NLS-1$
     private @Nullable PcapFile fPcapFile;
     private @Nullable ImmutableMap<String, String> fTraceProperties = null;
 
@@ -99,11 +102,30 @@ public class PcapTrace extends TmfTrace implements ITmfEventParser, ITmfTracePro
         }
         @SuppressWarnings("null")
         @NonNull Path filePath = FileSystems.getDefault().getPath(path);
+        PcapFile pcap;
         try {
-            fPcapFile = new PcapFile(filePath);
+            pcap = new PcapFile(filePath, true);
         } catch (IOException | BadPcapFileException e) {
             throw new TmfTraceException(e.getMessage(), e);
         }
+        fPcapFile = pcap;
+
+        // Reuse the packet index saved when the trace was last closed
+        try {
+            pcap.loadIndex(getIndexPath());
+        } catch (IOException e) {
+            String message = e.getMessage();
+            if (message == null) {
+                message = EMPTY_STRING;
+            }
+            Activator.logError(message, e);
+        }
+    }
+
+    private Path getIndexPath() {
+        @SuppressWarnings("null")
+        @NonNull Path indexPath = FileSystems.getDefault().getPath(TmfTraceManager.getSupplementaryFileDir(this), INDEX_FILE_NAME);
+        return indexPath;
     }
 
     @Override
@@ -205,6 +227,19 @@ public class PcapTrace extends TmfTrace implements ITmfEventParser, ITmfTracePro
         if (pcap == null) {
             return;
         }
+        // Save the packet index so that it does not need to be built again
+        Path indexPath = getIndexPath();
+        try {
+            if (Files.isDirectory(indexPath.getParent())) {
+                pcap.saveIndex(indexPath);
+            }
+        } catch (IOException e) {
+            String message = e.getMessage();
+            if (message == null) {
+                message = EMPTY_STRING;
+            }
+            Activator.logError(message, e);
+        }
         try {
             pcap.close();
             fPcapFile = null;
@@ -218,6 +253,18 @@ public class PcapTrace extends TmfTrace implements ITmfEventParser, ITmfTracePro
         }
     }
 
+    /**
+     * Get the pcap file of the trace, to read the whole file without going
+     * through the events of the trace. Its index is shared with the readers
+     * of the file.
+     *
+     * @return The pcap file, or null if the trace is not initialized or was
+     *         disposed
+     */
+    public synchronized @Nullable PcapFile getPcapFile() {
+        return fPcapFile;
+    }
+
     @Override
     public synchronized Map<String, String> getTraceProperties() {
         PcapFile pcap = fPcapFile;
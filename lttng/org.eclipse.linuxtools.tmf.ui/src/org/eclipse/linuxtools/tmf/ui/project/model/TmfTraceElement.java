@@ -205,7 +205,9 @@ public class TmfTraceElement extends TmfCommonProjectElement implements IActionF
                 if (getTraceType().startsWith(CustomTxtTrace.class.getCanonicalName())) {
                     for (CustomTxtTraceDefinition def : CustomTxtTraceDefinition.loadAll()) {
                         if (getTraceType().equals(CustomTxtTrace.class.getCanonicalName() + ':' + def.categoryName+ ':' + def.definitionName)) {
-                            return new CustomTxtTrace(def);
+                            CustomTxtTrace trace = new CustomTxtTrace(def);
+                            trace.setCopyFirstLineGroups(true);
+                            return trace;
                         }
                     }
                 }
@@ -85,6 +85,7 @@ import org.eclipse.linuxtools.tmf.core.event.lookup.ITmfSourceLookup;
 import org.eclipse.linuxtools.tmf.core.filter.ITmfFilter;
 import org.eclipse.linuxtools.tmf.core.filter.model.ITmfFilterTreeNode;
 import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterCompiler;
 import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterMatchesNode;
 import org.eclipse.linuxtools.tmf.core.filter.model.TmfFilterNode;
 import org.eclipse.linuxtools.tmf.core.request.ITmfEventRequest.ExecutionType;
@@ -1520,6 +1521,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
      */
     protected class FilterThread extends Thread {
         private final ITmfFilterTreeNode filter;
+        private final ITmfFilter compiledFilter;
         private TmfEventRequest request;
         private boolean refreshBusy = false;
         private boolean refreshPending = false;
@@ -1534,6 +1536,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
         public FilterThread(final ITmfFilterTreeNode filter) {
             super("Filter Thread"); //$NON-NLS-1$
             this.filter = filter;
+            this.compiledFilter = TmfFilterCompiler.compile(filter);
         }
 
         @Override
@@ -1553,7 +1556,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                     if (request.isCancelled()) {
                         return;
                     }
-                    if (filter.matches(event)) {
+                    if (compiledFilter.matches(event)) {
                         final long rank = fFilterCheckCount;
                         final int index = (int) fFilterMatchCount;
                         fFilterMatchCount++;
@@ -1700,8 +1703,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
      */
     protected class SearchThread extends Job {
 
-        private ITmfFilterTreeNode searchFilter;
-        private ITmfFilterTreeNode eventFilter;
+        private ITmfFilter searchFilter;
+        private ITmfFilter eventFilter;
         private int startIndex;
         private int direction;
         private long rank;
@@ -1727,8 +1730,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                 final ITmfFilterTreeNode eventFilter, final int startIndex,
                 final long currentRank, final int direction) {
             super(Messages.TmfEventsTable_SearchingJobName);
-            this.searchFilter = searchFilter;
-            this.eventFilter = eventFilter;
+            this.searchFilter = TmfFilterCompiler.compile(searchFilter);
+            this.eventFilter = (eventFilter == null ? null : TmfFilterCompiler.compile(eventFilter));
             this.startIndex = startIndex;
             this.rank = currentRank;
             this.direction = direction;
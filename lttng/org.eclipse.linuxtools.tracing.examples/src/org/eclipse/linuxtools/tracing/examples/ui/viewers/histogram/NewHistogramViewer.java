@@ -13,9 +13,7 @@
 package org.eclipse.linuxtools.tracing.examples.ui.viewers.histogram;
 
 import java.util.Arrays;
-import java.util.List;
 
-import org.eclipse.linuxtools.tmf.core.statistics.ITmfStatistics;
 import org.eclipse.linuxtools.tmf.core.statistics.TmfStatisticsModule;
 import org.eclipse.linuxtools.tmf.core.trace.ITmfTrace;
 import org.eclipse.linuxtools.tmf.core.trace.TmfTraceManager;
@@ -81,18 +79,17 @@ public class NewHistogramViewer extends TmfBarChartViewer {
                             continue;
                         }
                         statsMod.waitForInitialization();
-                        final ITmfStatistics stats = statsMod.getStatistics();
-                        if (stats == null) {
+                        if (statsMod.getStatistics() == null) {
                             /*
                              * Should not be null after waitForInitialization()
                              * is called.
                              */
                             throw new IllegalStateException();
                         }
-                        List<Long> values = stats.histogramQuery(start, end, nb);
+                        long[] values = statsMod.getHistogram(start, end, nb);
 
-                        for (int i = 0; i < nb; i++) {
-                            yLong[i] += values.get(i);
+                        for (int i = 0; i < values.length; i++) {
+                            yLong[i] += values[i];
                         }
                     }
 